@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BinaryBed;
+import ca.qc.ircm.bedtools.io.BinaryBedInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts BED between text and binary formats.
+ */
+@Component
+public class BedConverter {
+  private static final Logger logger = LoggerFactory.getLogger(BedConverter.class);
+
+  /**
+   * Converts BED between text and binary formats.
+   *
+   * @param command
+   *          convert command
+   * @throws IOException
+   *           could not read or write BED
+   */
+  public void run(ConvertCommand command) throws IOException {
+    try (BufferedInputStream rawInput = command.inputStream()) {
+      boolean binaryInput = BinaryBed.isBinary(rawInput);
+      BedFormat format = command.format;
+      if (format == null) {
+        format = binaryInput ? BedFormat.TEXT : BedFormat.BINARY;
+      }
+      logger.debug("converting {} BED to {}", binaryInput ? BedFormat.BINARY : BedFormat.TEXT,
+          format);
+      InputStream input = binaryInput ? new BinaryBedInputStream(rawInput) : rawInput;
+      try (OutputStream output = command.outputStream(format)) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+          output.write(buffer, 0, read);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.util.Arrays;
+
+/**
+ * Annotation of a BED file.
+ *
+ * <p>
+ * Records are immutable, transformations return new records. Columns following the standard
+ * columns are kept as is.
+ * </p>
+ */
+public final class BedRecord {
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String NEGATIVE_STRAND = "-";
+  private static final int NAME_COLUMN = 3;
+  private static final int SCORE_COLUMN = 4;
+  private static final int STRAND_COLUMN = 5;
+  private final String[] columns;
+  private final long start;
+  private final long end;
+
+  private BedRecord(String[] columns, long start, long end) {
+    this.columns = columns;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Creates record.
+   *
+   * @param chromosome
+   *          chromosome
+   * @param start
+   *          start, inclusive
+   * @param end
+   *          end, exclusive
+   * @param columns
+   *          additional columns, starting with name, score and strand
+   * @return record
+   */
+  public static BedRecord of(String chromosome, long start, long end, String... columns) {
+    String[] allColumns = new String[columns.length + 3];
+    allColumns[0] = chromosome;
+    allColumns[1] = String.valueOf(start);
+    allColumns[2] = String.valueOf(end);
+    System.arraycopy(columns, 0, allColumns, 3, columns.length);
+    return new BedRecord(allColumns, start, end);
+  }
+
+  /**
+   * Parses BED line.
+   *
+   * @param line
+   *          BED line that is not a header
+   * @return record
+   * @throws IllegalArgumentException
+   *           line has less than 3 columns
+   * @throws NumberFormatException
+   *           start or end is not a number
+   */
+  public static BedRecord parse(String line) {
+    String[] columns = line.split(COLUMN_SEPARATOR, -1);
+    if (columns.length < 3) {
+      throw new IllegalArgumentException("Missing coordinates in line " + line);
+    }
+    return new BedRecord(columns, Long.parseLong(columns[1]), Long.parseLong(columns[2]));
+  }
+
+  /**
+   * Returns true if line is a comment, browser or track line.
+   *
+   * @param line
+   *          BED line
+   * @return true if line is a comment, browser or track line
+   */
+  public static boolean isHeader(String line) {
+    return Interval.isHeader(line);
+  }
+
+  /**
+   * Returns a copy of this record with different coordinates.
+   *
+   * @param start
+   *          start, inclusive
+   * @param end
+   *          end, exclusive
+   * @return copy of this record with different coordinates
+   */
+  public BedRecord withCoordinates(long start, long end) {
+    String[] columns = this.columns.clone();
+    columns[1] = String.valueOf(start);
+    columns[2] = String.valueOf(end);
+    return new BedRecord(columns, start, end);
+  }
+
+  public String getChromosome() {
+    return columns[0];
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public String getName() {
+    return getColumn(NAME_COLUMN);
+  }
+
+  public String getScore() {
+    return getColumn(SCORE_COLUMN);
+  }
+
+  public String getStrand() {
+    return getColumn(STRAND_COLUMN);
+  }
+
+  public boolean isNegativeStrand() {
+    return NEGATIVE_STRAND.equals(getStrand());
+  }
+
+  /**
+   * Returns column's value.
+   *
+   * @param index
+   *          column index, starting at 0
+   * @return column's value, null if record does not have this column
+   */
+  public String getColumn(int index) {
+    return index < columns.length ? columns[index] : null;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Returns BED line of this record, without line separator.
+   */
+  @Override
+  public String toString() {
+    return String.join(COLUMN_SEPARATOR, columns);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(columns);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    return Arrays.equals(columns, ((BedRecord) obj).columns);
+  }
+}
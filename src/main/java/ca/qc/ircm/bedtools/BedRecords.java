@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming API over BED and BEDPE records, usable without the command line.
+ *
+ * <p>
+ * Transformations are equivalent to the commands with the same name and are meant to be used
+ * with {@link Stream#map(Function)} and {@link Stream#filter(Predicate)}. Streams returned by
+ * {@link #bed(Path)} and {@link #bedpe(Path)} split files by byte range when made parallel.
+ * </p>
+ */
+public final class BedRecords {
+  private BedRecords() {
+  }
+
+  /**
+   * Returns annotations of BED file, skipping headers. Stream must be closed to close the file.
+   *
+   * @param file
+   *          BED file
+   * @return annotations of BED file
+   * @throws IOException
+   *           could not open file
+   */
+  public static Stream<BedRecord> bed(Path file) throws IOException {
+    return BedStreams.lines(file).filter(line -> !BedRecord.isHeader(line))
+        .map(BedRecord::parse);
+  }
+
+  /**
+   * Returns pairs of BEDPE file, skipping comments. Stream must be closed to close the file.
+   *
+   * @param file
+   *          BEDPE file
+   * @return pairs of BEDPE file
+   * @throws IOException
+   *           could not open file
+   */
+  public static Stream<BedpeRecord> bedpe(Path file) throws IOException {
+    return BedStreams.lines(file).filter(line -> !BedpeRecord.isComment(line))
+        .map(BedpeRecord::parse);
+  }
+
+  /**
+   * Returns transformation that sets the size of annotations, see
+   * {@link SetAnnotationsSizeCommand}.
+   *
+   * @param size
+   *          annotation size
+   * @param changeStart
+   *          true to change start instead of end
+   * @param reverseForNegativeStrand
+   *          true to change the other coordinate for annotations on negative strand
+   * @return transformation that sets the size of annotations
+   */
+  public static UnaryOperator<BedRecord> setAnnotationsSize(long size, boolean changeStart,
+      boolean reverseForNegativeStrand) {
+    return record -> {
+      boolean reverse = reverseForNegativeStrand && record.isNegativeStrand();
+      if (changeStart != reverse) {
+        return record.withCoordinates(record.getEnd() - size, record.getEnd());
+      } else {
+        return record.withCoordinates(record.getStart(), record.getStart() + size);
+      }
+    };
+  }
+
+  /**
+   * Returns transformation that moves annotations, see {@link MoveAnnotationsCommand}. Use
+   * {@link #nonNegative()} to discard annotations moved to negative coordinates.
+   *
+   * @param distance
+   *          distance to move annotations
+   * @param reverseForNegativeStrand
+   *          true to move annotations on negative strand in the opposite direction
+   * @return transformation that moves annotations
+   */
+  public static UnaryOperator<BedRecord> moveAnnotations(long distance,
+      boolean reverseForNegativeStrand) {
+    return record -> {
+      long recordDistance =
+          reverseForNegativeStrand && record.isNegativeStrand() ? -distance : distance;
+      return record.withCoordinates(record.getStart() + recordDistance,
+          record.getEnd() + recordDistance);
+    };
+  }
+
+  /**
+   * Returns filter that keeps annotations with non-negative coordinates.
+   *
+   * @return filter that keeps annotations with non-negative coordinates
+   */
+  public static Predicate<BedRecord> nonNegative() {
+    return record -> record.getStart() >= 0 && record.getEnd() >= 0;
+  }
+
+  /**
+   * Returns conversion of pairs to BED, see {@link BedpeToBedCommand}. When converting to
+   * fragments, pairs on different chromosomes must be removed first using
+   * {@link BedpeRecord#isSameChromosome()}.
+   *
+   * @param fragment
+   *          true to convert pairs to fragments covering both annotations
+   * @return conversion of pairs to BED
+   */
+  public static Function<BedpeRecord, BedRecord> bedpeToBed(boolean fragment) {
+    return fragment ? BedpeRecord::toFragment : BedpeRecord::toBed;
+  }
+
+  /**
+   * Returns filter that keeps pairs on the same chromosome with an insert size lower or equal to
+   * maximum, see {@link FilterBedpeCommand}.
+   *
+   * @param maximumInsertSize
+   *          maximum insert size
+   * @return filter that keeps pairs with an insert size lower or equal to maximum
+   */
+  public static Predicate<BedpeRecord> maximumInsertSize(long maximumInsertSize) {
+    return record -> record.isSameChromosome() && record.insertSize() <= maximumInsertSize;
+  }
+
+  /**
+   * Returns filter that keeps pairs whose name is in names, see {@link FilterBedpeCommand}.
+   *
+   * @param names
+   *          read names
+   * @param exclude
+   *          true to remove pairs whose name is in names instead
+   * @return filter that keeps pairs whose name is in names
+   */
+  public static Predicate<BedpeRecord> names(Collection<String> names, boolean exclude) {
+    Set<String> nameSet = new HashSet<>(names);
+    return record -> nameSet.contains(record.getName()) != exclude;
+  }
+
+  /**
+   * Returns filter that removes pairs where any annotation overlaps a region, see
+   * {@link FilterBedpeCommand}.
+   *
+   * @param regions
+   *          BED regions, reader is not closed
+   * @return filter that removes pairs where any annotation overlaps a region
+   * @throws IOException
+   *           could not read regions
+   */
+  public static Predicate<BedpeRecord> excludeRegions(BufferedReader regions)
+      throws IOException {
+    RegionIndex index = RegionIndex.load(regions);
+    return record -> !index.overlaps(record.getChromosome1(), record.getStart1(),
+        record.getEnd1())
+        && !index.overlaps(record.getChromosome2(), record.getStart2(), record.getEnd2());
+  }
+}
@@ -17,29 +17,51 @@
 
 package ca.qc.ircm.bedtools;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.genome.GenomeRegistry;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import ca.qc.ircm.bedtools.io.ByteLineWriter;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.function.BiFunction;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
  * BED file transformations.
+ *
+ * <p>
+ * Lines are processed as bytes: unchanged columns are copied from input and new coordinates are
+ * formatted directly into the output buffer, so transformations do not allocate per line. Lines
+ * can be processed by multiple threads, output keeps the order of input.
+ * </p>
+ *
+ * <p>
+ * When a genome is specified, annotations that leave their chromosome are clamped to
+ * <code>[0, size)</code> or discarded. Chromosomes are looked up by id from the bytes of the line,
+ * so the check does not allocate. Annotations on chromosomes missing from genome are not changed.
+ * </p>
  */
 @Component
 public class BedTransform {
-  private static final String LINE_SEPARATOR = "\n";
-  private static final String COLUMN_SEPARATOR = "\t";
-  private static final String BROWSER_PATTERN = "^browser( .*)?$";
-  private static final String TRACK_PATTERN = "^track( .*)?$";
-  private static final String NEGATIVE_STRAND = "-";
-  private static final String COMMENT = "#";
+  private static final byte COLUMN_SEPARATOR = '\t';
+  private static final byte[] BROWSER = "browser".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] TRACK = "track".getBytes(StandardCharsets.UTF_8);
+  private static final byte NEGATIVE_STRAND = '-';
+  private static final byte COMMENT = '#';
+  private static final int STRAND_COLUMN = 5;
   private static final Logger logger = LoggerFactory.getLogger(BedTransform.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+  @Inject
+  private GenomeRegistry genomeRegistry;
 
   /**
    * Sets the size of annotations in BED file.
@@ -50,44 +72,53 @@ public class BedTransform {
    *           could not read or write BED
    */
   public void setAnnotationsSize(SetAnnotationsSizeCommand parameters) throws IOException {
-    Pattern browserPattern = Pattern.compile(BROWSER_PATTERN);
-    Pattern trackPattern = Pattern.compile(TRACK_PATTERN);
-    BiFunction<String, String, String> changeStart =
-        (start, end) -> String.valueOf(Long.parseLong(end) - parameters.size);
-    BiFunction<String, String, String> changeEnd =
-        (start, end) -> String.valueOf(Long.parseLong(start) + parameters.size);
-    try (BufferedReader reader = parameters.reader(); BufferedWriter writer = parameters.writer()) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        String[] columns = line.split(COLUMN_SEPARATOR, -1);
-        if (browserPattern.matcher(columns[0]).matches()
-            || trackPattern.matcher(columns[0]).matches() || columns[0].startsWith(COMMENT)) {
-          writer.write(line);
-          writer.write(LINE_SEPARATOR);
+    long size = parameters.size;
+    boolean changeStart = parameters.changeStart;
+    boolean reverseForNegativeStrand = parameters.reverseForNegativeStrand;
+    ChromosomeDictionary genome = genome(parameters.genome);
+    boolean discardOutOfBounds = parameters.discardOutOfBounds;
+    LineProcessor processor = (line, lineStart, lineEnd, writer) -> {
+      if (isHeader(line, lineStart, lineEnd)) {
+        writer.write(line, lineStart, lineEnd);
+        writer.newLine();
+        return;
+      }
+      int startColumn = columnStart(line, lineStart, lineStart, lineEnd);
+      int endColumn = columnStart(line, startColumn, lineStart, lineEnd);
+      int endColumnEnd = columnEnd(line, endColumn, lineEnd);
+      boolean reverse =
+          reverseForNegativeStrand && isNegativeStrand(line, endColumnEnd, lineEnd);
+      if (genome != null) {
+        long start;
+        long end;
+        if (changeStart != reverse) {
+          end = ByteLineReader.parseLong(line, endColumn, endColumnEnd);
+          start = end - size;
         } else {
-          BiFunction<String, String, String> startFunction = (start, end) -> start;
-          BiFunction<String, String, String> endFunction = (start, end) -> end;
-          if (parameters.reverseForNegativeStrand && columns.length >= 5
-              && columns[5].equals(NEGATIVE_STRAND)) {
-            if (parameters.changeStart) {
-              endFunction = changeEnd;
-            } else {
-              startFunction = changeStart;
-            }
-          } else {
-            if (parameters.changeStart) {
-              startFunction = changeStart;
-            } else {
-              endFunction = changeEnd;
-            }
-          }
-          columns[1] = startFunction.apply(columns[1], columns[2]);
-          columns[2] = endFunction.apply(columns[1], columns[2]);
-          writer
-              .write(Arrays.asList(columns).stream().collect(Collectors.joining(COLUMN_SEPARATOR)));
-          writer.write(LINE_SEPARATOR);
+          start = ByteLineReader.parseLong(line, startColumn, endColumn - 1);
+          end = start + size;
         }
+        writeInBounds(line, lineStart, lineEnd, startColumn, endColumnEnd, start, end, genome,
+            discardOutOfBounds, writer);
+        return;
       }
+      writer.write(line, lineStart, startColumn);
+      if (changeStart != reverse) {
+        long end = ByteLineReader.parseLong(line, endColumn, endColumnEnd);
+        writer.writeLong(end - size);
+        writer.write(line, endColumn - 1, endColumnEnd);
+      } else {
+        long start = ByteLineReader.parseLong(line, startColumn, endColumn - 1);
+        writer.write(line, startColumn, endColumn);
+        writer.writeLong(start + size);
+      }
+      writer.write(line, endColumnEnd, lineEnd);
+      writer.newLine();
+    };
+    try (InputStream input = parameters.inputStream();
+        OutputStream output = parameters.outputStream();
+        Workers workers = executionEngine.workers(parameters.threads)) {
+      workers.run(input, output, processor);
     }
   }
 
@@ -100,36 +131,139 @@ public class BedTransform {
    *           could not read or write BED
    */
   public void moveAnnotations(MoveAnnotationsCommand parameters) throws IOException {
-    Pattern browserPattern = Pattern.compile(BROWSER_PATTERN);
-    Pattern trackPattern = Pattern.compile(TRACK_PATTERN);
-    try (BufferedReader reader = parameters.reader(); BufferedWriter writer = parameters.writer()) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        String[] columns = line.split(COLUMN_SEPARATOR, -1);
-        if (browserPattern.matcher(columns[0]).matches()
-            || trackPattern.matcher(columns[0]).matches() || columns[0].startsWith(COMMENT)) {
-          writer.write(line);
-          writer.write(LINE_SEPARATOR);
-        } else {
-          if (parameters.reverseForNegativeStrand && columns.length >= 5
-              && columns[5].equals(NEGATIVE_STRAND)) {
-            columns[1] = String.valueOf(Long.parseLong(columns[1]) - parameters.distance);
-            columns[2] = String.valueOf(Long.parseLong(columns[2]) - parameters.distance);
-          } else {
-            columns[1] = String.valueOf(Long.parseLong(columns[1]) + parameters.distance);
-            columns[2] = String.valueOf(Long.parseLong(columns[2]) + parameters.distance);
-          }
-          if (parameters.discardNegative
-              && (columns[1].startsWith("-") || columns[2].startsWith("-"))) {
-            // Discard annotation.
-            logger.warn("Discarding annotation {}", line);
-            continue;
-          }
-          writer
-              .write(Arrays.asList(columns).stream().collect(Collectors.joining(COLUMN_SEPARATOR)));
-          writer.write(LINE_SEPARATOR);
+    long distance = parameters.distance;
+    boolean reverseForNegativeStrand = parameters.reverseForNegativeStrand;
+    boolean discardNegative = parameters.discardNegative;
+    ChromosomeDictionary genome = genome(parameters.genome);
+    boolean discardOutOfBounds = parameters.discardOutOfBounds;
+    LineProcessor processor = (line, lineStart, lineEnd, writer) -> {
+      if (isHeader(line, lineStart, lineEnd)) {
+        writer.write(line, lineStart, lineEnd);
+        writer.newLine();
+        return;
+      }
+      int startColumn = columnStart(line, lineStart, lineStart, lineEnd);
+      int endColumn = columnStart(line, startColumn, lineStart, lineEnd);
+      int endColumnEnd = columnEnd(line, endColumn, lineEnd);
+      long lineDistance = reverseForNegativeStrand
+          && isNegativeStrand(line, endColumnEnd, lineEnd) ? -distance : distance;
+      long start = ByteLineReader.parseLong(line, startColumn, endColumn - 1) + lineDistance;
+      long end = ByteLineReader.parseLong(line, endColumn, endColumnEnd) + lineDistance;
+      if (discardNegative && (start < 0 || end < 0)) {
+        // Discard annotation.
+        logger.warn("Discarding annotation {}",
+            new String(line, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+        return;
+      }
+      if (genome != null) {
+        writeInBounds(line, lineStart, lineEnd, startColumn, endColumnEnd, start, end, genome,
+            discardOutOfBounds, writer);
+        return;
+      }
+      writeCoordinates(line, lineStart, lineEnd, startColumn, endColumnEnd, start, end, writer);
+    };
+    try (InputStream input = parameters.inputStream();
+        OutputStream output = parameters.outputStream();
+        Workers workers = executionEngine.workers(parameters.threads)) {
+      workers.run(input, output, processor);
+    }
+  }
+
+  private ChromosomeDictionary genome(Path sizes) throws IOException {
+    return sizes != null ? genomeRegistry.dictionary(sizes) : null;
+  }
+
+  /**
+   * Writes line with new coordinates, clamped to chromosome bounds. Line is discarded if
+   * coordinates leave chromosome and discardOutOfBounds is true, or if nothing is left once
+   * clamped.
+   */
+  private void writeInBounds(byte[] line, int lineStart, int lineEnd, int startColumn,
+      int endColumnEnd, long start, long end, ChromosomeDictionary genome,
+      boolean discardOutOfBounds, ByteLineWriter writer) throws IOException {
+    int chromosome = genome.find(line, lineStart, startColumn - 1);
+    if (chromosome != ChromosomeDictionary.MISSING) {
+      long size = genome.size(chromosome);
+      if (start < 0 || end > size) {
+        start = Math.max(start, 0);
+        end = Math.min(end, size);
+        if (discardOutOfBounds || start >= end) {
+          logger.warn("Discarding annotation outside of chromosome {}",
+              new String(line, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+          return;
         }
       }
     }
+    writeCoordinates(line, lineStart, lineEnd, startColumn, endColumnEnd, start, end, writer);
+  }
+
+  /**
+   * Writes line with new coordinates.
+   */
+  private void writeCoordinates(byte[] line, int lineStart, int lineEnd, int startColumn,
+      int endColumnEnd, long start, long end, ByteLineWriter writer) throws IOException {
+    writer.write(line, lineStart, startColumn);
+    writer.writeLong(start);
+    writer.write(COLUMN_SEPARATOR);
+    writer.writeLong(end);
+    writer.write(line, endColumnEnd, lineEnd);
+    writer.newLine();
+  }
+
+  /**
+   * Returns true if line is a browser, track or comment line.
+   */
+  static boolean isHeader(byte[] line, int start, int end) {
+    int firstColumnEnd = columnEnd(line, start, end);
+    return (firstColumnEnd > start && line[start] == COMMENT)
+        || isKeyword(line, start, firstColumnEnd, BROWSER)
+        || isKeyword(line, start, firstColumnEnd, TRACK);
+  }
+
+  private static boolean isKeyword(byte[] line, int start, int end, byte[] keyword) {
+    if (end - start < keyword.length) {
+      return false;
+    }
+    for (int i = 0; i < keyword.length; i++) {
+      if (line[start + i] != keyword[i]) {
+        return false;
+      }
+    }
+    return end - start == keyword.length || line[start + keyword.length] == ' ';
+  }
+
+  /**
+   * Returns true if strand column, starting after the end column, is negative.
+   */
+  static boolean isNegativeStrand(byte[] line, int endColumnEnd, int end) {
+    int start = endColumnEnd;
+    for (int column = 3; column < STRAND_COLUMN && start < end; column++) {
+      start = columnEnd(line, start + 1, end);
+    }
+    if (start >= end) {
+      return false;
+    }
+    start++;
+    return columnEnd(line, start, end) == start + 1 && line[start] == NEGATIVE_STRAND;
+  }
+
+  /**
+   * Returns start of the column following the column starting at from.
+   */
+  static int columnStart(byte[] line, int from, int start, int end) {
+    int separator = ByteLineReader.indexOf(line, COLUMN_SEPARATOR, from, end);
+    if (separator < 0) {
+      throw new IllegalArgumentException("Missing coordinates in line "
+          + new String(line, start, end - start, StandardCharsets.UTF_8));
+    }
+    return separator + 1;
+  }
+
+  /**
+   * Returns end of the column starting at start.
+   */
+  static int columnEnd(byte[] line, int start, int end) {
+    int separator = ByteLineReader.indexOf(line, COLUMN_SEPARATOR, start, end);
+    return separator >= 0 ? separator : end;
   }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.util.Arrays;
+
+/**
+ * Pair of annotations of a BEDPE file.
+ *
+ * <p>
+ * Records are immutable. Columns following the standard columns are kept as is.
+ * </p>
+ */
+public final class BedpeRecord {
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String COMMENT = "#";
+  private static final int NAME_COLUMN = 6;
+  private static final int SCORE_COLUMN = 7;
+  private static final int STRAND1_COLUMN = 8;
+  private static final int STRAND2_COLUMN = 9;
+  private final String[] columns;
+  private final long start1;
+  private final long end1;
+  private final long start2;
+  private final long end2;
+
+  private BedpeRecord(String[] columns) {
+    this.columns = columns;
+    this.start1 = Long.parseLong(columns[1]);
+    this.end1 = Long.parseLong(columns[2]);
+    this.start2 = Long.parseLong(columns[4]);
+    this.end2 = Long.parseLong(columns[5]);
+  }
+
+  /**
+   * Parses BEDPE line.
+   *
+   * @param line
+   *          BEDPE line that is not a comment
+   * @return record
+   * @throws IllegalArgumentException
+   *           line has less than 6 columns
+   * @throws NumberFormatException
+   *           a start or end is not a number
+   */
+  public static BedpeRecord parse(String line) {
+    String[] columns = line.split(COLUMN_SEPARATOR, -1);
+    if (columns.length < 6) {
+      throw new IllegalArgumentException("Invalid BEDPE line " + line);
+    }
+    return new BedpeRecord(columns);
+  }
+
+  /**
+   * Returns true if line is a comment.
+   *
+   * @param line
+   *          BEDPE line
+   * @return true if line is a comment
+   */
+  public static boolean isComment(String line) {
+    return line.startsWith(COMMENT);
+  }
+
+  /**
+   * Returns true if both annotations are on the same chromosome.
+   *
+   * @return true if both annotations are on the same chromosome
+   */
+  public boolean isSameChromosome() {
+    return columns[0].equals(columns[3]);
+  }
+
+  /**
+   * Returns distance between annotations. Annotations must be on the same chromosome.
+   *
+   * @return distance between annotations
+   */
+  public long insertSize() {
+    if (start1 > start2) {
+      return start1 - end2;
+    } else {
+      return start2 - end1;
+    }
+  }
+
+  /**
+   * Returns first annotation as a BED record, with name, score and strand of first annotation.
+   *
+   * @return first annotation as a BED record
+   */
+  public BedRecord toBed() {
+    return BedRecord.of(columns[0], start1, end1, bedColumns());
+  }
+
+  /**
+   * Returns fragment covering both annotations as a BED record, with name, score and strand of
+   * first annotation.
+   *
+   * @return fragment covering both annotations as a BED record
+   * @throws IllegalStateException
+   *           annotations are on different chromosomes
+   */
+  public BedRecord toFragment() {
+    if (!isSameChromosome()) {
+      throw new IllegalStateException("Annotations of " + getName()
+          + " are on different chromosomes, cannot create a fragment");
+    }
+    return BedRecord.of(columns[0], Math.min(start1, start2), Math.max(end1, end2),
+        bedColumns());
+  }
+
+  private String[] bedColumns() {
+    return Arrays.copyOfRange(columns, NAME_COLUMN,
+        Math.max(NAME_COLUMN, Math.min(columns.length, STRAND1_COLUMN + 1)));
+  }
+
+  public String getChromosome1() {
+    return columns[0];
+  }
+
+  public long getStart1() {
+    return start1;
+  }
+
+  public long getEnd1() {
+    return end1;
+  }
+
+  public String getChromosome2() {
+    return columns[3];
+  }
+
+  public long getStart2() {
+    return start2;
+  }
+
+  public long getEnd2() {
+    return end2;
+  }
+
+  public String getName() {
+    return getColumn(NAME_COLUMN);
+  }
+
+  public String getScore() {
+    return getColumn(SCORE_COLUMN);
+  }
+
+  public String getStrand1() {
+    return getColumn(STRAND1_COLUMN);
+  }
+
+  public String getStrand2() {
+    return getColumn(STRAND2_COLUMN);
+  }
+
+  /**
+   * Returns column's value.
+   *
+   * @param index
+   *          column index, starting at 0
+   * @return column's value, null if record does not have this column
+   */
+  public String getColumn(int index) {
+    return index < columns.length ? columns[index] : null;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Returns BEDPE line of this record, without line separator.
+   */
+  @Override
+  public String toString() {
+    return String.join(COLUMN_SEPARATOR, columns);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(columns);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    return Arrays.equals(columns, ((BedpeRecord) obj).columns);
+  }
+}
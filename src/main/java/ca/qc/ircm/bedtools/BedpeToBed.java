@@ -17,23 +17,44 @@
 
 package ca.qc.ircm.bedtools;
 
-import java.io.BufferedReader;
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
- * Move annotation parameters.
+ * Converts BEDPE to BED.
+ *
+ * <p>
+ * Fragment sizes are computed while converting, so the fragment size histogram does not need a
+ * second pass over the file.
+ * </p>
+ *
+ * <p>
+ * Lines are converted in parallel by the {@link ExecutionEngine execution engine}, each worker
+ * thread counting fragment sizes in its own histogram.
+ * </p>
  */
 @Component
 public class BedpeToBed {
-  private static final String LINE_SEPARATOR = "\n";
-  private static final String COLUMN_SEPARATOR = "\t";
-  private static final String COMMENT = "#";
-  @SuppressWarnings("unused")
+  private static final byte COLUMN_SEPARATOR = '\t';
+  private static final byte COMMENT = '#';
   private static final Logger logger = LoggerFactory.getLogger(BedpeToBed.class);
+  @Inject
+  private ExecutionEngine executionEngine;
 
   /**
    * Converts BED to BEDPE file.
@@ -44,28 +65,100 @@ public class BedpeToBed {
    *           could not read or write BED
    */
   public void run(BedpeToBedCommand command) throws IOException {
-    try (BufferedReader reader = command.reader(); BufferedWriter writer = command.writer()) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        String[] columns = line.split(COLUMN_SEPARATOR, -1);
-        if (columns[0].startsWith(COMMENT)) {
-          writer.write(line);
-          writer.write(LINE_SEPARATOR);
+    boolean fragment = command.fragment;
+    boolean computeFragment = command.fragment || command.histogram != null;
+    List<FragmentSizeHistogram> histograms = Collections.synchronizedList(new ArrayList<>());
+    ThreadLocal<FragmentSizeHistogram> threadHistogram = ThreadLocal.withInitial(() -> {
+      FragmentSizeHistogram histogram = new FragmentSizeHistogram();
+      histograms.add(histogram);
+      return histogram;
+    });
+    LongAdder discarded = new LongAdder();
+    LineProcessor processor = (line, lineStart, lineEnd, writer) -> {
+      if (lineEnd > lineStart && line[lineStart] == COMMENT) {
+        writer.write(line, lineStart, lineEnd);
+        writer.newLine();
+        return;
+      }
+      int chromosome1End = separator(line, lineStart, lineStart, lineEnd);
+      int start1End = separator(line, chromosome1End + 1, lineStart, lineEnd);
+      int end1End = separator(line, start1End + 1, lineStart, lineEnd);
+      int chromosome2End = separator(line, end1End + 1, lineStart, lineEnd);
+      int start2End = separator(line, chromosome2End + 1, lineStart, lineEnd);
+      int end2End = separator(line, start2End + 1, lineStart, lineEnd);
+      int nameEnd = separator(line, end2End + 1, lineStart, lineEnd);
+      int scoreEnd = separator(line, nameEnd + 1, lineStart, lineEnd);
+      int strandEnd = ByteLineReader.indexOf(line, COLUMN_SEPARATOR, scoreEnd + 1, lineEnd);
+      strandEnd = strandEnd >= 0 ? strandEnd : lineEnd;
+      long fragmentStart = 0;
+      long fragmentEnd = 0;
+      boolean writeFragment = false;
+      if (computeFragment) {
+        if (!equals(line, lineStart, chromosome1End, end1End + 1, chromosome2End)) {
+          if (fragment) {
+            discarded.increment();
+            return;
+          }
         } else {
-          writer.write(columns[0]);
-          writer.write(COLUMN_SEPARATOR);
-          writer.write(columns[1]);
-          writer.write(COLUMN_SEPARATOR);
-          writer.write(columns[2]);
-          writer.write(COLUMN_SEPARATOR);
-          writer.write(columns[6]);
-          writer.write(COLUMN_SEPARATOR);
-          writer.write(columns[7]);
-          writer.write(COLUMN_SEPARATOR);
-          writer.write(columns[8]);
-          writer.write(LINE_SEPARATOR);
+          fragmentStart =
+              Math.min(ByteLineReader.parseLong(line, chromosome1End + 1, start1End),
+                  ByteLineReader.parseLong(line, chromosome2End + 1, start2End));
+          fragmentEnd = Math.max(ByteLineReader.parseLong(line, start1End + 1, end1End),
+              ByteLineReader.parseLong(line, start2End + 1, end2End));
+          threadHistogram.get().add(fragmentEnd - fragmentStart);
+          writeFragment = fragment;
         }
       }
+      if (writeFragment) {
+        writer.write(line, lineStart, chromosome1End + 1);
+        writer.writeLong(fragmentStart);
+        writer.write(COLUMN_SEPARATOR);
+        writer.writeLong(fragmentEnd);
+      } else {
+        writer.write(line, lineStart, end1End);
+      }
+      writer.write(line, end2End, strandEnd);
+      writer.newLine();
+    };
+    try (InputStream input = command.inputStream();
+        OutputStream output = command.outputStream();
+        Workers workers = executionEngine.workers(command.threads)) {
+      workers.run(input, output, processor);
+    }
+    FragmentSizeHistogram histogram = new FragmentSizeHistogram();
+    histograms.forEach(histogram::merge);
+    if (discarded.sum() > 0) {
+      logger.warn("Discarded {} fragments with mates on different chromosomes", discarded.sum());
+    }
+    if (histogram.overflow() > 0) {
+      logger.warn("{} fragments of {} bases or more are missing from histogram",
+          histogram.overflow(), FragmentSizeHistogram.MAXIMUM_SIZE);
+    }
+    if (command.histogram != null) {
+      try (BufferedWriter writer = command.histogramWriter()) {
+        histogram.write(writer);
+      }
+    }
+  }
+
+  private static int separator(byte[] line, int from, int start, int end) {
+    int separator = ByteLineReader.indexOf(line, COLUMN_SEPARATOR, from, end);
+    if (separator < 0) {
+      throw new IllegalArgumentException(
+          "Invalid BEDPE line " + new String(line, start, end - start, StandardCharsets.UTF_8));
+    }
+    return separator;
+  }
+
+  private static boolean equals(byte[] line, int start1, int end1, int start2, int end2) {
+    if (end1 - start1 != end2 - start2) {
+      return false;
+    }
+    for (int i = 0; i < end1 - start1; i++) {
+      if (line[start1 + i] != line[start2 + i]) {
+        return false;
+      }
     }
+    return true;
   }
 }
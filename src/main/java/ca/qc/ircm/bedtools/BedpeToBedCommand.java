@@ -17,16 +17,16 @@
 
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.io.BedStreams;
 import ca.qc.ircm.bedtools.validation.FileExistsValidation;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.beust.jcommander.converters.PathConverter;
-import java.io.BufferedReader;
+import com.beust.jcommander.validators.PositiveInteger;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -40,12 +40,48 @@ import java.nio.file.Path;
     commandDescription = "Converts BEDPE to BED")
 public class BedpeToBedCommand {
   public static final String BEDPE_TO_BED = "bedpetobed";
-  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int NAME_COLUMN = 3;
 
   @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
   public boolean help = false;
   @Parameter(names = { "--maximumInsertSize" }, description = "Maximum allowed insert size")
   public Integer maximumInsertSize;
+  @Parameter(
+      names = { "-f", "--fragment" },
+      description = "Write fragment, from lowest start to highest end of both mates")
+  public boolean fragment = false;
+  @Parameter(
+      names = { "--histogram" },
+      description = "Write fragment size histogram to this file",
+      converter = PathConverter.class)
+  public Path histogram;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of threads used to convert lines, output keeps the order of input."
+          + " Defaults to global --threads",
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "--splitBy", "--split-by" },
+      description = "Split output into one file per chromosome or strand."
+          + " Output file is required, key is added before its extension")
+  public SplitBy splitBy;
+  @Parameter(
+      names = { "--maxOpenFiles" },
+      description = "Maximum number of files open at the same time when splitting output",
+      validateWith = PositiveInteger.class)
+  public int maxOpenFiles = 256;
+  @Parameter(
+      names = { "--shards" },
+      description = "Split output into this number of files, records with the same shard key"
+          + " are written to the same file. Output file is required, shard is added before"
+          + " its extension",
+      validateWith = PositiveInteger.class)
+  public Integer shards;
+  @Parameter(
+      names = { "--shardKey", "--shard-key" },
+      description = "Key used to choose the shard of records, either name or position")
+  public ShardKey shardKey = ShardKey.NAME;
   @Parameter(
       names = { "-i", "--input" },
       description = "Input file. Defaults to system input for piping",
@@ -59,32 +95,38 @@ public class BedpeToBedCommand {
   public Path output;
 
   /**
-   * Returns input reader, falls back to <code>System.in</code>.
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input stream
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public InputStream inputStream() throws IOException {
+    return BedStreams.inputStream(input);
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Splitting output and shards are handled by
+   * {@link BedStreams}.
    *
-   * @return input reader
+   * @return output stream
    * @throws IOException
-   *           could not created a reader for input
+   *           could not created a stream for output
    */
-  public BufferedReader reader() throws IOException {
-    if (input != null) {
-      return Files.newBufferedReader(input);
-    } else {
-      return new BufferedReader(new InputStreamReader(System.in, CHARSET));
-    }
+  public OutputStream outputStream() throws IOException {
+    return BedStreams.outputStream(output, splitBy, maxOpenFiles, shards,
+        count -> shardKey.router(count, NAME_COLUMN));
   }
 
   /**
-   * Returns output writer, falls back to <code>System.out</code>.
+   * Returns fragment size histogram writer.
    *
-   * @return output writer
+   * @return fragment size histogram writer
    * @throws IOException
-   *           could not created a writer for output
+   *           could not created a writer for histogram
    */
-  public BufferedWriter writer() throws IOException {
-    if (output != null) {
-      return Files.newBufferedWriter(output);
-    } else {
-      return new BufferedWriter(new OutputStreamWriter(System.out, CHARSET));
-    }
+  public BufferedWriter histogramWriter() throws IOException {
+    return Files.newBufferedWriter(histogram, StandardCharsets.UTF_8);
   }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Converts BED between text and binary formats.
+ *
+ * <p>
+ * Binary BED is a compact storage format. Commands decode it back to BED lines before processing,
+ * so it saves disk space but is slower to process than text.
+ * </p>
+ */
+@Parameters(
+    separators = " =",
+    commandNames = ConvertCommand.CONVERT_COMMAND,
+    commandDescription = "Converts BED between text and binary formats. Binary BED is for compact "
+        + "storage only, commands decode it to text lines and process it slower than text")
+public class ConvertCommand {
+  public static final String CONVERT_COMMAND = "convert";
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-f", "--format" },
+      description = "Output format, text or binary. Defaults to the format that input is not in",
+      required = false)
+  public BedFormat format;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is not decoded.
+   *
+   * @return input stream that supports mark
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public BufferedInputStream inputStream() throws IOException {
+    return BedStreams.rawInputStream(input);
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>.
+   *
+   * @param format
+   *          output format
+   * @return output stream
+   * @throws IOException
+   *           could not created a stream for output
+   */
+  public OutputStream outputStream(BedFormat format) throws IOException {
+    return BedStreams.outputStream(output, format == BedFormat.BINARY);
+  }
+}
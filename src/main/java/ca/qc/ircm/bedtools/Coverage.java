@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.MemoryBudget;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.genome.GenomeRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes genome coverage.
+ *
+ * <p>
+ * Fragments are added to a difference array per chromosome, allocated outside of the heap, see
+ * {@link CoverageDifferences}. Each chromosome is then converted to a run-length compressed
+ * bedGraph in parallel.
+ * </p>
+ *
+ * <p>
+ * Chromosomes whose difference array does not fit in the memory budget are spilled to a
+ * compressed temporary file and processed afterwards, see {@link CoverageSpill}.
+ * </p>
+ */
+@Component
+public class Coverage {
+  private static final String LINE_SEPARATOR = "\n";
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final double MILLION = 1000000.0;
+  private static final Logger logger = LoggerFactory.getLogger(Coverage.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+  @Inject
+  private GenomeRegistry genomeRegistry;
+
+  /**
+   * Computes genome coverage of fragments.
+   *
+   * @param command
+   *          coverage command
+   * @throws IOException
+   *           could not read or write files
+   */
+  public void run(CoverageCommand command) throws IOException {
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(command.genome);
+    MemoryBudget memoryBudget = executionEngine.getMemoryBudget();
+    CoverageDifferences[] differences = new CoverageDifferences[dictionary.seeded()];
+    BitSet unknownChromosomes = new BitSet();
+    RegionIndex excluded = excluded(command);
+    CoverageSpill spill = null;
+    long fragments = 0;
+    long excludedFragments = 0;
+    try {
+      try (BufferedReader reader = command.reader()) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (Interval.isHeader(line)) {
+            continue;
+          }
+          String[] columns = line.split(COLUMN_SEPARATOR, -1);
+          int chromosome = dictionary.id(columns[0]);
+          long start = Long.parseLong(columns[1]);
+          long end = Long.parseLong(columns[2]);
+          if (command.bedpe) {
+            if (chromosome != dictionary.id(columns[3])) {
+              logger.warn("Discarding fragment with mates on different chromosomes {}", line);
+              continue;
+            }
+            start = Math.min(start, Long.parseLong(columns[4]));
+            end = Math.max(end, Long.parseLong(columns[5]));
+          }
+          if (excluded != null && excluded.overlaps(columns[0], start, end)) {
+            excludedFragments++;
+            continue;
+          }
+          if (command.midpoint) {
+            start = (start + end) / 2;
+            end = start + 1;
+          }
+          long size = dictionary.size(chromosome);
+          if (size == ChromosomeDictionary.UNKNOWN_SIZE) {
+            if (!unknownChromosomes.get(chromosome)) {
+              unknownChromosomes.set(chromosome);
+              logger.warn("Discarding fragments on chromosome {} missing from genome", columns[0]);
+            }
+            continue;
+          }
+          fragments++;
+          start = Math.max(start, 0);
+          end = Math.min(end, size);
+          if (start < end) {
+            CoverageDifferences difference = differences[chromosome];
+            if (difference == null && (spill == null || !spill.contains(chromosome))) {
+              difference = allocate(size, memoryBudget);
+              differences[chromosome] = difference;
+              if (difference == null) {
+                if (spill == null) {
+                  spill = new CoverageSpill();
+                }
+                logger.debug("memory budget exceeded, spilling chromosome {} to disk", columns[0]);
+              }
+            }
+            if (difference != null) {
+              difference.add(start, end);
+            } else {
+              spill.add(chromosome, start, end);
+            }
+          }
+        }
+      }
+      if (excludedFragments > 0) {
+        logger.debug("discarded {} fragments overlapping excluded regions", excludedFragments);
+      }
+      double factor = command.scale;
+      if (command.rpm && fragments > 0) {
+        factor *= MILLION / fragments;
+      }
+      logger.debug("computing coverage of {} fragments with factor {}", fragments, factor);
+      write(command, dictionary, differences, spill, factor);
+    } finally {
+      for (CoverageDifferences difference : differences) {
+        if (difference != null) {
+          memoryBudget.release(CoverageDifferences.memory(difference.size()));
+        }
+      }
+      if (spill != null) {
+        spill.close();
+      }
+    }
+  }
+
+  private RegionIndex excluded(CoverageCommand command) throws IOException {
+    if (command.exclude == null) {
+      return null;
+    }
+    try (BufferedReader reader = command.excludeReader()) {
+      return RegionIndex.load(reader);
+    }
+  }
+
+  /**
+   * Allocates difference array of chromosome, returns null if it does not fit in memory budget.
+   */
+  private CoverageDifferences allocate(long size, MemoryBudget memoryBudget) {
+    if (!memoryBudget.tryReserve(CoverageDifferences.memory(size))) {
+      return null;
+    }
+    return new CoverageDifferences(size);
+  }
+
+  private void write(CoverageCommand command, ChromosomeDictionary dictionary,
+      CoverageDifferences[] differences, CoverageSpill spill, double factor) throws IOException {
+    MemoryBudget memoryBudget = executionEngine.getMemoryBudget();
+    Workers workers = executionEngine.workers(command.threads);
+    List<Future<Path>> files = new ArrayList<>(Collections.nCopies(differences.length, null));
+    try {
+      for (int id = 0; id < differences.length; id++) {
+        String chromosome = dictionary.name(id);
+        CoverageDifferences difference = differences[id];
+        differences[id] = null;
+        if (difference != null) {
+          files.set(id, workers.submit(() -> {
+            try {
+              return writeChromosome(chromosome, difference, factor);
+            } finally {
+              memoryBudget.release(CoverageDifferences.memory(difference.size()));
+            }
+          }));
+        }
+      }
+      if (spill != null) {
+        for (Future<Path> future : files) {
+          if (future != null) {
+            get(future);
+          }
+        }
+        Path[] spilledFiles = spill.write(dictionary, memoryBudget, factor);
+        for (int id = 0; id < spilledFiles.length; id++) {
+          if (spilledFiles[id] != null) {
+            files.set(id, CompletableFuture.completedFuture(spilledFiles[id]));
+          }
+        }
+      }
+      try (BufferedWriter writer = command.writer()) {
+        char[] buffer = new char[8192];
+        for (Future<Path> future : files) {
+          if (future == null) {
+            continue;
+          }
+          Path file = get(future);
+          try (BufferedReader reader = Files.newBufferedReader(file)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+              writer.write(buffer, 0, read);
+            }
+          }
+          Files.delete(file);
+        }
+      }
+    } finally {
+      workers.close();
+      for (Future<Path> future : files) {
+        try {
+          if (future != null) {
+            Files.deleteIfExists(get(future));
+          }
+        } catch (IOException | RuntimeException e) {
+          // Chromosome failed, nothing to delete.
+        }
+      }
+    }
+  }
+
+  private Path get(Future<Path> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while computing coverage", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private Path writeChromosome(String chromosome, CoverageDifferences difference, double factor)
+      throws IOException {
+    Path file = Files.createTempFile("coverage", ".bedGraph");
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      difference.write(new Runs(writer, chromosome, factor));
+    }
+    return file;
+  }
+
+  /**
+   * Writes runs of equal depth of a chromosome, whose difference array may be split in windows or
+   * segments.
+   */
+  static class Runs {
+    private final BufferedWriter writer;
+    private final String chromosome;
+    private final double factor;
+    private int depth;
+    private long runStart;
+    private int cumulativeDepth;
+
+    Runs(BufferedWriter writer, String chromosome, double factor) {
+      this.writer = writer;
+      this.chromosome = chromosome;
+      this.factor = factor;
+    }
+
+    /**
+     * Adds window of difference array. Differences only contain fragments clamped to window.
+     *
+     * @param difference
+     *          differences of window
+     * @param start
+     *          start of window in chromosome
+     * @param length
+     *          length of window
+     * @throws IOException
+     *           could not write runs
+     */
+    void add(IntBuffer difference, long start, int length) throws IOException {
+      scan(difference, start, length, 0);
+    }
+
+    /**
+     * Adds segment of difference array. Differences contain fragments that may span several
+     * segments, so depth continues from previous segment.
+     *
+     * @param difference
+     *          differences of segment
+     * @param start
+     *          start of segment in chromosome
+     * @param length
+     *          length of segment
+     * @throws IOException
+     *           could not write runs
+     */
+    void append(IntBuffer difference, long start, int length) throws IOException {
+      cumulativeDepth = scan(difference, start, length, cumulativeDepth);
+    }
+
+    private int scan(IntBuffer difference, long start, int length, int initialDepth)
+        throws IOException {
+      int windowDepth = initialDepth;
+      for (int i = 0; i < length; i++) {
+        windowDepth += difference.get(i);
+        if (windowDepth != depth) {
+          if (depth != 0) {
+            writeRun(start + i);
+          }
+          depth = windowDepth;
+          runStart = start + i;
+        }
+      }
+      return windowDepth;
+    }
+
+    /**
+     * Writes last run.
+     *
+     * @param size
+     *          chromosome size
+     * @throws IOException
+     *           could not write runs
+     */
+    void finish(long size) throws IOException {
+      if (depth != 0) {
+        writeRun(size);
+      }
+    }
+
+    private void writeRun(long end) throws IOException {
+      double value = depth * factor;
+      writer.write(chromosome);
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(runStart));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(end));
+      writer.write(COLUMN_SEPARATOR);
+      if (value == Math.rint(value)) {
+        writer.write(String.valueOf((long) value));
+      } else {
+        writer.write(String.valueOf(value));
+      }
+      writer.write(LINE_SEPARATOR);
+    }
+  }
+}
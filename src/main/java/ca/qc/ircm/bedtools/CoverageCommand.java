@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Genome coverage parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = CoverageCommand.COVERAGE_COMMAND,
+    commandDescription = "Computes genome coverage of fragments as a bedGraph")
+public class CoverageCommand {
+  public static final String COVERAGE_COMMAND = "coverage";
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-g", "--genome" },
+      description = "Chromosome sizes, as created by fasta2sizes",
+      required = true,
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path genome;
+  @Parameter(
+      names = { "-p", "--bedpe" },
+      description = "Input is BEDPE, fragments span from first mate's start to last mate's end",
+      required = false)
+  public boolean bedpe;
+  @Parameter(
+      names = { "-m", "--midpoint" },
+      description = "Only count the middle base of fragments instead of their full span",
+      required = false)
+  public boolean midpoint;
+  @Parameter(names = { "--scale" }, description = "Multiply coverage by scale", required = false)
+  public double scale = 1;
+  @Parameter(
+      names = { "--rpm" },
+      description = "Scale coverage to reads per million fragments, applied after --scale",
+      required = false)
+  public boolean rpm;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of chromosomes to process in parallel. Defaults to global --threads",
+      required = false,
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "--exclude" },
+      description = "Discard fragments overlapping a region of this BED file",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path exclude;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input reader, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input reader
+   * @throws IOException
+   *           could not created a reader for input
+   */
+  public BufferedReader reader() throws IOException {
+    return BedStreams.reader(input);
+  }
+
+  /**
+   * Returns genome sizes reader.
+   *
+   * @return genome sizes reader
+   * @throws IOException
+   *           could not created a reader for genome sizes
+   */
+  public BufferedReader genomeReader() throws IOException {
+    return Files.newBufferedReader(genome);
+  }
+
+  /**
+   * Returns excluded regions reader. Binary BED input is decoded.
+   *
+   * @return excluded regions reader
+   * @throws IOException
+   *           could not created a reader for excluded regions
+   */
+  public BufferedReader excludeReader() throws IOException {
+    return BedStreams.reader(exclude);
+  }
+
+  /**
+   * Returns output writer, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED.
+   *
+   * @return output writer
+   * @throws IOException
+   *           could not created a writer for output
+   */
+  public BufferedWriter writer() throws IOException {
+    return BedStreams.writer(output);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Difference array of a chromosome, allocated outside of the heap.
+ *
+ * <p>
+ * The array is split in segments of at most {@value #SEGMENT_LENGTH} values because a direct
+ * buffer cannot hold more than {@link Integer#MAX_VALUE} bytes, so chromosomes of any length are
+ * supported.
+ * </p>
+ */
+final class CoverageDifferences {
+  /**
+   * Maximum number of values per segment.
+   */
+  static final int SEGMENT_LENGTH = 1 << 28;
+  private final long size;
+  private final int segmentLength;
+  private final IntBuffer[] segments;
+
+  /**
+   * Allocates difference array of chromosome.
+   *
+   * @param size
+   *          chromosome size
+   */
+  CoverageDifferences(long size) {
+    this(size, SEGMENT_LENGTH);
+  }
+
+  CoverageDifferences(long size, int segmentLength) {
+    this.size = size;
+    this.segmentLength = segmentLength;
+    long length = size + 1;
+    segments = new IntBuffer[(int) ((length + segmentLength - 1) / segmentLength)];
+    for (int i = 0; i < segments.length; i++) {
+      int segmentSize = (int) Math.min(segmentLength, length - (long) i * segmentLength);
+      segments[i] = ByteBuffer.allocateDirect(segmentSize * Integer.BYTES)
+          .order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+  }
+
+  /**
+   * Returns memory used by difference array of chromosome.
+   *
+   * @param size
+   *          chromosome size
+   * @return memory used by difference array of chromosome
+   */
+  static long memory(long size) {
+    return (size + 1) * Integer.BYTES;
+  }
+
+  /**
+   * Returns chromosome size.
+   *
+   * @return chromosome size
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Adds fragment, already clamped to chromosome.
+   *
+   * @param start
+   *          fragment start
+   * @param end
+   *          fragment end
+   */
+  void add(long start, long end) {
+    add(start, 1);
+    add(end, -1);
+  }
+
+  private void add(long position, int delta) {
+    IntBuffer segment = segments[(int) (position / segmentLength)];
+    int index = (int) (position % segmentLength);
+    segment.put(index, segment.get(index) + delta);
+  }
+
+  /**
+   * Writes runs of equal depth of chromosome.
+   *
+   * @param runs
+   *          runs of chromosome
+   * @throws IOException
+   *           could not write runs
+   */
+  void write(Coverage.Runs runs) throws IOException {
+    for (int i = 0; i < segments.length; i++) {
+      long start = (long) i * segmentLength;
+      int length = (int) Math.min(segments[i].limit(), size - start);
+      runs.append(segments[i], start, length);
+    }
+    runs.finish(size);
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.MemoryBudget;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fragments of chromosomes whose difference array does not fit in memory budget, kept in a
+ * compressed temporary file.
+ *
+ * <p>
+ * Spilled chromosomes are processed in passes over the temporary file. Each pass fills the
+ * difference arrays of as many chromosome windows as fit in memory budget, so a chromosome larger
+ * than the budget is processed in several windows.
+ * </p>
+ */
+final class CoverageSpill implements Closeable {
+  private static final long MINIMUM_PASS_MEMORY = 1 << 24;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAXIMUM_WINDOW_LENGTH = CoverageDifferences.SEGMENT_LENGTH - 1;
+  private static final Logger logger = LoggerFactory.getLogger(CoverageSpill.class);
+  private final long minimumPassMemory;
+  private final Path file;
+  private final BitSet chromosomes = new BitSet();
+  private DataOutputStream output;
+  private long count;
+
+  /**
+   * Creates spill.
+   *
+   * @throws IOException
+   *           could not create temporary file
+   */
+  CoverageSpill() throws IOException {
+    this(MINIMUM_PASS_MEMORY);
+  }
+
+  CoverageSpill(long minimumPassMemory) throws IOException {
+    this.minimumPassMemory = minimumPassMemory;
+    file = Files.createTempFile("coverage", ".gz");
+    output = new DataOutputStream(new BufferedOutputStream(
+        new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+  }
+
+  /**
+   * Returns true if chromosome was spilled.
+   *
+   * @param chromosome
+   *          chromosome id
+   * @return true if chromosome was spilled
+   */
+  boolean contains(int chromosome) {
+    return chromosomes.get(chromosome);
+  }
+
+  /**
+   * Adds fragment, already clamped to chromosome.
+   *
+   * @param chromosome
+   *          chromosome id
+   * @param start
+   *          fragment start
+   * @param end
+   *          fragment end
+   * @throws IOException
+   *           could not write temporary file
+   */
+  void add(int chromosome, long start, long end) throws IOException {
+    chromosomes.set(chromosome);
+    output.writeInt(chromosome);
+    output.writeLong(start);
+    output.writeLong(end);
+    count++;
+  }
+
+  /**
+   * Writes coverage of spilled chromosomes, one temporary bedGraph file per chromosome.
+   *
+   * @param dictionary
+   *          chromosome dictionary
+   * @param memoryBudget
+   *          memory budget
+   * @param factor
+   *          factor applied to depth
+   * @return bedGraph files indexed by chromosome id, null for chromosomes that were not spilled
+   * @throws IOException
+   *           could not read temporary file or write bedGraph files
+   */
+  Path[] write(ChromosomeDictionary dictionary, MemoryBudget memoryBudget, double factor)
+      throws IOException {
+    output.close();
+    output = null;
+    Path[] files = new Path[dictionary.seeded()];
+    BufferedWriter[] writers = new BufferedWriter[files.length];
+    Coverage.Runs[] runs = new Coverage.Runs[files.length];
+    boolean success = false;
+    try {
+      List<List<Window>> passes = passes(dictionary, memoryBudget);
+      logger.debug("computing coverage of {} spilled fragments in {} passes", count,
+          passes.size());
+      for (List<Window> pass : passes) {
+        long memory = memory(pass);
+        memoryBudget.reserve(memory);
+        try {
+          fill(pass);
+          write(pass, dictionary, files, writers, runs, factor);
+        } finally {
+          memoryBudget.release(memory);
+        }
+      }
+      success = true;
+      return files;
+    } finally {
+      for (int id = 0; id < files.length; id++) {
+        if (writers[id] != null) {
+          writers[id].close();
+        }
+        if (!success && files[id] != null) {
+          Files.deleteIfExists(files[id]);
+        }
+      }
+    }
+  }
+
+  private void write(List<Window> pass, ChromosomeDictionary dictionary, Path[] files,
+      BufferedWriter[] writers, Coverage.Runs[] runs, double factor) throws IOException {
+    for (Window window : pass) {
+      int id = window.chromosome;
+      if (runs[id] == null) {
+        files[id] = Files.createTempFile("coverage", ".bedGraph");
+        writers[id] = Files.newBufferedWriter(files[id]);
+        runs[id] = new Coverage.Runs(writers[id], dictionary.name(id), factor);
+      }
+      runs[id].add(window.difference, window.start, window.length);
+      window.difference = null;
+      long size = dictionary.size(id);
+      if (window.start + window.length == size) {
+        runs[id].finish(size);
+        writers[id].close();
+        writers[id] = null;
+      }
+    }
+  }
+
+  private List<List<Window>> passes(ChromosomeDictionary dictionary, MemoryBudget memoryBudget) {
+    long capacity = Math.max(memoryBudget.available(), minimumPassMemory) / Integer.BYTES;
+    List<List<Window>> passes = new ArrayList<>();
+    List<Window> pass = new ArrayList<>();
+    long used = 0;
+    for (int id = chromosomes.nextSetBit(0); id >= 0; id = chromosomes.nextSetBit(id + 1)) {
+      long size = dictionary.size(id);
+      long start = 0;
+      while (start < size) {
+        long free = capacity - used - 1;
+        if (free < 1) {
+          passes.add(pass);
+          pass = new ArrayList<>();
+          used = 0;
+          continue;
+        }
+        int length = (int) Math.min(Math.min(size - start, free), MAXIMUM_WINDOW_LENGTH);
+        pass.add(new Window(id, start, length));
+        used += length + 1;
+        start += length;
+      }
+    }
+    if (!pass.isEmpty()) {
+      passes.add(pass);
+    }
+    return passes;
+  }
+
+  /**
+   * Allocates difference arrays of windows and fills them with fragments of temporary file.
+   */
+  private void fill(List<Window> pass) throws IOException {
+    Map<Integer, List<Window>> windows = new HashMap<>();
+    for (Window window : pass) {
+      window.difference = ByteBuffer.allocateDirect((window.length + 1) * Integer.BYTES)
+          .order(ByteOrder.nativeOrder()).asIntBuffer();
+      windows.computeIfAbsent(window.chromosome, id -> new ArrayList<>()).add(window);
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+        new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+      for (long i = 0; i < count; i++) {
+        int chromosome = input.readInt();
+        long start = input.readLong();
+        long end = input.readLong();
+        List<Window> chromosomeWindows = windows.get(chromosome);
+        if (chromosomeWindows == null) {
+          continue;
+        }
+        for (Window window : chromosomeWindows) {
+          int windowStart = (int) (Math.max(start, window.start) - window.start);
+          int windowEnd = (int) (Math.min(end, window.start + window.length) - window.start);
+          if (windowStart < windowEnd) {
+            IntBuffer difference = window.difference;
+            difference.put(windowStart, difference.get(windowStart) + 1);
+            difference.put(windowEnd, difference.get(windowEnd) - 1);
+          }
+        }
+      }
+    }
+  }
+
+  private static long memory(List<Window> pass) {
+    long memory = 0;
+    for (Window window : pass) {
+      memory += (window.length + 1L) * Integer.BYTES;
+    }
+    return memory;
+  }
+
+  /**
+   * Deletes temporary file.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (output != null) {
+        output.close();
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Part of a chromosome processed in a pass.
+   */
+  private static class Window {
+    private final int chromosome;
+    private final long start;
+    private final int length;
+    private IntBuffer difference;
+
+    private Window(int chromosome, long start, int length) {
+      this.chromosome = chromosome;
+      this.start = start;
+      this.length = length;
+    }
+  }
+}
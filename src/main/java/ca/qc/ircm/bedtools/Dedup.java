@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.MemoryBudget;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes duplicated pairs of BEDPE files, like PCR duplicates.
+ *
+ * <p>
+ * Pairs are duplicates when they have the same chromosome and start of first mate, the same
+ * chromosome and end of second mate and the same strands. Only the first pair is kept.
+ * </p>
+ *
+ * <p>
+ * Each pair is packed in two longs that are kept in a compact hash set, so removal is exact and
+ * uses between 32 and 64 bytes per distinct pair. When input is sorted, only pairs at the
+ * current position are kept.
+ * </p>
+ *
+ * <p>
+ * When the set of pairs of unsorted input cannot grow within the memory budget, the remaining
+ * lines are deduplicated using compressed temporary files, see {@link DedupSpill}.
+ * </p>
+ */
+@Component
+public class Dedup {
+  private static final String LINE_SEPARATOR = "\n";
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String COMMENT = "#";
+  private static final String NEGATIVE_STRAND = "-";
+  private static final String POSITIVE_STRAND = "+";
+  private static final int CHROMOSOME_BITS = 20;
+  private static final int POSITION_BITS = 40;
+  private static final int STRAND_BITS = 2;
+  private static final long INITIAL_CAPACITY = 1 << 16;
+  private static final long SORTED_INITIAL_CAPACITY = 1 << 8;
+  private static final Logger logger = LoggerFactory.getLogger(Dedup.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+
+  /**
+   * Removes duplicated pairs.
+   *
+   * @param command
+   *          dedup command
+   * @throws IOException
+   *           could not read or write BEDPE
+   * @throws IllegalArgumentException
+   *           input is not sorted in sorted mode or a pair cannot be packed
+   */
+  public void run(DedupCommand command) throws IOException {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    MemoryBudget memoryBudget = executionEngine.getMemoryBudget();
+    LongPairHashSet pairs =
+        new LongPairHashSet(command.sorted ? SORTED_INITIAL_CAPACITY : INITIAL_CAPACITY);
+    long reserved = pairs.memory();
+    memoryBudget.reserve(reserved);
+    DedupSpill spill = null;
+    long duplicates = 0;
+    long maximumPairs = 0;
+    int previousChromosome = -1;
+    long previousStart = -1;
+    try (BufferedReader reader = command.reader(); BufferedWriter writer = command.writer()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] columns = line.split(COLUMN_SEPARATOR, -1);
+        if (columns[0].startsWith(COMMENT)) {
+          if (spill != null) {
+            spill.add(line);
+          } else {
+            writer.write(line);
+            writer.write(LINE_SEPARATOR);
+          }
+          continue;
+        }
+        int chromosome1 = dictionary.id(columns[0]);
+        long start1 = Long.parseLong(columns[1]);
+        int chromosome2 = dictionary.id(columns[3]);
+        long end2 = Long.parseLong(columns[5]);
+        if (command.sorted
+            && (chromosome1 != previousChromosome || start1 != previousStart)) {
+          if (previousChromosome != -1) {
+            int compare = dictionary.compare(chromosome1, previousChromosome);
+            if (compare < 0 || (compare == 0 && start1 < previousStart)) {
+              throw new IllegalArgumentException("Input is not sorted at " + line);
+            }
+          }
+          maximumPairs = Math.max(maximumPairs, pairs.size());
+          pairs.clear();
+          previousChromosome = chromosome1;
+          previousStart = start1;
+        }
+        if (chromosome1 >= 1 << CHROMOSOME_BITS || chromosome2 >= 1 << CHROMOSOME_BITS) {
+          throw new IllegalArgumentException(
+              "More than " + (1 << CHROMOSOME_BITS) + " chromosomes at " + line);
+        }
+        if (start1 < 0 || start1 >= 1L << POSITION_BITS || end2 < 0
+            || end2 >= 1L << POSITION_BITS) {
+          throw new IllegalArgumentException("Invalid position at " + line);
+        }
+        long first = (long) chromosome1 << POSITION_BITS | start1;
+        long second = ((long) chromosome2 << POSITION_BITS | end2) << STRAND_BITS * 2
+            | strand(columns, 8) << STRAND_BITS | strand(columns, 9);
+        if (spill != null) {
+          spill.add(first, second, line);
+          continue;
+        }
+        long memory = pairs.memoryAfterGrowth();
+        if (memory > reserved && !pairs.contains(first, second)) {
+          if (command.sorted) {
+            memoryBudget.reserve(memory);
+          } else if (!memoryBudget.tryReserve(memory)) {
+            logger.debug("memory budget exceeded with {} pairs, spilling to disk", pairs.size());
+            maximumPairs = pairs.size();
+            spill = new DedupSpill(pairs, memoryBudget);
+            pairs = null;
+            memoryBudget.release(reserved);
+            reserved = 0;
+            spill.add(first, second, line);
+            continue;
+          }
+          memoryBudget.release(reserved);
+          reserved = memory;
+        }
+        if (pairs.add(first, second)) {
+          writer.write(line);
+          writer.write(LINE_SEPARATOR);
+        } else {
+          duplicates++;
+        }
+      }
+      if (spill != null) {
+        duplicates += spill.write(writer);
+      }
+    } finally {
+      memoryBudget.release(reserved);
+      if (spill != null) {
+        spill.close();
+      }
+    }
+    if (pairs != null) {
+      maximumPairs = Math.max(maximumPairs, pairs.size());
+    }
+    logger.debug("kept at most {} pairs in memory", maximumPairs);
+    logger.info("removed {} duplicates from file", duplicates);
+  }
+
+  private long strand(String[] columns, int index) {
+    if (columns.length <= index) {
+      return 0;
+    }
+    switch (columns[index]) {
+      case POSITIVE_STRAND:
+        return 1;
+      case NEGATIVE_STRAND:
+        return 2;
+      default:
+        return 3;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Remove duplicates parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = DedupCommand.DEDUP_COMMAND,
+    commandDescription = "Removes duplicated pairs of a BEDPE file")
+public class DedupCommand {
+  public static final String DEDUP_COMMAND = "dedup";
+  private static final int BEDPE_NAME_COLUMN = 6;
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-s", "--sorted" },
+      description = "Input is sorted by chromosome and start of first mate,"
+          + " only pairs at the same position are kept in memory",
+      required = false)
+  public boolean sorted = false;
+  @Parameter(
+      names = { "--shards" },
+      description = "Split output into this number of files, records with the same shard key"
+          + " are written to the same file. Output file is required, shard is added before"
+          + " its extension",
+      validateWith = PositiveInteger.class)
+  public Integer shards;
+  @Parameter(
+      names = { "--shardKey", "--shard-key" },
+      description = "Key used to choose the shard of records, either name or position")
+  public ShardKey shardKey = ShardKey.NAME;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input reader, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input reader
+   * @throws IOException
+   *           could not created a reader for input
+   */
+  public BufferedReader reader() throws IOException {
+    return BedStreams.reader(input);
+  }
+
+  /**
+   * Returns output writer, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Shards are handled by {@link BedStreams}.
+   *
+   * @return output writer
+   * @throws IOException
+   *           could not created a writer for output
+   */
+  public BufferedWriter writer() throws IOException {
+    return BedStreams.writer(output, null, 0, shards,
+        count -> shardKey.router(count, BEDPE_NAME_COLUMN));
+  }
+}
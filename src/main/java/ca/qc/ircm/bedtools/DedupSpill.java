@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.MemoryBudget;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes duplicated pairs that do not fit in memory budget, using compressed temporary files.
+ *
+ * <p>
+ * Once memory budget is exceeded, pairs already in memory were written to output and are only
+ * used to find duplicates among the pairs that follow. Following lines are written to a
+ * temporary file and their keys, with line index, are written to another. At the end, keys are
+ * split into partitions by hash so that each partition fits in memory budget, duplicates are
+ * found in each partition and lines are copied to output, skipping duplicates.
+ * </p>
+ */
+final class DedupSpill implements Closeable {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String LINE_SEPARATOR = "\n";
+  /**
+   * Maximum memory used by a pair in hash set.
+   */
+  private static final long BYTES_PER_PAIR = 64;
+  private static final long MINIMUM_PARTITION_MEMORY = 1 << 24;
+  private static final int MAXIMUM_PARTITIONS = 128;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long WRITTEN = -1;
+  private static final Logger logger = LoggerFactory.getLogger(DedupSpill.class);
+  private final MemoryBudget memoryBudget;
+  private final Path directory;
+  private DataOutputStream keys;
+  private BufferedWriter lines;
+  private long keyCount;
+  private long lineCount;
+
+  /**
+   * Creates spill, keys of pairs are kept to find duplicates among the pairs that follow.
+   *
+   * @param pairs
+   *          pairs already written to output
+   * @param memoryBudget
+   *          memory budget
+   * @throws IOException
+   *           could not write temporary files
+   */
+  DedupSpill(LongPairHashSet pairs, MemoryBudget memoryBudget) throws IOException {
+    this.memoryBudget = memoryBudget;
+    directory = Files.createTempDirectory("dedup");
+    try {
+      keys = dataOutput(directory.resolve("keys.gz"));
+      lines = new BufferedWriter(new OutputStreamWriter(
+          new GZIPOutputStream(Files.newOutputStream(directory.resolve("lines.gz")), BUFFER_SIZE),
+          CHARSET));
+      pairs.forEach((first, second) -> {
+        try {
+          writeKey(first, second, WRITTEN);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      close();
+      throw e.getCause();
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds line that is not a pair, like a comment.
+   *
+   * @param line
+   *          line
+   * @throws IOException
+   *           could not write temporary file
+   */
+  void add(String line) throws IOException {
+    writeLine(line);
+  }
+
+  /**
+   * Adds pair.
+   *
+   * @param first
+   *          first long of pair
+   * @param second
+   *          second long of pair
+   * @param line
+   *          line
+   * @throws IOException
+   *           could not write temporary file
+   */
+  void add(long first, long second, String line) throws IOException {
+    writeKey(first, second, lineCount);
+    writeLine(line);
+  }
+
+  private void writeKey(long first, long second, long index) throws IOException {
+    keys.writeLong(first);
+    keys.writeLong(second);
+    keys.writeLong(index);
+    keyCount++;
+  }
+
+  private void writeLine(String line) throws IOException {
+    lines.write(line);
+    lines.write(LINE_SEPARATOR);
+    lineCount++;
+  }
+
+  /**
+   * Writes lines added to spill, skipping duplicates.
+   *
+   * @param writer
+   *          output
+   * @return number of duplicates
+   * @throws IOException
+   *           could not read temporary files or write output
+   */
+  long write(BufferedWriter writer) throws IOException {
+    keys.close();
+    keys = null;
+    lines.close();
+    lines = null;
+    int partitions = partitions();
+    logger.debug("finding duplicates of {} spilled pairs in {} partitions", keyCount, partitions);
+    long[] counts = partition(partitions);
+    long duplicates = 0;
+    long[] duplicateCounts = new long[partitions];
+    for (int i = 0; i < partitions; i++) {
+      duplicateCounts[i] = findDuplicates(i, counts[i]);
+      duplicates += duplicateCounts[i];
+    }
+    copy(writer, duplicateCounts);
+    return duplicates;
+  }
+
+  private int partitions() {
+    long memory = Math.max(memoryBudget.available(), MINIMUM_PARTITION_MEMORY);
+    long partitions = (keyCount * BYTES_PER_PAIR + memory - 1) / memory;
+    return (int) Math.max(1, Math.min(partitions, MAXIMUM_PARTITIONS));
+  }
+
+  private long[] partition(int partitions) throws IOException {
+    long[] counts = new long[partitions];
+    if (partitions == 1) {
+      Files.move(directory.resolve("keys.gz"), partitionFile(0));
+      counts[0] = keyCount;
+      return counts;
+    }
+    DataOutputStream[] outputs = new DataOutputStream[partitions];
+    try (DataInputStream input = dataInput(directory.resolve("keys.gz"))) {
+      for (int i = 0; i < partitions; i++) {
+        outputs[i] = dataOutput(partitionFile(i));
+      }
+      for (long i = 0; i < keyCount; i++) {
+        long first = input.readLong();
+        long second = input.readLong();
+        long index = input.readLong();
+        int partition = (int) Long.remainderUnsigned(hash(first, second), partitions);
+        outputs[partition].writeLong(first);
+        outputs[partition].writeLong(second);
+        outputs[partition].writeLong(index);
+        counts[partition]++;
+      }
+    } finally {
+      for (DataOutputStream output : outputs) {
+        if (output != null) {
+          output.close();
+        }
+      }
+    }
+    Files.delete(directory.resolve("keys.gz"));
+    return counts;
+  }
+
+  /**
+   * Writes index of duplicated lines of partition, in increasing order.
+   */
+  private long findDuplicates(int partition, long count) throws IOException {
+    LongPairHashSet pairs = new LongPairHashSet(count);
+    long memory = pairs.memory();
+    memoryBudget.reserve(memory);
+    long duplicates = 0;
+    try (DataInputStream input = dataInput(partitionFile(partition));
+        DataOutputStream output = dataOutput(duplicatesFile(partition))) {
+      for (long i = 0; i < count; i++) {
+        long first = input.readLong();
+        long second = input.readLong();
+        long index = input.readLong();
+        if (!pairs.add(first, second) && index != WRITTEN) {
+          output.writeLong(index);
+          duplicates++;
+        }
+      }
+    } finally {
+      memoryBudget.release(memory);
+    }
+    Files.delete(partitionFile(partition));
+    return duplicates;
+  }
+
+  private void copy(BufferedWriter writer, long[] duplicateCounts) throws IOException {
+    DataInputStream[] inputs = new DataInputStream[duplicateCounts.length];
+    PriorityQueue<Duplicate> duplicates =
+        new PriorityQueue<>(Math.max(1, duplicateCounts.length),
+            Comparator.comparingLong(duplicate -> duplicate.index));
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(Files.newInputStream(directory.resolve("lines.gz")), BUFFER_SIZE),
+        CHARSET))) {
+      for (int i = 0; i < inputs.length; i++) {
+        inputs[i] = dataInput(duplicatesFile(i));
+        if (duplicateCounts[i] > 0) {
+          duplicates.add(new Duplicate(inputs[i].readLong(), i));
+          duplicateCounts[i]--;
+        }
+      }
+      String line;
+      for (long index = 0; (line = reader.readLine()) != null; index++) {
+        if (!duplicates.isEmpty() && duplicates.peek().index == index) {
+          Duplicate duplicate = duplicates.poll();
+          if (duplicateCounts[duplicate.partition] > 0) {
+            duplicate.index = inputs[duplicate.partition].readLong();
+            duplicateCounts[duplicate.partition]--;
+            duplicates.add(duplicate);
+          }
+          continue;
+        }
+        writer.write(line);
+        writer.write(LINE_SEPARATOR);
+      }
+    } finally {
+      for (DataInputStream input : inputs) {
+        if (input != null) {
+          input.close();
+        }
+      }
+    }
+  }
+
+  private Path partitionFile(int partition) {
+    return directory.resolve("keys-" + partition + ".gz");
+  }
+
+  private Path duplicatesFile(int partition) {
+    return directory.resolve("duplicates-" + partition + ".gz");
+  }
+
+  private static DataOutputStream dataOutput(Path file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(
+        new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+  }
+
+  private static DataInputStream dataInput(Path file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(
+        new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+  }
+
+  /**
+   * Hash used to choose partitions, independent of the hash used by {@link LongPairHashSet}.
+   */
+  private static long hash(long first, long second) {
+    long hash = first ^ Long.rotateLeft(second, 32);
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  /**
+   * Deletes temporary files.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (keys != null) {
+        keys.close();
+      }
+      if (lines != null) {
+        lines.close();
+      }
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.deleteIfExists(file);
+        }
+      }
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  /**
+   * Next duplicated line of a partition.
+   */
+  private static class Duplicate {
+    private long index;
+    private final int partition;
+
+    private Duplicate(long index, int partition) {
+      this.index = index;
+      this.partition = partition;
+    }
+  }
+}
@@ -17,6 +17,8 @@
 
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.genome.TwoBit;
+import ca.qc.ircm.bedtools.genome.TwoBitWriter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -31,7 +33,7 @@ public class FastaConverter {
   private static final String SEPARATOR = "\t";
 
   /**
-   * Converts FASTA file to sizes file.
+   * Converts FASTA file to sizes file. Sizes of 2bit files are read from their index.
    *
    * @param parameters
    *          parameters
@@ -39,6 +41,15 @@ public class FastaConverter {
    *           could not read or write BED
    */
   public void toSizes(FastaToSizesCommand parameters) throws IOException {
+    if (parameters.input != null && TwoBit.isTwoBit(parameters.input)) {
+      TwoBit twoBit = new TwoBit(parameters.input);
+      try (BufferedWriter writer = parameters.writer()) {
+        for (int id = 0; id < twoBit.count(); id++) {
+          writeSize(writer, twoBit.name(id), twoBit.length(id));
+        }
+      }
+      return;
+    }
     try (BufferedReader reader = parameters.reader(); BufferedWriter writer = parameters.writer()) {
       String line;
       String chromosome = null;
@@ -60,6 +71,20 @@ public class FastaConverter {
     }
   }
 
+  /**
+   * Converts FASTA file to 2bit file.
+   *
+   * @param parameters
+   *          parameters
+   * @throws IOException
+   *           could not read FASTA or write 2bit
+   * @throws IllegalArgumentException
+   *           FASTA file cannot be converted to 2bit
+   */
+  public void toTwoBit(FastaToTwoBitCommand parameters) throws IOException {
+    TwoBitWriter.write(parameters.input, parameters.output);
+  }
+
   private void writeSize(BufferedWriter writer, String chromosome, long size) throws IOException {
     writer.write(chromosome);
     writer.write(SEPARATOR);
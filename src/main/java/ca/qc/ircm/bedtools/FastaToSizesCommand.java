@@ -17,6 +17,7 @@
 
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.io.BedStreams;
 import ca.qc.ircm.bedtools.validation.FileExistsValidation;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
@@ -46,7 +47,7 @@ public class FastaToSizesCommand {
   public boolean help = false;
   @Parameter(
       names = { "-i", "--input" },
-      description = "Input file. Defaults to system input for piping",
+      description = "Input FASTA or 2bit file. Defaults to system input for piping",
       converter = PathConverter.class,
       validateWith = FileExistsValidation.class)
   public Path input;
@@ -79,10 +80,7 @@ public class FastaToSizesCommand {
    *           could not created a writer for output
    */
   public BufferedWriter writer() throws IOException {
-    if (output != null) {
-      return Files.newBufferedWriter(output);
-    } else {
-      return new BufferedWriter(new OutputStreamWriter(System.out, CHARSET));
-    }
+    return new BufferedWriter(
+        new OutputStreamWriter(BedStreams.outputStream(output, false), CHARSET));
   }
 }
@@ -17,24 +17,58 @@
 
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
+import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
  * Filter BEDPE.
+ *
+ * <p>
+ * Column offsets are parsed once per line from its bytes and shared by statistics and filters.
+ * Read names and chromosomes are matched where they appear in the line, without creating strings.
+ * </p>
+ *
+ * <p>
+ * Insert size statistics are computed on all pairs, before filtering, using a fixed memory
+ * quantile sketch.
+ * </p>
+ *
+ * <p>
+ * Lines are filtered in parallel by the {@link ExecutionEngine execution engine}, each worker
+ * thread keeping its own statistics. Mates chromosomes are compared using ids of a chromosome
+ * dictionary owned by the worker thread, since ids are only compared within a line.
+ * </p>
  */
 @Component
 public class FilterBedpe {
   private static final String LINE_SEPARATOR = "\n";
   private static final String COLUMN_SEPARATOR = "\t";
-  private static final String COMMENT = "#";
-  @SuppressWarnings("unused")
+  private static final byte COMMENT = '#';
+  private static final int NAME_COLUMN = 6;
+  private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+  private static final String[] QUANTILE_NAMES = { "p50", "p90", "p99", "p99.9" };
   private static final Logger logger = LoggerFactory.getLogger(FilterBedpe.class);
+  @Inject
+  private ExecutionEngine executionEngine;
 
   /**
    * Filter BEDPE file.
@@ -45,43 +79,225 @@ public class FilterBedpe {
    *           could not read or write BEDPE
    */
   public void run(FilterBedpeCommand command) throws IOException {
-    Predicate<String> predicate = line -> true;
+    ThreadLocal<ChromosomeDictionary> dictionary =
+        ThreadLocal.withInitial(ChromosomeDictionary::new);
+    Predicate<Columns> predicate = columns -> true;
     if (command.maximumInsertSize != null) {
-      predicate = predicate.and(maximumInsertSizeFilter(command.maximumInsertSize));
+      predicate =
+          predicate.and(maximumInsertSizeFilter(command.maximumInsertSize, dictionary));
+    }
+    if (command.exclude != null) {
+      try (BufferedReader reader = command.excludeReader()) {
+        predicate = predicate.and(excludeFilter(RegionIndex.load(reader)));
+      }
+    }
+    if (command.names != null) {
+      predicate = predicate.and(namesFilter(names(command), command.excludeNames));
+    }
+    Predicate<Columns> filter = predicate;
+    ThreadLocal<Columns> threadColumns = ThreadLocal.withInitial(Columns::new);
+    boolean stats = command.stats != null || command.statsOnly;
+    boolean statsOnly = command.statsOnly;
+    List<Statistics> threadsStatistics = Collections.synchronizedList(new ArrayList<>());
+    ThreadLocal<Statistics> threadStatistics = ThreadLocal.withInitial(() -> {
+      Statistics statistics = new Statistics();
+      threadsStatistics.add(statistics);
+      return statistics;
+    });
+    LongAdder count = new LongAdder();
+    LineProcessor processor = (bytes, start, end, writer) -> {
+      if (end > start && bytes[start] == COMMENT) {
+        if (!statsOnly) {
+          writer.write(bytes, start, end);
+          writer.newLine();
+        }
+        return;
+      }
+      Columns columns = threadColumns.get();
+      columns.parse(bytes, start, end);
+      if (stats) {
+        Statistics statistics = threadStatistics.get();
+        if (!sameChromosome(columns, dictionary.get())) {
+          statistics.differentChromosomes++;
+        } else {
+          statistics.sketch.add(insertSize(columns));
+        }
+      }
+      if (statsOnly) {
+        return;
+      }
+      if (filter.test(columns)) {
+        writer.write(bytes, start, end);
+        writer.newLine();
+      } else {
+        count.increment();
+      }
+    };
+    Statistics statistics = new Statistics();
+    try (OutputStream output = command.outputStream()) {
+      try (InputStream input = command.inputStream();
+          Workers workers = executionEngine.workers(command.threads)) {
+        workers.run(input, output, processor);
+      }
+      for (Statistics threadStatistic : threadsStatistics) {
+        statistics.sketch.merge(threadStatistic.sketch);
+        statistics.differentChromosomes += threadStatistic.differentChromosomes;
+      }
+      if (statsOnly) {
+        BufferedWriter writer =
+            new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writeStats(statistics.sketch, statistics.differentChromosomes, writer);
+        writer.flush();
+      }
+    }
+    if (command.stats != null) {
+      try (BufferedWriter writer = command.statsWriter()) {
+        writeStats(statistics.sketch, statistics.differentChromosomes, writer);
+      }
+    }
+    if (!statsOnly) {
+      logger.info("removed {} lines from file", count.sum());
+    }
+  }
+
+  private void writeStats(QuantileSketch sketch, long differentChromosomes,
+      BufferedWriter writer) throws IOException {
+    writer.write("pairs");
+    writer.write(COLUMN_SEPARATOR);
+    writer.write(String.valueOf(sketch.count()));
+    writer.write(LINE_SEPARATOR);
+    writer.write("differentChromosomes");
+    writer.write(COLUMN_SEPARATOR);
+    writer.write(String.valueOf(differentChromosomes));
+    writer.write(LINE_SEPARATOR);
+    for (int i = 0; i < QUANTILES.length; i++) {
+      writer.write(QUANTILE_NAMES[i]);
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(sketch.quantile(QUANTILES[i])));
+      writer.write(LINE_SEPARATOR);
+    }
+  }
+
+  private static boolean sameChromosome(Columns columns, ChromosomeDictionary dictionary) {
+    return columns.chromosome(0, dictionary) == columns.chromosome(3, dictionary);
+  }
+
+  private static long insertSize(Columns columns) {
+    long start1 = columns.parseLong(1);
+    long end1 = columns.parseLong(2);
+    long start2 = columns.parseLong(4);
+    long end2 = columns.parseLong(5);
+    if (start1 > start2) {
+      return start1 - end2;
+    } else {
+      return start2 - end1;
     }
+  }
+
+  private NameSet names(FilterBedpeCommand command) throws IOException {
     long count = 0;
-    try (BufferedReader reader = command.reader(); BufferedWriter writer = command.writer()) {
+    long size = 0;
+    try (BufferedReader reader = command.namesReader()) {
       String line;
       while ((line = reader.readLine()) != null) {
-        String[] columns = line.split(COLUMN_SEPARATOR, -1);
-        if (columns[0].startsWith(COMMENT)) {
-          writer.write(line);
-          writer.write(LINE_SEPARATOR);
-        } else {
-          if (predicate.test(line)) {
-            writer.write(line);
-            writer.write(LINE_SEPARATOR);
-          } else {
-            count++;
-          }
+        if (!line.isEmpty()) {
+          count++;
+          size += line.getBytes(StandardCharsets.UTF_8).length;
+        }
+      }
+    }
+    NameSet names = command.bloom ? new NameBloomFilter(count)
+        : new NameHashTable((int) Math.min(Integer.MAX_VALUE, count), size);
+    try (BufferedReader reader = command.namesReader()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          names.add(line);
         }
       }
     }
-    logger.info("removed {} lines from file", count);
+    logger.debug("loaded {} names", count);
+    return names;
   }
 
-  private Predicate<String> maximumInsertSizeFilter(int maximumInsertSize) {
-    return line -> {
-      String[] columns = line.split(COLUMN_SEPARATOR);
-      long start1 = Long.parseLong(columns[1]);
-      long end1 = Long.parseLong(columns[2]);
-      long start2 = Long.parseLong(columns[4]);
-      long end2 = Long.parseLong(columns[5]);
-      if (start1 > start2) {
-        return start1 - end2 <= maximumInsertSize;
-      } else {
-        return start2 - end1 <= maximumInsertSize;
+  private Predicate<Columns> namesFilter(NameSet names, boolean exclude) {
+    return columns -> {
+      boolean contains = columns.count > NAME_COLUMN && names.contains(columns.line,
+          columns.starts[NAME_COLUMN], columns.ends[NAME_COLUMN]);
+      return contains != exclude;
+    };
+  }
+
+  private Predicate<Columns> excludeFilter(RegionIndex regions) {
+    return columns -> !overlaps(regions, columns, 0) && !overlaps(regions, columns, 3);
+  }
+
+  private static boolean overlaps(RegionIndex regions, Columns columns, int chromosomeColumn) {
+    columns.require(chromosomeColumn + 2);
+    return regions.overlaps(columns.line, columns.starts[chromosomeColumn],
+        columns.ends[chromosomeColumn], columns.parseLong(chromosomeColumn + 1),
+        columns.parseLong(chromosomeColumn + 2));
+  }
+
+  private Predicate<Columns> maximumInsertSizeFilter(int maximumInsertSize,
+      ThreadLocal<ChromosomeDictionary> dictionary) {
+    return columns -> {
+      if (!sameChromosome(columns, dictionary.get())) {
+        return false;
       }
+      return insertSize(columns) <= maximumInsertSize;
     };
   }
+
+  /**
+   * Offsets of the first columns of a line, up to read name, reused by a worker thread.
+   */
+  private static class Columns {
+    private final int[] starts = new int[NAME_COLUMN + 1];
+    private final int[] ends = new int[NAME_COLUMN + 1];
+    private byte[] line;
+    private int lineStart;
+    private int lineEnd;
+    private int count;
+
+    private void parse(byte[] line, int start, int end) {
+      this.line = line;
+      lineStart = start;
+      lineEnd = end;
+      count = 0;
+      int columnStart = start;
+      while (count < starts.length && columnStart <= end) {
+        int columnEnd = BedTransform.columnEnd(line, columnStart, end);
+        starts[count] = columnStart;
+        ends[count] = columnEnd;
+        count++;
+        columnStart = columnEnd + 1;
+      }
+    }
+
+    private void require(int column) {
+      if (column >= count) {
+        throw new IllegalArgumentException("Missing coordinates in line "
+            + new String(line, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+      }
+    }
+
+    private int chromosome(int column, ChromosomeDictionary dictionary) {
+      require(column);
+      return dictionary.id(line, starts[column], ends[column]);
+    }
+
+    private long parseLong(int column) {
+      require(column);
+      return ByteLineReader.parseLong(line, starts[column], ends[column]);
+    }
+  }
+
+  /**
+   * Insert size statistics of one thread.
+   */
+  private static class Statistics {
+    private final QuantileSketch sketch = new QuantileSketch();
+    private long differentChromosomes;
+  }
 }
@@ -1,15 +1,16 @@
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.io.BedStreams;
 import ca.qc.ircm.bedtools.validation.FileExistsValidation;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,12 +24,62 @@ import java.nio.file.Path;
     commandDescription = "Filter BEDPE")
 public class FilterBedpeCommand {
   public static final String FILTER_BEDPE = "filterbedpe";
-  public static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int BEDPE_NAME_COLUMN = 6;
 
   @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
   public boolean help = false;
-  @Parameter(names = { "--maximumInsertSize" }, description = "Maximum allowed insert size")
+  @Parameter(
+      names = { "--maximumInsertSize" },
+      description = "Maximum allowed insert size, pairs with mates on different chromosomes"
+          + " are removed")
   public Integer maximumInsertSize;
+  @Parameter(
+      names = { "--names" },
+      description = "Keep only pairs with a read name listed in this file, one name per line",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path names;
+  @Parameter(
+      names = { "--excludeNames" },
+      description = "Remove pairs with a read name listed in names file instead of keeping them")
+  public boolean excludeNames = false;
+  @Parameter(
+      names = { "--bloom" },
+      description = "Match names using a Bloom filter, using less memory but matching about"
+          + " 1% of other names")
+  public boolean bloom = false;
+  @Parameter(
+      names = { "--exclude" },
+      description = "Remove pairs with a mate overlapping a region of this BED file",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path exclude;
+  @Parameter(
+      names = { "--stats" },
+      description = "Write insert size quantiles of all pairs to this file",
+      converter = PathConverter.class)
+  public Path stats;
+  @Parameter(
+      names = { "--statsOnly" },
+      description = "Write insert size quantiles of all pairs to output instead of pairs")
+  public boolean statsOnly = false;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of threads used to filter lines, output keeps the order of input."
+          + " Defaults to global --threads",
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "--shards" },
+      description = "Split output into this number of files, records with the same shard key"
+          + " are written to the same file. Output file is required, shard is added before"
+          + " its extension",
+      validateWith = PositiveInteger.class)
+  public Integer shards;
+  @Parameter(
+      names = { "--shardKey", "--shard-key" },
+      description = "Key used to choose the shard of records, either name or position")
+  public ShardKey shardKey = ShardKey.NAME;
   @Parameter(
       names = { "-i", "--input" },
       description = "Input file. Defaults to system input for piping",
@@ -42,32 +93,59 @@ public class FilterBedpeCommand {
   public Path output;
 
   /**
-   * Returns input reader, falls back to <code>System.in</code>.
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input stream
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public InputStream inputStream() throws IOException {
+    return BedStreams.inputStream(input);
+  }
+
+  /**
+   * Returns excluded regions reader. Binary BED input is decoded.
+   *
+   * @return excluded regions reader
+   * @throws IOException
+   *           could not created a reader for excluded regions
+   */
+  public BufferedReader excludeReader() throws IOException {
+    return BedStreams.reader(exclude);
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Shards are handled by {@link BedStreams}.
+   *
+   * @return output stream
+   * @throws IOException
+   *           could not created a stream for output
+   */
+  public OutputStream outputStream() throws IOException {
+    return BedStreams.outputStream(output, null, 0, shards,
+        count -> shardKey.router(count, BEDPE_NAME_COLUMN));
+  }
+
+  /**
+   * Returns names reader.
    *
-   * @return input reader
+   * @return names reader
    * @throws IOException
-   *           could not created a reader for input
+   *           could not created a reader for names
    */
-  public BufferedReader reader() throws IOException {
-    if (input != null) {
-      return Files.newBufferedReader(input);
-    } else {
-      return new BufferedReader(new InputStreamReader(System.in, CHARSET));
-    }
+  public BufferedReader namesReader() throws IOException {
+    return Files.newBufferedReader(names, StandardCharsets.UTF_8);
   }
 
   /**
-   * Returns output writer, falls back to <code>System.out</code>.
+   * Returns insert size statistics writer.
    *
-   * @return output writer
+   * @return insert size statistics writer
    * @throws IOException
-   *           could not created a writer for output
+   *           could not created a writer for statistics
    */
-  public BufferedWriter writer() throws IOException {
-    if (output != null) {
-      return Files.newBufferedWriter(output);
-    } else {
-      return new BufferedWriter(new OutputStreamWriter(System.out, CHARSET));
-    }
+  public BufferedWriter statsWriter() throws IOException {
+    return Files.newBufferedWriter(stats, StandardCharsets.UTF_8);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts fragment sizes in a primitive array that grows as larger fragments are found.
+ */
+final class FragmentSizeHistogram {
+  /**
+   * Fragments this size or larger are only counted as overflow.
+   */
+  static final int MAXIMUM_SIZE = 1 << 20;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final String LINE_SEPARATOR = "\n";
+  private static final String COLUMN_SEPARATOR = "\t";
+  private long[] counts = new long[INITIAL_CAPACITY];
+  private int maximum = -1;
+  private long overflow;
+
+  /**
+   * Counts fragment.
+   *
+   * @param size
+   *          fragment size
+   */
+  void add(long size) {
+    if (size < 0 || size >= MAXIMUM_SIZE) {
+      overflow++;
+      return;
+    }
+    int index = (int) size;
+    if (index >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.min(Integer.highestOneBit(index) << 1, MAXIMUM_SIZE));
+    }
+    counts[index]++;
+    maximum = Math.max(maximum, index);
+  }
+
+  /**
+   * Adds all fragments counted by another histogram.
+   *
+   * @param other
+   *          other histogram
+   */
+  void merge(FragmentSizeHistogram other) {
+    if (other.maximum >= counts.length) {
+      counts = Arrays.copyOf(counts, other.counts.length);
+    }
+    for (int i = 0; i <= other.maximum; i++) {
+      counts[i] += other.counts[i];
+    }
+    maximum = Math.max(maximum, other.maximum);
+    overflow += other.overflow;
+  }
+
+  /**
+   * Returns number of fragments of this size.
+   *
+   * @param size
+   *          fragment size
+   * @return number of fragments of this size
+   */
+  long count(int size) {
+    return size < counts.length ? counts[size] : 0;
+  }
+
+  /**
+   * Returns number of fragments that were too large to be counted by size.
+   *
+   * @return number of fragments that were too large to be counted by size
+   */
+  long overflow() {
+    return overflow;
+  }
+
+  /**
+   * Writes histogram, one line per fragment size with the size and the number of fragments.
+   * Sizes without fragments are skipped.
+   *
+   * @param writer
+   *          writer
+   * @throws IOException
+   *           could not write histogram
+   */
+  void write(BufferedWriter writer) throws IOException {
+    for (int i = 0; i <= maximum; i++) {
+      if (counts[i] != 0) {
+        writer.write(String.valueOf(i));
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(String.valueOf(counts[i]));
+        writer.write(LINE_SEPARATOR);
+      }
+    }
+  }
+}
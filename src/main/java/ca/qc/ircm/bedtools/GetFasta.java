@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.genome.Nucleotides;
+import ca.qc.ircm.bedtools.genome.SequenceSource;
+import ca.qc.ircm.bedtools.genome.SequenceSources;
+import ca.qc.ircm.bedtools.genome.TwoBit;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Extracts sequences of annotations from an indexed FASTA file or a 2bit file.
+ *
+ * <p>
+ * The FASTA file is mapped in memory and the bases of each annotation are copied from offsets
+ * computed with the FASTA index, so sequences are extracted without reading the FASTA file
+ * sequentially. 2bit files are mapped in memory and decoded instead, see {@link TwoBit}. Lines
+ * can be processed by multiple threads, output keeps the order of input.
+ * </p>
+ *
+ * <p>
+ * Annotations on sequences missing from sequence file or outside of their sequence are discarded.
+ * </p>
+ */
+@Component
+public class GetFasta {
+  private static final byte HEADER = '>';
+  private static final byte COLUMN_SEPARATOR = '\t';
+  private static final byte COORDINATES_SEPARATOR = ':';
+  private static final byte RANGE_SEPARATOR = '-';
+  private static final byte[] POSITIVE_STRAND = "(+)".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NEGATIVE_STRAND = "(-)".getBytes(StandardCharsets.UTF_8);
+  private static final int INITIAL_BUFFER_SIZE = 1 << 12;
+  private static final Logger logger = LoggerFactory.getLogger(GetFasta.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+
+  /**
+   * Extracts sequences of annotations.
+   *
+   * @param command
+   *          sequence extraction command
+   * @throws IOException
+   *           could not read or write files
+   * @throws IllegalArgumentException
+   *           FASTA file cannot be indexed, its index is invalid or 2bit file is invalid
+   */
+  public void run(GetFastaCommand command) throws IOException {
+    SequenceSource fasta = SequenceSources.open(command.fasta);
+    boolean strand = command.strand;
+    boolean name = command.name;
+    boolean tab = command.tab;
+    ThreadLocal<byte[]> threadBuffer =
+        ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+    LongAdder discarded = new LongAdder();
+    LineProcessor processor = (line, lineStart, lineEnd, writer) -> {
+      if (lineEnd == lineStart || BedTransform.isHeader(line, lineStart, lineEnd)) {
+        return;
+      }
+      int startColumn = BedTransform.columnStart(line, lineStart, lineStart, lineEnd);
+      int endColumn = BedTransform.columnStart(line, startColumn, lineStart, lineEnd);
+      int endColumnEnd = BedTransform.columnEnd(line, endColumn, lineEnd);
+      int id = fasta.find(line, lineStart, startColumn - 1);
+      long start = ByteLineReader.parseLong(line, startColumn, endColumn - 1);
+      long end = ByteLineReader.parseLong(line, endColumn, endColumnEnd);
+      if (id == ChromosomeDictionary.MISSING || start < 0 || end > fasta.length(id)
+          || start > end) {
+        logger.warn("Discarding annotation outside of FASTA sequences {}",
+            new String(line, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+        discarded.increment();
+        return;
+      }
+      int length = (int) (end - start);
+      byte[] bases = threadBuffer.get();
+      if (bases.length < length) {
+        bases = new byte[Math.max(length, bases.length * 2)];
+        threadBuffer.set(bases);
+      }
+      fasta.read(id, start, end, bases, 0);
+      boolean reverse = strand && BedTransform.isNegativeStrand(line, endColumnEnd, lineEnd);
+      if (reverse) {
+        Nucleotides.reverseComplement(bases, 0, length);
+      }
+      if (!tab) {
+        writer.write(HEADER);
+      }
+      if (name && endColumnEnd < lineEnd) {
+        writer.write(line, endColumnEnd + 1,
+            BedTransform.columnEnd(line, endColumnEnd + 1, lineEnd));
+      } else {
+        writer.write(line, lineStart, startColumn - 1);
+        writer.write(COORDINATES_SEPARATOR);
+        writer.writeLong(start);
+        writer.write(RANGE_SEPARATOR);
+        writer.writeLong(end);
+      }
+      if (strand) {
+        byte[] strandBytes = reverse ? NEGATIVE_STRAND : POSITIVE_STRAND;
+        writer.write(strandBytes, 0, strandBytes.length);
+      }
+      if (tab) {
+        writer.write(COLUMN_SEPARATOR);
+      } else {
+        writer.newLine();
+      }
+      writer.write(bases, 0, length);
+      writer.newLine();
+    };
+    try (InputStream input = command.inputStream();
+        OutputStream output = command.outputStream();
+        Workers workers = executionEngine.workers(command.threads)) {
+      workers.run(input, output, processor);
+    }
+    if (discarded.sum() > 0) {
+      logger.info("discarded {} annotations outside of FASTA sequences", discarded.sum());
+    }
+  }
+}
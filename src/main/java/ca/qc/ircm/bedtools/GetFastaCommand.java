@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Sequence extraction parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = GetFastaCommand.GET_FASTA_COMMAND,
+    commandDescription = "Extracts sequences of annotations from an indexed FASTA or 2bit file")
+public class GetFastaCommand {
+  public static final String GET_FASTA_COMMAND = "getfasta";
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-fi", "--fasta" },
+      description = "FASTA or 2bit file. The .fai index of FASTA file is created next to it if"
+          + " missing",
+      required = true,
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path fasta;
+  @Parameter(
+      names = { "-s", "--strand" },
+      description = "Reverse complement sequences of annotations on negative strand",
+      required = false)
+  public boolean strand;
+  @Parameter(
+      names = { "-n", "--name" },
+      description = "Use name of annotations as sequence names instead of their coordinates",
+      required = false)
+  public boolean name;
+  @Parameter(
+      names = { "--tab" },
+      description = "Write sequence name and sequence on one line, separated by a tab",
+      required = false)
+  public boolean tab;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of threads used to process lines, output keeps the order of input."
+          + " Defaults to global --threads",
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input stream
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public InputStream inputStream() throws IOException {
+    return BedStreams.inputStream(input);
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>.
+   *
+   * @return output stream
+   * @throws IOException
+   *           could not created a stream for output
+   */
+  public OutputStream outputStream() throws IOException {
+    return BedStreams.outputStream(output, false);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Intersects sorted BED files.
+ *
+ * <p>
+ * Both files are read once, in parallel, like a sweep-line. Only features that can still overlap
+ * upcoming input annotations are kept in memory, so memory usage depends on the maximum overlap
+ * depth and not on file size.
+ * </p>
+ */
+@Component
+public class Intersect {
+  private static final String LINE_SEPARATOR = "\n";
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final Logger logger = LoggerFactory.getLogger(Intersect.class);
+
+  /**
+   * Intersects input annotations with features.
+   *
+   * @param command
+   *          intersect command
+   * @throws IOException
+   *           could not read or write BED
+   * @throws IllegalArgumentException
+   *           input or features are not sorted
+   */
+  public void run(IntersectCommand command) throws IOException {
+    List<Interval> active = new ArrayList<>();
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    int maximumActive = 0;
+    try (BufferedReader reader = command.reader();
+        BufferedReader featuresReader = command.featuresReader();
+        BufferedWriter writer = command.writer()) {
+      SortedReader features = new SortedReader(featuresReader, dictionary);
+      Interval feature = features.next();
+      Interval previous = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (Interval.isHeader(line)) {
+          writer.write(line);
+          writer.write(LINE_SEPARATOR);
+          continue;
+        }
+        Interval annotation = Interval.parse(line, dictionary);
+        if (previous != null && annotation.comparePosition(previous, dictionary) < 0) {
+          throw new IllegalArgumentException("Input is not sorted at " + line);
+        }
+        if (previous == null || previous.chromosome != annotation.chromosome) {
+          active.clear();
+        }
+        previous = annotation;
+        while (feature != null
+            && dictionary.compare(feature.chromosome, annotation.chromosome) < 0) {
+          feature = features.next();
+        }
+        while (feature != null && feature.chromosome == annotation.chromosome
+            && feature.start < annotation.end) {
+          active.add(feature);
+          feature = features.next();
+        }
+        active.removeIf(activeFeature -> activeFeature.end <= annotation.start);
+        maximumActive = Math.max(maximumActive, active.size());
+        write(annotation, active, command, writer);
+      }
+    }
+    logger.debug("kept at most {} features in memory", maximumActive);
+  }
+
+  private void write(Interval annotation, List<Interval> active, IntersectCommand command,
+      BufferedWriter writer) throws IOException {
+    boolean writeOverlaps = !command.noOverlap && !command.unique && !command.count;
+    int count = 0;
+    for (Interval feature : active) {
+      if (!feature.overlaps(annotation)
+          || (command.sameStrand && feature.negativeStrand != annotation.negativeStrand)) {
+        continue;
+      }
+      count++;
+      if (!writeOverlaps) {
+        if (command.count) {
+          continue;
+        }
+        break;
+      }
+      if (command.writeInput) {
+        writer.write(annotation.line);
+      } else {
+        String[] columns = annotation.columns.clone();
+        columns[1] = String.valueOf(Math.max(annotation.start, feature.start));
+        columns[2] = String.valueOf(Math.min(annotation.end, feature.end));
+        writer.write(String.join(COLUMN_SEPARATOR, columns));
+      }
+      if (command.writeFeature) {
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(feature.line);
+      }
+      writer.write(LINE_SEPARATOR);
+    }
+    if (command.noOverlap) {
+      if (count == 0) {
+        writer.write(annotation.line);
+        writer.write(LINE_SEPARATOR);
+      }
+    } else if (command.unique) {
+      if (count > 0) {
+        writer.write(annotation.line);
+        writer.write(LINE_SEPARATOR);
+      }
+    } else if (command.count) {
+      writer.write(annotation.line);
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(count));
+      writer.write(LINE_SEPARATOR);
+    }
+  }
+
+  /**
+   * Reads annotations of a sorted BED file, skipping headers.
+   */
+  private static class SortedReader {
+    private final BufferedReader reader;
+    private final ChromosomeDictionary dictionary;
+    private Interval previous;
+
+    private SortedReader(BufferedReader reader, ChromosomeDictionary dictionary) {
+      this.reader = reader;
+      this.dictionary = dictionary;
+    }
+
+    private Interval next() throws IOException {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!Interval.isHeader(line)) {
+          Interval interval = Interval.parse(line, dictionary);
+          if (previous != null && interval.comparePosition(previous, dictionary) < 0) {
+            throw new IllegalArgumentException("Features are not sorted at " + line);
+          }
+          previous = interval;
+          return interval;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Intersect sorted BED files parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = IntersectCommand.INTERSECT_COMMAND,
+    commandDescription = "Intersect two BED files sorted by chromosome and start")
+public class IntersectCommand {
+  public static final String INTERSECT_COMMAND = "intersect";
+  private static final int NAME_COLUMN = 3;
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-b", "--features" },
+      description = "Features to intersect with input, sorted like input",
+      required = true,
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path features;
+  @Parameter(
+      names = { "-wa", "--writeInput" },
+      description = "Write the original input annotation for each overlap"
+          + " instead of the overlapping part",
+      required = false)
+  public boolean writeInput;
+  @Parameter(
+      names = { "-wb", "--writeFeature" },
+      description = "Append the overlapping feature to each overlap",
+      required = false)
+  public boolean writeFeature;
+  @Parameter(
+      names = { "-u", "--unique" },
+      description = "Write input annotation once if it has any overlap",
+      required = false)
+  public boolean unique;
+  @Parameter(
+      names = { "-v", "--noOverlap" },
+      description = "Write only input annotations that have no overlap."
+          + " Has precedence over --unique and --count",
+      required = false)
+  public boolean noOverlap;
+  @Parameter(
+      names = { "-c", "--count" },
+      description = "Write input annotations followed by their number of overlaps",
+      required = false)
+  public boolean count;
+  @Parameter(
+      names = { "-s", "--sameStrand" },
+      description = "Only report overlaps on the same strand",
+      required = false)
+  public boolean sameStrand;
+  @Parameter(
+      names = { "--shards" },
+      description = "Split output into this number of files, records with the same shard key"
+          + " are written to the same file. Output file is required, shard is added before"
+          + " its extension",
+      validateWith = PositiveInteger.class)
+  public Integer shards;
+  @Parameter(
+      names = { "--shardKey", "--shard-key" },
+      description = "Key used to choose the shard of records, either name or position")
+  public ShardKey shardKey = ShardKey.NAME;
+  @Parameter(
+      names = { "-i", "-a", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input reader, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input reader
+   * @throws IOException
+   *           could not created a reader for input
+   */
+  public BufferedReader reader() throws IOException {
+    return BedStreams.reader(input);
+  }
+
+  /**
+   * Returns features reader. Binary BED features are decoded.
+   *
+   * @return features reader
+   * @throws IOException
+   *           could not created a reader for features
+   */
+  public BufferedReader featuresReader() throws IOException {
+    return BedStreams.reader(features);
+  }
+
+  /**
+   * Returns output writer, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Shards are handled by {@link BedStreams}.
+   *
+   * @return output writer
+   * @throws IOException
+   *           could not created a writer for output
+   */
+  public BufferedWriter writer() throws IOException {
+    return BedStreams.writer(output, null, 0, shards,
+        count -> shardKey.router(count, NAME_COLUMN));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+
+/**
+ * Annotation of a BED file, as needed by interval operations.
+ */
+final class Interval {
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String NEGATIVE_STRAND = "-";
+  private static final String BROWSER = "browser";
+  private static final String TRACK = "track";
+  private static final String COMMENT = "#";
+  final String line;
+  final String[] columns;
+  final int chromosome;
+  final long start;
+  final long end;
+  final boolean negativeStrand;
+
+  private Interval(String line, String[] columns, int chromosome) {
+    this.line = line;
+    this.columns = columns;
+    this.chromosome = chromosome;
+    this.start = Long.parseLong(columns[1]);
+    this.end = Long.parseLong(columns[2]);
+    this.negativeStrand = columns.length > 5 && columns[5].equals(NEGATIVE_STRAND);
+  }
+
+  /**
+   * Returns true if line is a comment, browser or track line.
+   *
+   * @param line
+   *          BED line
+   * @return true if line is a comment, browser or track line
+   */
+  static boolean isHeader(String line) {
+    return line.startsWith(COMMENT) || isKeyword(line, BROWSER) || isKeyword(line, TRACK);
+  }
+
+  private static boolean isKeyword(String line, String keyword) {
+    return line.startsWith(keyword)
+        && (line.length() == keyword.length() || line.charAt(keyword.length()) == ' ');
+  }
+
+  /**
+   * Parses BED line.
+   *
+   * @param line
+   *          BED line that is not a header
+   * @param dictionary
+   *          chromosome dictionary
+   * @return annotation
+   * @throws NumberFormatException
+   *           start or end is not a number
+   */
+  static Interval parse(String line, ChromosomeDictionary dictionary) {
+    String[] columns = line.split(COLUMN_SEPARATOR, -1);
+    return new Interval(line, columns, dictionary.id(line, 0, columns[0].length()));
+  }
+
+  /**
+   * Returns true if this annotation overlaps other annotation.
+   *
+   * @param other
+   *          other annotation
+   * @return true if this annotation overlaps other annotation
+   */
+  boolean overlaps(Interval other) {
+    return start < other.end && other.start < end;
+  }
+
+  /**
+   * Compares position of this annotation to another annotation of a sorted BED file.
+   *
+   * @param other
+   *          other annotation
+   * @param dictionary
+   *          chromosome dictionary used to parse both annotations
+   * @return a negative number, zero or a positive number if this annotation comes before, at the
+   *         same position or after other annotation
+   */
+  int comparePosition(Interval other, ChromosomeDictionary dictionary) {
+    int compare = dictionary.compare(chromosome, other.chromosome);
+    return compare != 0 ? compare : Long.compare(start, other.start);
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of pairs of longs.
+ *
+ * <p>
+ * Each entry uses 16 bytes, in segments of long arrays so the set is not limited by the maximum
+ * size of an array. Segments are on the heap, so segments dropped when the set grows count against
+ * the maximum heap size and are freed as soon as the garbage collector needs memory. The first
+ * long of an entry must not be {@value #EMPTY}, this value marks empty slots.
+ * </p>
+ *
+ * <p>
+ * Slots of entries added since the last {@link #clear()} are logged on the heap, so clearing a set
+ * holding few entries does not scan all slots. The log holds at most one slot for every
+ * {@value #OCCUPIED_RATIO} slots of the set; past that size, or once the set grows, clearing scans
+ * all slots, which is then amortized by the added entries.
+ * </p>
+ */
+final class LongPairHashSet {
+  /**
+   * Marks empty slots, first long of an entry cannot have this value.
+   */
+  static final long EMPTY = -1;
+  private static final int DEFAULT_SEGMENT_BITS = 26;
+  private static final int MINIMUM_CAPACITY = 16;
+  private static final int OCCUPIED_RATIO = 16;
+  private final int segmentBits;
+  private long[][] segments;
+  private long capacity;
+  private long size;
+  private long[] occupied = new long[MINIMUM_CAPACITY];
+  private int occupiedCount;
+  private boolean occupiedOverflow;
+
+  /**
+   * Creates a hash set.
+   *
+   * @param initialCapacity
+   *          number of entries the set can hold before growing
+   */
+  LongPairHashSet(long initialCapacity) {
+    this(initialCapacity, DEFAULT_SEGMENT_BITS);
+  }
+
+  LongPairHashSet(long initialCapacity, int segmentBits) {
+    this.segmentBits = segmentBits;
+    allocate(Math.max(MINIMUM_CAPACITY, Long.highestOneBit(Math.max(1, initialCapacity * 2)) << 1));
+  }
+
+  /**
+   * Adds pair to set.
+   *
+   * @param first
+   *          first long, cannot be {@value #EMPTY}
+   * @param second
+   *          second long
+   * @return true if pair was not already in set
+   */
+  boolean add(long first, long second) {
+    if (first == EMPTY) {
+      throw new IllegalArgumentException("First long cannot be " + EMPTY);
+    }
+    long mask = capacity - 1;
+    for (long slot = hash(first, second) & mask;; slot = (slot + 1) & mask) {
+      long[] segment = segment(slot);
+      int index = index(slot);
+      long entry = segment[index];
+      if (entry == EMPTY) {
+        segment[index] = first;
+        segment[index + 1] = second;
+        size++;
+        occupied(slot);
+        if (size * 2 > capacity) {
+          grow();
+        }
+        return true;
+      } else if (entry == first && segment[index + 1] == second) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Returns true if pair is in set.
+   *
+   * @param first
+   *          first long
+   * @param second
+   *          second long
+   * @return true if pair is in set
+   */
+  boolean contains(long first, long second) {
+    long mask = capacity - 1;
+    for (long slot = hash(first, second) & mask;; slot = (slot + 1) & mask) {
+      long[] segment = segment(slot);
+      int index = index(slot);
+      long entry = segment[index];
+      if (entry == EMPTY) {
+        return false;
+      } else if (entry == first && segment[index + 1] == second) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Removes all entries, keeping allocated memory.
+   */
+  void clear() {
+    if (size == 0) {
+      return;
+    }
+    if (occupiedOverflow) {
+      for (long[] segment : segments) {
+        for (int i = 0; i < segment.length; i += 2) {
+          segment[i] = EMPTY;
+        }
+      }
+    } else {
+      for (int i = 0; i < occupiedCount; i++) {
+        long slot = occupied[i];
+        segment(slot)[index(slot)] = EMPTY;
+      }
+    }
+    size = 0;
+    occupiedCount = 0;
+    occupiedOverflow = false;
+  }
+
+  /**
+   * Returns number of entries in set.
+   *
+   * @return number of entries in set
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns number of slots, entries and empty slots, in set.
+   *
+   * @return number of slots in set
+   */
+  long capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns number of bytes allocated by set.
+   *
+   * @return number of bytes allocated by set
+   */
+  long memory() {
+    return capacity * 2 * Long.BYTES;
+  }
+
+  /**
+   * Returns number of bytes allocated by set once it grows, which happens when an entry is added
+   * to a set that is half full.
+   *
+   * @return number of bytes allocated by set once it grows
+   */
+  long memoryAfterGrowth() {
+    return (size + 1) * 2 > capacity ? memory() * 2 : memory();
+  }
+
+  /**
+   * Calls consumer for each entry of set.
+   *
+   * @param consumer
+   *          consumer of entries
+   */
+  void forEach(EntryConsumer consumer) {
+    for (long[] segment : segments) {
+      for (int i = 0; i < segment.length; i += 2) {
+        long first = segment[i];
+        if (first != EMPTY) {
+          consumer.accept(first, segment[i + 1]);
+        }
+      }
+    }
+  }
+
+  private static long hash(long first, long second) {
+    long hash = first * 0x9E3779B97F4A7C15L + second;
+    hash *= 0xC2B2AE3D27D4EB4FL;
+    return hash ^ (hash >>> 29);
+  }
+
+  private void occupied(long slot) {
+    if (occupiedOverflow) {
+      return;
+    }
+    if (occupiedCount == occupied.length) {
+      if (occupied.length >= capacity / OCCUPIED_RATIO) {
+        occupiedOverflow = true;
+        return;
+      }
+      occupied = Arrays.copyOf(occupied, occupied.length * 2);
+    }
+    occupied[occupiedCount++] = slot;
+  }
+
+  private long[] segment(long slot) {
+    return segments[(int) (slot >>> segmentBits)];
+  }
+
+  private int index(long slot) {
+    return (int) (slot & ((1L << segmentBits) - 1)) * 2;
+  }
+
+  private void allocate(long capacity) {
+    this.capacity = capacity;
+    long segmentCapacity = Math.min(capacity, 1L << segmentBits);
+    segments = new long[(int) (capacity / segmentCapacity)][];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new long[(int) segmentCapacity * 2];
+      Arrays.fill(segments[i], EMPTY);
+    }
+  }
+
+  private void grow() {
+    long[][] oldSegments = segments;
+    allocate(capacity * 2);
+    occupiedOverflow = true;
+    long mask = capacity - 1;
+    for (long[] oldSegment : oldSegments) {
+      for (int i = 0; i < oldSegment.length; i += 2) {
+        long first = oldSegment[i];
+        if (first != EMPTY) {
+          long second = oldSegment[i + 1];
+          long slot = hash(first, second) & mask;
+          while (segment(slot)[index(slot)] != EMPTY) {
+            slot = (slot + 1) & mask;
+          }
+          long[] segment = segment(slot);
+          int index = index(slot);
+          segment[index] = first;
+          segment[index + 1] = second;
+        }
+      }
+    }
+  }
+
+  /**
+   * Consumer of entries.
+   */
+  @FunctionalInterface
+  interface EntryConsumer {
+    void accept(long first, long second);
+  }
+}
@@ -17,8 +17,10 @@
 
 package ca.qc.ircm.bedtools;
 
+import ca.qc.ircm.bedtools.validation.MemorySizeConverter;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.beust.jcommander.validators.PositiveInteger;
 
 /**
  * Command line parameters.
@@ -27,4 +29,15 @@ import com.beust.jcommander.Parameters;
 public class MainCommand {
   @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
   public boolean help = false;
+  @Parameter(
+      names = { "--threads" },
+      description = "Number of threads used by commands, unless a command sets its own",
+      validateWith = PositiveInteger.class)
+  public int threads = Runtime.getRuntime().availableProcessors();
+  @Parameter(
+      names = { "--memory" },
+      description = "Memory that commands may use for buffers, like 512m or 4g. Commands spill to"
+          + " compressed temporary files when they need more. Defaults to no limit",
+      converter = MemorySizeConverter.class)
+  public Long memory;
 }
@@ -18,11 +18,21 @@
 package ca.qc.ircm.bedtools;
 
 import static ca.qc.ircm.bedtools.BedpeToBedCommand.BEDPE_TO_BED;
+import static ca.qc.ircm.bedtools.ConvertCommand.CONVERT_COMMAND;
+import static ca.qc.ircm.bedtools.CoverageCommand.COVERAGE_COMMAND;
+import static ca.qc.ircm.bedtools.DedupCommand.DEDUP_COMMAND;
 import static ca.qc.ircm.bedtools.FastaToSizesCommand.FASTA_TO_SIZES_COMMAND;
+import static ca.qc.ircm.bedtools.FastaToTwoBitCommand.FASTA_TO_TWO_BIT_COMMAND;
 import static ca.qc.ircm.bedtools.FilterBedpeCommand.FILTER_BEDPE;
+import static ca.qc.ircm.bedtools.GetFastaCommand.GET_FASTA_COMMAND;
+import static ca.qc.ircm.bedtools.IntersectCommand.INTERSECT_COMMAND;
+import static ca.qc.ircm.bedtools.MergeCommand.MERGE_COMMAND;
 import static ca.qc.ircm.bedtools.MoveAnnotationsCommand.MOVE_ANNOTATIONS_COMMAND;
+import static ca.qc.ircm.bedtools.NucCommand.NUC_COMMAND;
+import static ca.qc.ircm.bedtools.SampleCommand.SAMPLE_COMMAND;
 import static ca.qc.ircm.bedtools.SetAnnotationsSizeCommand.SET_ANNOTATIONS_SIZE_COMMAND;
 
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import java.io.IOException;
@@ -47,6 +57,24 @@ public class MainService implements CommandLineRunner {
   private FilterBedpe filterBedpe;
   @Inject
   private BedpeToBed bedpeToBed;
+  @Inject
+  private Intersect intersect;
+  @Inject
+  private Merge merge;
+  @Inject
+  private Coverage coverage;
+  @Inject
+  private BedConverter bedConverter;
+  @Inject
+  private Dedup dedup;
+  @Inject
+  private Sample sample;
+  @Inject
+  private GetFasta getFasta;
+  @Inject
+  private Nuc nuc;
+  @Inject
+  private ExecutionEngine executionEngine;
   @Value("${spring.runner.enabled}")
   private boolean runnerEnabled;
 
@@ -69,15 +97,29 @@ public class MainService implements CommandLineRunner {
     SetAnnotationsSizeCommand setAnnotationSizeCommand = new SetAnnotationsSizeCommand();
     MoveAnnotationsCommand moveAnnotationsCommand = new MoveAnnotationsCommand();
     FastaToSizesCommand fastaToSizesCommand = new FastaToSizesCommand();
+    FastaToTwoBitCommand fastaToTwoBitCommand = new FastaToTwoBitCommand();
     FilterBedpeCommand filterBedpeCommand = new FilterBedpeCommand();
     BedpeToBedCommand bedpeToBedCommand = new BedpeToBedCommand();
-    JCommander command =
-        JCommander.newBuilder().addObject(mainCommand).addCommand(setAnnotationSizeCommand)
-            .addCommand(moveAnnotationsCommand).addCommand(fastaToSizesCommand)
-            .addCommand(filterBedpeCommand).addCommand(bedpeToBedCommand).build();
+    IntersectCommand intersectCommand = new IntersectCommand();
+    MergeCommand mergeCommand = new MergeCommand();
+    CoverageCommand coverageCommand = new CoverageCommand();
+    ConvertCommand convertCommand = new ConvertCommand();
+    DedupCommand dedupCommand = new DedupCommand();
+    SampleCommand sampleCommand = new SampleCommand();
+    GetFastaCommand getFastaCommand = new GetFastaCommand();
+    NucCommand nucCommand = new NucCommand();
+    JCommander command = JCommander.newBuilder().addObject(mainCommand)
+        .addCommand(setAnnotationSizeCommand).addCommand(moveAnnotationsCommand)
+        .addCommand(fastaToSizesCommand).addCommand(fastaToTwoBitCommand)
+        .addCommand(filterBedpeCommand).addCommand(bedpeToBedCommand)
+        .addCommand(intersectCommand).addCommand(mergeCommand).addCommand(coverageCommand)
+        .addCommand(convertCommand).addCommand(dedupCommand).addCommand(sampleCommand)
+        .addCommand(getFastaCommand).addCommand(nucCommand).build();
     command.setCaseSensitiveOptions(false);
     try {
       command.parse(args);
+      executionEngine.setThreads(mainCommand.threads);
+      executionEngine.setMemory(mainCommand.memory);
       if (command.getParsedCommand() == null || mainCommand.help) {
         command.usage();
       } else if (command.getParsedCommand().equals(SET_ANNOTATIONS_SIZE_COMMAND)) {
@@ -98,6 +140,12 @@ public class MainService implements CommandLineRunner {
         } else {
           fastaToSize(fastaToSizesCommand);
         }
+      } else if (command.getParsedCommand().equals(FASTA_TO_TWO_BIT_COMMAND)) {
+        if (fastaToTwoBitCommand.help) {
+          command.usage(FASTA_TO_TWO_BIT_COMMAND);
+        } else {
+          fastaConverter.toTwoBit(fastaToTwoBitCommand);
+        }
       } else if (command.getParsedCommand().equals(FILTER_BEDPE)) {
         if (filterBedpeCommand.help) {
           command.usage(FILTER_BEDPE);
@@ -110,8 +158,56 @@ public class MainService implements CommandLineRunner {
         } else {
           bedpeToBed.run(bedpeToBedCommand);
         }
+      } else if (command.getParsedCommand().equals(INTERSECT_COMMAND)) {
+        if (intersectCommand.help) {
+          command.usage(INTERSECT_COMMAND);
+        } else {
+          intersect.run(intersectCommand);
+        }
+      } else if (command.getParsedCommand().equals(MERGE_COMMAND)) {
+        if (mergeCommand.help) {
+          command.usage(MERGE_COMMAND);
+        } else {
+          merge.run(mergeCommand);
+        }
+      } else if (command.getParsedCommand().equals(COVERAGE_COMMAND)) {
+        if (coverageCommand.help) {
+          command.usage(COVERAGE_COMMAND);
+        } else {
+          coverage.run(coverageCommand);
+        }
+      } else if (command.getParsedCommand().equals(CONVERT_COMMAND)) {
+        if (convertCommand.help) {
+          command.usage(CONVERT_COMMAND);
+        } else {
+          bedConverter.run(convertCommand);
+        }
+      } else if (command.getParsedCommand().equals(DEDUP_COMMAND)) {
+        if (dedupCommand.help) {
+          command.usage(DEDUP_COMMAND);
+        } else {
+          dedup.run(dedupCommand);
+        }
+      } else if (command.getParsedCommand().equals(SAMPLE_COMMAND)) {
+        if (sampleCommand.help) {
+          command.usage(SAMPLE_COMMAND);
+        } else {
+          sample.run(sampleCommand);
+        }
+      } else if (command.getParsedCommand().equals(GET_FASTA_COMMAND)) {
+        if (getFastaCommand.help) {
+          command.usage(GET_FASTA_COMMAND);
+        } else {
+          getFasta.run(getFastaCommand);
+        }
+      } else if (command.getParsedCommand().equals(NUC_COMMAND)) {
+        if (nucCommand.help) {
+          command.usage(NUC_COMMAND);
+        } else {
+          nuc.run(nucCommand);
+        }
       }
-    } catch (NumberFormatException e) {
+    } catch (IllegalArgumentException e) {
       System.err.println(e.getMessage());
     } catch (IOException e) {
       System.err.println("Could not read input or write to output");
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+
+/**
+ * Merges overlapping annotations of sorted BED files.
+ *
+ * <p>
+ * Only the merged annotation that is being built is kept in memory (one per strand when merging
+ * by strand). Aggregated columns use primitive accumulators, except for distinct values which are
+ * kept for the current merged annotation only.
+ * </p>
+ *
+ * <p>
+ * When merging by strand, a complete merged annotation is held until the merged annotation being
+ * built on the other strand starts after it, so output stays sorted. Merged annotations are then
+ * written as BED6, with their strand in column 6, followed by aggregated columns. Annotations
+ * without a negative strand are merged as positive strand.
+ * </p>
+ */
+@Component
+public class Merge {
+  private static final String LINE_SEPARATOR = "\n";
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String DISTINCT_SEPARATOR = ",";
+  private static final String NO_NAME = ".";
+  private static final String NO_SCORE = "0";
+  private static final String POSITIVE_STRAND = "+";
+  private static final String NEGATIVE_STRAND = "-";
+  private static final Comparator<Cluster> CLUSTER_ORDER =
+      Comparator.comparingLong((Cluster cluster) -> cluster.start)
+          .thenComparingLong(cluster -> cluster.end);
+
+  /**
+   * Merges overlapping annotations.
+   *
+   * @param command
+   *          merge command
+   * @throws IOException
+   *           could not read or write BED
+   * @throws IllegalArgumentException
+   *           input is not sorted or columns to aggregate are invalid
+   */
+  public void run(MergeCommand command) throws IOException {
+    List<Integer> columns = command.columns;
+    List<MergeOperation> operations = command.operations;
+    if (operations.size() != columns.size() && operations.size() != 1) {
+      throw new IllegalArgumentException(
+          "Number of operations must be 1 or match the number of columns");
+    }
+    MergeOperation[] columnOperations = new MergeOperation[columns.size()];
+    int[] columnIndexes = new int[columns.size()];
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.get(i) < 1) {
+        throw new IllegalArgumentException("Columns must be greater than 0");
+      }
+      columnIndexes[i] = columns.get(i) - 1;
+      columnOperations[i] = operations.get(operations.size() == 1 ? 0 : i);
+    }
+    Cluster[] clusters = new Cluster[command.sameStrand ? 2 : 1];
+    PriorityQueue<Cluster> complete = new PriorityQueue<>(CLUSTER_ORDER);
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    try (BufferedReader reader = command.reader(); BufferedWriter writer = command.writer()) {
+      Interval previous = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (Interval.isHeader(line)) {
+          writer.write(line);
+          writer.write(LINE_SEPARATOR);
+          continue;
+        }
+        Interval annotation = Interval.parse(line, dictionary);
+        if (previous != null && annotation.comparePosition(previous, dictionary) < 0) {
+          throw new IllegalArgumentException("Input is not sorted at " + line);
+        }
+        if (previous != null && previous.chromosome != annotation.chromosome) {
+          flush(clusters, complete, writer);
+        }
+        previous = annotation;
+        int strand = command.sameStrand && annotation.negativeStrand ? 1 : 0;
+        Cluster cluster = clusters[strand];
+        if (cluster != null && annotation.start <= cluster.end + command.distance) {
+          cluster.end = Math.max(cluster.end, annotation.end);
+        } else {
+          if (cluster != null) {
+            complete.add(cluster);
+          }
+          String strandName = !command.sameStrand ? null
+              : annotation.negativeStrand ? NEGATIVE_STRAND : POSITIVE_STRAND;
+          cluster = new Cluster(annotation, dictionary.name(annotation.chromosome), strandName,
+              columnIndexes, columnOperations);
+          clusters[strand] = cluster;
+        }
+        cluster.add(annotation);
+        writeComplete(clusters, complete, writer);
+      }
+      flush(clusters, complete, writer);
+    }
+  }
+
+  /**
+   * Writes complete merged annotations that start before all merged annotations being built.
+   * Later annotations of sorted input cannot start before them either.
+   */
+  private void writeComplete(Cluster[] clusters, PriorityQueue<Cluster> complete,
+      BufferedWriter writer) throws IOException {
+    long start = Long.MAX_VALUE;
+    for (Cluster cluster : clusters) {
+      if (cluster != null) {
+        start = Math.min(start, cluster.start);
+      }
+    }
+    while (!complete.isEmpty() && complete.peek().start <= start) {
+      complete.poll().write(writer);
+    }
+  }
+
+  private void flush(Cluster[] clusters, PriorityQueue<Cluster> complete, BufferedWriter writer)
+      throws IOException {
+    for (int i = 0; i < clusters.length; i++) {
+      if (clusters[i] != null) {
+        complete.add(clusters[i]);
+        clusters[i] = null;
+      }
+    }
+    while (!complete.isEmpty()) {
+      complete.poll().write(writer);
+    }
+  }
+
+  /**
+   * Merged annotation being built.
+   */
+  private static class Cluster {
+    private final String chromosome;
+    private final String strand;
+    private final long start;
+    private long end;
+    private final int[] columnIndexes;
+    private final Accumulator[] accumulators;
+
+    private Cluster(Interval annotation, String chromosome, String strand, int[] columnIndexes,
+        MergeOperation[] operations) {
+      this.chromosome = chromosome;
+      this.strand = strand;
+      this.start = annotation.start;
+      this.end = annotation.end;
+      this.columnIndexes = columnIndexes;
+      this.accumulators = new Accumulator[operations.length];
+      for (int i = 0; i < operations.length; i++) {
+        accumulators[i] = new Accumulator(operations[i]);
+      }
+    }
+
+    private void add(Interval annotation) {
+      for (int i = 0; i < columnIndexes.length; i++) {
+        if (columnIndexes[i] >= annotation.columns.length) {
+          throw new IllegalArgumentException(
+              "Column " + (columnIndexes[i] + 1) + " is missing at " + annotation.line);
+        }
+        accumulators[i].add(annotation.columns[columnIndexes[i]]);
+      }
+    }
+
+    private void write(BufferedWriter writer) throws IOException {
+      writer.write(chromosome);
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(start));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(end));
+      if (strand != null) {
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(NO_NAME);
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(NO_SCORE);
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(strand);
+      }
+      for (Accumulator accumulator : accumulators) {
+        writer.write(COLUMN_SEPARATOR);
+        writer.write(accumulator.value());
+      }
+      writer.write(LINE_SEPARATOR);
+    }
+  }
+
+  /**
+   * Aggregates values of a column. Numbers are accumulated as <code>long</code> until a fractional
+   * value is found, or until the sum overflows, and as <code>double</code> afterwards.
+   */
+  private static class Accumulator {
+    private final MergeOperation operation;
+    private long count;
+    private boolean integral = true;
+    private long longSum;
+    private long longMin = Long.MAX_VALUE;
+    private long longMax = Long.MIN_VALUE;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private Set<String> distinct;
+
+    private Accumulator(MergeOperation operation) {
+      this.operation = operation;
+      if (operation == MergeOperation.DISTINCT) {
+        distinct = new LinkedHashSet<>();
+      }
+    }
+
+    private void add(String value) {
+      switch (operation) {
+        case COUNT:
+          count++;
+          break;
+        case SUM:
+        case MIN:
+        case MAX:
+          addNumber(value);
+          break;
+        case DISTINCT:
+          distinct.add(value);
+          break;
+        default:
+          throw new AssertionError("Operation " + operation + " not covered in switch");
+      }
+    }
+
+    private void addNumber(String value) {
+      if (integral) {
+        try {
+          long number = Long.parseLong(value);
+          longSum = operation == MergeOperation.SUM ? Math.addExact(longSum, number) : longSum;
+          longMin = Math.min(longMin, number);
+          longMax = Math.max(longMax, number);
+          count++;
+          return;
+        } catch (NumberFormatException | ArithmeticException e) {
+          integral = false;
+          if (count > 0) {
+            sum = longSum;
+            min = longMin;
+            max = longMax;
+          }
+        }
+      }
+      double number = Double.parseDouble(value);
+      sum += number;
+      min = Math.min(min, number);
+      max = Math.max(max, number);
+    }
+
+    private String value() {
+      switch (operation) {
+        case COUNT:
+          return String.valueOf(count);
+        case SUM:
+          return integral ? String.valueOf(longSum) : format(sum);
+        case MIN:
+          return integral ? String.valueOf(longMin) : format(min);
+        case MAX:
+          return integral ? String.valueOf(longMax) : format(max);
+        case DISTINCT:
+          return String.join(DISTINCT_SEPARATOR, distinct);
+        default:
+          throw new AssertionError("Operation " + operation + " not covered in switch");
+      }
+    }
+
+    private String format(double value) {
+      if (value == Math.rint(value) && !Double.isInfinite(value)
+          && Math.abs(value) < Long.MAX_VALUE) {
+        return String.valueOf((long) value);
+      } else {
+        return String.valueOf(value);
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import ca.qc.ircm.bedtools.validation.NonNegativeInteger;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merge annotations parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = MergeCommand.MERGE_COMMAND,
+    commandDescription = "Merge overlapping annotations of a sorted BED file")
+public class MergeCommand {
+  public static final String MERGE_COMMAND = "merge";
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-d", "--distance" },
+      description = "Maximum distance between annotations to merge them."
+          + " Overlapping and book-ended annotations are always merged",
+      required = false,
+      validateWith = NonNegativeInteger.class)
+  public int distance = 0;
+  @Parameter(
+      names = { "-s", "--sameStrand" },
+      description = "Only merge annotations on the same strand, output is BED6 with strand in"
+          + " column 6 followed by aggregated columns",
+      required = false)
+  public boolean sameStrand;
+  @Parameter(
+      names = { "-c", "--columns" },
+      description = "Columns to aggregate, starting at 1",
+      required = false)
+  public List<Integer> columns = new ArrayList<>();
+  @Parameter(
+      names = { "-op", "--operations" },
+      description = "Operations to apply to columns: count, sum, min, max or distinct."
+          + " A single operation applies to all columns",
+      required = false)
+  public List<MergeOperation> operations = new ArrayList<>();
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input reader, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input reader
+   * @throws IOException
+   *           could not created a reader for input
+   */
+  public BufferedReader reader() throws IOException {
+    return BedStreams.reader(input);
+  }
+
+  /**
+   * Returns output writer, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED.
+   *
+   * @return output writer
+   * @throws IOException
+   *           could not created a writer for output
+   */
+  public BufferedWriter writer() throws IOException {
+    return BedStreams.writer(output);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+/**
+ * Approximate set of read names using a Bloom filter.
+ *
+ * <p>
+ * Names are not stored, only bits derived from their 64 bits hash, so memory usage is about 10
+ * bits per name. Lookups can return false positives, at a rate of about
+ * {@value #FALSE_POSITIVE_RATE}, but never false negatives.
+ * </p>
+ */
+final class NameBloomFilter implements NameSet {
+  static final double FALSE_POSITIVE_RATE = 0.01;
+  private final long[] bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Creates a Bloom filter.
+   *
+   * @param expectedNames
+   *          expected number of names
+   */
+  NameBloomFilter(long expectedNames) {
+    long names = Math.max(1, expectedNames);
+    double ln2 = Math.log(2);
+    long words = Math.max(1,
+        (long) Math.ceil(-names * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2) / Long.SIZE));
+    bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, words)];
+    bitCount = (long) bits.length * Long.SIZE;
+    hashCount = Math.max(1, (int) Math.round((double) bitCount / names * ln2));
+  }
+
+  @Override
+  public void add(String name) {
+    long hash = NameSet.hash(name, 0, name.length());
+    long hash1 = hash >>> 32;
+    long hash2 = hash & 0xFFFFFFFFL | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  @Override
+  public boolean contains(CharSequence chars, int start, int end) {
+    return contains(NameSet.hash(chars, start, end));
+  }
+
+  @Override
+  public boolean contains(byte[] bytes, int start, int end) {
+    return contains(NameSet.hash(bytes, start, end));
+  }
+
+  private boolean contains(long hash) {
+    long hash1 = hash >>> 32;
+    long hash2 = hash & 0xFFFFFFFFL | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+      if ((bits[(int) (bit >>> 6)] & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
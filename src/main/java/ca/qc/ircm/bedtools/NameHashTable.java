@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exact set of read names, stored outside of the heap.
+ *
+ * <p>
+ * The table holds the 64 bits hash of each name and the position of the name in a byte arena,
+ * plus one to distinguish empty slots.
+ * Lookups compare hashes first and only compare bytes to verify a match, without creating strings.
+ * </p>
+ *
+ * <p>
+ * The arena starts with the expected size of names, when known, and doubles when full, up to the
+ * maximum segment size. Further segments are allocated at the maximum segment size.
+ * </p>
+ */
+final class NameHashTable implements NameSet {
+  private static final int ARENA_SEGMENT_BITS = 30;
+  private static final int MINIMUM_ARENA_SIZE = 1 << 16;
+  private static final int MINIMUM_CAPACITY = 16;
+  private static final int MAXIMUM_CAPACITY = 1 << 27;
+  private final List<ByteBuffer> arena = new ArrayList<>();
+  private final int arenaSegmentSize;
+  private final int initialArenaSize;
+  private LongBuffer hashes;
+  private LongBuffer positions;
+  private int capacity;
+  private long size;
+
+  /**
+   * Creates a name table.
+   *
+   * @param initialCapacity
+   *          number of names the table can hold before growing
+   */
+  NameHashTable(int initialCapacity) {
+    this(initialCapacity, 0);
+  }
+
+  /**
+   * Creates a name table.
+   *
+   * @param initialCapacity
+   *          number of names the table can hold before growing
+   * @param namesSize
+   *          total number of bytes of names in UTF-8, used to size the arena
+   */
+  NameHashTable(int initialCapacity, long namesSize) {
+    this(initialCapacity, namesSize, 1 << ARENA_SEGMENT_BITS);
+  }
+
+  NameHashTable(int initialCapacity, long namesSize, int arenaSegmentSize) {
+    this.arenaSegmentSize = arenaSegmentSize;
+    long arenaSize = namesSize + (long) Integer.BYTES * initialCapacity;
+    this.initialArenaSize =
+        (int) Math.min(arenaSegmentSize, Math.max(MINIMUM_ARENA_SIZE, arenaSize));
+    allocate(Math.min(MAXIMUM_CAPACITY,
+        Math.max(MINIMUM_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity)) << 2)));
+  }
+
+  @Override
+  public void add(String name) {
+    long hash = NameSet.hash(name, 0, name.length());
+    int mask = capacity - 1;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    for (;; slot = (slot + 1) & mask) {
+      long position = positions.get(slot);
+      if (position == 0) {
+        break;
+      } else if (hashes.get(slot) == hash && equals(position - 1, name, 0, name.length())) {
+        return;
+      }
+    }
+    hashes.put(slot, hash);
+    positions.put(slot, store(name.getBytes(StandardCharsets.UTF_8)) + 1);
+    size++;
+    if (size * 2 > capacity) {
+      grow();
+    }
+  }
+
+  @Override
+  public boolean contains(CharSequence chars, int start, int end) {
+    long hash = NameSet.hash(chars, start, end);
+    int mask = capacity - 1;
+    for (int slot = (int) (hash ^ (hash >>> 32)) & mask;; slot = (slot + 1) & mask) {
+      long position = positions.get(slot);
+      if (position == 0) {
+        return false;
+      } else if (hashes.get(slot) == hash && equals(position - 1, chars, start, end)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public boolean contains(byte[] bytes, int start, int end) {
+    long hash = NameSet.hash(bytes, start, end);
+    int mask = capacity - 1;
+    for (int slot = (int) (hash ^ (hash >>> 32)) & mask;; slot = (slot + 1) & mask) {
+      long position = positions.get(slot);
+      if (position == 0) {
+        return false;
+      } else if (hashes.get(slot) == hash && equals(position - 1, bytes, start, end)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns number of names in table.
+   *
+   * @return number of names in table
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns number of bytes allocated by arena.
+   *
+   * @return number of bytes allocated by arena
+   */
+  long arenaMemory() {
+    long memory = 0;
+    for (ByteBuffer segment : arena) {
+      memory += segment.capacity();
+    }
+    return memory;
+  }
+
+  private long store(byte[] name) {
+    int length = name.length + Integer.BYTES;
+    if (length > arenaSegmentSize) {
+      throw new IllegalArgumentException("Name is too long");
+    }
+    ByteBuffer segment = arena.isEmpty() ? null : arena.get(arena.size() - 1);
+    if (segment == null) {
+      segment = ByteBuffer.allocateDirect(Math.max(initialArenaSize, length));
+      arena.add(segment);
+    } else if (segment.remaining() < length && segment.capacity() < arenaSegmentSize) {
+      int capacity = (int) Math.min(arenaSegmentSize,
+          Math.max((long) segment.capacity() * 2, (long) segment.position() + length));
+      ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+      segment.flip();
+      grown.put(segment);
+      segment = grown;
+      arena.set(arena.size() - 1, segment);
+    }
+    if (segment.remaining() < length) {
+      segment = ByteBuffer.allocateDirect(arenaSegmentSize);
+      arena.add(segment);
+    }
+    long position = (long) (arena.size() - 1) * arenaSegmentSize + segment.position();
+    segment.putInt(name.length);
+    segment.put(name);
+    return position;
+  }
+
+  private boolean equals(long position, CharSequence chars, int start, int end) {
+    ByteBuffer segment = arena.get((int) (position / arenaSegmentSize));
+    int index = (int) (position % arenaSegmentSize);
+    int length = segment.getInt(index);
+    index += Integer.BYTES;
+    if (length < end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      char character = chars.charAt(i);
+      if (character >= 0x80) {
+        byte[] name = chars.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+        return equals(segment, index, length, name);
+      }
+      if (segment.get(index + i - start) != character) {
+        return false;
+      }
+    }
+    return length == end - start;
+  }
+
+  private boolean equals(long position, byte[] bytes, int start, int end) {
+    ByteBuffer segment = arena.get((int) (position / arenaSegmentSize));
+    int index = (int) (position % arenaSegmentSize);
+    return equals(segment, index + Integer.BYTES, segment.getInt(index), bytes, start, end);
+  }
+
+  private boolean equals(ByteBuffer segment, int index, int length, byte[] name) {
+    return equals(segment, index, length, name, 0, name.length);
+  }
+
+  private boolean equals(ByteBuffer segment, int index, int length, byte[] bytes, int start,
+      int end) {
+    if (length != end - start) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (segment.get(index + i) != bytes[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void allocate(int capacity) {
+    this.capacity = capacity;
+    hashes = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder())
+        .asLongBuffer();
+    positions = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder())
+        .asLongBuffer();
+  }
+
+  private void grow() {
+    if (capacity >= MAXIMUM_CAPACITY) {
+      throw new IllegalArgumentException("Too many names");
+    }
+    LongBuffer oldHashes = hashes;
+    LongBuffer oldPositions = positions;
+    allocate(capacity * 2);
+    int mask = capacity - 1;
+    for (int i = 0; i < oldPositions.limit(); i++) {
+      long position = oldPositions.get(i);
+      if (position != 0) {
+        long hash = oldHashes.get(i);
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (positions.get(slot) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        hashes.put(slot, hash);
+        positions.put(slot, position);
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of read names.
+ */
+interface NameSet {
+  /**
+   * Returns true if name is in set.
+   *
+   * @param chars
+   *          characters containing name
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return true if name is in set, may be a false positive for approximate sets
+   */
+  boolean contains(CharSequence chars, int start, int end);
+
+  /**
+   * Returns true if name is in set.
+   *
+   * @param bytes
+   *          bytes containing name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return true if name is in set, may be a false positive for approximate sets
+   */
+  boolean contains(byte[] bytes, int start, int end);
+
+  /**
+   * Adds name to set.
+   *
+   * @param name
+   *          name
+   */
+  void add(String name);
+
+  /**
+   * Returns 64 bits FNV-1a hash of the UTF-8 bytes of name.
+   *
+   * @param chars
+   *          characters containing name
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return 64 bits hash of name
+   */
+  static long hash(CharSequence chars, int start, int end) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = start; i < end; i++) {
+      char character = chars.charAt(i);
+      if (character >= 0x80) {
+        return hash(chars.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8));
+      }
+      hash ^= character;
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns 64 bits FNV-1a hash of bytes.
+   *
+   * @param bytes
+   *          bytes
+   * @return 64 bits hash of bytes
+   */
+  static long hash(byte[] bytes) {
+    return hash(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns 64 bits FNV-1a hash of bytes.
+   *
+   * @param bytes
+   *          bytes
+   * @param start
+   *          start of bytes, inclusive
+   * @param end
+   *          end of bytes, exclusive
+   * @return 64 bits hash of bytes
+   */
+  static long hash(byte[] bytes, int start, int end) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = start; i < end; i++) {
+      hash ^= bytes[i] & 0xFF;
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+}
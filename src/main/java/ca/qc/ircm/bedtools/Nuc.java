@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.genome.Composition;
+import ca.qc.ircm.bedtools.genome.CompositionIndex;
+import ca.qc.ircm.bedtools.genome.SequenceSource;
+import ca.qc.ircm.bedtools.genome.SequenceSources;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends GC content and base composition of annotations.
+ *
+ * <p>
+ * Four columns are appended to each annotation: fraction of G/C bases with 6 decimals, number of
+ * G/C bases, number of N bases and length of annotation. Composition is computed from prefix sums
+ * cached next to FASTA or 2bit file, see {@link CompositionIndex}, so each annotation requires
+ * at most a short scan of bases. Lines can be processed by multiple threads, output keeps the
+ * order of input.
+ * </p>
+ *
+ * <p>
+ * Annotations on sequences missing from sequence file or outside of their sequence are discarded.
+ * </p>
+ */
+@Component
+public class Nuc {
+  private static final byte COLUMN_SEPARATOR = '\t';
+  private static final byte DECIMAL_SEPARATOR = '.';
+  private static final long DECIMALS_SCALE = 1000000;
+  private static final Logger logger = LoggerFactory.getLogger(Nuc.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+
+  /**
+   * Appends GC content and base composition of annotations.
+   *
+   * @param command
+   *          base composition command
+   * @throws IOException
+   *           could not read or write files
+   * @throws IllegalArgumentException
+   *           FASTA file cannot be indexed, its index is invalid or 2bit file is invalid
+   */
+  public void run(NucCommand command) throws IOException {
+    SequenceSource fasta = SequenceSources.open(command.fasta);
+    ThreadLocal<Composition> threadComposition = ThreadLocal.withInitial(Composition::new);
+    LongAdder discarded = new LongAdder();
+    try (InputStream input = command.inputStream();
+        OutputStream output = command.outputStream();
+        Workers workers = executionEngine.workers(command.threads)) {
+      CompositionIndex compositionIndex = CompositionIndex.load(command.fasta, fasta, workers);
+      LineProcessor processor = (line, lineStart, lineEnd, writer) -> {
+        if (lineEnd == lineStart || BedTransform.isHeader(line, lineStart, lineEnd)) {
+          writer.write(line, lineStart, lineEnd);
+          writer.newLine();
+          return;
+        }
+        int startColumn = BedTransform.columnStart(line, lineStart, lineStart, lineEnd);
+        int endColumn = BedTransform.columnStart(line, startColumn, lineStart, lineEnd);
+        int endColumnEnd = BedTransform.columnEnd(line, endColumn, lineEnd);
+        int id = fasta.find(line, lineStart, startColumn - 1);
+        long start = ByteLineReader.parseLong(line, startColumn, endColumn - 1);
+        long end = ByteLineReader.parseLong(line, endColumn, endColumnEnd);
+        if (id == ChromosomeDictionary.MISSING || start < 0 || end > fasta.length(id)
+            || start > end) {
+          logger.warn("Discarding annotation outside of FASTA sequences {}",
+              new String(line, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+          discarded.increment();
+          return;
+        }
+        Composition composition = threadComposition.get();
+        compositionIndex.count(id, start, end, composition);
+        long length = composition.getLength();
+        long fraction =
+            length > 0 ? (composition.getGc() * DECIMALS_SCALE * 2 + length) / (length * 2) : 0;
+        writer.write(line, lineStart, lineEnd);
+        writer.write(COLUMN_SEPARATOR);
+        writer.writeLong(fraction / DECIMALS_SCALE);
+        writer.write(DECIMAL_SEPARATOR);
+        long decimals = fraction % DECIMALS_SCALE;
+        for (long scale = DECIMALS_SCALE / 10; scale > 1 && decimals < scale; scale /= 10) {
+          writer.write((byte) '0');
+        }
+        writer.writeLong(decimals);
+        writer.write(COLUMN_SEPARATOR);
+        writer.writeLong(composition.getGc());
+        writer.write(COLUMN_SEPARATOR);
+        writer.writeLong(composition.getN());
+        writer.write(COLUMN_SEPARATOR);
+        writer.writeLong(length);
+        writer.newLine();
+      };
+      workers.run(input, output, processor);
+    }
+    if (discarded.sum() > 0) {
+      logger.info("discarded {} annotations outside of FASTA sequences", discarded.sum());
+    }
+  }
+}
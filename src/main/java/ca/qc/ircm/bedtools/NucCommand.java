@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Base composition parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = NucCommand.NUC_COMMAND,
+    commandDescription = "Appends GC content and base composition of annotations")
+public class NucCommand {
+  public static final String NUC_COMMAND = "nuc";
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-fi", "--fasta" },
+      description = "FASTA or 2bit file. Its .nuc composition cache, and .fai index for FASTA,"
+          + " are created next to it if missing",
+      required = true,
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path fasta;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of threads used to process lines, output keeps the order of input."
+          + " Defaults to global --threads",
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input stream
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public InputStream inputStream() throws IOException {
+    return BedStreams.inputStream(input);
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>.
+   *
+   * @return output stream
+   * @throws IOException
+   *           could not created a stream for output
+   */
+  public OutputStream outputStream() throws IOException {
+    return BedStreams.outputStream(output, false);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+/**
+ * Mergeable quantile sketch using logarithmic buckets, like HDR histograms.
+ *
+ * <p>
+ * Values below {@value #EXACT_LIMIT} are counted exactly. Larger values share a bucket with values
+ * that differ by less than 1 / {@value #SUB_BUCKETS}, so memory usage is fixed whatever the
+ * number of values. Negative values are counted in separate buckets, using their magnitude.
+ * </p>
+ */
+final class QuantileSketch {
+  private static final int PRECISION_BITS = 7;
+  static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+  static final int EXACT_LIMIT = SUB_BUCKETS * 2;
+  private static final int BUCKETS = (Long.SIZE - PRECISION_BITS) * SUB_BUCKETS;
+  private final long[] positive = new long[BUCKETS];
+  private final long[] negative = new long[BUCKETS];
+  private long count;
+
+  /**
+   * Adds value to sketch.
+   *
+   * @param value
+   *          value
+   */
+  void add(long value) {
+    if (value < 0) {
+      negative[index(value == Long.MIN_VALUE ? Long.MAX_VALUE : -value)]++;
+    } else {
+      positive[index(value)]++;
+    }
+    count++;
+  }
+
+  /**
+   * Adds all values of other sketch to this sketch.
+   *
+   * @param other
+   *          other sketch
+   */
+  void merge(QuantileSketch other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      positive[i] += other.positive[i];
+      negative[i] += other.negative[i];
+    }
+    count += other.count;
+  }
+
+  /**
+   * Returns number of values in sketch.
+   *
+   * @return number of values in sketch
+   */
+  long count() {
+    return count;
+  }
+
+  /**
+   * Returns estimated quantile.
+   *
+   * @param quantile
+   *          quantile, between 0 and 1
+   * @return estimated quantile, 0 if sketch is empty
+   */
+  long quantile(double quantile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = BUCKETS - 1; i >= 0; i--) {
+      seen += negative[i];
+      if (seen >= rank) {
+        return -value(i);
+      }
+    }
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += positive[i];
+      if (seen >= rank) {
+        return value(i);
+      }
+    }
+    return value(BUCKETS - 1);
+  }
+
+  private static int index(long value) {
+    if (value < EXACT_LIMIT) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+    return (shift << PRECISION_BITS) + (int) (value >>> shift);
+  }
+
+  private static long value(int index) {
+    if (index < EXACT_LIMIT) {
+      return index;
+    }
+    int shift = (index >>> PRECISION_BITS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    return lowest + ((1L << shift) >>> 1);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Regions of a BED file, indexed to find overlaps quickly.
+ *
+ * <p>
+ * Regions of each chromosome are sorted by start in primitive arrays that are used as an implicit
+ * interval tree: the node at index <code>i</code> is at the level of the number of trailing ones
+ * of <code>i</code> and knows the maximum end of its subtree. Overlap queries take
+ * <code>O(log n)</code> time and do not allocate.
+ * </p>
+ */
+final class RegionIndex {
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final int LINEAR_SCAN_LEVEL = 3;
+  private final ChromosomeDictionary dictionary = new ChromosomeDictionary();
+  private Regions[] regions = new Regions[0];
+
+  /**
+   * Loads regions of BED file.
+   *
+   * @param reader
+   *          BED file reader
+   * @return index of regions
+   * @throws IOException
+   *           could not read BED file
+   * @throws NumberFormatException
+   *           start or end is not a number
+   */
+  static RegionIndex load(BufferedReader reader) throws IOException {
+    RegionIndex index = new RegionIndex();
+    long[][] starts = new long[0][];
+    long[][] ends = new long[0][];
+    int[] counts = new int[0];
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isEmpty() || Interval.isHeader(line)) {
+        continue;
+      }
+      String[] columns = line.split(COLUMN_SEPARATOR, -1);
+      int id = index.dictionary.id(columns[0]);
+      if (id >= counts.length) {
+        int length = Math.max(id + 1, counts.length * 2);
+        starts = Arrays.copyOf(starts, length);
+        ends = Arrays.copyOf(ends, length);
+        counts = Arrays.copyOf(counts, length);
+      }
+      if (starts[id] == null) {
+        starts[id] = new long[16];
+        ends[id] = new long[16];
+      } else if (counts[id] == starts[id].length) {
+        starts[id] = Arrays.copyOf(starts[id], counts[id] * 2);
+        ends[id] = Arrays.copyOf(ends[id], counts[id] * 2);
+      }
+      starts[id][counts[id]] = Long.parseLong(columns[1]);
+      ends[id][counts[id]] = Long.parseLong(columns[2]);
+      counts[id]++;
+    }
+    index.regions = new Regions[index.dictionary.count()];
+    for (int id = 0; id < index.regions.length; id++) {
+      index.regions[id] = new Regions(starts[id], ends[id], counts[id]);
+    }
+    return index;
+  }
+
+  /**
+   * Returns true if any region overlaps interval.
+   *
+   * @param chromosome
+   *          chromosome
+   * @param start
+   *          start of interval, inclusive
+   * @param end
+   *          end of interval, exclusive
+   * @return true if any region overlaps interval
+   */
+  boolean overlaps(String chromosome, long start, long end) {
+    return overlaps(dictionary.find(chromosome), start, end);
+  }
+
+  /**
+   * Returns true if any region overlaps interval.
+   *
+   * @param bytes
+   *          bytes containing chromosome name in UTF-8
+   * @param chromosomeStart
+   *          start of chromosome name, inclusive
+   * @param chromosomeEnd
+   *          end of chromosome name, exclusive
+   * @param start
+   *          start of interval, inclusive
+   * @param end
+   *          end of interval, exclusive
+   * @return true if any region overlaps interval
+   */
+  boolean overlaps(byte[] bytes, int chromosomeStart, int chromosomeEnd, long start, long end) {
+    return overlaps(dictionary.find(bytes, chromosomeStart, chromosomeEnd), start, end);
+  }
+
+  private boolean overlaps(int id, long start, long end) {
+    return id != ChromosomeDictionary.MISSING && regions[id].overlaps(start, end);
+  }
+
+  /**
+   * Regions of a chromosome.
+   */
+  private static class Regions {
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maximumEnds;
+    private final int size;
+    private final int rootLevel;
+
+    private Regions(long[] starts, long[] ends, int size) {
+      this.size = size;
+      this.starts = new long[size];
+      this.ends = new long[size];
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (i1, i2) -> Long.compare(starts[i1], starts[i2]));
+      for (int i = 0; i < size; i++) {
+        this.starts[i] = starts[order[i]];
+        this.ends[i] = ends[order[i]];
+      }
+      maximumEnds = new long[size];
+      rootLevel = index();
+    }
+
+    private int index() {
+      int lastIndex = 0;
+      long last = 0;
+      for (int i = 0; i < size; i += 2) {
+        lastIndex = i;
+        maximumEnds[i] = ends[i];
+        last = ends[i];
+      }
+      int level = 1;
+      for (; 1L << level <= size; level++) {
+        int half = 1 << (level - 1);
+        for (int i = (half << 1) - 1; i < size; i += half << 2) {
+          long left = maximumEnds[i - half];
+          long right = i + half < size ? maximumEnds[i + half] : last;
+          maximumEnds[i] = Math.max(ends[i], Math.max(left, right));
+        }
+        lastIndex = (lastIndex >>> level & 1) != 0 ? lastIndex - half : lastIndex + half;
+        if (lastIndex < size && maximumEnds[lastIndex] > last) {
+          last = maximumEnds[lastIndex];
+        }
+      }
+      return level - 1;
+    }
+
+    private boolean overlaps(long start, long end) {
+      return size > 0 && overlaps((1 << rootLevel) - 1, rootLevel, start, end);
+    }
+
+    private boolean overlaps(int node, int level, long start, long end) {
+      if (level <= LINEAR_SCAN_LEVEL) {
+        int first = node >> level << level;
+        int last = Math.min(first + (1 << (level + 1)) - 1, size);
+        for (int i = first; i < last && starts[i] < end; i++) {
+          if (start < ends[i]) {
+            return true;
+          }
+        }
+        return false;
+      }
+      int half = 1 << (level - 1);
+      int left = node - half;
+      if ((left >= size || maximumEnds[left] > start) && overlaps(left, level - 1, start, end)) {
+        return true;
+      }
+      if (node < size && starts[node] < end) {
+        return start < ends[node] || overlaps(node + half, level - 1, start, end);
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.LineProcessor;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Samples annotations of BED or BEDPE files.
+ *
+ * <p>
+ * Each annotation gets a key from the hash of its name and the seed, so mates and annotations
+ * with the same name are kept or discarded together and the result does not depend on the order
+ * in which annotations are processed.
+ * </p>
+ *
+ * <p>
+ * When sampling a fraction, annotations are kept when their key is below the fraction and nothing
+ * is kept in memory. Lines are processed as bytes in parallel by the
+ * {@link ExecutionEngine execution engine}, output keeps the order of input.
+ * </p>
+ *
+ * <p>
+ * When sampling an exact number of annotations, the annotations with the lowest keys are kept in a
+ * bounded heap and written in input order at the end. Lines are read in order by a single thread,
+ * since the heap is shared by all lines.
+ * </p>
+ */
+@Component
+public class Sample {
+  private static final String LINE_SEPARATOR = "\n";
+  private static final char COLUMN_SEPARATOR = '\t';
+  private static final int BED_NAME_COLUMN = 3;
+  private static final int BEDPE_NAME_COLUMN = 6;
+  private static final double KEY_SCALE = 0x1.0p-53;
+  private static final Logger logger = LoggerFactory.getLogger(Sample.class);
+  @Inject
+  private ExecutionEngine executionEngine;
+
+  /**
+   * Samples annotations.
+   *
+   * @param command
+   *          sample command
+   * @throws IOException
+   *           could not read or write file
+   * @throws IllegalArgumentException
+   *           fraction or count is invalid
+   */
+  public void run(SampleCommand command) throws IOException {
+    if ((command.fraction == null) == (command.count == null)) {
+      throw new IllegalArgumentException("Either fraction or count must be specified");
+    }
+    if (command.fraction != null && (command.fraction < 0 || command.fraction > 1)) {
+      throw new IllegalArgumentException("Fraction must be between 0 and 1");
+    }
+    if (command.count != null && (command.count < 0 || command.count > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("Count must be between 0 and " + Integer.MAX_VALUE);
+    }
+    int nameColumn = command.bedpe ? BEDPE_NAME_COLUMN : BED_NAME_COLUMN;
+    if (command.fraction != null) {
+      sampleFraction(command, nameColumn);
+    } else {
+      sampleCount(command, nameColumn);
+    }
+  }
+
+  private void sampleFraction(SampleCommand command, int nameColumn) throws IOException {
+    double fraction = command.fraction;
+    long seed = command.seed;
+    LineProcessor processor = (line, start, end, writer) -> {
+      if (BedTransform.isHeader(line, start, end)
+          || key(line, start, end, nameColumn, seed) * KEY_SCALE < fraction) {
+        writer.write(line, start, end);
+        writer.newLine();
+      }
+    };
+    try (InputStream input = command.inputStream();
+        OutputStream output = command.outputStream();
+        Workers workers = executionEngine.workers(command.threads)) {
+      workers.run(input, output, processor);
+    }
+  }
+
+  private void sampleCount(SampleCommand command, int nameColumn) throws IOException {
+    int count = command.count.intValue();
+    PriorityQueue<Sampled> sample = new PriorityQueue<>(Math.max(1, Math.min(count, 1 << 16)),
+        Comparator.comparingLong((Sampled sampled) -> sampled.key)
+            .thenComparingLong(sampled -> sampled.index).reversed());
+    List<String> headers = new ArrayList<>();
+    long index = 0;
+    try (BufferedReader reader = command.reader()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (Interval.isHeader(line)) {
+          headers.add(line);
+          continue;
+        }
+        long key = key(line, nameColumn, command.seed);
+        if (sample.size() < count) {
+          sample.add(new Sampled(line, key, index));
+        } else if (count > 0 && key < sample.peek().key) {
+          sample.poll();
+          sample.add(new Sampled(line, key, index));
+        }
+        index++;
+      }
+    }
+    logger.debug("sampled {} of {} annotations", sample.size(), index);
+    List<Sampled> sorted = new ArrayList<>(sample);
+    sorted.sort(Comparator.comparingLong(sampled -> sampled.index));
+    try (BufferedWriter writer = command.writer()) {
+      for (String header : headers) {
+        writer.write(header);
+        writer.write(LINE_SEPARATOR);
+      }
+      for (Sampled sampled : sorted) {
+        writer.write(sampled.line);
+        writer.write(LINE_SEPARATOR);
+      }
+    }
+  }
+
+  /**
+   * Returns key of annotation, between 0 inclusive and 2<sup>53</sup> exclusive.
+   */
+  private long key(String line, int nameColumn, long seed) {
+    int start = 0;
+    for (int i = 0; i < nameColumn && start >= 0; i++) {
+      start = line.indexOf(COLUMN_SEPARATOR, start);
+      start = start >= 0 ? start + 1 : start;
+    }
+    long hash;
+    if (start >= 0) {
+      int end = line.indexOf(COLUMN_SEPARATOR, start);
+      hash = NameSet.hash(line, start, end >= 0 ? end : line.length());
+    } else {
+      hash = NameSet.hash(line, 0, line.length());
+    }
+    return key(hash, seed);
+  }
+
+  /**
+   * Returns key of annotation from the bytes of the line, same as {@link #key(String, int, long)}.
+   */
+  private long key(byte[] line, int lineStart, int lineEnd, int nameColumn, long seed) {
+    int start = lineStart;
+    for (int i = 0; i < nameColumn && start >= 0; i++) {
+      start = ByteLineReader.indexOf(line, (byte) COLUMN_SEPARATOR, start, lineEnd);
+      start = start >= 0 ? start + 1 : start;
+    }
+    long hash;
+    if (start >= 0) {
+      hash = NameSet.hash(line, start, BedTransform.columnEnd(line, start, lineEnd));
+    } else {
+      hash = NameSet.hash(line, lineStart, lineEnd);
+    }
+    return key(hash, seed);
+  }
+
+  private static long key(long hash, long seed) {
+    hash ^= seed * 0x9E3779B97F4A7C15L;
+    hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+    hash ^= hash >>> 31;
+    return hash >>> 11;
+  }
+
+  /**
+   * Annotation kept in sample.
+   */
+  private static class Sampled {
+    private final String line;
+    private final long key;
+    private final long index;
+
+    private Sampled(String line, long key, long index) {
+      this.line = line;
+      this.key = key;
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.BedStreams;
+import ca.qc.ircm.bedtools.validation.FileExistsValidation;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Sample annotations parameters.
+ */
+@Parameters(
+    separators = " =",
+    commandNames = SampleCommand.SAMPLE_COMMAND,
+    commandDescription = "Samples annotations of a BED or BEDPE file, based on their names")
+public class SampleCommand {
+  public static final String SAMPLE_COMMAND = "sample";
+  private static final int NAME_COLUMN = 3;
+  private static final int BEDPE_NAME_COLUMN = 6;
+
+  @Parameter(names = { "-h", "-help", "--h", "--help" }, description = "Show help", help = true)
+  public boolean help = false;
+  @Parameter(
+      names = { "-f", "--fraction" },
+      description = "Fraction of names to keep, between 0 and 1",
+      required = false)
+  public Double fraction;
+  @Parameter(
+      names = { "-n", "--count" },
+      description = "Exact number of annotations to keep",
+      required = false)
+  public Long count;
+  @Parameter(
+      names = { "--seed" },
+      description = "Seed, the same seed always keeps the same annotations",
+      required = false)
+  public long seed = 0;
+  @Parameter(
+      names = { "-p", "--bedpe" },
+      description = "Input is BEDPE, name is in column 7 instead of column 4",
+      required = false)
+  public boolean bedpe;
+  @Parameter(
+      names = { "-t", "--threads" },
+      description = "Number of threads used to sample a fraction of lines, output keeps the order"
+          + " of input. Defaults to global --threads",
+      validateWith = PositiveInteger.class)
+  public Integer threads;
+  @Parameter(
+      names = { "--shards" },
+      description = "Split output into this number of files, records with the same shard key"
+          + " are written to the same file. Output file is required, shard is added before"
+          + " its extension",
+      validateWith = PositiveInteger.class)
+  public Integer shards;
+  @Parameter(
+      names = { "--shardKey", "--shard-key" },
+      description = "Key used to choose the shard of records, either name or position")
+  public ShardKey shardKey = ShardKey.NAME;
+  @Parameter(
+      names = { "-i", "--input" },
+      description = "Input file. Defaults to system input for piping",
+      converter = PathConverter.class,
+      validateWith = FileExistsValidation.class)
+  public Path input;
+  @Parameter(
+      names = { "-o", "--output" },
+      description = "Output file. Defaults to system output for piping",
+      converter = PathConverter.class)
+  public Path output;
+
+  /**
+   * Returns input reader, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input reader
+   * @throws IOException
+   *           could not created a reader for input
+   */
+  public BufferedReader reader() throws IOException {
+    return BedStreams.reader(input);
+  }
+
+  /**
+   * Returns input stream, falls back to <code>System.in</code>. Binary BED input is decoded.
+   *
+   * @return input stream
+   * @throws IOException
+   *           could not created a stream for input
+   */
+  public InputStream inputStream() throws IOException {
+    return BedStreams.inputStream(input);
+  }
+
+  /**
+   * Returns output writer, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Shards are handled by {@link BedStreams}.
+   *
+   * @return output writer
+   * @throws IOException
+   *           could not created a writer for output
+   */
+  public BufferedWriter writer() throws IOException {
+    return BedStreams.writer(output, null, 0, shards,
+        count -> shardKey.router(count, nameColumn()));
+  }
+
+  /**
+   * Returns output stream, falls back to <code>System.out</code>. Output files with binary BED
+   * extension are encoded as binary BED. Shards are handled by {@link BedStreams}.
+   *
+   * @return output stream
+   * @throws IOException
+   *           could not created a stream for output
+   */
+  public OutputStream outputStream() throws IOException {
+    return BedStreams.outputStream(output, null, 0, shards,
+        count -> shardKey.router(count, nameColumn()));
+  }
+
+  private int nameColumn() {
+    return bedpe ? BEDPE_NAME_COLUMN : NAME_COLUMN;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.LineRouter;
+
+/**
+ * Keys used to distribute records into a fixed number of shards.
+ */
+public enum ShardKey {
+  /**
+   * Records with the same name go to the same shard. Mate suffixes <code>/1</code> and
+   * <code>/2</code> are ignored so that both mates go to the same shard.
+   */
+  NAME {
+    @Override
+    long hash(String line, int nameColumn) {
+      int start = columnStart(line, nameColumn);
+      if (start < 0) {
+        return 0;
+      }
+      int end = columnEnd(line, start);
+      if (end - start > 2 && line.charAt(end - 2) == '/'
+          && (line.charAt(end - 1) == '1' || line.charAt(end - 1) == '2')) {
+        end -= 2;
+      }
+      return NameSet.hash(line, start, end);
+    }
+  },
+  /**
+   * Records with the same chromosome and start go to the same shard.
+   */
+  POSITION {
+    @Override
+    long hash(String line, int nameColumn) {
+      int start = columnStart(line, 1);
+      int end = start >= 0 ? columnEnd(line, start) : line.length();
+      return NameSet.hash(line, 0, end);
+    }
+  };
+
+  private static final char COLUMN_SEPARATOR = '\t';
+  private static final String SHARD_PREFIX = "shard";
+
+  /**
+   * Returns 64 bits hash of the key of line.
+   *
+   * @param line
+   *          BED or BEDPE line
+   * @param nameColumn
+   *          index of name column, 3 for BED and 6 for BEDPE
+   * @return 64 bits hash of the key of line
+   */
+  abstract long hash(String line, int nameColumn);
+
+  /**
+   * Returns router that sends lines to one of <code>shards</code> keys. Keys are the shard index
+   * prefixed by "shard" and padded with zeros so that files sort in shard order.
+   *
+   * @param shards
+   *          number of shards
+   * @param nameColumn
+   *          index of name column, 3 for BED and 6 for BEDPE
+   * @return router that sends lines to one of <code>shards</code> keys
+   * @throws IllegalArgumentException
+   *           shards is lower than 1
+   */
+  public LineRouter router(int shards, int nameColumn) {
+    if (shards < 1) {
+      throw new IllegalArgumentException("Shards must be greater than 0");
+    }
+    String format = SHARD_PREFIX + "%0" + String.valueOf(shards - 1).length() + "d";
+    String[] keys = new String[shards];
+    for (int i = 0; i < shards; i++) {
+      keys[i] = String.format(format, i);
+    }
+    return line -> keys[shard(hash(line, nameColumn), shards)];
+  }
+
+  /**
+   * Returns shard of hash. Hash bits are mixed before reduction since FNV-1a low bits are weak.
+   *
+   * @param hash
+   *          64 bits hash
+   * @param shards
+   *          number of shards
+   * @return shard of hash
+   */
+  static int shard(long hash, int shards) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return (int) Long.remainderUnsigned(hash, shards);
+  }
+
+  private static int columnStart(String line, int column) {
+    int start = 0;
+    for (int i = 0; i < column && start >= 0; i++) {
+      start = line.indexOf(COLUMN_SEPARATOR, start);
+      start = start >= 0 ? start + 1 : start;
+    }
+    return start;
+  }
+
+  private static int columnEnd(String line, int start) {
+    int end = line.indexOf(COLUMN_SEPARATOR, start);
+    return end >= 0 ? end : line.length();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import ca.qc.ircm.bedtools.io.LineRouter;
+
+/**
+ * Ways to split output into multiple files.
+ */
+public enum SplitBy implements LineRouter {
+  CHROMOSOME {
+    @Override
+    public String key(String line) {
+      int end = line.indexOf(COLUMN_SEPARATOR);
+      return end >= 0 ? line.substring(0, end) : line;
+    }
+  },
+  STRAND {
+    @Override
+    public String key(String line) {
+      int start = 0;
+      for (int i = 0; i < STRAND_COLUMN && start >= 0; i++) {
+        start = line.indexOf(COLUMN_SEPARATOR, start);
+        start = start >= 0 ? start + 1 : start;
+      }
+      if (start >= 0 && start < line.length()
+          && (start + 1 == line.length() || line.charAt(start + 1) == COLUMN_SEPARATOR)) {
+        switch (line.charAt(start)) {
+          case '+':
+            return "plus";
+          case '-':
+            return "minus";
+          default:
+        }
+      }
+      return "none";
+    }
+  };
+
+  private static final char COLUMN_SEPARATOR = '\t';
+  private static final int STRAND_COLUMN = 5;
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.execution;
+
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Execution engine shared by all commands.
+ *
+ * <p>
+ * The engine owns a fork/join pool sized by the global number of threads. Commands that accept
+ * their own number of threads get a dedicated pool when it differs from the global number.
+ * </p>
+ *
+ * <p>
+ * The engine also owns the memory budget shared by commands that buffer data.
+ * </p>
+ */
+@Component
+public class ExecutionEngine {
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private ForkJoinPool pool;
+  private MemoryBudget memoryBudget = MemoryBudget.unlimited();
+
+  /**
+   * Returns global number of threads.
+   *
+   * @return global number of threads
+   */
+  public synchronized int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets global number of threads.
+   *
+   * @param threads
+   *          global number of threads
+   * @throws IllegalArgumentException
+   *           threads is lower than 1
+   */
+  public synchronized void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Threads must be greater than 0");
+    }
+    if (threads != this.threads) {
+      shutdown();
+      this.threads = threads;
+    }
+  }
+
+  /**
+   * Returns memory budget shared by commands.
+   *
+   * @return memory budget shared by commands
+   */
+  public synchronized MemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Sets memory that commands may use for buffers.
+   *
+   * @param memory
+   *          maximum number of bytes, null for no limit
+   * @throws IllegalArgumentException
+   *           memory is lower than 1
+   */
+  public synchronized void setMemory(Long memory) {
+    memoryBudget = memory != null ? new MemoryBudget(memory) : MemoryBudget.unlimited();
+  }
+
+  /**
+   * Returns number of threads to use for a command.
+   *
+   * @param threads
+   *          number of threads of command, null to use global number of threads
+   * @return number of threads to use for a command
+   */
+  public int threads(Integer threads) {
+    return threads != null ? threads : getThreads();
+  }
+
+  /**
+   * Returns worker threads for a command. Workers must be closed once the command is done.
+   *
+   * @param threads
+   *          number of threads of command, null to use global number of threads
+   * @return worker threads for a command
+   */
+  public synchronized Workers workers(Integer threads) {
+    int count = threads(threads);
+    if (count == this.threads) {
+      if (pool == null) {
+        pool = new ForkJoinPool(count);
+      }
+      return new Workers(pool, count, false, memoryBudget);
+    } else {
+      return new Workers(new ForkJoinPool(count), count, true, memoryBudget);
+    }
+  }
+
+  /**
+   * Shuts down global pool.
+   */
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.execution;
+
+import ca.qc.ircm.bedtools.io.ByteLineWriter;
+import java.io.IOException;
+
+/**
+ * Processes one line of input, writing resulting lines to output.
+ *
+ * <p>
+ * Processors used with more than one thread must be thread safe.
+ * </p>
+ */
+@FunctionalInterface
+public interface LineProcessor {
+  /**
+   * Processes one line.
+   *
+   * @param line
+   *          buffer containing the line, only valid during this call
+   * @param start
+   *          start of line in buffer, inclusive
+   * @param end
+   *          end of line in buffer, exclusive, line separator is excluded
+   * @param writer
+   *          output writer
+   * @throws IOException
+   *           could not write output
+   */
+  void process(byte[] line, int start, int end, ByteLineWriter writer) throws IOException;
+}
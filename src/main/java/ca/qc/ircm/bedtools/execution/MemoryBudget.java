@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.execution;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory that commands may use for buffers, on-heap or off-heap.
+ *
+ * <p>
+ * Commands reserve memory before allocating large buffers and release it once buffers are no
+ * longer used. When a reservation fails, commands spill to compressed temporary files instead.
+ * Memory needed to make progress at all can be reserved even if it exceeds the budget.
+ * </p>
+ */
+public class MemoryBudget {
+  /**
+   * Limit of an unlimited budget.
+   */
+  public static final long UNLIMITED = Long.MAX_VALUE;
+  private final long limit;
+  private final AtomicLong used = new AtomicLong();
+
+  /**
+   * Creates memory budget.
+   *
+   * @param limit
+   *          maximum number of bytes, {@link #UNLIMITED} for no limit
+   * @throws IllegalArgumentException
+   *           limit is lower than 1
+   */
+  public MemoryBudget(long limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Memory must be greater than 0");
+    }
+    this.limit = limit;
+  }
+
+  /**
+   * Returns a budget without limit.
+   *
+   * @return budget without limit
+   */
+  public static MemoryBudget unlimited() {
+    return new MemoryBudget(UNLIMITED);
+  }
+
+  /**
+   * Reserves memory if it fits in budget.
+   *
+   * @param bytes
+   *          number of bytes
+   * @return true if memory was reserved, false if it does not fit in budget
+   */
+  public boolean tryReserve(long bytes) {
+    while (true) {
+      long current = used.get();
+      long next = current + bytes;
+      if (next > limit || next < 0) {
+        return false;
+      }
+      if (used.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Reserves memory even if it exceeds budget. Used for memory that is needed to make progress.
+   *
+   * @param bytes
+   *          number of bytes
+   */
+  public void reserve(long bytes) {
+    used.addAndGet(bytes);
+  }
+
+  /**
+   * Releases memory.
+   *
+   * @param bytes
+   *          number of bytes
+   */
+  public void release(long bytes) {
+    used.addAndGet(-bytes);
+  }
+
+  /**
+   * Returns number of bytes that can still be reserved.
+   *
+   * @return number of bytes that can still be reserved
+   */
+  public long available() {
+    return Math.max(0, limit - used.get());
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  public long getUsed() {
+    return used.get();
+  }
+}
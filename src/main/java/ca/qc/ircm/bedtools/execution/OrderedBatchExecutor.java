@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.execution;
+
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import ca.qc.ircm.bedtools.io.ByteLineWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes lines of a stream in parallel, keeping the order of input.
+ *
+ * <p>
+ * The calling thread cuts input into batches of whole lines. Batches are processed by a pool of
+ * worker threads and their output is written in the order of input. At most a fixed number of
+ * batches are pending, so when a batch is slow, reading waits instead of buffering more input.
+ * </p>
+ */
+public class OrderedBatchExecutor {
+  public static final int DEFAULT_BATCH_SIZE = 1 << 20;
+  static final int PENDING_BATCHES_PER_THREAD = 4;
+  private final ExecutorService workers;
+  private final int threads;
+  private final int batchSize;
+  private final int maximumPendingBatches;
+
+  /**
+   * Creates an executor that uses batches of {@link #DEFAULT_BATCH_SIZE default size}.
+   *
+   * @param threads
+   *          number of worker threads, lines are processed by calling thread if 1 or less
+   */
+  public OrderedBatchExecutor(int threads) {
+    this(threads, DEFAULT_BATCH_SIZE, threads * PENDING_BATCHES_PER_THREAD);
+  }
+
+  /**
+   * Creates an executor that uses existing worker threads and batches of
+   * {@link #DEFAULT_BATCH_SIZE default size}.
+   *
+   * @param workers
+   *          worker threads, not shut down by this executor
+   * @param threads
+   *          number of worker threads, lines are processed by calling thread if 1 or less
+   */
+  public OrderedBatchExecutor(ExecutorService workers, int threads) {
+    this(workers, threads, DEFAULT_BATCH_SIZE, threads * PENDING_BATCHES_PER_THREAD);
+  }
+
+  /**
+   * Creates an executor.
+   *
+   * @param threads
+   *          number of worker threads, lines are processed by calling thread if 1 or less
+   * @param batchSize
+   *          approximate size of batches in bytes
+   * @param maximumPendingBatches
+   *          maximum number of batches read but not yet written
+   */
+  public OrderedBatchExecutor(int threads, int batchSize, int maximumPendingBatches) {
+    this(null, threads, batchSize, maximumPendingBatches);
+  }
+
+  OrderedBatchExecutor(ExecutorService workers, int threads, int batchSize,
+      int maximumPendingBatches) {
+    this.workers = workers;
+    this.threads = threads;
+    this.batchSize = Math.max(batchSize, 1);
+    this.maximumPendingBatches = Math.max(maximumPendingBatches, 1);
+  }
+
+  /**
+   * Processes all lines of input. Streams are not closed.
+   *
+   * @param input
+   *          input
+   * @param output
+   *          output
+   * @param processor
+   *          line processor
+   * @throws IOException
+   *           could not read input or write output
+   */
+  public void run(InputStream input, OutputStream output, LineProcessor processor)
+      throws IOException {
+    if (threads <= 1) {
+      runSequential(input, output, processor);
+      return;
+    }
+    ExecutorService workers =
+        this.workers != null ? this.workers : Executors.newFixedThreadPool(threads);
+    Deque<Future<ByteArrayOutputStream>> pending = new ArrayDeque<>();
+    try {
+      byte[] buffer = new byte[batchSize];
+      int length = 0;
+      boolean eof = false;
+      while (!eof) {
+        while (length < buffer.length) {
+          int read = input.read(buffer, length, buffer.length - length);
+          if (read < 0) {
+            eof = true;
+            break;
+          }
+          length += read;
+        }
+        int cut = eof ? length : lastLineEnd(buffer, length);
+        if (cut == 0 && !eof) {
+          // Line is longer than batch size.
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          continue;
+        }
+        if (cut > 0) {
+          byte[] batch = buffer;
+          int batchLength = cut;
+          if (pending.size() >= maximumPendingBatches) {
+            get(pending.removeFirst()).writeTo(output);
+          }
+          pending.addLast(workers.submit(() -> process(batch, batchLength, processor)));
+          buffer = new byte[Math.max(batchSize, length - cut)];
+          System.arraycopy(batch, cut, buffer, 0, length - cut);
+          length -= cut;
+        }
+      }
+      while (!pending.isEmpty()) {
+        get(pending.removeFirst()).writeTo(output);
+      }
+      output.flush();
+    } finally {
+      for (Future<ByteArrayOutputStream> future : pending) {
+        future.cancel(true);
+      }
+      if (this.workers == null) {
+        workers.shutdownNow();
+      }
+    }
+  }
+
+  private void runSequential(InputStream input, OutputStream output, LineProcessor processor)
+      throws IOException {
+    ByteLineReader reader = new ByteLineReader(input);
+    ByteLineWriter writer = new ByteLineWriter(output);
+    while (reader.next()) {
+      processor.process(reader.buffer(), reader.start(), reader.end(), writer);
+    }
+    writer.flush();
+  }
+
+  private int lastLineEnd(byte[] buffer, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (buffer[i] == '\n') {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private ByteArrayOutputStream process(byte[] batch, int length, LineProcessor processor)
+      throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(length + (length >> 2));
+    ByteLineWriter writer = new ByteLineWriter(output);
+    int start = 0;
+    while (start < length) {
+      int separator = ByteLineReader.indexOf(batch, (byte) '\n', start, length);
+      int next = separator >= 0 ? separator + 1 : length;
+      int end = separator >= 0 ? separator : length;
+      if (end > start && batch[end - 1] == '\r') {
+        end--;
+      }
+      processor.process(batch, start, end, writer);
+      start = next;
+    }
+    writer.flush();
+    return output;
+  }
+
+  private <V> V get(Future<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for worker threads");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Worker threads used by one command.
+ */
+public class Workers implements AutoCloseable {
+  /**
+   * Memory used by a pending batch, input and output.
+   */
+  private static final long BATCH_MEMORY = 2L * OrderedBatchExecutor.DEFAULT_BATCH_SIZE;
+  final ExecutorService executor;
+  private final int threads;
+  private final boolean owned;
+  private final MemoryBudget memoryBudget;
+  private final List<Future<?>> submitted = new ArrayList<>();
+
+  Workers(ExecutorService executor, int threads, boolean owned, MemoryBudget memoryBudget) {
+    this.executor = executor;
+    this.threads = threads;
+    this.owned = owned;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Returns number of worker threads.
+   *
+   * @return number of worker threads
+   */
+  public int threads() {
+    return threads;
+  }
+
+  /**
+   * Returns memory budget shared by commands.
+   *
+   * @return memory budget shared by commands
+   */
+  public MemoryBudget memoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Submits a task to worker threads.
+   *
+   * @param task
+   *          task
+   * @param <T>
+   *          result type
+   * @return result of task
+   */
+  public <T> Future<T> submit(Callable<T> task) {
+    Future<T> future = executor.submit(task);
+    submitted.add(future);
+    return future;
+  }
+
+  /**
+   * Processes all lines of input, keeping the order of input in output. Streams are not closed.
+   * The number of batches read but not yet written is limited by the memory budget.
+   *
+   * @param input
+   *          input
+   * @param output
+   *          output
+   * @param processor
+   *          line processor, must be thread safe if there is more than one worker thread
+   * @throws IOException
+   *           could not read input or write output
+   * @see OrderedBatchExecutor
+   */
+  public void run(InputStream input, OutputStream output, LineProcessor processor)
+      throws IOException {
+    int pendingBatches = pendingBatches();
+    long memory = pendingBatches * BATCH_MEMORY;
+    memoryBudget.reserve(memory);
+    try {
+      new OrderedBatchExecutor(executor, threads, OrderedBatchExecutor.DEFAULT_BATCH_SIZE,
+          pendingBatches).run(input, output, processor);
+    } finally {
+      memoryBudget.release(memory);
+    }
+  }
+
+  /**
+   * Returns number of batches that can be pending, limited by memory budget.
+   */
+  private int pendingBatches() {
+    if (threads <= 1) {
+      return 1;
+    }
+    long fits = memoryBudget.available() / BATCH_MEMORY;
+    int pendingBatches = threads * OrderedBatchExecutor.PENDING_BATCHES_PER_THREAD;
+    return (int) Math.max(1, Math.min(pendingBatches, fits));
+  }
+
+  /**
+   * Cancels tasks that are not done.
+   */
+  @Override
+  public void close() {
+    if (owned) {
+      executor.shutdownNow();
+    } else {
+      for (Future<?> future : submitted) {
+        future.cancel(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Processor that transforms each batch of records.
+ *
+ * <p>
+ * Demand is passed upstream unchanged: one batch is requested upstream for each batch requested
+ * downstream. Batches that are empty after transformation are not sent, another batch is
+ * requested upstream instead.
+ * </p>
+ *
+ * @param <T>
+ *          received record type
+ * @param <R>
+ *          published record type
+ */
+public class BatchProcessor<T, R> implements Processor<List<T>, List<R>>, Subscription {
+  private final Function<List<T>, List<R>> transform;
+  private Subscription upstream;
+  private Subscriber<? super List<R>> downstream;
+  private Throwable error;
+  private boolean completed;
+  private boolean done;
+
+  /**
+   * Creates batch processor.
+   *
+   * @param transform
+   *          transforms a batch
+   */
+  public BatchProcessor(Function<List<T>, List<R>> transform) {
+    this.transform = transform;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super List<R>> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber cannot be null");
+    }
+    boolean connected;
+    synchronized (this) {
+      if (downstream != null) {
+        connected = false;
+      } else {
+        downstream = subscriber;
+        connected = upstream != null;
+      }
+    }
+    if (downstream != subscriber) {
+      subscriber.onSubscribe(EmptySubscription.INSTANCE);
+      subscriber.onError(new IllegalStateException("Processor accepts only one subscriber"));
+      return;
+    }
+    if (connected) {
+      connect();
+    }
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    boolean connected;
+    synchronized (this) {
+      if (upstream != null) {
+        connected = false;
+      } else {
+        upstream = subscription;
+        connected = downstream != null;
+      }
+    }
+    if (upstream != subscription) {
+      subscription.cancel();
+      return;
+    }
+    if (connected) {
+      connect();
+    }
+  }
+
+  private void connect() {
+    downstream.onSubscribe(this);
+    Throwable error;
+    boolean completed;
+    synchronized (this) {
+      error = this.error;
+      completed = this.completed;
+    }
+    if (error != null) {
+      downstream.onError(error);
+    } else if (completed) {
+      downstream.onComplete();
+    }
+  }
+
+  @Override
+  public void request(long n) {
+    upstream.request(n);
+  }
+
+  @Override
+  public void cancel() {
+    upstream.cancel();
+  }
+
+  @Override
+  public void onNext(List<T> batch) {
+    if (done) {
+      return;
+    }
+    List<R> output;
+    try {
+      output = transform.apply(batch);
+    } catch (RuntimeException e) {
+      done = true;
+      upstream.cancel();
+      downstream.onError(e);
+      return;
+    }
+    if (output.isEmpty()) {
+      upstream.request(1);
+    } else {
+      downstream.onNext(output);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    if (done) {
+      return;
+    }
+    done = true;
+    Subscriber<? super List<R>> subscriber;
+    synchronized (this) {
+      error = throwable;
+      subscriber = downstream;
+    }
+    if (subscriber != null) {
+      subscriber.onError(throwable);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (done) {
+      return;
+    }
+    done = true;
+    Subscriber<? super List<R>> subscriber;
+    synchronized (this) {
+      completed = true;
+      subscriber = downstream;
+    }
+    if (subscriber != null) {
+      subscriber.onComplete();
+    }
+  }
+}
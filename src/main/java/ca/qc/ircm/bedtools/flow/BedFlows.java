@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import ca.qc.ircm.bedtools.BedRecord;
+import ca.qc.ircm.bedtools.BedRecords;
+import ca.qc.ircm.bedtools.BedpeRecord;
+import ca.qc.ircm.bedtools.io.BedStreams;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Publishers and processors of BED and BEDPE records.
+ *
+ * <p>
+ * Transformations of {@link BedRecords} can be used as processors, for example:
+ * </p>
+ *
+ * <pre>
+ * Publisher&lt;List&lt;BedRecord&gt;&gt; records = BedFlows.bed(file, 1000);
+ * Processor&lt;List&lt;BedRecord&gt;, List&lt;BedRecord&gt;&gt; move =
+ *     BedFlows.map(BedRecords.moveAnnotations(100, true));
+ * records.subscribe(move);
+ * move.subscribe(subscriber);
+ * </pre>
+ */
+public final class BedFlows {
+  private BedFlows() {
+  }
+
+  /**
+   * Returns publisher of annotations of BED file, skipping headers. File is read on the thread
+   * requesting batches.
+   *
+   * @param file
+   *          BED file, null for <code>System.in</code>
+   * @param batchSize
+   *          maximum number of annotations in a batch
+   * @return publisher of annotations of BED file
+   */
+  public static Publisher<List<BedRecord>> bed(Path file, int batchSize) {
+    return bed(file, batchSize, Runnable::run);
+  }
+
+  /**
+   * Returns publisher of annotations of BED file, skipping headers.
+   *
+   * @param file
+   *          BED file, null for <code>System.in</code>
+   * @param batchSize
+   *          maximum number of annotations in a batch
+   * @param executor
+   *          reads and sends batches
+   * @return publisher of annotations of BED file
+   */
+  public static Publisher<List<BedRecord>> bed(Path file, int batchSize, Executor executor) {
+    return new RecordPublisher<>(() -> BedStreams.reader(file), BedRecord::isHeader,
+        BedRecord::parse, batchSize, executor);
+  }
+
+  /**
+   * Returns publisher of pairs of BEDPE file, skipping comments. File is read on the thread
+   * requesting batches.
+   *
+   * @param file
+   *          BEDPE file, null for <code>System.in</code>
+   * @param batchSize
+   *          maximum number of pairs in a batch
+   * @return publisher of pairs of BEDPE file
+   */
+  public static Publisher<List<BedpeRecord>> bedpe(Path file, int batchSize) {
+    return bedpe(file, batchSize, Runnable::run);
+  }
+
+  /**
+   * Returns publisher of pairs of BEDPE file, skipping comments.
+   *
+   * @param file
+   *          BEDPE file, null for <code>System.in</code>
+   * @param batchSize
+   *          maximum number of pairs in a batch
+   * @param executor
+   *          reads and sends batches
+   * @return publisher of pairs of BEDPE file
+   */
+  public static Publisher<List<BedpeRecord>> bedpe(Path file, int batchSize,
+      Executor executor) {
+    return new RecordPublisher<>(() -> BedStreams.reader(file), BedpeRecord::isComment,
+        BedpeRecord::parse, batchSize, executor);
+  }
+
+  /**
+   * Returns processor that transforms each record.
+   *
+   * @param mapper
+   *          transforms a record
+   * @param <T>
+   *          received record type
+   * @param <R>
+   *          published record type
+   * @return processor that transforms each record
+   */
+  public static <T, R> Processor<List<T>, List<R>> map(Function<? super T, ? extends R> mapper) {
+    return new BatchProcessor<>(
+        batch -> batch.stream().<R>map(mapper).collect(Collectors.toList()));
+  }
+
+  /**
+   * Returns processor that keeps records matching filter.
+   *
+   * @param filter
+   *          filter
+   * @param <T>
+   *          record type
+   * @return processor that keeps records matching filter
+   */
+  public static <T> Processor<List<T>, List<T>> filter(Predicate<? super T> filter) {
+    return new BatchProcessor<>(
+        batch -> batch.stream().filter(filter).collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+/**
+ * Stage that is both a {@link Subscriber} and a {@link Publisher}.
+ *
+ * <p>
+ * Same contract as <code>java.util.concurrent.Flow.Processor</code> and
+ * <code>org.reactivestreams.Processor</code>.
+ * </p>
+ *
+ * @param <T>
+ *          received item type
+ * @param <R>
+ *          published item type
+ */
+public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes records of a file in batches, reading the file only when batches are requested.
+ *
+ * <p>
+ * At most one batch is read per requested batch, so a slow subscriber throttles reading instead
+ * of making a queue grow. Batches are read and sent by the executor, one task at a time, so the
+ * subscriber never receives signals concurrently. Requesting more batches while receiving a
+ * batch does not cause recursion.
+ * </p>
+ *
+ * <p>
+ * Publisher accepts only one subscriber, since file is read once.
+ * </p>
+ *
+ * @param <T>
+ *          record type
+ */
+public class RecordPublisher<T> implements Publisher<List<T>> {
+  private static final Logger logger = LoggerFactory.getLogger(RecordPublisher.class);
+  private final Callable<BufferedReader> opener;
+  private final Predicate<String> skip;
+  private final Function<String, T> parser;
+  private final int batchSize;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * Creates record publisher.
+   *
+   * @param opener
+   *          opens file, called when the first batch is requested
+   * @param skip
+   *          lines that are not records, like headers
+   * @param parser
+   *          parses a record
+   * @param batchSize
+   *          maximum number of records in a batch
+   * @param executor
+   *          reads and sends batches, <code>Runnable::run</code> reads on the thread requesting
+   *          batches
+   * @throws IllegalArgumentException
+   *           batch size is lower than 1
+   */
+  public RecordPublisher(Callable<BufferedReader> opener, Predicate<String> skip,
+      Function<String, T> parser, int batchSize, Executor executor) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be greater than 0");
+    }
+    this.opener = opener;
+    this.skip = skip;
+    this.parser = parser;
+    this.batchSize = batchSize;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super List<T>> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber cannot be null");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(EmptySubscription.INSTANCE);
+      subscriber.onError(new IllegalStateException("Publisher accepts only one subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new RecordSubscription(subscriber));
+  }
+
+  /**
+   * Subscription that reads batches as they are requested.
+   */
+  private class RecordSubscription implements Subscription, Runnable {
+    private final Subscriber<? super List<T>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+    private BufferedReader reader;
+    private boolean eof;
+    private boolean done;
+
+    private RecordSubscription(Subscriber<? super List<T>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Request must be positive, was " + n);
+      } else {
+        demand.getAndAccumulate(n, (d, r) -> d + r < 0 ? Long.MAX_VALUE : d + r);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      while (!done) {
+        if (cancelled) {
+          finish();
+          return;
+        }
+        if (invalidRequest != null) {
+          finish();
+          subscriber.onError(invalidRequest);
+          return;
+        }
+        if (demand.get() == 0) {
+          return;
+        }
+        List<T> batch;
+        try {
+          batch = read();
+        } catch (Exception e) {
+          finish();
+          subscriber.onError(e);
+          return;
+        }
+        if (!batch.isEmpty()) {
+          demand.decrementAndGet();
+          subscriber.onNext(batch);
+        }
+        if (eof && !done) {
+          finish();
+          if (!cancelled) {
+            subscriber.onComplete();
+          }
+        }
+      }
+    }
+
+    private List<T> read() throws Exception {
+      if (reader == null) {
+        reader = opener.call();
+      }
+      List<T> batch = new ArrayList<>(batchSize);
+      String line;
+      while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+        if (!line.isEmpty() && !skip.test(line)) {
+          batch.add(parser.apply(line));
+        }
+      }
+      eof = batch.size() < batchSize;
+      return batch;
+    }
+
+    private void finish() {
+      done = true;
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          logger.warn("Could not close input", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+/**
+ * Receiver of items from a {@link Publisher}.
+ *
+ * <p>
+ * Same contract as <code>java.util.concurrent.Flow.Subscriber</code> and
+ * <code>org.reactivestreams.Subscriber</code>. Signals are never sent concurrently.
+ * </p>
+ *
+ * @param <T>
+ *          item type
+ */
+public interface Subscriber<T> {
+  /**
+   * Called once before any other signal. No item is sent until items are requested.
+   *
+   * @param subscription
+   *          subscription
+   */
+  void onSubscribe(Subscription subscription);
+
+  /**
+   * Called for each requested item.
+   *
+   * @param item
+   *          item
+   */
+  void onNext(T item);
+
+  /**
+   * Called once when publisher fails, no other signal follows.
+   *
+   * @param throwable
+   *          error
+   */
+  void onError(Throwable throwable);
+
+  /**
+   * Called once when all items were sent, no other signal follows.
+   */
+  void onComplete();
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+/**
+ * Link between a {@link Publisher} and a {@link Subscriber}.
+ *
+ * <p>
+ * Same contract as <code>java.util.concurrent.Flow.Subscription</code> and
+ * <code>org.reactivestreams.Subscription</code>.
+ * </p>
+ */
+public interface Subscription {
+  /**
+   * Requests more items. Demand is cumulative. A request that is not positive fails the
+   * subscription with an {@link IllegalArgumentException}.
+   *
+   * @param n
+   *          number of additional items
+   */
+  void request(long n);
+
+  /**
+   * Stops sending items, possibly after some items already in flight.
+   */
+  void cancel();
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps chromosome names to small integer ids.
+ *
+ * <p>
+ * Lookups hash the bytes or characters of the name where it appears in a line, so finding a known
+ * chromosome does not allocate. Ids are assigned in order of addition, starting at 0.
+ * </p>
+ *
+ * <p>
+ * When the dictionary is seeded from a sizes file, chromosomes are ordered like the sizes file and
+ * chromosomes missing from the sizes file come after, ordered by name. Otherwise chromosomes are
+ * ordered by name, like <code>sort -k1,1</code>.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe when adding chromosomes.
+ * </p>
+ */
+public class ChromosomeDictionary {
+  /**
+   * Returned by lookups when chromosome is not in dictionary.
+   */
+  public static final int MISSING = -1;
+  /**
+   * Returned by {@link #size(int)} when size of chromosome is unknown.
+   */
+  public static final long UNKNOWN_SIZE = -1;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String COMMENT = "#";
+  private int[] table = new int[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private byte[][] names = new byte[INITIAL_CAPACITY][];
+  private String[] strings = new String[INITIAL_CAPACITY];
+  private long[] sizes = new long[INITIAL_CAPACITY];
+  private int count;
+  private int seeded;
+
+  /**
+   * Creates a dictionary seeded from a sizes file, as created by <code>fasta2sizes</code>.
+   *
+   * @param reader
+   *          sizes file reader
+   * @return dictionary seeded from sizes file
+   * @throws IOException
+   *           could not read sizes file
+   * @throws NumberFormatException
+   *           a size is not a number
+   */
+  public static ChromosomeDictionary fromSizes(BufferedReader reader) throws IOException {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isEmpty() || line.startsWith(COMMENT)) {
+        continue;
+      }
+      String[] columns = line.split(COLUMN_SEPARATOR, -1);
+      dictionary.add(columns[0], Long.parseLong(columns[1]));
+    }
+    return dictionary;
+  }
+
+  /**
+   * Adds chromosome with a known size, as if it came from a sizes file. Chromosomes with a known
+   * size must be added before any other chromosome.
+   *
+   * @param name
+   *          chromosome name
+   * @param size
+   *          chromosome size
+   * @return chromosome id
+   */
+  public int add(String name, long size) {
+    return seed(id(name), size);
+  }
+
+  /**
+   * Adds chromosome with a known size, see {@link #add(String, long)}.
+   *
+   * @param bytes
+   *          bytes containing chromosome name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @param size
+   *          chromosome size
+   * @return chromosome id
+   */
+  int add(byte[] bytes, int start, int end, long size) {
+    return seed(id(bytes, start, end), size);
+  }
+
+  private int seed(int id, long size) {
+    sizes[id] = size;
+    if (id == seeded) {
+      seeded++;
+    }
+    return id;
+  }
+
+  /**
+   * Returns a copy of this dictionary. Chromosomes added to the copy are not added to this
+   * dictionary.
+   *
+   * @return copy of this dictionary
+   */
+  public ChromosomeDictionary copy() {
+    ChromosomeDictionary copy = new ChromosomeDictionary();
+    copy.table = table.clone();
+    copy.hashes = hashes.clone();
+    copy.names = names.clone();
+    copy.strings = strings.clone();
+    copy.sizes = sizes.clone();
+    copy.count = count;
+    copy.seeded = seeded;
+    return copy;
+  }
+
+  /**
+   * Returns id of chromosome, adding chromosome if needed.
+   *
+   * @param bytes
+   *          bytes containing chromosome name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return chromosome id
+   */
+  public int id(byte[] bytes, int start, int end) {
+    int hash = hash(bytes, start, end);
+    int slot = slot(hash, bytes, start, end);
+    if (table[slot] != 0) {
+      return table[slot] - 1;
+    }
+    return add(slot, hash, Arrays.copyOfRange(bytes, start, end));
+  }
+
+  /**
+   * Returns id of chromosome, adding chromosome if needed.
+   *
+   * @param chars
+   *          characters containing chromosome name
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return chromosome id
+   */
+  public int id(CharSequence chars, int start, int end) {
+    int id = find(chars, start, end);
+    if (id != MISSING) {
+      return id;
+    }
+    byte[] name = chars.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+    return id(name, 0, name.length);
+  }
+
+  /**
+   * Returns id of chromosome, adding chromosome if needed.
+   *
+   * @param name
+   *          chromosome name
+   * @return chromosome id
+   */
+  public int id(String name) {
+    return id(name, 0, name.length());
+  }
+
+  /**
+   * Returns id of chromosome or {@link #MISSING} if chromosome is not in dictionary.
+   *
+   * @param bytes
+   *          bytes containing chromosome name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return chromosome id or {@link #MISSING}
+   */
+  public int find(byte[] bytes, int start, int end) {
+    int slot = slot(hash(bytes, start, end), bytes, start, end);
+    return table[slot] - 1;
+  }
+
+  /**
+   * Returns id of chromosome or {@link #MISSING} if chromosome is not in dictionary.
+   *
+   * @param chars
+   *          characters containing chromosome name
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return chromosome id or {@link #MISSING}
+   */
+  public int find(CharSequence chars, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      char character = chars.charAt(i);
+      if (character >= 0x80) {
+        byte[] name = chars.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+        return find(name, 0, name.length);
+      }
+      hash = 31 * hash + character;
+    }
+    hash = spread(hash);
+    int mask = table.length - 1;
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0) {
+        return MISSING;
+      }
+      if (hashes[entry - 1] == hash && equals(names[entry - 1], chars, start, end)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  /**
+   * Returns id of chromosome or {@link #MISSING} if chromosome is not in dictionary.
+   *
+   * @param name
+   *          chromosome name
+   * @return chromosome id or {@link #MISSING}
+   */
+  public int find(String name) {
+    return find(name, 0, name.length());
+  }
+
+  /**
+   * Returns chromosome name.
+   *
+   * @param id
+   *          chromosome id
+   * @return chromosome name
+   */
+  public String name(int id) {
+    String name = strings[id];
+    if (name == null) {
+      name = new String(names[id], StandardCharsets.UTF_8);
+      strings[id] = name;
+    }
+    return name;
+  }
+
+  /**
+   * Returns chromosome name as UTF-8 bytes. Returned array must not be modified.
+   *
+   * @param id
+   *          chromosome id
+   * @return chromosome name as UTF-8 bytes
+   */
+  public byte[] bytes(int id) {
+    return names[id];
+  }
+
+  /**
+   * Returns chromosome size or {@link #UNKNOWN_SIZE} if size is unknown.
+   *
+   * @param id
+   *          chromosome id
+   * @return chromosome size or {@link #UNKNOWN_SIZE}
+   */
+  public long size(int id) {
+    return sizes[id];
+  }
+
+  /**
+   * Returns number of chromosomes in dictionary.
+   *
+   * @return number of chromosomes in dictionary
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Returns number of chromosomes that were seeded with a size, their ids are
+   * <code>0</code> to <code>seeded() - 1</code>.
+   *
+   * @return number of chromosomes that were seeded with a size
+   */
+  public int seeded() {
+    return seeded;
+  }
+
+  /**
+   * Compares chromosomes order.
+   *
+   * @param id1
+   *          first chromosome id
+   * @param id2
+   *          second chromosome id
+   * @return a negative number, zero or a positive number if first chromosome comes before, is the
+   *         same or comes after second chromosome
+   */
+  public int compare(int id1, int id2) {
+    if (id1 == id2) {
+      return 0;
+    }
+    boolean seeded1 = id1 < seeded;
+    boolean seeded2 = id2 < seeded;
+    if (seeded1 && seeded2) {
+      return Integer.compare(id1, id2);
+    } else if (seeded1 != seeded2) {
+      return seeded1 ? -1 : 1;
+    }
+    return name(id1).compareTo(name(id2));
+  }
+
+  private static int hash(byte[] bytes, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + (bytes[i] & 0xFF);
+    }
+    return spread(hash);
+  }
+
+  private static int spread(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equals(byte[] name, byte[] bytes, int start, int end) {
+    if (name.length != end - start) {
+      return false;
+    }
+    for (int i = 0; i < name.length; i++) {
+      if (name[i] != bytes[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equals(byte[] name, CharSequence chars, int start, int end) {
+    if (name.length != end - start) {
+      return false;
+    }
+    for (int i = 0; i < name.length; i++) {
+      if (name[i] != chars.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int slot(int hash, byte[] bytes, int start, int end) {
+    int mask = table.length - 1;
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0 || (hashes[entry - 1] == hash && equals(names[entry - 1], bytes, start, end))) {
+        return slot;
+      }
+    }
+  }
+
+  private int add(int slot, int hash, byte[] name) {
+    if (count == names.length) {
+      names = Arrays.copyOf(names, count * 2);
+      strings = Arrays.copyOf(strings, count * 2);
+      hashes = Arrays.copyOf(hashes, count * 2);
+      sizes = Arrays.copyOf(sizes, count * 2);
+    }
+    int id = count++;
+    names[id] = name;
+    hashes[id] = hash;
+    sizes[id] = UNKNOWN_SIZE;
+    table[slot] = id + 1;
+    if (count * 2 > table.length) {
+      rehash();
+    }
+    return id;
+  }
+
+  private void rehash() {
+    table = new int[table.length * 2];
+    int mask = table.length - 1;
+    for (int id = 0; id < count; id++) {
+      int slot = hashes[id] & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+  }
+}
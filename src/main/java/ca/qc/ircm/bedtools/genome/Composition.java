@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+/**
+ * Base composition of an interval, see {@link CompositionIndex}.
+ *
+ * <p>
+ * Instances are reused between intervals and are not thread-safe, use one instance per thread.
+ * </p>
+ */
+public class Composition {
+  long gc;
+  long n;
+  long length;
+  final byte[] bases;
+
+  /**
+   * Creates an empty composition.
+   */
+  public Composition() {
+    this(CompositionIndex.SAMPLE_INTERVAL);
+  }
+
+  Composition(int bufferSize) {
+    bases = new byte[bufferSize];
+  }
+
+  /**
+   * Returns number of G and C bases, in any case.
+   *
+   * @return number of G and C bases
+   */
+  public long getGc() {
+    return gc;
+  }
+
+  /**
+   * Returns number of N bases, in any case.
+   *
+   * @return number of N bases
+   */
+  public long getN() {
+    return n;
+  }
+
+  /**
+   * Returns length of interval.
+   *
+   * @return length of interval
+   */
+  public long getLength() {
+    return length;
+  }
+}
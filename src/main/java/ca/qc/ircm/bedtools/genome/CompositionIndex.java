@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import ca.qc.ircm.bedtools.execution.Workers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prefix sums of G/C and N bases of a FASTA or 2bit file, for constant time base composition of
+ * intervals.
+ *
+ * <p>
+ * For each sequence, the number of G/C bases and N bases before every {@value #SAMPLE_INTERVAL}
+ * bases are kept in a cache file next to sequence file, with the {@value #EXTENSION} extension. The
+ * cache is built on first use, sequences are counted in parallel, and is mapped in memory
+ * afterwards. The cache is rebuilt when the size or modification time of sequence file changes.
+ * </p>
+ *
+ * <p>
+ * The composition of an interval is the difference between the prefix sums at both ends of the
+ * interval. The prefix sum at any position is the closest sample plus the count of the bases
+ * between the sample and the position, read from the sequence file.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class CompositionIndex {
+  /**
+   * Extension appended to sequence file name to get cache file name.
+   */
+  public static final String EXTENSION = ".nuc";
+  /**
+   * Number of bases between samples of prefix sums.
+   */
+  public static final int SAMPLE_INTERVAL = 256;
+  private static final int MAGIC = 0x4e554331;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = Integer.BYTES * 4 + Long.BYTES * 2;
+  private static final int SAMPLE_SIZE = Integer.BYTES * 2;
+  private static final long REGION_SIZE = 1L << 30;
+  private static final int CHUNK_SAMPLES = 1 << 12;
+  private static final boolean[] GC = new boolean[256];
+  private static final boolean[] N = new boolean[256];
+  private static final Logger logger = LoggerFactory.getLogger(CompositionIndex.class);
+  private final SequenceSource fasta;
+  private final int interval;
+  private final long[] firstSamples;
+  private final MappedByteBuffer[] regions;
+
+  static {
+    for (char base : "GCgc".toCharArray()) {
+      GC[base] = true;
+    }
+    N['N'] = true;
+    N['n'] = true;
+  }
+
+  private CompositionIndex(SequenceSource fasta, int interval, Path cache) throws IOException {
+    this.fasta = fasta;
+    this.interval = interval;
+    firstSamples = firstSamples(fasta, interval);
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+      long size = channel.size();
+      regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+      for (int i = 0; i < regions.length; i++) {
+        long position = i * REGION_SIZE;
+        long length = Math.min(REGION_SIZE, size - position);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      }
+    }
+  }
+
+  /**
+   * Returns composition index of sequence file, building its cache if it is missing or stale.
+   * When cache cannot be written next to sequence file, it is written to a temporary file that is
+   * deleted when the program exits.
+   *
+   * @param path
+   *          FASTA or 2bit file
+   * @param fasta
+   *          sequences of FASTA or 2bit file
+   * @param workers
+   *          workers used to count bases of sequences in parallel
+   * @return composition index of sequence file
+   * @throws IOException
+   *           could not read sequence file or read or write cache
+   */
+  public static CompositionIndex load(Path path, SequenceSource fasta, Workers workers)
+      throws IOException {
+    return load(path, fasta, workers, SAMPLE_INTERVAL);
+  }
+
+  static CompositionIndex load(Path path, SequenceSource fasta, Workers workers, int interval)
+      throws IOException {
+    Path cache = cache(path);
+    long size = Files.size(path);
+    long lastModified = Files.getLastModifiedTime(path).toMillis();
+    if (!isValid(cache, fasta, interval, size, lastModified)) {
+      Path temporary;
+      try {
+        temporary = Files.createTempFile(cache.toAbsolutePath().getParent(),
+            cache.getFileName().toString(), ".tmp");
+      } catch (IOException e) {
+        logger.warn("Could not write composition cache {}, {}", cache, e.getMessage());
+        cache = Files.createTempFile(path.getFileName().toString(), EXTENSION);
+        cache.toFile().deleteOnExit();
+        temporary = cache;
+      }
+      try {
+        build(temporary, fasta, workers, interval, size, lastModified);
+        if (!temporary.equals(cache)) {
+          move(temporary, cache);
+        }
+      } finally {
+        if (!temporary.equals(cache)) {
+          Files.deleteIfExists(temporary);
+        }
+      }
+      logger.debug("computed composition of {} to {}", path, cache);
+    }
+    return new CompositionIndex(fasta, interval, cache);
+  }
+
+  /**
+   * Returns cache file of sequence file.
+   *
+   * @param fasta
+   *          FASTA or 2bit file
+   * @return cache file of sequence file
+   */
+  public static Path cache(Path fasta) {
+    return fasta.resolveSibling(fasta.getFileName() + EXTENSION);
+  }
+
+  private static long[] firstSamples(SequenceSource sequences, int interval) {
+    long[] firstSamples = new long[sequences.count() + 1];
+    for (int id = 0; id < sequences.count(); id++) {
+      firstSamples[id + 1] = firstSamples[id] + sequences.length(id) / interval + 1;
+    }
+    return firstSamples;
+  }
+
+  private static boolean isValid(Path cache, SequenceSource sequences, int interval, long size,
+      long lastModified) throws IOException {
+    if (!Files.isRegularFile(cache) || Files.size(cache) < HEADER_SIZE) {
+      return false;
+    }
+    long samples = firstSamples(sequences, interval)[sequences.count()];
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // Read until header is complete.
+      }
+      header.flip();
+      return header.getInt() == MAGIC && header.getInt() == VERSION
+          && header.getInt() == interval && header.getInt() == sequences.count()
+          && header.getLong() == size && header.getLong() == lastModified
+          && channel.size() == HEADER_SIZE + samples * SAMPLE_SIZE;
+    }
+  }
+
+  private static void build(Path cache, SequenceSource fasta, Workers workers, int interval,
+      long size, long lastModified) throws IOException {
+    long[] firstSamples = firstSamples(fasta, interval);
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int id = 0; id < fasta.count(); id++) {
+        int sequence = id;
+        futures.add(workers.submit(() -> {
+          build(channel, fasta, sequence, interval,
+              HEADER_SIZE + firstSamples[sequence] * SAMPLE_SIZE);
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        get(future);
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(interval);
+      header.putInt(fasta.count());
+      header.putLong(size);
+      header.putLong(lastModified);
+      header.flip();
+      write(channel, header, 0);
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Counts bases of sequence and writes its samples to cache.
+   */
+  private static void build(FileChannel channel, SequenceSource fasta, int id, int interval,
+      long position) throws IOException {
+    long length = fasta.length(id);
+    int chunkSamples = (int) Math.min(CHUNK_SAMPLES, length / interval + 1);
+    byte[] bases = new byte[chunkSamples * interval];
+    ByteBuffer samples = ByteBuffer.allocate(chunkSamples * SAMPLE_SIZE);
+    long samplePosition = position;
+    int gc = 0;
+    int n = 0;
+    samples.putInt(gc);
+    samples.putInt(n);
+    for (long start = 0; start < length; start += bases.length) {
+      int count = (int) Math.min(bases.length, length - start);
+      fasta.read(id, start, start + count, bases, 0);
+      for (int i = 0; i < count; i++) {
+        int base = bases[i] & 0xFF;
+        if (GC[base]) {
+          gc++;
+        } else if (N[base]) {
+          n++;
+        }
+        if ((i + 1) % interval == 0) {
+          if (!samples.hasRemaining()) {
+            samples.flip();
+            samplePosition += write(channel, samples, samplePosition);
+            samples.clear();
+          }
+          samples.putInt(gc);
+          samples.putInt(n);
+        }
+      }
+    }
+    samples.flip();
+    write(channel, samples, samplePosition);
+  }
+
+  private static int write(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    int written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+    return written;
+  }
+
+  private static void get(Future<Void> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while computing composition", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns sequences of sequence file.
+   *
+   * @return sequences
+   */
+  public SequenceSource sequences() {
+    return fasta;
+  }
+
+  /**
+   * Computes base composition of interval.
+   *
+   * @param id
+   *          sequence id
+   * @param start
+   *          start of interval, inclusive, starting at 0
+   * @param end
+   *          end of interval, exclusive
+   * @param composition
+   *          receives base composition of interval
+   * @throws IllegalArgumentException
+   *           start and end are not within sequence
+   */
+  public void count(int id, long start, long end, Composition composition) {
+    if (start < 0 || end > fasta.length(id) || start > end) {
+      throw new IllegalArgumentException("Bases " + start + "-" + end + " are not within sequence "
+          + fasta.name(id) + " of length " + fasta.length(id));
+    }
+    composition.gc = 0;
+    composition.n = 0;
+    composition.length = end - start;
+    if (end - start <= interval) {
+      scan(id, start, end, composition, 1);
+    } else {
+      prefix(id, end, composition, 1);
+      prefix(id, start, composition, -1);
+    }
+  }
+
+  /**
+   * Adds prefix sums at position to composition, multiplied by sign.
+   */
+  private void prefix(int id, long position, Composition composition, int sign) {
+    long sample = position / interval;
+    long sampleStart = sample * interval;
+    long nextSampleStart = sampleStart + interval;
+    if (position - sampleStart <= nextSampleStart - position
+        || nextSampleStart > fasta.length(id)) {
+      addSample(id, sample, composition, sign);
+      scan(id, sampleStart, position, composition, sign);
+    } else {
+      addSample(id, sample + 1, composition, sign);
+      scan(id, position, nextSampleStart, composition, -sign);
+    }
+  }
+
+  private void addSample(int id, long sample, Composition composition, int sign) {
+    long position = HEADER_SIZE + (firstSamples[id] + sample) * SAMPLE_SIZE;
+    ByteBuffer region = regions[(int) (position / REGION_SIZE)];
+    int regionPosition = (int) (position % REGION_SIZE);
+    composition.gc += sign * region.getInt(regionPosition);
+    composition.n += sign * region.getInt(regionPosition + Integer.BYTES);
+  }
+
+  /**
+   * Adds counts of bases between start and end to composition, multiplied by sign.
+   */
+  private void scan(int id, long start, long end, Composition composition, int sign) {
+    byte[] bases = composition.bases;
+    for (long position = start; position < end; position += bases.length) {
+      int count = (int) Math.min(bases.length, end - position);
+      fasta.read(id, position, position + count, bases, 0);
+      for (int i = 0; i < count; i++) {
+        int base = bases[i] & 0xFF;
+        if (GC[base]) {
+          composition.gc += sign;
+        } else if (N[base]) {
+          composition.n += sign;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import ca.qc.ircm.bedtools.io.ByteLineReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of a FASTA file, compatible with <code>samtools faidx</code>.
+ *
+ * <p>
+ * For each sequence, the index holds its length, the offset of its first base in the FASTA file,
+ * the number of bases per line and the number of bytes per line, including line terminator. The
+ * offset of any base is computed from these values, see {@link #offset(int, long)}.
+ * </p>
+ *
+ * <p>
+ * Sequences are named after the first word of their header line.
+ * </p>
+ */
+public class FastaIndex {
+  /**
+   * Extension appended to FASTA file name to get index file name.
+   */
+  public static final String EXTENSION = ".fai";
+  private static final int INITIAL_CAPACITY = 64;
+  private static final byte HEADER = '>';
+  private static final String COLUMN_SEPARATOR = "\t";
+  private static final String LINE_SEPARATOR = "\n";
+  private static final Logger logger = LoggerFactory.getLogger(FastaIndex.class);
+  private final ChromosomeDictionary dictionary = new ChromosomeDictionary();
+  private long[] offsets = new long[INITIAL_CAPACITY];
+  private int[] lineBases = new int[INITIAL_CAPACITY];
+  private int[] lineWidths = new int[INITIAL_CAPACITY];
+
+  /**
+   * Returns index of FASTA file. The index is read from the <code>.fai</code> file next to FASTA
+   * file if it exists and is not older than FASTA file. Otherwise the index is built from FASTA
+   * file and saved next to it, if possible.
+   *
+   * @param fasta
+   *          FASTA file
+   * @return index of FASTA file
+   * @throws IOException
+   *           could not read FASTA file or its index
+   * @throws IllegalArgumentException
+   *           FASTA file cannot be indexed or index is invalid
+   */
+  public static FastaIndex load(Path fasta) throws IOException {
+    Path index = index(fasta);
+    if (Files.isRegularFile(index)
+        && Files.getLastModifiedTime(index).compareTo(Files.getLastModifiedTime(fasta)) >= 0) {
+      try (BufferedReader reader = Files.newBufferedReader(index)) {
+        return read(reader);
+      }
+    }
+    FastaIndex fastaIndex;
+    try (InputStream input = Files.newInputStream(fasta)) {
+      fastaIndex = build(input);
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(index)) {
+      fastaIndex.write(writer);
+      logger.debug("indexed FASTA {} to {}", fasta, index);
+    } catch (IOException e) {
+      logger.warn("Could not write FASTA index {}, {}", index, e.getMessage());
+    }
+    return fastaIndex;
+  }
+
+  /**
+   * Returns index file of FASTA file.
+   *
+   * @param fasta
+   *          FASTA file
+   * @return index file of FASTA file
+   */
+  public static Path index(Path fasta) {
+    return fasta.resolveSibling(fasta.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Reads FASTA index.
+   *
+   * @param reader
+   *          FASTA index reader
+   * @return FASTA index
+   * @throws IOException
+   *           could not read FASTA index
+   * @throws IllegalArgumentException
+   *           a line of FASTA index is invalid or a sequence is present more than once
+   */
+  public static FastaIndex read(BufferedReader reader) throws IOException {
+    FastaIndex index = new FastaIndex();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] columns = line.split(COLUMN_SEPARATOR, -1);
+      if (columns.length < 5) {
+        throw new IllegalArgumentException("Invalid FASTA index line " + line);
+      }
+      try {
+        index.add(columns[0], Long.parseLong(columns[1]), Long.parseLong(columns[2]),
+            Integer.parseInt(columns[3]), Integer.parseInt(columns[4]));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid FASTA index line " + line, e);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Builds index of FASTA file.
+   *
+   * @param input
+   *          FASTA file
+   * @return index of FASTA file
+   * @throws IOException
+   *           could not read FASTA file
+   * @throws IllegalArgumentException
+   *           lines of a sequence do not have the same length, except the last one, or a
+   *           sequence is present more than once
+   */
+  public static FastaIndex build(InputStream input) throws IOException {
+    FastaIndex index = new FastaIndex();
+    ByteLineReader reader = new ByteLineReader(new BufferedInputStream(input));
+    String name = null;
+    long length = 0;
+    long offset = 0;
+    int bases = 0;
+    int width = 0;
+    boolean lastLine = false;
+    long position = 0;
+    while (reader.next()) {
+      byte[] line = reader.buffer();
+      int start = reader.start();
+      int end = reader.end();
+      int lineLength = end - start;
+      position += reader.length();
+      if (lineLength > 0 && line[start] == HEADER) {
+        if (name != null) {
+          index.add(name, length, offset, bases, width);
+        }
+        int nameEnd = start + 1;
+        while (nameEnd < end && !Character.isWhitespace(line[nameEnd])) {
+          nameEnd++;
+        }
+        name = new String(line, start + 1, nameEnd - start - 1, StandardCharsets.UTF_8);
+        length = 0;
+        offset = position;
+        bases = 0;
+        width = 0;
+        lastLine = false;
+        continue;
+      }
+      if (name == null) {
+        if (lineLength > 0) {
+          throw new IllegalArgumentException("FASTA sequence before first header");
+        }
+        continue;
+      }
+      if (lineLength > 0 && (lastLine || (bases > 0 && lineLength > bases))) {
+        throw new IllegalArgumentException(
+            "Lines of FASTA sequence " + name + " do not have the same length");
+      }
+      if (bases == 0) {
+        if (lineLength == 0) {
+          offset = position;
+          continue;
+        }
+        bases = lineLength;
+        width = reader.length();
+      } else if (lineLength < bases || reader.length() != width) {
+        lastLine = true;
+      }
+      length += lineLength;
+    }
+    if (name != null) {
+      index.add(name, length, offset, bases, width);
+    }
+    return index;
+  }
+
+  private void add(String name, long length, long offset, int bases, int width) {
+    if (dictionary.find(name) != ChromosomeDictionary.MISSING) {
+      throw new IllegalArgumentException("FASTA sequence " + name + " is present more than once");
+    }
+    int id = dictionary.add(name, length);
+    if (id >= offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      lineBases = Arrays.copyOf(lineBases, lineBases.length * 2);
+      lineWidths = Arrays.copyOf(lineWidths, lineWidths.length * 2);
+    }
+    offsets[id] = offset;
+    lineBases[id] = bases;
+    lineWidths[id] = width;
+  }
+
+  /**
+   * Writes FASTA index.
+   *
+   * @param writer
+   *          FASTA index writer
+   * @throws IOException
+   *           could not write FASTA index
+   */
+  public void write(BufferedWriter writer) throws IOException {
+    for (int id = 0; id < count(); id++) {
+      writer.write(dictionary.name(id));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(dictionary.size(id)));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(offsets[id]));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(lineBases[id]));
+      writer.write(COLUMN_SEPARATOR);
+      writer.write(String.valueOf(lineWidths[id]));
+      writer.write(LINE_SEPARATOR);
+    }
+  }
+
+  /**
+   * Returns id of sequence or {@link ChromosomeDictionary#MISSING} if sequence is not in index.
+   *
+   * @param bytes
+   *          bytes containing sequence name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return id of sequence or {@link ChromosomeDictionary#MISSING}
+   */
+  public int find(byte[] bytes, int start, int end) {
+    return dictionary.find(bytes, start, end);
+  }
+
+  /**
+   * Returns id of sequence or {@link ChromosomeDictionary#MISSING} if sequence is not in index.
+   *
+   * @param name
+   *          sequence name
+   * @return id of sequence or {@link ChromosomeDictionary#MISSING}
+   */
+  public int find(String name) {
+    return dictionary.find(name);
+  }
+
+  /**
+   * Returns number of sequences in index.
+   *
+   * @return number of sequences in index
+   */
+  public int count() {
+    return dictionary.count();
+  }
+
+  /**
+   * Returns sequence name.
+   *
+   * @param id
+   *          sequence id
+   * @return sequence name
+   */
+  public String name(int id) {
+    return dictionary.name(id);
+  }
+
+  /**
+   * Returns sequence length.
+   *
+   * @param id
+   *          sequence id
+   * @return sequence length
+   */
+  public long length(int id) {
+    return dictionary.size(id);
+  }
+
+  /**
+   * Returns number of bases per line of sequence.
+   *
+   * @param id
+   *          sequence id
+   * @return number of bases per line of sequence
+   */
+  public int lineBases(int id) {
+    return lineBases[id];
+  }
+
+  /**
+   * Returns offset of base in FASTA file.
+   *
+   * @param id
+   *          sequence id
+   * @param base
+   *          position of base in sequence, starting at 0
+   * @return offset of base in FASTA file
+   */
+  public long offset(int id, long base) {
+    int bases = lineBases[id];
+    if (bases == 0) {
+      return offsets[id];
+    }
+    return offsets[id] + base / bases * lineWidths[id] + base % bases;
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chromosome sizes shared by all commands that take a genome.
+ *
+ * <p>
+ * Sizes files are compiled into a binary cache stored next to the sizes file, with the
+ * {@value #CACHE_EXTENSION} extension. The cache holds chromosome names and sizes and is loaded
+ * by mapping it in memory, so sizes files with many contigs are not parsed again. The cache is
+ * rebuilt when the CRC-32 checksum of the sizes file changes. When the cache cannot be written,
+ * the sizes file is parsed every time the registry loads it.
+ * </p>
+ *
+ * <p>
+ * Sizes files are loaded lazily, once per sizes file as long as it does not change. Each call to
+ * {@link #dictionary(Path)} returns a copy, so commands can add chromosomes missing from the sizes
+ * file.
+ * </p>
+ */
+@Component
+public class GenomeRegistry {
+  /**
+   * Extension appended to sizes file name to get cache file name.
+   */
+  public static final String CACHE_EXTENSION = ".dict";
+  private static final int MAGIC = 0x42454447;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES * 2;
+  private static final Logger logger = LoggerFactory.getLogger(GenomeRegistry.class);
+  private final ConcurrentMap<Path, Genome> genomes = new ConcurrentHashMap<>();
+
+  /**
+   * Returns dictionary seeded from sizes file, as created by <code>fasta2sizes</code>.
+   *
+   * @param sizes
+   *          sizes file
+   * @return dictionary seeded from sizes file
+   * @throws IOException
+   *           could not read sizes file
+   * @throws NumberFormatException
+   *           a size is not a number
+   */
+  public ChromosomeDictionary dictionary(Path sizes) throws IOException {
+    Path key = sizes.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    Genome genome = genomes.get(key);
+    if (genome == null || !genome.matches(attributes)) {
+      synchronized (this) {
+        genome = genomes.get(key);
+        if (genome == null || !genome.matches(attributes)) {
+          genome = load(key, attributes);
+          genomes.put(key, genome);
+        }
+      }
+    }
+    return genome.dictionary.copy();
+  }
+
+  /**
+   * Returns cache file of sizes file.
+   *
+   * @param sizes
+   *          sizes file
+   * @return cache file of sizes file
+   */
+  public static Path cache(Path sizes) {
+    return sizes.resolveSibling(sizes.getFileName() + CACHE_EXTENSION);
+  }
+
+  private Genome load(Path sizes, BasicFileAttributes attributes) throws IOException {
+    long length = attributes.size();
+    long checksum = checksum(sizes, length);
+    Path cache = cache(sizes);
+    ChromosomeDictionary dictionary = read(cache, length, checksum);
+    if (dictionary == null) {
+      logger.debug("genome cache {} is missing or stale", cache);
+      try (BufferedReader reader = Files.newBufferedReader(sizes)) {
+        dictionary = ChromosomeDictionary.fromSizes(reader);
+      }
+      try {
+        write(cache, dictionary, length, checksum);
+        logger.debug("compiled genome {} to {}", sizes, cache);
+      } catch (IOException e) {
+        logger.warn("Could not write genome cache {}, {}", cache, e.getMessage());
+      }
+    } else {
+      logger.debug("loaded genome {} from {}", sizes, cache);
+    }
+    return new Genome(dictionary, length, attributes.lastModifiedTime());
+  }
+
+  private static long checksum(Path file, long length) throws IOException {
+    CRC32 crc = new CRC32();
+    if (length > 0) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        for (long position = 0; position < length; position += Integer.MAX_VALUE) {
+          crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(Integer.MAX_VALUE, length - position)));
+        }
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Reads dictionary from cache, returns null if cache is missing, invalid or stale.
+   */
+  private ChromosomeDictionary read(Path cache, long length, long checksum) throws IOException {
+    if (!Files.isRegularFile(cache) || Files.size(cache) < HEADER_SIZE) {
+      return null;
+    }
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != length
+          || buffer.getLong() != checksum) {
+        return null;
+      }
+      int count = buffer.getInt();
+      if (count < 0 || count > buffer.remaining() / Long.BYTES) {
+        return null;
+      }
+      long[] sizes = new long[count];
+      buffer.asLongBuffer().get(sizes);
+      buffer.position(buffer.position() + count * Long.BYTES);
+      int namesLength = buffer.getInt();
+      if (namesLength < 0 || namesLength != buffer.remaining()) {
+        return null;
+      }
+      byte[] names = new byte[namesLength];
+      buffer.get(names);
+      ChromosomeDictionary dictionary = new ChromosomeDictionary();
+      int start = 0;
+      for (int id = 0; id < count; id++) {
+        int end = start;
+        while (names[end] != 0) {
+          end++;
+        }
+        dictionary.add(names, start, end, sizes[id]);
+        start = end + 1;
+      }
+      return dictionary;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
+  private void write(Path cache, ChromosomeDictionary dictionary, long length, long checksum)
+      throws IOException {
+    int count = dictionary.seeded();
+    int namesLength = 0;
+    for (int id = 0; id < count; id++) {
+      namesLength += dictionary.bytes(id).length + 1;
+    }
+    ByteBuffer buffer =
+        ByteBuffer.allocate(HEADER_SIZE + count * Long.BYTES + Integer.BYTES + namesLength);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putLong(length);
+    buffer.putLong(checksum);
+    buffer.putInt(count);
+    for (int id = 0; id < count; id++) {
+      buffer.putLong(dictionary.size(id));
+    }
+    buffer.putInt(namesLength);
+    for (int id = 0; id < count; id++) {
+      buffer.put(dictionary.bytes(id));
+      buffer.put((byte) 0);
+    }
+    Path temporary = Files.createTempFile(cache.toAbsolutePath().getParent(),
+        cache.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream output = Files.newOutputStream(temporary)) {
+        output.write(buffer.array());
+      }
+      try {
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static class Genome {
+    private final ChromosomeDictionary dictionary;
+    private final long length;
+    private final FileTime lastModified;
+
+    private Genome(ChromosomeDictionary dictionary, long length, FileTime lastModified) {
+      this.dictionary = dictionary;
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+
+    private boolean matches(BasicFileAttributes attributes) {
+      return attributes.size() == length && attributes.lastModifiedTime().equals(lastModified);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FASTA file mapped in memory, with random access to sequences through its index.
+ *
+ * <p>
+ * Bases are copied directly from the mapped file, the offset of each line of bases is computed
+ * from the {@link FastaIndex index}. Files larger than 1 GB are mapped in several regions.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class IndexedFasta implements SequenceSource {
+  private static final long REGION_SIZE = 1L << 30;
+  private final FastaIndex index;
+  private final MappedByteBuffer[] regions;
+  private final long regionSize;
+
+  /**
+   * Maps FASTA file in memory, loading its index with {@link FastaIndex#load(Path)}.
+   *
+   * @param fasta
+   *          FASTA file
+   * @throws IOException
+   *           could not read FASTA file or its index
+   * @throws IllegalArgumentException
+   *           FASTA file cannot be indexed or index is invalid
+   */
+  public IndexedFasta(Path fasta) throws IOException {
+    this(fasta, FastaIndex.load(fasta), REGION_SIZE);
+  }
+
+  IndexedFasta(Path fasta, FastaIndex index, long regionSize) throws IOException {
+    this.index = index;
+    this.regionSize = regionSize;
+    try (FileChannel channel = FileChannel.open(fasta, StandardOpenOption.READ)) {
+      long size = channel.size();
+      regions = new MappedByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+      for (int i = 0; i < regions.length; i++) {
+        long position = i * regionSize;
+        long length = Math.min(regionSize, size - position);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      }
+    }
+  }
+
+  /**
+   * Returns index of FASTA file.
+   *
+   * @return index of FASTA file
+   */
+  public FastaIndex index() {
+    return index;
+  }
+
+  @Override
+  public int find(byte[] bytes, int start, int end) {
+    return index.find(bytes, start, end);
+  }
+
+  @Override
+  public int find(String name) {
+    return index.find(name);
+  }
+
+  @Override
+  public int count() {
+    return index.count();
+  }
+
+  @Override
+  public String name(int id) {
+    return index.name(id);
+  }
+
+  @Override
+  public long length(int id) {
+    return index.length(id);
+  }
+
+  @Override
+  public void read(int id, long start, long end, byte[] destination, int offset) {
+    if (start < 0 || end > index.length(id) || start > end) {
+      throw new IllegalArgumentException("Bases " + start + "-" + end + " are not within sequence "
+          + index.name(id) + " of length " + index.length(id));
+    }
+    int bases = index.lineBases(id);
+    long position = start;
+    int destinationOffset = offset;
+    while (position < end) {
+      int length = (int) Math.min(bases - position % bases, end - position);
+      copy(index.offset(id, position), destination, destinationOffset, length);
+      position += length;
+      destinationOffset += length;
+    }
+  }
+
+  private void copy(long position, byte[] destination, int offset, int length) {
+    long filePosition = position;
+    int destinationOffset = offset;
+    int remaining = length;
+    while (remaining > 0) {
+      ByteBuffer region = regions[(int) (filePosition / regionSize)].duplicate();
+      int regionPosition = (int) (filePosition % regionSize);
+      int count = Math.min(remaining, region.limit() - regionPosition);
+      region.position(regionPosition);
+      region.get(destination, destinationOffset, count);
+      filePosition += count;
+      destinationOffset += count;
+      remaining -= count;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+/**
+ * Operations on nucleotide sequences stored as ASCII bytes.
+ */
+public final class Nucleotides {
+  private static final byte[] COMPLEMENTS = new byte[256];
+
+  static {
+    for (int i = 0; i < COMPLEMENTS.length; i++) {
+      COMPLEMENTS[i] = (byte) i;
+    }
+    String bases = "ACGTUMRWSYKVHDBN";
+    String complements = "TGCAAKYWSRMBDHVN";
+    for (int i = 0; i < bases.length(); i++) {
+      complement(bases.charAt(i), complements.charAt(i));
+      complement(Character.toLowerCase(bases.charAt(i)),
+          Character.toLowerCase(complements.charAt(i)));
+    }
+  }
+
+  private Nucleotides() {
+  }
+
+  private static void complement(char base, char complement) {
+    COMPLEMENTS[base] = (byte) complement;
+  }
+
+  /**
+   * Replaces bases by their reverse complement, keeping case. IUPAC ambiguity codes are
+   * complemented, other bytes are only reversed.
+   *
+   * @param bases
+   *          bases
+   * @param start
+   *          start of bases, inclusive
+   * @param end
+   *          end of bases, exclusive
+   */
+  public static void reverseComplement(byte[] bases, int start, int end) {
+    for (int i = start, j = end - 1; i <= j; i++, j--) {
+      byte base = COMPLEMENTS[bases[i] & 0xFF];
+      bases[i] = COMPLEMENTS[bases[j] & 0xFF];
+      bases[j] = base;
+    }
+  }
+}
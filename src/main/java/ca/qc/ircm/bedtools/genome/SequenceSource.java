@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+/**
+ * Sequences with random access to their bases.
+ *
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ */
+public interface SequenceSource {
+  /**
+   * Returns id of sequence or {@link ChromosomeDictionary#MISSING} if sequence is missing.
+   *
+   * @param bytes
+   *          bytes containing sequence name in UTF-8
+   * @param start
+   *          start of name, inclusive
+   * @param end
+   *          end of name, exclusive
+   * @return id of sequence or {@link ChromosomeDictionary#MISSING}
+   */
+  int find(byte[] bytes, int start, int end);
+
+  /**
+   * Returns id of sequence or {@link ChromosomeDictionary#MISSING} if sequence is missing.
+   *
+   * @param name
+   *          sequence name
+   * @return id of sequence or {@link ChromosomeDictionary#MISSING}
+   */
+  int find(String name);
+
+  /**
+   * Returns number of sequences.
+   *
+   * @return number of sequences
+   */
+  int count();
+
+  /**
+   * Returns sequence name.
+   *
+   * @param id
+   *          sequence id
+   * @return sequence name
+   */
+  String name(int id);
+
+  /**
+   * Returns sequence length.
+   *
+   * @param id
+   *          sequence id
+   * @return sequence length
+   */
+  long length(int id);
+
+  /**
+   * Copies bases of sequence to destination.
+   *
+   * @param id
+   *          sequence id
+   * @param start
+   *          start of bases, inclusive, starting at 0
+   * @param end
+   *          end of bases, exclusive
+   * @param destination
+   *          destination of bases
+   * @param offset
+   *          offset of first base in destination
+   * @throws IllegalArgumentException
+   *           start and end are not within sequence
+   */
+  void read(int id, long start, long end, byte[] destination, int offset);
+}
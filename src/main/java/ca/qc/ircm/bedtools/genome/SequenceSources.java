@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Opens sequence files, handling 2bit files transparently.
+ */
+public final class SequenceSources {
+  private SequenceSources() {
+  }
+
+  /**
+   * Opens sequence file, either a 2bit file or a FASTA file.
+   *
+   * @param path
+   *          2bit or FASTA file
+   * @return sequences of file
+   * @throws IOException
+   *           could not read file
+   * @throws IllegalArgumentException
+   *           file is not a valid 2bit file or FASTA file cannot be indexed
+   */
+  public static SequenceSource open(Path path) throws IOException {
+    if (TwoBit.isTwoBit(path)) {
+      return new TwoBit(path);
+    } else {
+      return new IndexedFasta(path);
+    }
+  }
+}
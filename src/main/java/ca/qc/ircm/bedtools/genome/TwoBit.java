@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 2bit file mapped in memory, with random access to sequences.
+ *
+ * <p>
+ * 2bit files store 4 bases per byte, with blocks of N bases and blocks of soft-masked, lower case,
+ * bases kept apart. Bases are decoded directly from the mapped file and blocks are searched in the
+ * mapped file, so opening a 2bit file only reads its index. Both byte orders and 64 bits offsets,
+ * version 1, are supported. Files larger than 1 GB are mapped in several regions.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class TwoBit implements SequenceSource {
+  /**
+   * Signature of 2bit files.
+   */
+  static final int SIGNATURE = 0x1A412743;
+  static final int HEADER_SIZE = Integer.BYTES * 4;
+  private static final long REGION_SIZE = 1L << 30;
+  private static final long UNSIGNED_INT = 0xFFFFFFFFL;
+  private static final byte[] BASES = "TCAG".getBytes(StandardCharsets.UTF_8);
+  private static final byte N = 'N';
+  private static final byte LOWER_CASE = 0x20;
+  private final ChromosomeDictionary dictionary = new ChromosomeDictionary();
+  private final ByteBuffer[] regions;
+  private final long regionSize;
+  private long[] blocks;
+  private int[] blockCounts;
+  private long[] maskBlocks;
+  private int[] maskBlockCounts;
+  private long[] dna;
+
+  /**
+   * Maps 2bit file in memory.
+   *
+   * @param twoBit
+   *          2bit file
+   * @throws IOException
+   *           could not read 2bit file
+   * @throws IllegalArgumentException
+   *           2bit file is invalid
+   */
+  public TwoBit(Path twoBit) throws IOException {
+    this(twoBit, REGION_SIZE);
+  }
+
+  TwoBit(Path twoBit, long regionSize) throws IOException {
+    this.regionSize = regionSize;
+    long size;
+    try (FileChannel channel = FileChannel.open(twoBit, StandardOpenOption.READ)) {
+      size = channel.size();
+      regions = new ByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+      for (int i = 0; i < regions.length; i++) {
+        long position = i * regionSize;
+        // Regions overlap so that numbers never span two regions.
+        long length = Math.min(regionSize + Long.BYTES, size - position);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      }
+    }
+    if (size < HEADER_SIZE) {
+      throw new IllegalArgumentException(twoBit + " is not a 2bit file");
+    }
+    ByteOrder order = order(regions[0].getInt(0));
+    if (order == null) {
+      throw new IllegalArgumentException(twoBit + " is not a 2bit file");
+    }
+    for (ByteBuffer region : regions) {
+      region.order(order);
+    }
+    readIndex(twoBit, size);
+  }
+
+  /**
+   * Returns true if file starts with 2bit signature, in any byte order.
+   *
+   * @param path
+   *          file
+   * @return true if file starts with 2bit signature
+   * @throws IOException
+   *           could not read file
+   */
+  public static boolean isTwoBit(Path path) throws IOException {
+    byte[] signature = new byte[Integer.BYTES];
+    try (InputStream input = Files.newInputStream(path)) {
+      int read = 0;
+      int count;
+      while (read < signature.length
+          && (count = input.read(signature, read, signature.length - read)) >= 0) {
+        read += count;
+      }
+      return read == signature.length && order(ByteBuffer.wrap(signature).getInt()) != null;
+    }
+  }
+
+  private static ByteOrder order(int bigEndianSignature) {
+    if (bigEndianSignature == SIGNATURE) {
+      return ByteOrder.BIG_ENDIAN;
+    } else if (Integer.reverseBytes(bigEndianSignature) == SIGNATURE) {
+      return ByteOrder.LITTLE_ENDIAN;
+    } else {
+      return null;
+    }
+  }
+
+  private void readIndex(Path twoBit, long size) {
+    int version = getInt(Integer.BYTES);
+    if (version != 0 && version != 1) {
+      throw new IllegalArgumentException(
+          "Unsupported version " + version + " of 2bit file " + twoBit);
+    }
+    int offsetSize = version == 0 ? Integer.BYTES : Long.BYTES;
+    int count = getInt(Integer.BYTES * 2);
+    if (count < 0) {
+      throw new IllegalArgumentException("Invalid sequence count in 2bit file " + twoBit);
+    }
+    blocks = new long[count];
+    blockCounts = new int[count];
+    maskBlocks = new long[count];
+    maskBlockCounts = new int[count];
+    dna = new long[count];
+    long position = HEADER_SIZE;
+    for (int id = 0; id < count; id++) {
+      if (position + 1 > size) {
+        throw new IllegalArgumentException("Truncated index in 2bit file " + twoBit);
+      }
+      int nameSize = get(position) & 0xFF;
+      position++;
+      if (position + nameSize + offsetSize > size) {
+        throw new IllegalArgumentException("Truncated index in 2bit file " + twoBit);
+      }
+      byte[] name = new byte[nameSize];
+      for (int i = 0; i < nameSize; i++) {
+        name[i] = get(position + i);
+      }
+      position += nameSize;
+      long offset = version == 0 ? getInt(position) & UNSIGNED_INT : getLong(position);
+      position += offsetSize;
+      if (offset < 0 || offset + Integer.BYTES * 2 > size) {
+        throw new IllegalArgumentException("Invalid offset of sequence "
+            + new String(name, StandardCharsets.UTF_8) + " in 2bit file " + twoBit);
+      }
+      long length = getInt(offset) & UNSIGNED_INT;
+      blockCounts[id] = getInt(offset + Integer.BYTES);
+      blocks[id] = offset + Integer.BYTES * 2;
+      long maskCount = blocks[id] + (long) blockCounts[id] * Integer.BYTES * 2;
+      if (blockCounts[id] < 0 || maskCount + Integer.BYTES > size) {
+        throw new IllegalArgumentException("Invalid sequence "
+            + new String(name, StandardCharsets.UTF_8) + " in 2bit file " + twoBit);
+      }
+      maskBlockCounts[id] = getInt(maskCount);
+      maskBlocks[id] = maskCount + Integer.BYTES;
+      dna[id] = maskBlocks[id] + (long) maskBlockCounts[id] * Integer.BYTES * 2 + Integer.BYTES;
+      if (maskBlockCounts[id] < 0 || dna[id] + (length + 3) / 4 > size) {
+        throw new IllegalArgumentException("Invalid sequence "
+            + new String(name, StandardCharsets.UTF_8) + " in 2bit file " + twoBit);
+      }
+      if (dictionary.add(name, 0, name.length, length) != id) {
+        throw new IllegalArgumentException("Duplicated sequence "
+            + new String(name, StandardCharsets.UTF_8) + " in 2bit file " + twoBit);
+      }
+    }
+  }
+
+  private byte get(long position) {
+    return regions[(int) (position / regionSize)].get((int) (position % regionSize));
+  }
+
+  private int getInt(long position) {
+    return regions[(int) (position / regionSize)].getInt((int) (position % regionSize));
+  }
+
+  private long getLong(long position) {
+    return regions[(int) (position / regionSize)].getLong((int) (position % regionSize));
+  }
+
+  @Override
+  public int find(byte[] bytes, int start, int end) {
+    return dictionary.find(bytes, start, end);
+  }
+
+  @Override
+  public int find(String name) {
+    return dictionary.find(name);
+  }
+
+  @Override
+  public int count() {
+    return dictionary.count();
+  }
+
+  @Override
+  public String name(int id) {
+    return dictionary.name(id);
+  }
+
+  @Override
+  public long length(int id) {
+    return dictionary.size(id);
+  }
+
+  @Override
+  public void read(int id, long start, long end, byte[] destination, int offset) {
+    if (start < 0 || end > length(id) || start > end) {
+      throw new IllegalArgumentException("Bases " + start + "-" + end + " are not within sequence "
+          + name(id) + " of length " + length(id));
+    }
+    long position = start;
+    int destinationOffset = offset;
+    while (position < end) {
+      int packed = get(dna[id] + position / 4);
+      int base = (int) (position % 4);
+      int last = (int) Math.min(4, base + end - position);
+      for (; base < last; base++) {
+        destination[destinationOffset++] = BASES[(packed >>> (6 - base * 2)) & 3];
+        position++;
+      }
+    }
+    int block = firstBlock(blocks[id], blockCounts[id], start);
+    for (; block < blockCounts[id]; block++) {
+      long blockStart = blockStart(blocks[id], block);
+      if (blockStart >= end) {
+        break;
+      }
+      long blockEnd = blockStart + blockSize(blocks[id], blockCounts[id], block);
+      int from = (int) (Math.max(blockStart, start) - start) + offset;
+      int to = (int) (Math.min(blockEnd, end) - start) + offset;
+      for (int i = from; i < to; i++) {
+        destination[i] = N;
+      }
+    }
+    block = firstBlock(maskBlocks[id], maskBlockCounts[id], start);
+    for (; block < maskBlockCounts[id]; block++) {
+      long blockStart = blockStart(maskBlocks[id], block);
+      if (blockStart >= end) {
+        break;
+      }
+      long blockEnd = blockStart + blockSize(maskBlocks[id], maskBlockCounts[id], block);
+      int from = (int) (Math.max(blockStart, start) - start) + offset;
+      int to = (int) (Math.min(blockEnd, end) - start) + offset;
+      for (int i = from; i < to; i++) {
+        destination[i] |= LOWER_CASE;
+      }
+    }
+  }
+
+  /**
+   * Returns first block that ends after position, blocks are sorted and do not overlap.
+   */
+  private int firstBlock(long blocks, int count, long position) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      long blockEnd = blockStart(blocks, middle) + blockSize(blocks, count, middle);
+      if (blockEnd <= position) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private long blockStart(long blocks, int block) {
+    return getInt(blocks + (long) block * Integer.BYTES) & UNSIGNED_INT;
+  }
+
+  private long blockSize(long blocks, int count, int block) {
+    return getInt(blocks + ((long) count + block) * Integer.BYTES) & UNSIGNED_INT;
+  }
+}
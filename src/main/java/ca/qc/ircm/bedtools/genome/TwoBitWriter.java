@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts FASTA files to 2bit files.
+ *
+ * <p>
+ * FASTA file is read twice. The first pass finds the length and the number of N blocks and
+ * soft-masked blocks of each sequence, which fixes the layout of 2bit file. The second pass packs
+ * bases and writes blocks directly at their final position. Memory usage does not depend on the
+ * size of sequences.
+ * </p>
+ *
+ * <p>
+ * Sequences are named after the first word of their header line. Bases other than A, C, G and T
+ * are stored as N.
+ * </p>
+ */
+public class TwoBitWriter {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAXIMUM_NAME_SIZE = 255;
+  private static final long UNSIGNED_INT = 0xFFFFFFFFL;
+  private static final byte HEADER = '>';
+  private static final int UNKNOWN = -1;
+  private static final int[] CODES = new int[256];
+
+  static {
+    Arrays.fill(CODES, UNKNOWN);
+    CODES['T'] = 0;
+    CODES['t'] = 0;
+    CODES['C'] = 1;
+    CODES['c'] = 1;
+    CODES['A'] = 2;
+    CODES['a'] = 2;
+    CODES['G'] = 3;
+    CODES['g'] = 3;
+  }
+
+  private TwoBitWriter() {
+  }
+
+  /**
+   * Converts FASTA file to 2bit file.
+   *
+   * @param fasta
+   *          FASTA file
+   * @param twoBit
+   *          2bit file
+   * @throws IOException
+   *           could not read FASTA file or write 2bit file
+   * @throws IllegalArgumentException
+   *           FASTA file is invalid, contains sequences that cannot be stored in a 2bit file or was
+   *           modified during conversion
+   */
+  public static void write(Path fasta, Path twoBit) throws IOException {
+    List<Sequence> sequences = new ArrayList<>();
+    new SequenceScanner(sequences, null).scan(fasta);
+    int version = 0;
+    long size = layout(sequences, Integer.BYTES);
+    if (size > UNSIGNED_INT + 1) {
+      version = 1;
+      size = layout(sequences, Long.BYTES);
+    }
+    try (FileChannel channel = FileChannel.open(twoBit, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ChannelWriter writer = new ChannelWriter(channel);
+      writer.position(0);
+      writer.putInt(TwoBit.SIGNATURE);
+      writer.putInt(version);
+      writer.putInt(sequences.size());
+      writer.putInt(0);
+      for (Sequence sequence : sequences) {
+        writer.put((byte) sequence.name.length);
+        for (byte nameByte : sequence.name) {
+          writer.put(nameByte);
+        }
+        if (version == 0) {
+          writer.putInt((int) sequence.offset);
+        } else {
+          writer.putLong(sequence.offset);
+        }
+      }
+      writer.flush();
+      new SequenceScanner(sequences, channel).scan(fasta);
+    }
+  }
+
+  /**
+   * Computes offset of each sequence and returns size of 2bit file.
+   */
+  private static long layout(List<Sequence> sequences, int offsetSize) {
+    long position = TwoBit.HEADER_SIZE;
+    for (Sequence sequence : sequences) {
+      position += 1 + sequence.name.length + offsetSize;
+    }
+    for (Sequence sequence : sequences) {
+      sequence.offset = position;
+      position += Integer.BYTES * 4 + (long) sequence.blocks * Integer.BYTES * 2
+          + (long) sequence.maskBlocks * Integer.BYTES * 2 + (sequence.length + 3) / 4;
+    }
+    return position;
+  }
+
+  private static class Sequence {
+    private final byte[] name;
+    private long length;
+    private int blocks;
+    private int maskBlocks;
+    private long offset;
+
+    private Sequence(byte[] name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Buffered writer to a position of a file channel.
+   */
+  private static class ChannelWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer =
+        ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    private ChannelWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void position(long position) throws IOException {
+      flush();
+      this.position = position;
+    }
+
+    private void put(byte value) throws IOException {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      buffer.put(value);
+    }
+
+    private void putInt(int value) throws IOException {
+      if (buffer.remaining() < Integer.BYTES) {
+        flush();
+      }
+      buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+      if (buffer.remaining() < Long.BYTES) {
+        flush();
+      }
+      buffer.putLong(value);
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Scans sequences of FASTA file. Without a channel, sequences are added to the list with their
+   * length and number of blocks. With a channel, sequences of the list are written to the channel.
+   */
+  private static class SequenceScanner {
+    private final List<Sequence> sequences;
+    private final ChromosomeDictionary names = new ChromosomeDictionary();
+    private final FileChannel channel;
+    private final ChannelWriter blockStarts;
+    private final ChannelWriter blockSizes;
+    private final ChannelWriter maskBlockStarts;
+    private final ChannelWriter maskBlockSizes;
+    private final ChannelWriter bases;
+    private Sequence sequence;
+    private int index = -1;
+    private long length;
+    private int blocks;
+    private int maskBlocks;
+    private long blockStart;
+    private long maskBlockStart;
+    private int packed;
+
+    private SequenceScanner(List<Sequence> sequences, FileChannel channel) {
+      this.sequences = sequences;
+      this.channel = channel;
+      if (channel != null) {
+        blockStarts = new ChannelWriter(channel);
+        blockSizes = new ChannelWriter(channel);
+        maskBlockStarts = new ChannelWriter(channel);
+        maskBlockSizes = new ChannelWriter(channel);
+        bases = new ChannelWriter(channel);
+      } else {
+        blockStarts = null;
+        blockSizes = null;
+        maskBlockStarts = null;
+        maskBlockSizes = null;
+        bases = null;
+      }
+    }
+
+    private void scan(Path fasta) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      byte[] name = new byte[MAXIMUM_NAME_SIZE];
+      int nameLength = 0;
+      boolean lineStart = true;
+      boolean header = false;
+      boolean nameEnded = false;
+      try (InputStream input = Files.newInputStream(fasta)) {
+        int count;
+        while ((count = input.read(buffer)) >= 0) {
+          for (int i = 0; i < count; i++) {
+            byte value = buffer[i];
+            if (header) {
+              if (value == '\n') {
+                start(Arrays.copyOf(name, nameLength));
+                header = false;
+              } else if (value == ' ' || value == '\t' || value == '\r') {
+                nameEnded = true;
+              } else if (!nameEnded) {
+                if (nameLength == name.length) {
+                  throw new IllegalArgumentException("Sequence name "
+                      + new String(name, 0, nameLength, StandardCharsets.UTF_8)
+                      + "... is longer than " + MAXIMUM_NAME_SIZE + " bytes");
+                }
+                name[nameLength++] = value;
+              }
+            } else if (lineStart && value == HEADER) {
+              end();
+              header = true;
+              nameEnded = false;
+              nameLength = 0;
+            } else if (value != '\n' && value != '\r' && value != ' ' && value != '\t') {
+              if (sequence == null) {
+                throw new IllegalArgumentException("Sequence found before header in " + fasta);
+              }
+              base(value);
+            }
+            lineStart = value == '\n';
+          }
+        }
+      }
+      if (header) {
+        start(Arrays.copyOf(name, nameLength));
+      }
+      end();
+      if (channel != null && index != sequences.size() - 1) {
+        throw new IllegalArgumentException("FASTA file was modified during conversion");
+      }
+    }
+
+    private void start(byte[] name) throws IOException {
+      if (channel == null) {
+        if (names.find(name, 0, name.length) != ChromosomeDictionary.MISSING) {
+          throw new IllegalArgumentException(
+              "Duplicated sequence " + new String(name, StandardCharsets.UTF_8));
+        }
+        names.id(name, 0, name.length);
+        sequence = new Sequence(name);
+        sequences.add(sequence);
+      } else {
+        index++;
+        if (index >= sequences.size() || !Arrays.equals(sequences.get(index).name, name)) {
+          throw new IllegalArgumentException("FASTA file was modified during conversion");
+        }
+        sequence = sequences.get(index);
+        long position = sequence.offset;
+        long blocksSize = (long) sequence.blocks * Integer.BYTES;
+        long maskBlocksSize = (long) sequence.maskBlocks * Integer.BYTES;
+        bases.position(position);
+        bases.putInt((int) sequence.length);
+        bases.putInt(sequence.blocks);
+        position += Integer.BYTES * 2;
+        blockStarts.position(position);
+        position += blocksSize;
+        blockSizes.position(position);
+        position += blocksSize;
+        bases.position(position);
+        bases.putInt(sequence.maskBlocks);
+        position += Integer.BYTES;
+        maskBlockStarts.position(position);
+        position += maskBlocksSize;
+        maskBlockSizes.position(position);
+        position += maskBlocksSize;
+        bases.position(position);
+        bases.putInt(0);
+      }
+      length = 0;
+      blocks = 0;
+      maskBlocks = 0;
+      blockStart = -1;
+      maskBlockStart = -1;
+      packed = 0;
+    }
+
+    private void base(byte value) throws IOException {
+      int code = CODES[value & 0xFF];
+      if (code == UNKNOWN && blockStart < 0) {
+        blockStart = length;
+      } else if (code != UNKNOWN && blockStart >= 0) {
+        endBlock();
+      }
+      boolean masked = value >= 'a' && value <= 'z';
+      if (masked && maskBlockStart < 0) {
+        maskBlockStart = length;
+      } else if (!masked && maskBlockStart >= 0) {
+        endMaskBlock();
+      }
+      if (channel != null) {
+        packed = packed << 2 | Math.max(code, 0);
+        if (length % 4 == 3) {
+          bases.put((byte) packed);
+          packed = 0;
+        }
+      }
+      length++;
+    }
+
+    private void endBlock() throws IOException {
+      if (channel != null) {
+        blockStarts.putInt((int) blockStart);
+        blockSizes.putInt((int) (length - blockStart));
+      }
+      blocks++;
+      blockStart = -1;
+    }
+
+    private void endMaskBlock() throws IOException {
+      if (channel != null) {
+        maskBlockStarts.putInt((int) maskBlockStart);
+        maskBlockSizes.putInt((int) (length - maskBlockStart));
+      }
+      maskBlocks++;
+      maskBlockStart = -1;
+    }
+
+    private void end() throws IOException {
+      if (sequence == null) {
+        return;
+      }
+      if (blockStart >= 0) {
+        endBlock();
+      }
+      if (maskBlockStart >= 0) {
+        endMaskBlock();
+      }
+      if (channel == null) {
+        if (length > UNSIGNED_INT) {
+          throw new IllegalArgumentException("Sequence "
+              + new String(sequence.name, StandardCharsets.UTF_8) + " is longer than "
+              + UNSIGNED_INT + " bases");
+        }
+        sequence.length = length;
+        sequence.blocks = blocks;
+        sequence.maskBlocks = maskBlocks;
+      } else {
+        if (length != sequence.length || blocks != sequence.blocks
+            || maskBlocks != sequence.maskBlocks) {
+          throw new IllegalArgumentException("FASTA file was modified during conversion");
+        }
+        if (length % 4 != 0) {
+          bases.put((byte) (packed << (4 - length % 4) * 2));
+        }
+        blockStarts.flush();
+        blockSizes.flush();
+        maskBlockStarts.flush();
+        maskBlockSizes.flush();
+        bases.flush();
+      }
+      sequence = null;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Output stream that writes to a channel on a dedicated writer thread.
+ *
+ * <p>
+ * Bytes are copied into one of two large direct buffers. When the current buffer is full, it is
+ * handed to the writer thread and the other buffer is used, waiting only if the writer thread is
+ * still writing it.
+ * </p>
+ */
+public class AsyncOutputStream extends OutputStream {
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+  private final WritableByteChannel channel;
+  private final ExecutorService writer = Executors.newSingleThreadExecutor();
+  private ByteBuffer buffer;
+  private ByteBuffer spare;
+  private Future<?> pending;
+  private boolean closed;
+
+  /**
+   * Creates an output stream that writes to channel using buffers of
+   * {@link #DEFAULT_BUFFER_SIZE default size}.
+   *
+   * @param channel
+   *          channel, closed when this stream is closed
+   */
+  public AsyncOutputStream(WritableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates an output stream that writes to channel.
+   *
+   * @param channel
+   *          channel, closed when this stream is closed
+   * @param bufferSize
+   *          size of each of the two buffers
+   */
+  public AsyncOutputStream(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocateDirect(bufferSize);
+    spare = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  @Override
+  public void write(int value) throws IOException {
+    ensureOpen();
+    if (!buffer.hasRemaining()) {
+      swap();
+    }
+    buffer.put((byte) value);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    ensureOpen();
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (length > 0) {
+      if (!buffer.hasRemaining()) {
+        swap();
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.put(bytes, offset, count);
+      offset += count;
+      length -= count;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (buffer.position() > 0) {
+      swap();
+    }
+    awaitPending();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      writer.shutdownNow();
+      channel.close();
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private void swap() throws IOException {
+    awaitPending();
+    ByteBuffer full = buffer;
+    buffer = spare;
+    spare = full;
+    full.flip();
+    pending = writer.submit(() -> {
+      while (full.hasRemaining()) {
+        channel.write(full);
+      }
+      full.clear();
+      return null;
+    });
+  }
+
+  private void awaitPending() throws IOException {
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.get();
+      pending = null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for writer thread");
+    } catch (ExecutionException e) {
+      pending = null;
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+}
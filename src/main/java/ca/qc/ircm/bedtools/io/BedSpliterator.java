@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over lines of a BED file that splits by byte range.
+ *
+ * <p>
+ * Each spliterator covers a range of bytes and returns lines starting inside its range. Split
+ * points can fall in the middle of a line: the line belongs to the range containing its first
+ * byte, so no line is lost or returned twice. Ranges are read with positional reads, so all
+ * spliterators can share the same file channel.
+ * </p>
+ */
+public class BedSpliterator implements Spliterator<String> {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int MINIMUM_SPLIT_SIZE = 1 << 20;
+  private final FileChannel channel;
+  private final int minimumSplitSize;
+  private long start;
+  private final long end;
+  private ByteLineReader reader;
+  private long position;
+
+  /**
+   * Creates a spliterator over all lines of file.
+   *
+   * @param channel
+   *          file channel, not closed by spliterator
+   * @throws IOException
+   *           could not get size of file
+   */
+  public BedSpliterator(FileChannel channel) throws IOException {
+    this(channel, 0, channel.size(), MINIMUM_SPLIT_SIZE);
+  }
+
+  BedSpliterator(FileChannel channel, long start, long end, int minimumSplitSize) {
+    this.channel = channel;
+    this.start = start;
+    this.end = end;
+    this.minimumSplitSize = minimumSplitSize;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super String> action) {
+    try {
+      if (reader == null) {
+        open();
+      }
+      if (position >= end || !reader.next()) {
+        position = end;
+        return false;
+      }
+      position += reader.length();
+      action.accept(new String(reader.buffer(), reader.start(), reader.end() - reader.start(),
+          CHARSET));
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Opens range, skipping the end of the line that started in the previous range.
+   */
+  private void open() throws IOException {
+    if (start > 0) {
+      reader = new ByteLineReader(new ChannelInputStream(channel, start - 1));
+      position = start - 1;
+      if (reader.next()) {
+        position += reader.length();
+      }
+    } else {
+      reader = new ByteLineReader(new ChannelInputStream(channel, start));
+      position = start;
+    }
+  }
+
+  @Override
+  public Spliterator<String> trySplit() {
+    if (reader != null || end - start < 2L * minimumSplitSize) {
+      return null;
+    }
+    long middle = start + (end - start) / 2;
+    BedSpliterator prefix = new BedSpliterator(channel, start, middle, minimumSplitSize);
+    start = middle;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return reader != null ? Math.max(end - position, 0) : end - start;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL | IMMUTABLE;
+  }
+
+  /**
+   * Reads file channel from a position without changing the position of the channel.
+   */
+  private static class ChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private long position;
+
+    private ChannelInputStream(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] value = new byte[1];
+      return read(value, 0, 1) < 0 ? -1 : value[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    }
+  }
+}
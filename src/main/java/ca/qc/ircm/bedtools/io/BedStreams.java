@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Opens BED inputs and outputs of commands, handling binary BED transparently.
+ */
+public final class BedStreams {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int SPLIT_WRITER_THREADS = 4;
+
+  private BedStreams() {
+  }
+
+  /**
+   * Returns input stream of BED file, falls back to <code>System.in</code>. Binary BED is not
+   * decoded.
+   *
+   * @param input
+   *          input file or null for <code>System.in</code>
+   * @return input stream of BED file that supports mark
+   * @throws IOException
+   *           could not open input
+   */
+  public static BufferedInputStream rawInputStream(Path input) throws IOException {
+    if (input != null) {
+      return new BufferedInputStream(Files.newInputStream(input));
+    } else {
+      return new BufferedInputStream(System.in);
+    }
+  }
+
+  /**
+   * Returns input stream of BED file, falls back to <code>System.in</code>. Binary BED is decoded
+   * as BED lines.
+   *
+   * @param input
+   *          input file or null for <code>System.in</code>
+   * @return input stream of BED file
+   * @throws IOException
+   *           could not open input
+   */
+  public static InputStream inputStream(Path input) throws IOException {
+    BufferedInputStream stream = rawInputStream(input);
+    if (BinaryBed.isBinary(stream)) {
+      return new BinaryBedInputStream(stream);
+    } else {
+      return stream;
+    }
+  }
+
+  /**
+   * Returns reader of BED file, falls back to <code>System.in</code>. Binary BED is decoded as BED
+   * lines.
+   *
+   * @param input
+   *          input file or null for <code>System.in</code>
+   * @return reader of BED file
+   * @throws IOException
+   *           could not open input
+   */
+  public static BufferedReader reader(Path input) throws IOException {
+    return new BufferedReader(new InputStreamReader(inputStream(input), CHARSET));
+  }
+
+  /**
+   * Returns lines of BED file. The stream can be made parallel, in which case the file is split
+   * into byte ranges processed by different threads, see {@link BedSpliterator}. Stream must be
+   * closed to close the file.
+   *
+   * @param input
+   *          input file
+   * @return lines of BED file
+   * @throws IOException
+   *           could not open input
+   * @throws IllegalArgumentException
+   *           input is a binary BED file
+   */
+  public static Stream<String> lines(Path input) throws IOException {
+    if (BinaryBed.isBinary(input)) {
+      throw new IllegalArgumentException("Binary BED files cannot be split by byte range");
+    }
+    FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+    try {
+      return StreamSupport.stream(new BedSpliterator(channel), false).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns output stream for BED file, falls back to <code>System.out</code>. Bytes are written
+   * to output by a dedicated writer thread, see {@link AsyncOutputStream}.
+   *
+   * @param output
+   *          output file or null for <code>System.out</code>
+   * @param binary
+   *          true if BED lines should be encoded as binary BED
+   * @return output stream for BED file
+   * @throws IOException
+   *           could not open output
+   */
+  public static OutputStream outputStream(Path output, boolean binary) throws IOException {
+    WritableByteChannel channel;
+    if (output != null) {
+      channel = FileChannel.open(output, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    } else {
+      channel = Channels.newChannel(System.out);
+    }
+    OutputStream stream = new AsyncOutputStream(channel);
+    if (binary) {
+      stream = new BinaryBedOutputStream(stream);
+    }
+    return stream;
+  }
+
+  /**
+   * Returns output stream for BED file, falls back to <code>System.out</code>. Output files with
+   * {@link BinaryBed#EXTENSION binary BED extension} are encoded as binary BED.
+   *
+   * @param output
+   *          output file or null for <code>System.out</code>
+   * @return output stream for BED file
+   * @throws IOException
+   *           could not open output
+   */
+  public static OutputStream outputStream(Path output) throws IOException {
+    return outputStream(output, output != null && BinaryBed.isBinary(output));
+  }
+
+  /**
+   * Returns writer for BED file, falls back to <code>System.out</code>. Output files with
+   * {@link BinaryBed#EXTENSION binary BED extension} are encoded as binary BED.
+   *
+   * @param output
+   *          output file or null for <code>System.out</code>
+   * @return writer for BED file
+   * @throws IOException
+   *           could not open output
+   */
+  public static BufferedWriter writer(Path output) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(outputStream(output), CHARSET));
+  }
+
+  /**
+   * Returns writer that splits BED lines into one file per key. Files are named like the output
+   * file, with the key inserted before the file extension.
+   *
+   * @param output
+   *          output file, cannot be null
+   * @param router
+   *          chooses key of lines
+   * @param maximumOpenFiles
+   *          maximum number of files open at the same time
+   * @return writer that splits BED lines into one file per key
+   * @throws IllegalArgumentException
+   *           output is null or is a binary BED file
+   */
+  public static BufferedWriter writer(Path output, LineRouter router, int maximumOpenFiles) {
+    return new BufferedWriter(splitWriter(output, router, maximumOpenFiles));
+  }
+
+  /**
+   * Returns output stream that splits BED lines into one file per key. Files are named like the
+   * output file, with the key inserted before the file extension.
+   *
+   * @param output
+   *          output file, cannot be null
+   * @param router
+   *          chooses key of lines
+   * @param maximumOpenFiles
+   *          maximum number of files open at the same time
+   * @return output stream that splits BED lines into one file per key
+   * @throws IllegalArgumentException
+   *           output is null or is a binary BED file
+   */
+  public static OutputStream outputStream(Path output, LineRouter router, int maximumOpenFiles) {
+    return new LineDecodingOutputStream(splitWriter(output, router, maximumOpenFiles));
+  }
+
+  /**
+   * Returns writer for BED file, falls back to <code>System.out</code>. When splitting output or
+   * using shards, lines are written to one file per key or per shard instead.
+   *
+   * @param output
+   *          output file or null for <code>System.out</code>
+   * @param splitBy
+   *          chooses key of lines when splitting output, null to not split output
+   * @param maximumOpenFiles
+   *          maximum number of files open at the same time when splitting output
+   * @param shards
+   *          number of shards, null to not use shards
+   * @param shardRouter
+   *          creates router that sends lines to one of <code>shards</code> keys
+   * @return writer for BED file
+   * @throws IOException
+   *           could not open output
+   * @throws IllegalArgumentException
+   *           output is split but output file is missing or is binary BED, or output is split
+   *           both by key and by shards
+   */
+  public static BufferedWriter writer(Path output, LineRouter splitBy, int maximumOpenFiles,
+      Integer shards, IntFunction<LineRouter> shardRouter) throws IOException {
+    LineRouter router = router(splitBy, shards, shardRouter);
+    if (router == null) {
+      return writer(output);
+    }
+    return writer(output, router, splitBy != null ? maximumOpenFiles : shards);
+  }
+
+  /**
+   * Returns output stream for BED file, falls back to <code>System.out</code>. When splitting
+   * output or using shards, lines are written to one file per key or per shard instead.
+   *
+   * @param output
+   *          output file or null for <code>System.out</code>
+   * @param splitBy
+   *          chooses key of lines when splitting output, null to not split output
+   * @param maximumOpenFiles
+   *          maximum number of files open at the same time when splitting output
+   * @param shards
+   *          number of shards, null to not use shards
+   * @param shardRouter
+   *          creates router that sends lines to one of <code>shards</code> keys
+   * @return output stream for BED file
+   * @throws IOException
+   *           could not open output
+   * @throws IllegalArgumentException
+   *           output is split but output file is missing or is binary BED, or output is split
+   *           both by key and by shards
+   */
+  public static OutputStream outputStream(Path output, LineRouter splitBy, int maximumOpenFiles,
+      Integer shards, IntFunction<LineRouter> shardRouter) throws IOException {
+    LineRouter router = router(splitBy, shards, shardRouter);
+    if (router == null) {
+      return outputStream(output);
+    }
+    return outputStream(output, router, splitBy != null ? maximumOpenFiles : shards);
+  }
+
+  private static LineRouter router(LineRouter splitBy, Integer shards,
+      IntFunction<LineRouter> shardRouter) {
+    if (splitBy != null && shards != null) {
+      throw new IllegalArgumentException("Output cannot be split both by key and by shards");
+    }
+    if (shards != null) {
+      return shardRouter.apply(shards);
+    }
+    return splitBy;
+  }
+
+  private static SplitWriter splitWriter(Path output, LineRouter router, int maximumOpenFiles) {
+    int threads = Math.min(SPLIT_WRITER_THREADS, Runtime.getRuntime().availableProcessors());
+    return new SplitWriter(output, router, maximumOpenFiles, threads);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Compact binary representation of BED files.
+ *
+ * <p>
+ * Binary BED is a storage format only. Commands decode records back to BED lines and parse them
+ * again, so it saves disk space and I/O but processing binary BED is slower than text.
+ * </p>
+ *
+ * <p>
+ * A binary BED file starts with {@link #MAGIC} followed by blocks of records. Each block
+ * contains:
+ * </p>
+ * <ol>
+ * <li>number of records, 0 marks the end of the file</li>
+ * <li>chromosomes added to the dictionary by this block, as length and UTF-8 bytes</li>
+ * <li>chromosome column, as dictionary index + 1 or 0 for lines that are not BED records, like
+ * headers and comments</li>
+ * <li>start column, as difference with the previous start of the block</li>
+ * <li>length column, as end minus start</li>
+ * <li>number of extra columns of each record</li>
+ * <li>extra columns, as text, number, number relative to start or chromosome dictionary
+ * index</li>
+ * </ol>
+ *
+ * <p>
+ * Columns are prefixed by their length in bytes and all numbers are variable length integers,
+ * using zig-zag encoding for signed numbers.
+ * </p>
+ */
+public final class BinaryBed {
+  /**
+   * File extension of binary BED files.
+   */
+  public static final String EXTENSION = ".bbed";
+  /**
+   * Magic bytes and version at the start of binary BED files.
+   */
+  static final byte[] MAGIC = { 'B', 'B', 'E', 'D', 1 };
+  static final int BLOCK_RECORDS = 16384;
+  static final int COLUMNS = 5;
+  static final int RAW_LINE = 0;
+  static final int TAG_BITS = 2;
+  static final int TAG_MASK = 3;
+  static final int EXTRA_TEXT = 0;
+  static final int EXTRA_RELATIVE_NUMBER = 1;
+  static final int EXTRA_CHROMOSOME = 2;
+  static final int EXTRA_NUMBER = 3;
+  static final int CHROMOSOME_EXTRA_INDEX = 0;
+  static final int MAXIMUM_DIGITS = 18;
+  static final byte COLUMN_SEPARATOR = '\t';
+  static final byte LINE_SEPARATOR = '\n';
+
+  private BinaryBed() {
+  }
+
+  /**
+   * Returns true if file should be written as binary BED, based on its extension.
+   *
+   * @param file
+   *          file
+   * @return true if file should be written as binary BED
+   */
+  public static boolean isBinary(Path file) {
+    return file.getFileName().toString().endsWith(EXTENSION);
+  }
+
+  /**
+   * Returns true if stream starts with binary BED magic bytes. Stream is reset to its current
+   * position.
+   *
+   * @param input
+   *          input stream that supports mark
+   * @return true if stream starts with binary BED magic bytes
+   * @throws IOException
+   *           could not read stream
+   */
+  public static boolean isBinary(InputStream input) throws IOException {
+    input.mark(MAGIC.length);
+    try {
+      for (byte magic : MAGIC) {
+        if (input.read() != (magic & 0xFF)) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      input.reset();
+    }
+  }
+
+  /**
+   * Returns true if bytes are the canonical decimal representation of a number that can be
+   * encoded without loss.
+   *
+   * @param bytes
+   *          bytes
+   * @param start
+   *          start of number, inclusive
+   * @param end
+   *          end of number, exclusive
+   * @return true if bytes are the canonical decimal representation of a number
+   */
+  static boolean isNumber(byte[] bytes, int start, int end) {
+    if (start < end && bytes[start] == '-') {
+      start++;
+      if (start < end && bytes[start] == '0') {
+        return false;
+      }
+    }
+    if (start >= end || end - start > MAXIMUM_DIGITS
+        || (bytes[start] == '0' && end - start > 1)) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses number validated by {@link #isNumber(byte[], int, int)}.
+   *
+   * @param bytes
+   *          bytes
+   * @param start
+   *          start of number, inclusive
+   * @param end
+   *          end of number, exclusive
+   * @return number
+   */
+  static long parseNumber(byte[] bytes, int start, int end) {
+    boolean negative = bytes[start] == '-';
+    long value = 0;
+    for (int i = negative ? start + 1 : start; i < end; i++) {
+      value = value * 10 + (bytes[i] - '0');
+    }
+    return negative ? -value : value;
+  }
+}
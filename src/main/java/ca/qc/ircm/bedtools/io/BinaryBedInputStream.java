@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static ca.qc.ircm.bedtools.io.BinaryBed.COLUMNS;
+import static ca.qc.ircm.bedtools.io.BinaryBed.COLUMN_SEPARATOR;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_CHROMOSOME;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_NUMBER;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_RELATIVE_NUMBER;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_TEXT;
+import static ca.qc.ircm.bedtools.io.BinaryBed.LINE_SEPARATOR;
+import static ca.qc.ircm.bedtools.io.BinaryBed.MAGIC;
+import static ca.qc.ircm.bedtools.io.BinaryBed.RAW_LINE;
+import static ca.qc.ircm.bedtools.io.BinaryBed.TAG_BITS;
+import static ca.qc.ircm.bedtools.io.BinaryBed.TAG_MASK;
+import static ca.qc.ircm.bedtools.io.VarintBuffer.unZigZag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes binary BED into BED lines.
+ *
+ * @see BinaryBed
+ */
+public class BinaryBedInputStream extends InputStream {
+  private static final int CHROMOSOME_COLUMN = 0;
+  private static final int START_COLUMN = 1;
+  private static final int LENGTH_COLUMN = 2;
+  private static final int EXTRA_COUNT_COLUMN = 3;
+  private static final int EXTRA_COLUMN = 4;
+  private final InputStream input;
+  private final List<byte[]> chromosomes = new ArrayList<>();
+  private final VarintBuffer[] columns = new VarintBuffer[COLUMNS];
+  private final VarintBuffer text = new VarintBuffer(BinaryBed.BLOCK_RECORDS * 64);
+  private int textPosition;
+  private boolean finished;
+
+  /**
+   * Creates binary BED input stream.
+   *
+   * @param input
+   *          binary BED stream, positioned before magic bytes
+   * @throws IOException
+   *           could not read stream or stream is not a binary BED
+   */
+  public BinaryBedInputStream(InputStream input) throws IOException {
+    this.input = input;
+    for (byte magic : MAGIC) {
+      if (input.read() != (magic & 0xFF)) {
+        throw new IOException("Input is not a binary BED");
+      }
+    }
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = new VarintBuffer(BinaryBed.BLOCK_RECORDS);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return text.bytes()[textPosition++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int read = Math.min(length, text.size() - textPosition);
+    System.arraycopy(text.bytes(), textPosition, bytes, offset, read);
+    textPosition += read;
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return text.size() - textPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  private boolean fill() throws IOException {
+    while (textPosition >= text.size()) {
+      if (finished) {
+        return false;
+      }
+      readBlock();
+    }
+    return true;
+  }
+
+  private void readBlock() throws IOException {
+    text.clear();
+    textPosition = 0;
+    long records = VarintBuffer.readVarLong(input);
+    if (records <= 0) {
+      finished = true;
+      return;
+    }
+    long dictionaryAdditions = VarintBuffer.readVarLong(input);
+    for (long i = 0; i < dictionaryAdditions; i++) {
+      byte[] name = new byte[(int) VarintBuffer.readVarLong(input)];
+      int read = 0;
+      while (read < name.length) {
+        int count = input.read(name, read, name.length - read);
+        if (count == -1) {
+          throw new IOException("Stream ended in the middle of a block");
+        }
+        read += count;
+      }
+      chromosomes.add(name);
+    }
+    for (VarintBuffer column : columns) {
+      column.readFully(input, (int) VarintBuffer.readVarLong(input));
+    }
+    long previousStart = 0;
+    for (long i = 0; i < records; i++) {
+      long chromosome = columns[CHROMOSOME_COLUMN].readVarLong();
+      if (chromosome == RAW_LINE) {
+        writeExtra(0);
+      } else {
+        byte[] name = chromosomes.get((int) chromosome - 1);
+        text.write(name, 0, name.length);
+        long start = previousStart + unZigZag(columns[START_COLUMN].readVarLong());
+        long end = start + unZigZag(columns[LENGTH_COLUMN].readVarLong());
+        previousStart = start;
+        text.write(COLUMN_SEPARATOR);
+        text.writeAscii(start);
+        text.write(COLUMN_SEPARATOR);
+        text.writeAscii(end);
+        long extras = columns[EXTRA_COUNT_COLUMN].readVarLong();
+        for (long j = 0; j < extras; j++) {
+          text.write(COLUMN_SEPARATOR);
+          writeExtra(start);
+        }
+      }
+      text.write(LINE_SEPARATOR);
+    }
+  }
+
+  private void writeExtra(long start) throws IOException {
+    VarintBuffer extraColumn = columns[EXTRA_COLUMN];
+    long value = extraColumn.readVarLong();
+    long payload = value >>> TAG_BITS;
+    switch ((int) (value & TAG_MASK)) {
+      case EXTRA_TEXT:
+        int position = extraColumn.skip((int) payload);
+        text.write(extraColumn.bytes(), position, (int) payload);
+        break;
+      case EXTRA_RELATIVE_NUMBER:
+        text.writeAscii(start + unZigZag(payload));
+        break;
+      case EXTRA_NUMBER:
+        text.writeAscii(unZigZag(payload));
+        break;
+      case EXTRA_CHROMOSOME:
+        byte[] name = chromosomes.get((int) payload);
+        text.write(name, 0, name.length);
+        break;
+      default:
+        throw new IOException("Unknown extra column type " + (value & TAG_MASK));
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static ca.qc.ircm.bedtools.io.BinaryBed.BLOCK_RECORDS;
+import static ca.qc.ircm.bedtools.io.BinaryBed.CHROMOSOME_EXTRA_INDEX;
+import static ca.qc.ircm.bedtools.io.BinaryBed.COLUMN_SEPARATOR;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_CHROMOSOME;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_NUMBER;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_RELATIVE_NUMBER;
+import static ca.qc.ircm.bedtools.io.BinaryBed.EXTRA_TEXT;
+import static ca.qc.ircm.bedtools.io.BinaryBed.LINE_SEPARATOR;
+import static ca.qc.ircm.bedtools.io.BinaryBed.MAGIC;
+import static ca.qc.ircm.bedtools.io.BinaryBed.RAW_LINE;
+import static ca.qc.ircm.bedtools.io.BinaryBed.TAG_BITS;
+import static ca.qc.ircm.bedtools.io.VarintBuffer.zigZag;
+
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes BED lines written to this stream as binary BED.
+ *
+ * @see BinaryBed
+ */
+public class BinaryBedOutputStream extends OutputStream {
+  private static final long MAXIMUM_NUMBER = 1L << 60;
+  private final OutputStream output;
+  private final ChromosomeDictionary chromosomes = new ChromosomeDictionary();
+  private final VarintBuffer dictionary = new VarintBuffer(256);
+  private final VarintBuffer chromosomeColumn = new VarintBuffer(BLOCK_RECORDS);
+  private final VarintBuffer startColumn = new VarintBuffer(BLOCK_RECORDS * 2);
+  private final VarintBuffer lengthColumn = new VarintBuffer(BLOCK_RECORDS * 2);
+  private final VarintBuffer extraCountColumn = new VarintBuffer(BLOCK_RECORDS);
+  private final VarintBuffer extraColumn = new VarintBuffer(BLOCK_RECORDS * 16);
+  private byte[] line = new byte[1024];
+  private int lineLength;
+  private int[] columnStarts = new int[16];
+  private int dictionaryAdditions;
+  private int records;
+  private long previousStart;
+  private boolean closed;
+
+  /**
+   * Creates binary BED output stream.
+   *
+   * @param output
+   *          stream where binary BED is written
+   * @throws IOException
+   *           could not write magic bytes to output
+   */
+  public BinaryBedOutputStream(OutputStream output) throws IOException {
+    this.output = output;
+    output.write(MAGIC);
+  }
+
+  @Override
+  public void write(int value) throws IOException {
+    if (value == LINE_SEPARATOR) {
+      encodeLine();
+    } else {
+      if (lineLength == line.length) {
+        line = Arrays.copyOf(line, line.length * 2);
+      }
+      line[lineLength++] = (byte) value;
+    }
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      write(bytes[i]);
+    }
+  }
+
+  /**
+   * Writes pending records as a block and flushes output.
+   */
+  @Override
+  public void flush() throws IOException {
+    writeBlock();
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (lineLength > 0) {
+        encodeLine();
+      }
+      writeBlock();
+      VarintBuffer.writeVarLong(output, 0);
+      output.flush();
+    } finally {
+      output.close();
+    }
+  }
+
+  private void encodeLine() throws IOException {
+    int columns = splitColumns();
+    if (columns >= 3 && BinaryBed.isNumber(line, columnStarts[1], columnEnd(1))
+        && BinaryBed.isNumber(line, columnStarts[2], columnEnd(2))) {
+      long start = BinaryBed.parseNumber(line, columnStarts[1], columnEnd(1));
+      long end = BinaryBed.parseNumber(line, columnStarts[2], columnEnd(2));
+      chromosomeColumn.writeVarLong(chromosome(columnStarts[0], columnEnd(0)) + 1);
+      startColumn.writeVarLong(zigZag(start - previousStart));
+      lengthColumn.writeVarLong(zigZag(end - start));
+      previousStart = start;
+      extraCountColumn.writeVarLong(columns - 3);
+      for (int i = 3; i < columns; i++) {
+        writeExtra(i - 3, columnStarts[i], columnEnd(i), start);
+      }
+    } else {
+      chromosomeColumn.writeVarLong(RAW_LINE);
+      extraColumn.writeVarLong((long) lineLength << TAG_BITS | EXTRA_TEXT);
+      extraColumn.write(line, 0, lineLength);
+    }
+    lineLength = 0;
+    if (++records >= BLOCK_RECORDS) {
+      writeBlock();
+    }
+  }
+
+  private int splitColumns() {
+    int columns = 1;
+    columnStarts[0] = 0;
+    for (int i = 0; i < lineLength; i++) {
+      if (line[i] == COLUMN_SEPARATOR) {
+        if (columns == columnStarts.length) {
+          columnStarts = Arrays.copyOf(columnStarts, columnStarts.length * 2);
+        }
+        columnStarts[columns++] = i + 1;
+      }
+    }
+    if (columns == columnStarts.length) {
+      columnStarts = Arrays.copyOf(columnStarts, columnStarts.length * 2);
+    }
+    columnStarts[columns] = lineLength + 1;
+    return columns;
+  }
+
+  private int columnEnd(int column) {
+    return columnStarts[column + 1] - 1;
+  }
+
+  private int chromosome(int start, int end) {
+    int count = chromosomes.count();
+    int id = chromosomes.id(line, start, end);
+    if (id == count) {
+      dictionary.writeVarLong(end - start);
+      dictionary.write(line, start, end - start);
+      dictionaryAdditions++;
+    }
+    return id;
+  }
+
+  private void writeExtra(int index, int start, int end, long recordStart) {
+    if (BinaryBed.isNumber(line, start, end)) {
+      long number = BinaryBed.parseNumber(line, start, end);
+      long relative = number - recordStart;
+      if (Math.abs(relative) < Math.abs(number) && Math.abs(relative) < MAXIMUM_NUMBER) {
+        extraColumn.writeVarLong(zigZag(relative) << TAG_BITS | EXTRA_RELATIVE_NUMBER);
+        return;
+      } else if (Math.abs(number) < MAXIMUM_NUMBER) {
+        extraColumn.writeVarLong(zigZag(number) << TAG_BITS | EXTRA_NUMBER);
+        return;
+      }
+    }
+    if (index == CHROMOSOME_EXTRA_INDEX) {
+      int id = chromosomes.find(line, start, end);
+      if (id != ChromosomeDictionary.MISSING) {
+        extraColumn.writeVarLong((long) id << TAG_BITS | EXTRA_CHROMOSOME);
+        return;
+      }
+    }
+    extraColumn.writeVarLong((long) (end - start) << TAG_BITS | EXTRA_TEXT);
+    extraColumn.write(line, start, end - start);
+  }
+
+  private void writeBlock() throws IOException {
+    if (records == 0) {
+      return;
+    }
+    VarintBuffer.writeVarLong(output, records);
+    VarintBuffer.writeVarLong(output, dictionaryAdditions);
+    dictionary.writeTo(output);
+    for (VarintBuffer column : new VarintBuffer[] { chromosomeColumn, startColumn, lengthColumn,
+        extraCountColumn, extraColumn }) {
+      VarintBuffer.writeVarLong(output, column.size());
+      column.writeTo(output);
+      column.clear();
+    }
+    dictionary.clear();
+    dictionaryAdditions = 0;
+    records = 0;
+    previousStart = 0;
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads lines as byte ranges of a reusable buffer.
+ *
+ * <p>
+ * Lines are terminated by <code>\n</code> or <code>\r\n</code>. The line returned by
+ * {@link #buffer()}, {@link #start()} and {@link #end()} is only valid until the next call to
+ * {@link #next()}.
+ * </p>
+ */
+public class ByteLineReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private final InputStream input;
+  private byte[] buffer;
+  private int position;
+  private int scan;
+  private int limit;
+  private int start;
+  private int end;
+  private boolean eof;
+
+  /**
+   * Creates a line reader.
+   *
+   * @param input
+   *          input stream, closed when this reader is closed
+   */
+  public ByteLineReader(InputStream input) {
+    this(input, BUFFER_SIZE);
+  }
+
+  ByteLineReader(InputStream input, int bufferSize) {
+    this.input = input;
+    buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Reads next line.
+   *
+   * @return true if a line was read, false if the end of input was reached
+   * @throws IOException
+   *           could not read input
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      for (; scan < limit; scan++) {
+        if (buffer[scan] == '\n') {
+          setLine(scan);
+          position = ++scan;
+          return true;
+        }
+      }
+      if (eof) {
+        if (position < limit) {
+          setLine(limit);
+          position = limit;
+          return true;
+        }
+        return false;
+      }
+      fill();
+    }
+  }
+
+  private void setLine(int lineEnd) {
+    start = position;
+    end = lineEnd > position && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+  }
+
+  private void fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      scan -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int read = input.read(buffer, limit, buffer.length - limit);
+    if (read < 0) {
+      eof = true;
+    } else {
+      limit += read;
+    }
+  }
+
+  /**
+   * Returns buffer containing the current line.
+   *
+   * @return buffer containing the current line
+   */
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  /**
+   * Returns start of current line in buffer, inclusive.
+   *
+   * @return start of current line in buffer, inclusive
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * Returns end of current line in buffer, exclusive. Line terminator is excluded.
+   *
+   * @return end of current line in buffer, exclusive
+   */
+  public int end() {
+    return end;
+  }
+
+  /**
+   * Returns number of bytes of current line in input, including line terminator.
+   *
+   * @return number of bytes of current line in input, including line terminator
+   */
+  public int length() {
+    return position - start;
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  /**
+   * Returns index of first occurrence of value in bytes.
+   *
+   * @param bytes
+   *          bytes
+   * @param value
+   *          value to find
+   * @param start
+   *          start of search, inclusive
+   * @param end
+   *          end of search, exclusive
+   * @return index of first occurrence of value in bytes, or -1 if not found
+   */
+  public static int indexOf(byte[] bytes, byte value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses ASCII digits as a signed long, like {@link Long#parseLong(String)}.
+   *
+   * @param bytes
+   *          bytes
+   * @param start
+   *          start of number, inclusive
+   * @param end
+   *          end of number, exclusive
+   * @return parsed number
+   * @throws NumberFormatException
+   *           bytes are not a valid long
+   */
+  public static long parseLong(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = i < end && bytes[i] == '-';
+    if (negative || i < end && bytes[i] == '+') {
+      i++;
+    }
+    if (i == end) {
+      throw invalidNumber(bytes, start, end);
+    }
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9 || result < limit / 10) {
+        throw invalidNumber(bytes, start, end);
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        throw invalidNumber(bytes, start, end);
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  private static NumberFormatException invalidNumber(byte[] bytes, int start, int end) {
+    return new NumberFormatException("For input string: \""
+        + new String(bytes, start, end - start, StandardCharsets.UTF_8) + "\"");
+  }
+}
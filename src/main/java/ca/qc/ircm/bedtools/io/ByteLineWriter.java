@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes lines as bytes, formatting numbers directly into its buffer.
+ */
+public class ByteLineWriter implements Closeable, Flushable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAXIMUM_LONG_LENGTH = 20;
+  private final OutputStream output;
+  private final byte[] buffer;
+  private int position;
+
+  /**
+   * Creates a line writer.
+   *
+   * @param output
+   *          output stream, closed when this writer is closed
+   */
+  public ByteLineWriter(OutputStream output) {
+    this(output, BUFFER_SIZE);
+  }
+
+  ByteLineWriter(OutputStream output, int bufferSize) {
+    this.output = output;
+    buffer = new byte[Math.max(bufferSize, MAXIMUM_LONG_LENGTH)];
+  }
+
+  /**
+   * Writes a range of bytes.
+   *
+   * @param bytes
+   *          bytes
+   * @param start
+   *          start of range, inclusive
+   * @param end
+   *          end of range, exclusive
+   * @throws IOException
+   *           could not write to output
+   */
+  public void write(byte[] bytes, int start, int end) throws IOException {
+    int length = end - start;
+    if (length > buffer.length - position) {
+      flushBuffer();
+      if (length > buffer.length) {
+        output.write(bytes, start, length);
+        return;
+      }
+    }
+    System.arraycopy(bytes, start, buffer, position, length);
+    position += length;
+  }
+
+  /**
+   * Writes a byte.
+   *
+   * @param value
+   *          byte
+   * @throws IOException
+   *           could not write to output
+   */
+  public void write(byte value) throws IOException {
+    if (position == buffer.length) {
+      flushBuffer();
+    }
+    buffer[position++] = value;
+  }
+
+  /**
+   * Writes number as ASCII digits, like {@link String#valueOf(long)}.
+   *
+   * @param value
+   *          number
+   * @throws IOException
+   *           could not write to output
+   */
+  public void writeLong(long value) throws IOException {
+    if (buffer.length - position < MAXIMUM_LONG_LENGTH) {
+      flushBuffer();
+    }
+    // Use negative values to support Long.MIN_VALUE.
+    long remaining = value;
+    if (remaining < 0) {
+      buffer[position++] = '-';
+    } else {
+      remaining = -remaining;
+    }
+    int digits = 1;
+    for (long rest = remaining; rest <= -10; rest /= 10) {
+      digits++;
+    }
+    int end = position + digits;
+    for (int i = end - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' - remaining % 10);
+      remaining /= 10;
+    }
+    position = end;
+  }
+
+  /**
+   * Writes a line separator.
+   *
+   * @throws IOException
+   *           could not write to output
+   */
+  public void newLine() throws IOException {
+    write((byte) '\n');
+  }
+
+  private void flushBuffer() throws IOException {
+    if (position > 0) {
+      output.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flushBuffer();
+    } finally {
+      output.close();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Output stream that decodes UTF-8 lines and writes them to a writer.
+ */
+class LineDecodingOutputStream extends OutputStream {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private final Writer writer;
+  private byte[] line = new byte[1024];
+  private int length;
+
+  LineDecodingOutputStream(Writer writer) {
+    this.writer = writer;
+  }
+
+  @Override
+  public void write(int value) throws IOException {
+    if (length == line.length) {
+      line = Arrays.copyOf(line, line.length * 2);
+    }
+    line[length++] = (byte) value;
+    if (value == '\n') {
+      writeLine();
+    }
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int count) throws IOException {
+    int end = offset + count;
+    while (offset < end) {
+      int lineEnd = ByteLineReader.indexOf(bytes, (byte) '\n', offset, end);
+      int copyEnd = lineEnd >= 0 ? lineEnd + 1 : end;
+      if (length + copyEnd - offset > line.length) {
+        line = Arrays.copyOf(line, Math.max(line.length * 2, length + copyEnd - offset));
+      }
+      System.arraycopy(bytes, offset, line, length, copyEnd - offset);
+      length += copyEnd - offset;
+      offset = copyEnd;
+      if (lineEnd >= 0) {
+        writeLine();
+      }
+    }
+  }
+
+  private void writeLine() throws IOException {
+    writer.write(new String(line, 0, length, CHARSET));
+    length = 0;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (length > 0) {
+        writeLine();
+      }
+    } finally {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+/**
+ * Chooses to which output a BED line is written.
+ */
+@FunctionalInterface
+public interface LineRouter {
+  /**
+   * Returns key of the output where line must be written. Key is used in the output file name.
+   *
+   * @param line
+   *          BED line that is not a header
+   * @return key of the output where line must be written
+   */
+  String key(String line);
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Splits BED lines written to this writer into one file per key.
+ *
+ * <p>
+ * Lines are buffered per key and written by writer threads. Each key is always written by the
+ * same thread, so lines of a key stay in order. Each thread keeps at most its share of the
+ * maximum number of open files, closing the least recently used file and reopening it in append
+ * mode when needed.
+ * </p>
+ *
+ * <p>
+ * Buffers of all keys hold at most {@value #MAXIMUM_BUFFERED} characters together. When this limit
+ * is exceeded, the largest buffers are written until half of the limit is free, so memory does not
+ * grow with the number of keys.
+ * </p>
+ *
+ * <p>
+ * Header lines are written at the beginning of every file.
+ * </p>
+ */
+public class SplitWriter extends Writer {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long MAXIMUM_BUFFERED = 1 << 24;
+  private static final char[] HEXADECIMAL = "0123456789ABCDEF".toCharArray();
+  private static final int MAXIMUM_PENDING_WRITES = 64;
+  private static final String COMMENT = "#";
+  private static final String BROWSER = "browser";
+  private static final String TRACK = "track";
+  private final Path output;
+  private final LineRouter router;
+  private final long maximumBuffered;
+  private final ExecutorService[] writers;
+  private final List<Map<Path, BufferedWriter>> openFiles = new ArrayList<>();
+  private final Map<String, Output> outputs = new HashMap<>();
+  private final List<String> headers = new ArrayList<>();
+  private final List<Future<?>> pending = new ArrayList<>();
+  private final Semaphore pendingWrites = new Semaphore(MAXIMUM_PENDING_WRITES);
+  private final StringBuilder line = new StringBuilder();
+  private long buffered;
+  private boolean closed;
+
+  /**
+   * Creates a writer that splits lines into multiple files.
+   *
+   * @param output
+   *          output file, key is inserted before file extension
+   * @param router
+   *          chooses key of lines
+   * @param maximumOpenFiles
+   *          maximum number of files open at the same time
+   * @param threads
+   *          number of writer threads
+   */
+  public SplitWriter(Path output, LineRouter router, int maximumOpenFiles, int threads) {
+    this(output, router, maximumOpenFiles, threads, MAXIMUM_BUFFERED);
+  }
+
+  SplitWriter(Path output, LineRouter router, int maximumOpenFiles, int threads,
+      long maximumBuffered) {
+    if (output == null) {
+      throw new IllegalArgumentException("An output file is required to split output");
+    }
+    if (BinaryBed.isBinary(output)) {
+      throw new IllegalArgumentException("Cannot split binary BED output");
+    }
+    this.output = output;
+    this.router = router;
+    this.maximumBuffered = maximumBuffered;
+    int writerCount = Math.max(1, Math.min(threads, maximumOpenFiles));
+    int maximumOpenFilesPerWriter = Math.max(1, maximumOpenFiles / writerCount);
+    writers = new ExecutorService[writerCount];
+    for (int i = 0; i < writerCount; i++) {
+      writers[i] = Executors.newSingleThreadExecutor();
+      openFiles.add(new LinkedHashMap<Path, BufferedWriter>(16, 0.75f, true) {
+        private static final long serialVersionUID = 3236435264307372052L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, BufferedWriter> eldest) {
+          if (size() > maximumOpenFilesPerWriter) {
+            try {
+              eldest.getValue().close();
+            } catch (IOException e) {
+              throw new SplitWriterException(e);
+            }
+            return true;
+          }
+          return false;
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns file where lines of key are written.
+   *
+   * <p>
+   * Characters of key other than letters, digits, <code>.</code>, <code>_</code>, <code>+</code>
+   * and <code>-</code> are replaced by <code>%</code> followed by the hexadecimal value of their
+   * UTF-8 bytes, so different keys are always written to different files.
+   * </p>
+   *
+   * @param output
+   *          output file
+   * @param key
+   *          key
+   * @return file where lines of key are written
+   */
+  public static Path file(Path output, String key) {
+    String name = output.getFileName().toString();
+    String safeKey = encode(key);
+    int extension = name.lastIndexOf('.');
+    if (extension > 0) {
+      name = name.substring(0, extension) + "." + safeKey + name.substring(extension);
+    } else {
+      name = name + "." + safeKey;
+    }
+    return output.resolveSibling(name);
+  }
+
+  private static String encode(String key) {
+    StringBuilder builder = new StringBuilder(key.length());
+    for (byte value : key.getBytes(CHARSET)) {
+      char character = (char) (value & 0xFF);
+      if ((character >= 'A' && character <= 'Z') || (character >= 'a' && character <= 'z')
+          || (character >= '0' && character <= '9') || character == '.' || character == '_'
+          || character == '+' || character == '-') {
+        builder.append(character);
+      } else {
+        builder.append('%');
+        builder.append(HEXADECIMAL[character >>> 4]);
+        builder.append(HEXADECIMAL[character & 0xF]);
+      }
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Writer is closed");
+    }
+    int start = off;
+    for (int i = off; i < off + len; i++) {
+      if (cbuf[i] == '\n') {
+        line.append(cbuf, start, i - start);
+        writeLine(line.toString());
+        line.setLength(0);
+        start = i + 1;
+      }
+    }
+    line.append(cbuf, start, off + len - start);
+  }
+
+  private void writeLine(String line) throws IOException {
+    if (isHeader(line)) {
+      headers.add(line);
+      for (Output output : outputs.values()) {
+        append(output, line);
+      }
+      limitBuffered();
+      return;
+    }
+    String key = router.key(line);
+    Output output = outputs.get(key);
+    if (output == null) {
+      output = new Output(file(this.output, key),
+          (key.hashCode() & Integer.MAX_VALUE) % writers.length);
+      for (String header : headers) {
+        append(output, header);
+      }
+      outputs.put(key, output);
+    }
+    append(output, line);
+    if (output.buffer.length() >= BUFFER_SIZE) {
+      submit(output);
+    }
+    limitBuffered();
+  }
+
+  private void append(Output output, String line) {
+    output.buffer.append(line).append('\n');
+    buffered += line.length() + 1;
+  }
+
+  /**
+   * Writes largest buffers until half of maximum buffered characters is free.
+   */
+  private void limitBuffered() throws IOException {
+    if (buffered <= maximumBuffered) {
+      return;
+    }
+    List<Output> largest = new ArrayList<>(outputs.values());
+    largest.sort(Comparator.comparingInt((Output output) -> output.buffer.length()).reversed());
+    for (Output output : largest) {
+      if (buffered <= maximumBuffered / 2 || output.buffer.length() == 0) {
+        break;
+      }
+      submit(output);
+    }
+  }
+
+  /**
+   * Returns number of characters buffered for all keys.
+   *
+   * @return number of characters buffered for all keys
+   */
+  long buffered() {
+    return buffered;
+  }
+
+  private boolean isHeader(String line) {
+    return line.startsWith(COMMENT) || isKeyword(line, BROWSER) || isKeyword(line, TRACK);
+  }
+
+  private boolean isKeyword(String line, String keyword) {
+    return line.startsWith(keyword)
+        && (line.length() == keyword.length() || line.charAt(keyword.length()) == ' ');
+  }
+
+  private void submit(Output output) throws IOException {
+    String text = output.buffer.toString();
+    buffered -= text.length();
+    output.buffer.setLength(0);
+    boolean append = output.created;
+    output.created = true;
+    try {
+      pendingWrites.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for writer threads");
+    }
+    Map<Path, BufferedWriter> files = openFiles.get(output.writer);
+    pending.add(writers[output.writer].submit(() -> {
+      try {
+        BufferedWriter writer = files.get(output.file);
+        if (writer == null) {
+          writer = append
+              ? Files.newBufferedWriter(output.file, CHARSET, StandardOpenOption.CREATE,
+                  StandardOpenOption.APPEND)
+              : Files.newBufferedWriter(output.file, CHARSET);
+          files.put(output.file, writer);
+        }
+        writer.write(text);
+        return null;
+      } finally {
+        pendingWrites.release();
+      }
+    }));
+    checkPending();
+  }
+
+  private void checkPending() throws IOException {
+    for (int i = pending.size() - 1; i >= 0; i--) {
+      Future<?> future = pending.get(i);
+      if (future.isDone()) {
+        get(future);
+        pending.remove(i);
+      }
+    }
+  }
+
+  private void get(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for writer threads");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof SplitWriterException) {
+        throw ((SplitWriterException) e.getCause()).getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    checkPending();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (line.length() > 0) {
+        writeLine(line.toString());
+        line.setLength(0);
+      }
+      for (Output output : outputs.values()) {
+        if (output.buffer.length() > 0 || !output.created) {
+          submit(output);
+        }
+      }
+      for (int i = 0; i < writers.length; i++) {
+        Map<Path, BufferedWriter> files = openFiles.get(i);
+        pending.add(writers[i].submit(() -> {
+          for (BufferedWriter writer : files.values()) {
+            writer.close();
+          }
+          files.clear();
+          return null;
+        }));
+      }
+      for (Future<?> future : pending) {
+        get(future);
+      }
+      pending.clear();
+    } finally {
+      for (ExecutorService writer : writers) {
+        writer.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Output of a key.
+   */
+  private static class Output {
+    private final Path file;
+    private final int writer;
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean created;
+
+    private Output(Path file, int writer) {
+      this.file = file;
+      this.writer = writer;
+    }
+  }
+
+  /**
+   * Wraps exceptions thrown when closing least recently used files.
+   */
+  private static class SplitWriterException extends RuntimeException {
+    private static final long serialVersionUID = -5426542935092938722L;
+
+    private SplitWriterException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with variable length integer encoding.
+ */
+class VarintBuffer {
+  private byte[] bytes;
+  private int size;
+  private int position;
+
+  VarintBuffer(int capacity) {
+    bytes = new byte[capacity];
+  }
+
+  /**
+   * Encodes signed value using zig-zag encoding, so small negative values stay small.
+   *
+   * @param value
+   *          signed value
+   * @return unsigned value
+   */
+  static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Decodes value encoded with {@link #zigZag(long)}.
+   *
+   * @param value
+   *          unsigned value
+   * @return signed value
+   */
+  static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Writes unsigned variable length integer to stream.
+   *
+   * @param output
+   *          output stream
+   * @param value
+   *          unsigned value
+   * @throws IOException
+   *           could not write to stream
+   */
+  static void writeVarLong(OutputStream output, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      output.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    output.write((int) value);
+  }
+
+  /**
+   * Reads unsigned variable length integer from stream.
+   *
+   * @param input
+   *          input stream
+   * @return unsigned value or -1 if stream has no more bytes
+   * @throws IOException
+   *           could not read stream or stream ended in the middle of value
+   */
+  static long readVarLong(InputStream input) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int read = input.read();
+      if (read == -1) {
+        if (shift == 0) {
+          return -1;
+        }
+        throw new EOFException("Stream ended in the middle of a value");
+      }
+      value |= (long) (read & 0x7F) << shift;
+      if ((read & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer");
+  }
+
+  void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[size++] = (byte) value;
+  }
+
+  void write(int value) {
+    ensureCapacity(1);
+    bytes[size++] = (byte) value;
+  }
+
+  /**
+   * Writes decimal representation of value as ASCII characters.
+   *
+   * @param value
+   *          value
+   */
+  void writeAscii(long value) {
+    if (value == Long.MIN_VALUE) {
+      byte[] digits = String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
+      write(digits, 0, digits.length);
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      bytes[size++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+      digits++;
+    }
+    for (int i = size + digits - 1; i >= size; i--) {
+      bytes[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    size += digits;
+  }
+
+  void write(byte[] source, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(source, offset, bytes, size, length);
+    size += length;
+  }
+
+  long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (position >= size) {
+        throw new EOFException("Block ended in the middle of a value");
+      }
+      byte read = bytes[position++];
+      value |= (long) (read & 0x7F) << shift;
+      if ((read & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer");
+  }
+
+  /**
+   * Skips bytes, returning the position of the first skipped byte.
+   *
+   * @param length
+   *          number of bytes to skip
+   * @return position of the first skipped byte
+   * @throws IOException
+   *           buffer does not contain enough bytes
+   */
+  int skip(int length) throws IOException {
+    if (position + length > size) {
+      throw new EOFException("Block ended in the middle of a value");
+    }
+    int start = position;
+    position += length;
+    return start;
+  }
+
+  /**
+   * Replaces content of buffer by bytes read from stream.
+   *
+   * @param input
+   *          input stream
+   * @param length
+   *          number of bytes to read
+   * @throws IOException
+   *           could not read stream
+   */
+  void readFully(InputStream input, int length) throws IOException {
+    clear();
+    ensureCapacity(length);
+    while (size < length) {
+      int read = input.read(bytes, size, length - size);
+      if (read == -1) {
+        throw new EOFException("Stream ended in the middle of a block");
+      }
+      size += read;
+    }
+  }
+
+  void writeTo(OutputStream output) throws IOException {
+    output.write(bytes, 0, size);
+  }
+
+  void clear() {
+    size = 0;
+    position = 0;
+  }
+
+  byte[] bytes() {
+    return bytes;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+    }
+  }
+}
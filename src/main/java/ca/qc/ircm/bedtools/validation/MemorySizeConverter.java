@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.validation;
+
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+import java.util.Locale;
+
+/**
+ * Converts memory sizes like <code>512m</code> or <code>4g</code> to bytes. Suffixes
+ * <code>k</code>, <code>m</code>, <code>g</code> and <code>t</code> are powers of 1024.
+ */
+public class MemorySizeConverter implements IStringConverter<Long> {
+  private static final String UNITS = "kmgt";
+
+  @Override
+  public Long convert(String value) {
+    String size = value.trim().toLowerCase(Locale.ENGLISH);
+    if (size.endsWith("b")) {
+      size = size.substring(0, size.length() - 1);
+    }
+    int shift = 0;
+    int unit = size.isEmpty() ? -1 : UNITS.indexOf(size.charAt(size.length() - 1));
+    if (unit >= 0) {
+      shift = (unit + 1) * 10;
+      size = size.substring(0, size.length() - 1);
+    }
+    long bytes;
+    try {
+      bytes = Long.parseLong(size);
+    } catch (NumberFormatException e) {
+      throw new ParameterException("Invalid memory size " + value);
+    }
+    if (bytes < 1 || bytes > Long.MAX_VALUE >> shift) {
+      throw new ParameterException("Invalid memory size " + value);
+    }
+    return bytes << shift;
+  }
+}
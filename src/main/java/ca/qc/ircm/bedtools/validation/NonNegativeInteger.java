@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.validation;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Validates that parameter is an integer greater than or equal to 0.
+ */
+public class NonNegativeInteger implements IParameterValidator {
+  @Override
+  public void validate(String name, String value) throws ParameterException {
+    int number;
+    try {
+      number = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ParameterException("Parameter " + name + " should be an integer (found " + value
+          + ")");
+    }
+    if (number < 0) {
+      throw new ParameterException(
+          "Parameter " + name + " should be positive or zero (found " + value + ")");
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.io.BinaryBed;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.inject.Inject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedConverterTest {
+  @Inject
+  private BedConverter service;
+  @Inject
+  private BedpeToBed bedpeToBed;
+  private ConvertCommand command = new ConvertCommand();
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void run_ToBinaryAndBack() throws Throwable {
+    Path input = Paths.get(getClass().getResource("/test-comment.bedpe").toURI());
+    command.input = input;
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bbed");
+    service.run(command);
+    try (BufferedInputStream binary =
+        new BufferedInputStream(Files.newInputStream(command.output))) {
+      assertTrue(BinaryBed.isBinary(binary));
+    }
+    command = new ConvertCommand();
+    command.input = temporaryFolder.getRoot().toPath().resolve("output.bbed");
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bedpe");
+    service.run(command);
+    assertEquals(Files.readAllLines(input), Files.readAllLines(command.output));
+  }
+
+  @Test
+  public void run_Format() throws Throwable {
+    Path input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.input = input;
+    command.format = BedFormat.TEXT;
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bedpe");
+    service.run(command);
+    assertEquals(Files.readAllLines(input), Files.readAllLines(command.output));
+  }
+
+  @Test
+  public void run_FilterBinary() throws Throwable {
+    Path input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.input = input;
+    command.output = temporaryFolder.getRoot().toPath().resolve("test.bbed");
+    service.run(command);
+    BedpeToBedCommand bedpeToBedCommand = new BedpeToBedCommand();
+    bedpeToBedCommand.input = command.output;
+    bedpeToBedCommand.output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    bedpeToBed.run(bedpeToBedCommand);
+    assertEquals(Files.readAllLines(input).size(),
+        Files.readAllLines(bedpeToBedCommand.output).size());
+    assertEquals("chrXII\t452148\t452198\tK00271:501:H575WBBXY:6:1101:1347:17509\t0\t-",
+        Files.readAllLines(bedpeToBedCommand.output).get(0));
+  }
+}
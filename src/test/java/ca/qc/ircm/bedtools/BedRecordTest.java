@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedRecordTest {
+  @Test
+  public void parse() {
+    BedRecord record = BedRecord.parse("chr1\t100\t200\tread1\t0\t-\textra");
+    assertEquals("chr1", record.getChromosome());
+    assertEquals(100, record.getStart());
+    assertEquals(200, record.getEnd());
+    assertEquals("read1", record.getName());
+    assertEquals("0", record.getScore());
+    assertEquals("-", record.getStrand());
+    assertTrue(record.isNegativeStrand());
+    assertEquals("extra", record.getColumn(6));
+    assertEquals(7, record.getColumnCount());
+    assertEquals("chr1\t100\t200\tread1\t0\t-\textra", record.toString());
+  }
+
+  @Test
+  public void parse_Coordinates() {
+    BedRecord record = BedRecord.parse("chr1\t100\t200");
+    assertEquals("chr1", record.getChromosome());
+    assertEquals(100, record.getStart());
+    assertEquals(200, record.getEnd());
+    assertNull(record.getName());
+    assertNull(record.getScore());
+    assertNull(record.getStrand());
+    assertFalse(record.isNegativeStrand());
+    assertEquals(3, record.getColumnCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parse_MissingEnd() {
+    BedRecord.parse("chr1\t100");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parse_InvalidStart() {
+    BedRecord.parse("chr1\ta\t200");
+  }
+
+  @Test
+  public void of() {
+    BedRecord record = BedRecord.of("chr1", 100, 200, "read1", "0", "+");
+    assertEquals(BedRecord.parse("chr1\t100\t200\tread1\t0\t+"), record);
+  }
+
+  @Test
+  public void isHeader() {
+    assertTrue(BedRecord.isHeader("#comment"));
+    assertTrue(BedRecord.isHeader("track name=test"));
+    assertTrue(BedRecord.isHeader("browser position chr1:1-100"));
+    assertFalse(BedRecord.isHeader("chr1\t100\t200"));
+  }
+
+  @Test
+  public void withCoordinates() {
+    BedRecord record = BedRecord.parse("chr1\t100\t200\tread1\t0\t-");
+    BedRecord moved = record.withCoordinates(150, 250);
+    assertEquals(150, moved.getStart());
+    assertEquals(250, moved.getEnd());
+    assertEquals("chr1\t150\t250\tread1\t0\t-", moved.toString());
+    assertEquals("chr1\t100\t200\tread1\t0\t-", record.toString());
+  }
+
+  @Test
+  public void equals() {
+    assertEquals(BedRecord.parse("chr1\t100\t200"), BedRecord.parse("chr1\t100\t200"));
+    assertEquals(BedRecord.parse("chr1\t100\t200").hashCode(),
+        BedRecord.parse("chr1\t100\t200").hashCode());
+    assertNotEquals(BedRecord.parse("chr1\t100\t200"), BedRecord.parse("chr1\t100\t201"));
+  }
+}
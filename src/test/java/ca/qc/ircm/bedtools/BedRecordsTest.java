@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedRecordsTest {
+  @Inject
+  private BedTransform bedTransform;
+  @Inject
+  private BedpeToBed bedpeToBed;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path bed(int lines) throws Throwable {
+    Random random = new Random();
+    Path file = temporaryFolder.newFile("input.bed").toPath();
+    List<String> content = IntStream.range(0, lines).mapToObj(i -> {
+      int start = random.nextInt(1000);
+      return "chr" + random.nextInt(20) + "\t" + start + "\t" + (start + random.nextInt(100))
+          + "\tread" + i + "\t0\t" + (random.nextBoolean() ? "+" : "-");
+    }).collect(Collectors.toList());
+    Files.write(file, content);
+    return file;
+  }
+
+  private List<String> toLines(Stream<?> records) {
+    return records.map(Object::toString).collect(Collectors.toList());
+  }
+
+  @Test
+  public void bed() throws Throwable {
+    Path file = temporaryFolder.newFile("input.bed").toPath();
+    Files.write(file, Arrays.asList("track name=test", "chr1\t100\t200\tread1", "#comment",
+        "chr2\t10\t20"));
+    try (Stream<BedRecord> records = BedRecords.bed(file)) {
+      assertEquals(Arrays.asList("chr1\t100\t200\tread1", "chr2\t10\t20"), toLines(records));
+    }
+  }
+
+  @Test
+  public void bedpe() throws Throwable {
+    Path file = Paths.get(getClass().getResource("/test-comment.bedpe").toURI());
+    List<String> expected = Files.readAllLines(file).stream()
+        .filter(line -> !line.startsWith("#")).collect(Collectors.toList());
+    try (Stream<BedpeRecord> records = BedRecords.bedpe(file)) {
+      assertEquals(expected, toLines(records.parallel()));
+    }
+  }
+
+  @Test
+  public void setAnnotationsSize() throws Throwable {
+    SetAnnotationsSizeCommand command = new SetAnnotationsSizeCommand();
+    command.input = bed(1000);
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    command.size = 20;
+    command.reverseForNegativeStrand = true;
+    bedTransform.setAnnotationsSize(command);
+    try (Stream<BedRecord> records = BedRecords.bed(command.input)) {
+      assertEquals(Files.readAllLines(command.output),
+          toLines(records.parallel().map(BedRecords.setAnnotationsSize(20, false, true))));
+    }
+  }
+
+  @Test
+  public void setAnnotationsSize_ChangeStart() {
+    BedRecord record = BedRecord.parse("chr1\t100\t200\tread1\t0\t+");
+    assertEquals("chr1\t180\t200\tread1\t0\t+",
+        BedRecords.setAnnotationsSize(20, true, false).apply(record).toString());
+    assertEquals("chr1\t100\t120\tread1\t0\t+",
+        BedRecords.setAnnotationsSize(20, false, false).apply(record).toString());
+  }
+
+  @Test
+  public void moveAnnotations() throws Throwable {
+    MoveAnnotationsCommand command = new MoveAnnotationsCommand();
+    command.input = bed(1000);
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    command.distance = -300;
+    command.reverseForNegativeStrand = true;
+    command.discardNegative = true;
+    bedTransform.moveAnnotations(command);
+    try (Stream<BedRecord> records = BedRecords.bed(command.input)) {
+      assertEquals(Files.readAllLines(command.output),
+          toLines(records.parallel().map(BedRecords.moveAnnotations(-300, true))
+              .filter(BedRecords.nonNegative())));
+    }
+  }
+
+  @Test
+  public void bedpeToBed() throws Throwable {
+    BedpeToBedCommand command = new BedpeToBedCommand();
+    command.input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    bedpeToBed.run(command);
+    try (Stream<BedpeRecord> records = BedRecords.bedpe(command.input)) {
+      assertEquals(Files.readAllLines(command.output),
+          toLines(records.map(BedRecords.bedpeToBed(false))));
+    }
+  }
+
+  @Test
+  public void bedpeToBed_Fragment() throws Throwable {
+    BedpeToBedCommand command = new BedpeToBedCommand();
+    command.input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    command.fragment = true;
+    bedpeToBed.run(command);
+    try (Stream<BedpeRecord> records = BedRecords.bedpe(command.input)) {
+      assertEquals(Files.readAllLines(command.output), toLines(records
+          .filter(BedpeRecord::isSameChromosome).map(BedRecords.bedpeToBed(true))));
+    }
+  }
+
+  @Test
+  public void maximumInsertSize() {
+    Predicate<BedpeRecord> filter = BedRecords.maximumInsertSize(100);
+    assertTrue(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250")));
+    assertTrue(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr1\t250\t300")));
+    assertFalse(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr1\t251\t300")));
+    assertFalse(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr2\t200\t250")));
+  }
+
+  @Test
+  public void names() {
+    BedpeRecord record1 = BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-");
+    BedpeRecord record2 = BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250\tread2\t0\t+\t-");
+    Predicate<BedpeRecord> filter = BedRecords.names(Arrays.asList("read1", "read3"), false);
+    assertTrue(filter.test(record1));
+    assertFalse(filter.test(record2));
+    filter = BedRecords.names(Arrays.asList("read1", "read3"), true);
+    assertFalse(filter.test(record1));
+    assertTrue(filter.test(record2));
+  }
+
+  @Test
+  public void excludeRegions() throws Throwable {
+    Predicate<BedpeRecord> filter = BedRecords.excludeRegions(
+        new BufferedReader(new StringReader("chr1\t240\t260\nchr2\t0\t50\n")));
+    assertFalse(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250")));
+    assertFalse(filter.test(BedpeRecord.parse("chr2\t10\t60\tchr2\t200\t250")));
+    assertTrue(filter.test(BedpeRecord.parse("chr1\t100\t150\tchr1\t160\t200")));
+    assertTrue(filter.test(BedpeRecord.parse("chr3\t10\t60\tchr3\t200\t250")));
+  }
+}
@@ -22,18 +22,23 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javax.inject.Inject;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -41,17 +46,21 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @RunWith(SpringJUnit4ClassRunner.class)
 @NonTransactionalTestAnnotations
 public class BedTransformTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
   private static final int LINE_COUNT = 1000;
   private static final int MAX_CHROMOSOME = 23;
   private static final int MAX_ANNOTATION_LENGTH = 10000;
   private static final int MAX_ANNOTATION_START = Integer.MAX_VALUE - MAX_ANNOTATION_LENGTH;
   private static final int MIN_ANNOTATION_SCORE = 300;
   private static final int MAX_ANNOTATION_SCORE = 900;
+  @Inject
   private BedTransform bedTransform;
   @Mock
   private MoveAnnotationsCommand moveParameters;
   @Mock
   private SetAnnotationsSizeCommand setSizeParameters;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
   private String content;
 
   /**
@@ -59,7 +68,6 @@ public class BedTransformTest {
    */
   @Before
   public void beforeTest() {
-    bedTransform = new BedTransform();
     bedGraphContent();
   }
 
@@ -89,6 +97,30 @@ public class BedTransformTest {
     }).collect(Collectors.joining("\n"));
   }
 
+  private Path genome() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.write(genome, "chr1\t1000\nchr2\t500\n".getBytes(CHARSET));
+    return genome;
+  }
+
+  private String setAnnotationsSize(String content) throws Throwable {
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
+    bedTransform.setAnnotationsSize(setSizeParameters);
+    return output.toString(CHARSET.name());
+  }
+
+  private String moveAnnotations(String content) throws Throwable {
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
+    bedTransform.moveAnnotations(moveParameters);
+    return output.toString(CHARSET.name());
+  }
+
   private void assertSetSizeContent(String outputContent, int size) {
     String[] outputLines = Arrays.asList(outputContent.split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
@@ -110,22 +142,36 @@ public class BedTransformTest {
   @Test
   public void setAnnotationsSize() throws Throwable {
     setSizeParameters.size = 3;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
+    bedTransform.setAnnotationsSize(setSizeParameters);
+    assertSetSizeContent(output.toString(CHARSET.name()), 3);
+  }
+
+  @Test
+  public void setAnnotationsSize_Threads() throws Throwable {
+    setSizeParameters.size = 3;
+    setSizeParameters.threads = 4;
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    assertSetSizeContent(writer.toString(), 3);
+    assertSetSizeContent(output.toString(CHARSET.name()), 3);
   }
 
   @Test
   public void setAnnotationsSize_ChangeStart() throws Throwable {
     setSizeParameters.size = 3;
     setSizeParameters.changeStart = true;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -146,11 +192,12 @@ public class BedTransformTest {
   public void setAnnotationsSize_ReverseForNegativeStrand() throws Throwable {
     setSizeParameters.size = 3;
     setSizeParameters.reverseForNegativeStrand = true;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -177,11 +224,12 @@ public class BedTransformTest {
     bedContent();
     setSizeParameters.size = 3;
     setSizeParameters.reverseForNegativeStrand = true;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -203,11 +251,12 @@ public class BedTransformTest {
     setSizeParameters.size = 3;
     setSizeParameters.changeStart = true;
     setSizeParameters.reverseForNegativeStrand = true;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -234,11 +283,12 @@ public class BedTransformTest {
     String content = "#comment 1\n" + this.content.split("\n")[0] + "\n#comment 2\n" + Arrays
         .asList(this.content.split("\n")).stream().skip(1).collect(Collectors.joining("\n"));
     setSizeParameters.size = 3;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    List<String> outputLines = Arrays.asList(writer.toString().split("\n"));
+    List<String> outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("#comment 1", outputLines.get(0));
     assertEquals("#comment 2", outputLines.get(2));
     assertSetSizeContent(outputLines.stream().filter(line -> !line.startsWith("#"))
@@ -249,11 +299,12 @@ public class BedTransformTest {
   public void setAnnotationsSize_Track() throws Throwable {
     String content = "track name=\"my track\"\n" + this.content;
     setSizeParameters.size = 3;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    List<String> outputLines = Arrays.asList(writer.toString().split("\n"));
+    List<String> outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("track name=\"my track\"", outputLines.get(0));
     assertSetSizeContent(outputLines.stream().skip(1).collect(Collectors.joining("\n")), 3);
   }
@@ -263,11 +314,12 @@ public class BedTransformTest {
     String content =
         "browser position chr7:127471196-127495720\ntrack name=\"my track\"\n" + this.content;
     setSizeParameters.size = 3;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    List<String> outputLines = Arrays.asList(writer.toString().split("\n"));
+    List<String> outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("browser position chr7:127471196-127495720", outputLines.get(0));
     assertEquals("track name=\"my track\"", outputLines.get(1));
     assertSetSizeContent(outputLines.stream().skip(2).collect(Collectors.joining("\n")), 3);
@@ -279,11 +331,12 @@ public class BedTransformTest {
         "browser position chr7:127471196-127495720\ntrack name=\"my track\"\n#comment\n"
             + this.content;
     setSizeParameters.size = 3;
-    when(setSizeParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(setSizeParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(setSizeParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(setSizeParameters.outputStream()).thenReturn(output);
     bedTransform.setAnnotationsSize(setSizeParameters);
-    List<String> outputLines = Arrays.asList(writer.toString().split("\n"));
+    List<String> outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("browser position chr7:127471196-127495720", outputLines.get(0));
     assertEquals("track name=\"my track\"", outputLines.get(1));
     assertEquals("#comment", outputLines.get(2));
@@ -310,35 +363,91 @@ public class BedTransformTest {
     }
   }
 
+  @Test
+  public void setAnnotationsSize_Genome() throws Throwable {
+    setSizeParameters.size = 100;
+    setSizeParameters.genome = genome();
+    String output = setAnnotationsSize("#comment\nchr1\t10\t20\ta\t0\t+\n"
+        + "chr1\t950\t960\tb\t0\t+\nchr2\t499\t500\tc\t0\t+\nchr2\t500\t510\td\t0\t+\n"
+        + "chr3\t950\t960\te\t0\t+\n");
+    assertEquals("#comment\nchr1\t10\t110\ta\t0\t+\nchr1\t950\t1000\tb\t0\t+\n"
+        + "chr2\t499\t500\tc\t0\t+\nchr3\t950\t1050\te\t0\t+\n", output);
+  }
+
+  @Test
+  public void setAnnotationsSize_GenomeChangeStart() throws Throwable {
+    setSizeParameters.size = 100;
+    setSizeParameters.changeStart = true;
+    setSizeParameters.reverseForNegativeStrand = true;
+    setSizeParameters.genome = genome();
+    String output = setAnnotationsSize("chr1\t10\t50\ta\t0\t+\nchr1\t200\t250\tb\t0\t+\n"
+        + "chr1\t950\t960\tc\t0\t-\n");
+    assertEquals("chr1\t0\t50\ta\t0\t+\nchr1\t150\t250\tb\t0\t+\n"
+        + "chr1\t950\t1000\tc\t0\t-\n", output);
+  }
+
+  @Test
+  public void setAnnotationsSize_GenomeDiscardOutOfBounds() throws Throwable {
+    setSizeParameters.size = 100;
+    setSizeParameters.genome = genome();
+    setSizeParameters.discardOutOfBounds = true;
+    String output = setAnnotationsSize("chr1\t10\t20\ta\t0\t+\nchr1\t950\t960\tb\t0\t+\n"
+        + "chr1\t900\t960\tc\t0\t+\n");
+    assertEquals("chr1\t10\t110\ta\t0\t+\nchr1\t900\t1000\tc\t0\t+\n", output);
+  }
+
+  @Test
+  public void setAnnotationsSize_DiscardOutOfBoundsWithoutGenome() throws Throwable {
+    setSizeParameters.size = 100;
+    setSizeParameters.discardOutOfBounds = true;
+    String output = setAnnotationsSize("chr1\t950\t960\tb\t0\t+\n");
+    assertEquals("chr1\t950\t1050\tb\t0\t+\n", output);
+  }
+
   @Test
   public void moveAnnotations() throws Throwable {
     moveParameters.distance = 3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
+    bedTransform.moveAnnotations(moveParameters);
+    assertMoveContent(output.toString(CHARSET.name()), 3);
+  }
+
+  @Test
+  public void moveAnnotations_Threads() throws Throwable {
+    moveParameters.distance = 3;
+    moveParameters.threads = 4;
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    assertMoveContent(writer.toString(), 3);
+    assertMoveContent(output.toString(CHARSET.name()), 3);
   }
 
   @Test
   public void moveAnnotations_NegativeDistance() throws Throwable {
     moveParameters.distance = -3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    assertMoveContent(writer.toString(), -3);
+    assertMoveContent(output.toString(CHARSET.name()), -3);
   }
 
   @Test
   public void moveAnnotations_ReverseForNegativeStrand() throws Throwable {
     moveParameters.distance = 3;
     moveParameters.reverseForNegativeStrand = true;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = this.content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -369,22 +478,24 @@ public class BedTransformTest {
     bedContent();
     moveParameters.distance = 3;
     moveParameters.reverseForNegativeStrand = true;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    assertMoveContent(writer.toString(), 3);
+    assertMoveContent(output.toString(CHARSET.name()), 3);
   }
 
   @Test
   public void moveAnnotations_NegativeDistanceReverseForNegativeStrand() throws Throwable {
     moveParameters.distance = -3;
     moveParameters.reverseForNegativeStrand = true;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = this.content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -415,11 +526,12 @@ public class BedTransformTest {
     content = "chr1\t0\t10\ttest_negative\t300\t+\n" + content;
     moveParameters.distance = -3;
     moveParameters.discardNegative = true;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = this.content.split("\n");
     assertTrue(lines.length + " > " + outputLines.length, lines.length > outputLines.length);
@@ -450,11 +562,12 @@ public class BedTransformTest {
     String content = "#comment 1\n" + this.content.split("\n")[0] + "\n#comment 2\n" + Arrays
         .asList(this.content.split("\n")).stream().skip(1).collect(Collectors.joining("\n"));
     moveParameters.distance = 3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    List<String> lines = Arrays.asList(writer.toString().split("\n"));
+    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("#comment 1", lines.get(0));
     assertEquals("#comment 2", lines.get(2));
     assertMoveContent(
@@ -465,11 +578,12 @@ public class BedTransformTest {
   public void moveAnnotations_Track() throws Throwable {
     String content = "track name=\"my track\"\n" + this.content;
     moveParameters.distance = 3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    List<String> lines = Arrays.asList(writer.toString().split("\n"));
+    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("track name=\"my track\"", lines.get(0));
     assertMoveContent(lines.stream().skip(1).collect(Collectors.joining("\n")), 3);
   }
@@ -479,11 +593,12 @@ public class BedTransformTest {
     String content =
         "browser position chr7:127471196-127495720\ntrack name=\"my track\"\n" + this.content;
     moveParameters.distance = 3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    List<String> lines = Arrays.asList(writer.toString().split("\n"));
+    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("browser position chr7:127471196-127495720", lines.get(0));
     assertEquals("track name=\"my track\"", lines.get(1));
     assertMoveContent(lines.stream().skip(2).collect(Collectors.joining("\n")), 3);
@@ -495,14 +610,64 @@ public class BedTransformTest {
         "browser position chr7:127471196-127495720\ntrack name=\"my track\"\n#comment\n"
             + this.content;
     moveParameters.distance = 3;
-    when(moveParameters.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(moveParameters.writer()).thenReturn(new BufferedWriter(writer));
+    when(moveParameters.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(moveParameters.outputStream()).thenReturn(output);
     bedTransform.moveAnnotations(moveParameters);
-    List<String> lines = Arrays.asList(writer.toString().split("\n"));
+    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
     assertEquals("browser position chr7:127471196-127495720", lines.get(0));
     assertEquals("track name=\"my track\"", lines.get(1));
     assertEquals("#comment", lines.get(2));
     assertMoveContent(lines.stream().skip(3).collect(Collectors.joining("\n")), 3);
   }
+
+  @Test
+  public void moveAnnotations_Genome() throws Throwable {
+    moveParameters.distance = 100;
+    moveParameters.reverseForNegativeStrand = true;
+    moveParameters.genome = genome();
+    String output = moveAnnotations("track name=test\nchr1\t10\t20\ta\t0\t+\n"
+        + "chr1\t850\t950\tb\t0\t+\nchr1\t50\t150\tc\t0\t-\nchr2\t400\t500\td\t0\t+\n"
+        + "chrX\t950\t960\te\t0\t+\n");
+    assertEquals("track name=test\nchr1\t110\t120\ta\t0\t+\nchr1\t950\t1000\tb\t0\t+\n"
+        + "chr1\t0\t50\tc\t0\t-\nchrX\t1050\t1060\te\t0\t+\n", output);
+  }
+
+  @Test
+  public void moveAnnotations_GenomeDiscardOutOfBounds() throws Throwable {
+    moveParameters.distance = 100;
+    moveParameters.genome = genome();
+    moveParameters.discardOutOfBounds = true;
+    String output = moveAnnotations("chr1\t10\t20\ta\t0\t+\nchr1\t850\t950\tb\t0\t+\n"
+        + "chr1\t800\t900\tc\t0\t+\n");
+    assertEquals("chr1\t110\t120\ta\t0\t+\nchr1\t900\t1000\tc\t0\t+\n", output);
+  }
+
+  @Test
+  public void moveAnnotations_GenomeDiscardNegative() throws Throwable {
+    moveParameters.distance = -100;
+    moveParameters.genome = genome();
+    moveParameters.discardNegative = true;
+    String output = moveAnnotations("chr1\t50\t150\ta\t0\t+\nchr1\t150\t250\tb\t0\t+\n");
+    assertEquals("chr1\t50\t150\tb\t0\t+\n", output);
+  }
+
+  @Test
+  public void moveAnnotations_GenomeThreads() throws Throwable {
+    moveParameters.distance = 100;
+    moveParameters.threads = 3;
+    moveParameters.genome = genome();
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 50000; i++) {
+      int start = i % 1000;
+      content.append("chr1\t" + start + "\t" + (start + 10) + "\tname" + i + "\n");
+      if (start + 100 < 1000) {
+        expected.append("chr1\t" + (start + 100) + "\t" + Math.min(start + 110, 1000) + "\tname"
+            + i + "\n");
+      }
+    }
+    assertEquals(expected.toString(), moveAnnotations(content.toString()));
+  }
 }
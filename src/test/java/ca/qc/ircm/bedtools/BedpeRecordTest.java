@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedpeRecordTest {
+  @Test
+  public void parse() {
+    BedpeRecord record = BedpeRecord.parse("chr1\t100\t150\tchr2\t200\t250\tread1\t0\t+\t-");
+    assertEquals("chr1", record.getChromosome1());
+    assertEquals(100, record.getStart1());
+    assertEquals(150, record.getEnd1());
+    assertEquals("chr2", record.getChromosome2());
+    assertEquals(200, record.getStart2());
+    assertEquals(250, record.getEnd2());
+    assertEquals("read1", record.getName());
+    assertEquals("0", record.getScore());
+    assertEquals("+", record.getStrand1());
+    assertEquals("-", record.getStrand2());
+    assertEquals(10, record.getColumnCount());
+    assertEquals("chr1\t100\t150\tchr2\t200\t250\tread1\t0\t+\t-", record.toString());
+  }
+
+  @Test
+  public void parse_Coordinates() {
+    BedpeRecord record = BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250");
+    assertNull(record.getName());
+    assertNull(record.getStrand2());
+    assertEquals(6, record.getColumnCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parse_MissingColumns() {
+    BedpeRecord.parse("chr1\t100\t150\tchr1\t200");
+  }
+
+  @Test
+  public void isComment() {
+    assertTrue(BedpeRecord.isComment("#comment"));
+    assertFalse(BedpeRecord.isComment("chr1\t100\t150\tchr1\t200\t250"));
+  }
+
+  @Test
+  public void isSameChromosome() {
+    assertTrue(BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250").isSameChromosome());
+    assertFalse(BedpeRecord.parse("chr1\t100\t150\tchr2\t200\t250").isSameChromosome());
+  }
+
+  @Test
+  public void insertSize() {
+    assertEquals(50, BedpeRecord.parse("chr1\t100\t150\tchr1\t200\t250").insertSize());
+    assertEquals(50, BedpeRecord.parse("chr1\t200\t250\tchr1\t100\t150").insertSize());
+  }
+
+  @Test
+  public void toBed() {
+    BedpeRecord record = BedpeRecord.parse("chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+");
+    assertEquals("chr1\t300\t350\tread2\t0\t-", record.toBed().toString());
+  }
+
+  @Test
+  public void toBed_Coordinates() {
+    BedpeRecord record = BedpeRecord.parse("chr1\t300\t350\tchr1\t160\t210");
+    assertEquals("chr1\t300\t350", record.toBed().toString());
+  }
+
+  @Test
+  public void toFragment() {
+    BedpeRecord record = BedpeRecord.parse("chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+");
+    assertEquals("chr1\t160\t350\tread2\t0\t-", record.toFragment().toString());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void toFragment_DifferentChromosomes() {
+    BedpeRecord.parse("chr1\t300\t350\tchr2\t160\t210\tread2\t0\t-\t+").toFragment();
+  }
+}
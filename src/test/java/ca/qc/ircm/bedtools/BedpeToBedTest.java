@@ -21,7 +21,9 @@ import static org.junit.Assert.assertEquals;
 
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import javax.inject.Inject;
 import org.junit.Rule;
@@ -82,4 +84,77 @@ public class BedpeToBedTest {
       }
     }
   }
+
+  @Test
+  public void run_Threads() throws Throwable {
+    command.input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.output = temporaryFolder.newFile("output.bed").toPath();
+    service.run(command);
+    List<String> expected = Files.readAllLines(command.output);
+    command.output = temporaryFolder.newFile("output-threads.bed").toPath();
+    command.threads = 4;
+    service.run(command);
+    assertEquals(expected, Files.readAllLines(command.output));
+  }
+
+  @Test
+  public void run_Fragment() throws Throwable {
+    command.input = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    command.output = temporaryFolder.newFile("output.bed").toPath();
+    command.fragment = true;
+    service.run(command);
+    List<String> outputLines = Files.readAllLines(command.output);
+    List<String> lines = Files.readAllLines(command.input);
+    assertEquals(lines.size(), outputLines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      String[] columns = lines.get(i).split("\t", -1);
+      String[] outputColumns = outputLines.get(i).split("\t", -1);
+      assertEquals(columns[0], outputColumns[0]);
+      assertEquals(
+          String.valueOf(Math.min(Long.parseLong(columns[1]), Long.parseLong(columns[4]))),
+          outputColumns[1]);
+      assertEquals(
+          String.valueOf(Math.max(Long.parseLong(columns[2]), Long.parseLong(columns[5]))),
+          outputColumns[2]);
+      assertEquals(columns[6], outputColumns[3]);
+      assertEquals(columns[7], outputColumns[4]);
+      assertEquals(columns[8], outputColumns[5]);
+    }
+  }
+
+  @Test
+  public void run_Fragment_DifferentChromosomes() throws Throwable {
+    command.input = temporaryFolder.newFile("input.bedpe").toPath();
+    Files.write(command.input,
+        Arrays.asList("chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-",
+            "chr1\t100\t150\tchr2\t200\t250\tread2\t0\t+\t-"));
+    command.output = temporaryFolder.newFile("output.bed").toPath();
+    command.fragment = true;
+    service.run(command);
+    List<String> outputLines = Files.readAllLines(command.output);
+    assertEquals(1, outputLines.size());
+    assertEquals("chr1\t100\t250\tread1\t0\t+", outputLines.get(0));
+  }
+
+  @Test
+  public void run_Histogram() throws Throwable {
+    command.input = temporaryFolder.newFile("input.bedpe").toPath();
+    Files.write(command.input,
+        Arrays.asList("#comment", "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-",
+            "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+",
+            "chr2\t100\t150\tchr2\t180\t230\tread3\t0\t+\t-",
+            "chr1\t100\t150\tchr2\t200\t250\tread4\t0\t+\t-"));
+    command.output = temporaryFolder.newFile("output.bed").toPath();
+    Path histogram = temporaryFolder.getRoot().toPath().resolve("histogram.txt");
+    command.histogram = histogram;
+    service.run(command);
+    List<String> outputLines = Files.readAllLines(command.output);
+    assertEquals(5, outputLines.size());
+    assertEquals("chr1\t100\t150\tread1\t0\t+", outputLines.get(1));
+    List<String> histogramLines = Files.readAllLines(histogram);
+    assertEquals(3, histogramLines.size());
+    assertEquals("130\t1", histogramLines.get(0));
+    assertEquals("150\t1", histogramLines.get(1));
+    assertEquals("190\t1", histogramLines.get(2));
+  }
 }
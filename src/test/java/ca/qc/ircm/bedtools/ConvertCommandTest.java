@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.io.BinaryBed;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ConvertCommandTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private final InputStream systemIn = System.in;
+  private final PrintStream systemOut = System.out;
+  private ConvertCommand command = new ConvertCommand();
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @After
+  public void restoreSystemInputOutput() {
+    System.setIn(systemIn);
+    System.setOut(systemOut);
+  }
+
+  @Test
+  public void inputStream() throws Throwable {
+    Path file = temporaryFolder.newFile("file.txt").toPath();
+    Files.write(file, "test line 0\ntest line 1".getBytes(CHARSET));
+    command.input = file;
+
+    byte[] bytes = new byte[100];
+    int read;
+    try (BufferedInputStream input = command.inputStream()) {
+      assertTrue(input.markSupported());
+      read = input.read(bytes);
+    }
+
+    assertEquals("test line 0\ntest line 1", new String(bytes, 0, read, CHARSET));
+  }
+
+  @Test
+  public void inputStream_System() throws Throwable {
+    System.setIn(new ByteArrayInputStream("test line 0\ntest line 1".getBytes(CHARSET)));
+
+    byte[] bytes = new byte[100];
+    int read;
+    try (BufferedInputStream input = command.inputStream()) {
+      read = input.read(bytes);
+    }
+
+    assertEquals("test line 0\ntest line 1", new String(bytes, 0, read, CHARSET));
+  }
+
+  @Test
+  public void outputStream_Text() throws Throwable {
+    Path file = temporaryFolder.newFile("file.txt").toPath();
+    command.output = file;
+
+    try (OutputStream output = command.outputStream(BedFormat.TEXT)) {
+      output.write("test line 0\ntest line 1".getBytes(CHARSET));
+    }
+
+    assertEquals("test line 0\ntest line 1", new String(Files.readAllBytes(file), CHARSET));
+  }
+
+  @Test
+  public void outputStream_Binary() throws Throwable {
+    Path file = temporaryFolder.newFile("file.txt").toPath();
+    command.output = file;
+
+    try (OutputStream output = command.outputStream(BedFormat.BINARY)) {
+      output.write("chr1\t1\t2\n".getBytes(CHARSET));
+    }
+
+    try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+      assertTrue(BinaryBed.isBinary(input));
+    }
+  }
+
+  @Test
+  public void outputStream_System() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output));
+
+    try (OutputStream stream = command.outputStream(BedFormat.TEXT)) {
+      stream.write("test line 0\ntest line 1".getBytes(CHARSET));
+    }
+
+    assertEquals("test line 0\ntest line 1", output.toString(CHARSET.name()));
+    assertFalse(BinaryBed
+        .isBinary(new BufferedInputStream(new ByteArrayInputStream(output.toByteArray()))));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class CoverageDifferencesTest {
+  private String write(CoverageDifferences differences) throws Throwable {
+    StringWriter output = new StringWriter();
+    try (BufferedWriter writer = new BufferedWriter(output)) {
+      differences.write(new Coverage.Runs(writer, "chr1", 1.0));
+    }
+    return output.toString();
+  }
+
+  @Test
+  public void write() throws Throwable {
+    CoverageDifferences differences = new CoverageDifferences(20);
+    differences.add(2, 8);
+    differences.add(5, 12);
+    differences.add(15, 20);
+    assertEquals("chr1\t2\t5\t1\nchr1\t5\t8\t2\nchr1\t8\t12\t1\nchr1\t15\t20\t1\n",
+        write(differences));
+  }
+
+  @Test
+  public void write_Segments() throws Throwable {
+    for (int segmentLength = 1; segmentLength <= 7; segmentLength++) {
+      CoverageDifferences differences = new CoverageDifferences(20, segmentLength);
+      differences.add(2, 8);
+      differences.add(5, 12);
+      differences.add(15, 20);
+      assertEquals("chr1\t2\t5\t1\nchr1\t5\t8\t2\nchr1\t8\t12\t1\nchr1\t15\t20\t1\n",
+          write(differences));
+    }
+  }
+
+  @Test
+  public void write_RandomSegments() throws Throwable {
+    Random random = new Random();
+    CoverageDifferences expected = new CoverageDifferences(1000);
+    CoverageDifferences segmented = new CoverageDifferences(1000, 37);
+    for (int i = 0; i < 500; i++) {
+      long start = random.nextInt(1000);
+      long end = start + random.nextInt((int) (1000 - start) + 1);
+      expected.add(start, end);
+      segmented.add(start, end);
+    }
+    assertEquals(write(expected), write(segmented));
+  }
+
+  @Test
+  public void memory() throws Throwable {
+    assertEquals(4L * 3000000001L, CoverageDifferences.memory(3000000000L));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.execution.MemoryBudget;
+import ca.qc.ircm.bedtools.genome.ChromosomeDictionary;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class CoverageSpillTest {
+  private ChromosomeDictionary dictionary() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    dictionary.add("chr1", 100);
+    dictionary.add("chr2", 30);
+    dictionary.add("chr3", 50);
+    return dictionary;
+  }
+
+  private Path[] write(long minimumPassMemory, MemoryBudget memoryBudget, double factor)
+      throws Throwable {
+    ChromosomeDictionary dictionary = dictionary();
+    try (CoverageSpill spill = new CoverageSpill(minimumPassMemory)) {
+      spill.add(0, 10, 30);
+      spill.add(2, 0, 50);
+      spill.add(0, 20, 40);
+      spill.add(0, 90, 100);
+      assertTrue(spill.contains(0));
+      assertFalse(spill.contains(1));
+      assertTrue(spill.contains(2));
+      return spill.write(dictionary, memoryBudget, factor);
+    }
+  }
+
+  private void assertFiles(Path[] files, String chromosome) throws Throwable {
+    assertEquals(3, files.length);
+    assertNull(files[1]);
+    try {
+      List<String> lines = Files.readAllLines(files[0]);
+      assertEquals(Arrays.asList(chromosome + "\t10\t20\t1", chromosome + "\t20\t30\t2",
+          chromosome + "\t30\t40\t1", chromosome + "\t90\t100\t1"), lines);
+      assertEquals(Arrays.asList("chr3\t0\t50\t1"), Files.readAllLines(files[2]));
+    } finally {
+      Files.deleteIfExists(files[0]);
+      Files.deleteIfExists(files[2]);
+    }
+  }
+
+  @Test
+  public void write() throws Throwable {
+    MemoryBudget memoryBudget = MemoryBudget.unlimited();
+    Path[] files = write(1, memoryBudget, 1);
+    assertFiles(files, "chr1");
+    assertEquals(0, memoryBudget.getUsed());
+  }
+
+  @Test
+  public void write_Windows() throws Throwable {
+    MemoryBudget memoryBudget = new MemoryBudget(1);
+    Path[] files = write(8 * Integer.BYTES, memoryBudget, 1);
+    assertFiles(files, "chr1");
+    assertEquals(0, memoryBudget.getUsed());
+  }
+
+  @Test
+  public void write_WindowBoundaries() throws Throwable {
+    MemoryBudget memoryBudget = new MemoryBudget(1);
+    Path[] files = write(11 * Integer.BYTES, memoryBudget, 1);
+    assertFiles(files, "chr1");
+  }
+
+  @Test
+  public void write_Factor() throws Throwable {
+    Path[] files = write(8 * Integer.BYTES, new MemoryBudget(1), 0.5);
+    try {
+      List<String> lines = Files.readAllLines(files[0]);
+      assertEquals("chr1\t10\t20\t0.5", lines.get(0));
+      assertEquals("chr1\t20\t30\t1", lines.get(1));
+    } finally {
+      Files.deleteIfExists(files[0]);
+      Files.deleteIfExists(files[2]);
+    }
+  }
+}
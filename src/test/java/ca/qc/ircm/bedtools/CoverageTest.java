@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class CoverageTest {
+  @Inject
+  private Coverage service;
+  @Inject
+  private ExecutionEngine executionEngine;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Mock
+  private CoverageCommand command;
+  private String genome;
+  private String content;
+  private StringWriter writer;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    genome = lines("chr2\t500", "chr1\t1000", "chr3\t100");
+    content = lines("chr1\t100\t200\ta1\t0\t+", "chr1\t150\t250\ta2\t0\t-",
+        "chr1\t900\t1100\ta3\t0\t+", "chr2\t0\t50\ta4\t0\t+", "chrX\t0\t10\ta5\t0\t+");
+    command.scale = 1;
+    command.threads = 2;
+    writer = new StringWriter();
+  }
+
+  @After
+  public void afterTest() {
+    executionEngine.setMemory(null);
+  }
+
+  private String lines(String... lines) {
+    return Arrays.asList(lines).stream().collect(Collectors.joining("\n"));
+  }
+
+  private void run() throws Throwable {
+    command.genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.write(command.genome, genome.getBytes(StandardCharsets.UTF_8));
+    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
+    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    service.run(command);
+  }
+
+  private String[] outputLines() {
+    return Arrays.asList(writer.toString().split("\n")).stream().filter(line -> !line.isEmpty())
+        .toArray(count -> new String[count]);
+  }
+
+  @Test
+  public void run_Bed() throws Throwable {
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t1", outputLines[0]);
+    assertEquals("chr1\t100\t150\t1", outputLines[1]);
+    assertEquals("chr1\t150\t200\t2", outputLines[2]);
+    assertEquals("chr1\t200\t250\t1", outputLines[3]);
+    assertEquals("chr1\t900\t1000\t1", outputLines[4]);
+  }
+
+  @Test
+  public void run_MemoryBudget() throws Throwable {
+    executionEngine.setMemory(1L);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t1", outputLines[0]);
+    assertEquals("chr1\t100\t150\t1", outputLines[1]);
+    assertEquals("chr1\t150\t200\t2", outputLines[2]);
+    assertEquals("chr1\t200\t250\t1", outputLines[3]);
+    assertEquals("chr1\t900\t1000\t1", outputLines[4]);
+    assertEquals(0, executionEngine.getMemoryBudget().getUsed());
+  }
+
+  @Test
+  public void run_MemoryBudgetPartial() throws Throwable {
+    executionEngine.setMemory(3000L);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t1", outputLines[0]);
+    assertEquals("chr1\t100\t150\t1", outputLines[1]);
+    assertEquals("chr1\t150\t200\t2", outputLines[2]);
+    assertEquals("chr1\t200\t250\t1", outputLines[3]);
+    assertEquals("chr1\t900\t1000\t1", outputLines[4]);
+    assertEquals(0, executionEngine.getMemoryBudget().getUsed());
+  }
+
+  @Test
+  public void run_Exclude() throws Throwable {
+    command.exclude = Paths.get("exclude.bed");
+    when(command.excludeReader()).thenReturn(
+        new BufferedReader(new StringReader(lines("chr1\t240\t260", "chr2\t0\t10"))));
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(2, outputLines.length);
+    assertEquals("chr1\t100\t200\t1", outputLines[0]);
+    assertEquals("chr1\t900\t1000\t1", outputLines[1]);
+  }
+
+  @Test
+  public void run_Comments() throws Throwable {
+    content = "track name=test\n#comment\n" + content;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t1", outputLines[0]);
+    assertEquals("chr1\t100\t150\t1", outputLines[1]);
+  }
+
+  @Test
+  public void run_Bedpe() throws Throwable {
+    command.bedpe = true;
+    content = lines("chr1\t100\t150\tchr1\t180\t200\tr1\t0\t+\t-",
+        "chr1\t190\t240\tchr1\t120\t170\tr2\t0\t-\t+",
+        "chr1\t100\t150\tchr2\t180\t200\tr3\t0\t+\t-");
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(3, outputLines.length);
+    assertEquals("chr1\t100\t120\t1", outputLines[0]);
+    assertEquals("chr1\t120\t200\t2", outputLines[1]);
+    assertEquals("chr1\t200\t240\t1", outputLines[2]);
+  }
+
+  @Test
+  public void run_Midpoint() throws Throwable {
+    command.midpoint = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(3, outputLines.length);
+    assertEquals("chr2\t25\t26\t1", outputLines[0]);
+    assertEquals("chr1\t150\t151\t1", outputLines[1]);
+    assertEquals("chr1\t200\t201\t1", outputLines[2]);
+  }
+
+  @Test
+  public void run_Scale() throws Throwable {
+    command.scale = 0.5;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t0.5", outputLines[0]);
+    assertEquals("chr1\t100\t150\t0.5", outputLines[1]);
+    assertEquals("chr1\t150\t200\t1", outputLines[2]);
+    assertEquals("chr1\t200\t250\t0.5", outputLines[3]);
+    assertEquals("chr1\t900\t1000\t0.5", outputLines[4]);
+  }
+
+  @Test
+  public void run_Rpm() throws Throwable {
+    command.rpm = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t250000", outputLines[0]);
+    assertEquals("chr1\t100\t150\t250000", outputLines[1]);
+    assertEquals("chr1\t150\t200\t500000", outputLines[2]);
+    assertEquals("chr1\t200\t250\t250000", outputLines[3]);
+    assertEquals("chr1\t900\t1000\t250000", outputLines[4]);
+  }
+
+  @Test
+  public void run_SingleThread() throws Throwable {
+    command.threads = 1;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr2\t0\t50\t1", outputLines[0]);
+    assertEquals("chr1\t900\t1000\t1", outputLines[4]);
+  }
+}
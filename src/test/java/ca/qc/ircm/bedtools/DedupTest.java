@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import javax.inject.Inject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class DedupTest {
+  private static final int LINE_COUNT = 20000;
+  private static final int MAX_CHROMOSOME = 3;
+  private static final int MAX_START = 2000;
+  private static final int SPILL_LINE_COUNT = 200000;
+  private static final int SPILL_MAX_START = 1000000;
+  @Inject
+  private Dedup service;
+  @Inject
+  private ExecutionEngine executionEngine;
+  @Mock
+  private DedupCommand command;
+
+  @After
+  public void afterTest() {
+    executionEngine.setMemory(null);
+  }
+
+  private String run(String content) throws Throwable {
+    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
+    StringWriter writer = new StringWriter();
+    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    service.run(command);
+    return writer.toString();
+  }
+
+  private String pair(String name, String chromosome, int start, String chromosome2, int end2,
+      String strand, String strand2) {
+    return chromosome + "\t" + start + "\t" + (start + 50) + "\t" + chromosome2 + "\t"
+        + (end2 - 50) + "\t" + end2 + "\t" + name + "\t0\t" + strand + "\t" + strand2 + "\n";
+  }
+
+  @Test
+  public void run() throws Throwable {
+    String content = "#comment\n" + pair("read1", "chr1", 100, "chr1", 400, "+", "-")
+        + pair("read2", "chr1", 100, "chr1", 400, "+", "-")
+        + pair("read3", "chr1", 100, "chr1", 401, "+", "-")
+        + pair("read4", "chr1", 100, "chr1", 400, "-", "+")
+        + pair("read5", "chr1", 100, "chr2", 400, "+", "-")
+        + pair("read6", "chr2", 100, "chr1", 400, "+", "-")
+        + pair("read7", "chr1", 101, "chr1", 400, "+", "-")
+        + pair("read8", "chr1", 100, "chr1", 400, "+", "-");
+    String output = run(content);
+    assertEquals("#comment\n" + pair("read1", "chr1", 100, "chr1", 400, "+", "-")
+        + pair("read3", "chr1", 100, "chr1", 401, "+", "-")
+        + pair("read4", "chr1", 100, "chr1", 400, "-", "+")
+        + pair("read5", "chr1", 100, "chr2", 400, "+", "-")
+        + pair("read6", "chr2", 100, "chr1", 400, "+", "-")
+        + pair("read7", "chr1", 101, "chr1", 400, "+", "-"), output);
+  }
+
+  @Test
+  public void run_Random() throws Throwable {
+    Random random = new Random();
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    Set<String> keys = new LinkedHashSet<>();
+    for (int i = 0; i < LINE_COUNT; i++) {
+      String chromosome = "chr" + random.nextInt(MAX_CHROMOSOME);
+      int start = random.nextInt(MAX_START);
+      int end2 = start + 200 + random.nextInt(10);
+      String strand = random.nextBoolean() ? "+" : "-";
+      String pair = pair("read" + i, chromosome, start, chromosome, end2, strand, "+");
+      content.append(pair);
+      if (keys.add(chromosome + ":" + start + ":" + end2 + ":" + strand)) {
+        expected.append(pair);
+      }
+    }
+    assertEquals(expected.toString(), run(content.toString()));
+  }
+
+  @Test
+  public void run_MemoryBudget() throws Throwable {
+    executionEngine.setMemory(1L);
+    Random random = new Random();
+    StringBuilder content = new StringBuilder("#comment\n");
+    StringBuilder expected = new StringBuilder("#comment\n");
+    Set<String> keys = new LinkedHashSet<>();
+    List<String> previous = new ArrayList<>();
+    for (int i = 0; i < SPILL_LINE_COUNT; i++) {
+      String chromosome = "chr" + random.nextInt(MAX_CHROMOSOME);
+      int start = random.nextInt(SPILL_MAX_START);
+      int end2 = start + 200 + random.nextInt(10);
+      if (i % 4 == 3) {
+        String[] columns = previous.get(random.nextInt(previous.size())).split(":");
+        chromosome = columns[0];
+        start = Integer.parseInt(columns[1]);
+        end2 = Integer.parseInt(columns[2]);
+      }
+      String key = chromosome + ":" + start + ":" + end2;
+      previous.add(key);
+      String pair = pair("read" + i, chromosome, start, chromosome, end2, "+", "-");
+      content.append(pair);
+      if (keys.add(key)) {
+        expected.append(pair);
+      }
+    }
+    assertEquals(expected.toString(), run(content.toString()));
+    assertEquals(0, executionEngine.getMemoryBudget().getUsed());
+  }
+
+  @Test
+  public void run_Sorted() throws Throwable {
+    command.sorted = true;
+    List<String> lines = new ArrayList<>();
+    lines.add(pair("read1", "chr1", 100, "chr1", 400, "+", "-"));
+    lines.add(pair("read2", "chr1", 100, "chr1", 401, "+", "-"));
+    lines.add(pair("read3", "chr1", 100, "chr1", 400, "+", "-"));
+    lines.add(pair("read4", "chr1", 200, "chr1", 400, "+", "-"));
+    lines.add(pair("read5", "chr1", 200, "chr1", 400, "+", "-"));
+    lines.add(pair("read6", "chr2", 100, "chr2", 400, "+", "-"));
+    lines.add(pair("read7", "chr2", 100, "chr2", 400, "+", "-"));
+    String output = run(String.join("", lines));
+    assertEquals(lines.get(0) + lines.get(1) + lines.get(3) + lines.get(5), output);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_SortedNotSorted() throws Throwable {
+    command.sorted = true;
+    String content = pair("read1", "chr1", 200, "chr1", 400, "+", "-")
+        + pair("read2", "chr1", 100, "chr1", 400, "+", "-");
+    run(content);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_SortedNotSortedChromosome() throws Throwable {
+    command.sorted = true;
+    String content = pair("read1", "chr2", 100, "chr2", 400, "+", "-")
+        + pair("read2", "chr1", 100, "chr1", 400, "+", "-");
+    run(content);
+  }
+}
@@ -20,12 +20,16 @@ package ca.qc.ircm.bedtools;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import ca.qc.ircm.bedtools.genome.TwoBit;
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -34,7 +38,9 @@ import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -50,6 +56,8 @@ public class FastaConverterTest {
   private FastaConverter fastaConverter = new FastaConverter();
   @Mock
   private FastaToSizesCommand parameters;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
   private Map<String, Integer> sizes;
   private String content;
 
@@ -90,4 +98,61 @@ public class FastaConverterTest {
       assertEquals(String.valueOf(sizes.get(chromosome)), columns[1]);
     }
   }
+
+  private String twoBitSequence(String sequence) {
+    StringBuilder builder = new StringBuilder();
+    for (char base : sequence.toCharArray()) {
+      if ("ACGTacgt".indexOf(base) >= 0) {
+        builder.append(base);
+      } else {
+        builder.append(Character.isLowerCase(base) ? 'n' : 'N');
+      }
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void toSizes_TwoBit() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, ">chr1\nACGTNacgt\nAC\n>chr2 second\nTTTT\n>chr3\n"
+        .getBytes(StandardCharsets.UTF_8));
+    FastaToTwoBitCommand twoBitParameters = new FastaToTwoBitCommand();
+    twoBitParameters.input = fasta;
+    twoBitParameters.output = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+    fastaConverter.toTwoBit(twoBitParameters);
+    parameters.input = twoBitParameters.output;
+    StringWriter writer = new StringWriter();
+    when(parameters.writer()).thenReturn(new BufferedWriter(writer));
+
+    fastaConverter.toSizes(parameters);
+
+    assertEquals("chr1\t11\nchr2\t4\nchr3\t0\n", writer.toString());
+  }
+
+  @Test
+  public void toTwoBit() throws Throwable {
+    generateFasta();
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, content.getBytes(StandardCharsets.UTF_8));
+    FastaToTwoBitCommand twoBitParameters = new FastaToTwoBitCommand();
+    twoBitParameters.input = fasta;
+    twoBitParameters.output = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+
+    fastaConverter.toTwoBit(twoBitParameters);
+
+    TwoBit twoBit = new TwoBit(twoBitParameters.output);
+    assertEquals(CHROMOSOME_COUNT, twoBit.count());
+    String[] sequences = content.split(">");
+    for (int i = 0; i < CHROMOSOME_COUNT; i += 1) {
+      String chromosome = "chr" + (i + 1);
+      String sequence = twoBitSequence(
+          sequences[i + 1].substring(sequences[i + 1].indexOf('\n') + 1).replaceAll("\n", ""));
+      int id = twoBit.find(chromosome);
+      assertEquals(chromosome, twoBit.name(id));
+      assertEquals((long) sizes.get(chromosome), twoBit.length(id));
+      byte[] bases = new byte[sequence.length()];
+      twoBit.read(id, 0, sequence.length(), bases, 0);
+      assertEquals(sequence, new String(bases, StandardCharsets.UTF_8));
+    }
+  }
 }
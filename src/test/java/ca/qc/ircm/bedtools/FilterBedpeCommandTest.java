@@ -19,12 +19,15 @@ package ca.qc.ircm.bedtools;
 
 import static org.junit.Assert.assertEquals;
 
+import ca.qc.ircm.bedtools.io.SplitWriter;
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -59,14 +62,15 @@ public class FilterBedpeCommandTest {
   }
 
   @Test
-  public void reader() throws Throwable {
+  public void inputStream() throws Throwable {
     Path file = temporaryFolder.newFile("file.txt").toPath();
     Files.write(file,
         IntStream.range(0, 2).mapToObj(i -> "test line " + i).collect(Collectors.toList()));
     command.input = file;
 
     List<String> lines = new ArrayList<>();
-    try (BufferedReader reader = command.reader()) {
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(command.inputStream(), CHARSET))) {
       String line;
       while ((line = reader.readLine()) != null) {
         lines.add(line);
@@ -79,13 +83,14 @@ public class FilterBedpeCommandTest {
   }
 
   @Test
-  public void reader_System() throws Throwable {
+  public void inputStream_System() throws Throwable {
     ByteArrayInputStream input =
         new ByteArrayInputStream("test line 0\ntest line 1".getBytes(CHARSET));
     System.setIn(input);
 
     List<String> lines = new ArrayList<>();
-    try (BufferedReader reader = command.reader()) {
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(command.inputStream(), CHARSET))) {
       String line;
       while ((line = reader.readLine()) != null) {
         lines.add(line);
@@ -98,14 +103,54 @@ public class FilterBedpeCommandTest {
   }
 
   @Test
-  public void writer() throws Throwable {
+  public void namesReader() throws Throwable {
+    Path file = temporaryFolder.newFile("names.txt").toPath();
+    Files.write(file,
+        IntStream.range(0, 2).mapToObj(i -> "test line " + i).collect(Collectors.toList()));
+    command.names = file;
+
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = command.namesReader()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void excludeReader() throws Throwable {
+    Path file = temporaryFolder.newFile("exclude.bed").toPath();
+    Files.write(file,
+        IntStream.range(0, 2).mapToObj(i -> "test line " + i).collect(Collectors.toList()));
+    command.exclude = file;
+
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = command.excludeReader()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void outputStream() throws Throwable {
     Path file = temporaryFolder.newFile("file.txt").toPath();
     command.output = file;
 
-    try (BufferedWriter writer = command.writer()) {
-      writer.write("test line 0");
-      writer.write("\n");
-      writer.write("test line 1");
+    try (OutputStream output = command.outputStream()) {
+      output.write("test line 0".getBytes(CHARSET));
+      output.write("\n".getBytes(CHARSET));
+      output.write("test line 1".getBytes(CHARSET));
     }
 
     List<String> lines = Files.readAllLines(file);
@@ -115,17 +160,56 @@ public class FilterBedpeCommandTest {
   }
 
   @Test
-  public void writer_System() throws Throwable {
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    System.setOut(new PrintStream(output));
+  public void statsWriter() throws Throwable {
+    Path file = temporaryFolder.newFile("stats.txt").toPath();
+    command.stats = file;
 
-    try (BufferedWriter writer = command.writer()) {
+    try (BufferedWriter writer = command.statsWriter()) {
       writer.write("test line 0");
       writer.write("\n");
       writer.write("test line 1");
     }
 
-    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void outputStream_Shards() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bedpe");
+    command.output = file;
+    command.shards = 4;
+    command.shardKey = ShardKey.POSITION;
+    String line1 = "chr1\t10\t20\tchr1\t100\t120\tread1\t0\t+\t-";
+    String line2 = "chr1\t10\t20\tchr1\t100\t120\tread2\t0\t+\t-";
+
+    try (OutputStream output = command.outputStream()) {
+      output.write(line1.getBytes(CHARSET));
+      output.write("\n".getBytes(CHARSET));
+      output.write(line2.getBytes(CHARSET));
+    }
+
+    String key = ShardKey.POSITION.router(4, 6).key(line1);
+    List<String> lines = Files.readAllLines(SplitWriter.file(file, key));
+    assertEquals(2, lines.size());
+    assertEquals(line1, lines.get(0));
+    assertEquals(line2, lines.get(1));
+  }
+
+  @Test
+  public void outputStream_System() throws Throwable {
+    ByteArrayOutputStream systemOutput = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(systemOutput));
+
+    try (OutputStream output = command.outputStream()) {
+      output.write("test line 0".getBytes(CHARSET));
+      output.write("\n".getBytes(CHARSET));
+      output.write("test line 1".getBytes(CHARSET));
+    }
+
+    List<String> lines = Arrays.asList(systemOutput.toString(CHARSET.name()).split("\n"));
     assertEquals(2, lines.size());
     assertEquals("test line 0", lines.get(0));
     assertEquals("test line 1", lines.get(1));
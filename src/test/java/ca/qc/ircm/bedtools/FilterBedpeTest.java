@@ -18,14 +18,19 @@
 package ca.qc.ircm.bedtools;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.function.BiFunction;
@@ -44,6 +49,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @RunWith(SpringJUnit4ClassRunner.class)
 @NonTransactionalTestAnnotations
 public class FilterBedpeTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
   private static final int LINE_COUNT = 1000;
   private static final int MAX_CHROMOSOME = 23;
   private static final int MAX_ANNOTATION_LENGTH = 100;
@@ -97,11 +103,12 @@ public class FilterBedpeTest {
 
   @Test
   public void run() throws Throwable {
-    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
     service.run(command);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     assertEquals(lines.length, outputLines.length);
@@ -117,11 +124,12 @@ public class FilterBedpeTest {
   @Test
   public void run_MaximumInsertSize() throws Throwable {
     command.maximumInsertSize = 400;
-    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
     service.run(command);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     BiFunction<Integer, Integer, Integer> computeInsertSize =
@@ -153,16 +161,154 @@ public class FilterBedpeTest {
     assertEquals(outputIndex, outputLines.length);
   }
 
+  @Test
+  public void run_MaximumInsertSize_DifferentChromosomes() throws Throwable {
+    command.maximumInsertSize = 400;
+    String content = "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t100\t150\tchr2\t200\t250\tread2\t0\t+\t-\n";
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals("chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n",
+        output.toString(CHARSET.name()));
+  }
+
+  private String namesContent() {
+    return "#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread3\t0\t+\t-\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread33\t0\t+\t-\n";
+  }
+
+  @Test
+  public void run_Names() throws Throwable {
+    command.names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    when(command.namesReader())
+        .thenAnswer(i -> new BufferedReader(new StringReader("read1\nread3\n\nread4\n")));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(namesContent().getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals("#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread3\t0\t+\t-\n", output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void run_ExcludeNames() throws Throwable {
+    command.names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    command.excludeNames = true;
+    when(command.namesReader())
+        .thenAnswer(i -> new BufferedReader(new StringReader("read1\nread3\n\nread4\n")));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(namesContent().getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals("#comment\n" + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread33\t0\t+\t-\n", output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void run_NamesBloom() throws Throwable {
+    command.names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    command.bloom = true;
+    when(command.namesReader())
+        .thenAnswer(i -> new BufferedReader(new StringReader("read1\nread3\n\nread4\n")));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(namesContent().getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    String outputContent = output.toString(CHARSET.name());
+    assertTrue(outputContent.contains("\tread1\t"));
+    assertTrue(outputContent.contains("\tread3\t"));
+  }
+
+  @Test
+  public void run_Exclude() throws Throwable {
+    command.exclude = temporaryFolder.getRoot().toPath().resolve("exclude.bed");
+    command.maximumInsertSize = 100;
+    when(command.excludeReader()).thenReturn(
+        new BufferedReader(new StringReader("chr1\t240\t260\nchr2\t0\t50\nchr3\t0\t1000\n")));
+    String content = "#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t160\t200\tread3\t0\t+\t-\n"
+        + "chr2\t10\t60\tchr2\t80\t130\tread4\t0\t+\t-\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread5\t0\t+\t-\n";
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals("#comment\n" + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t160\t200\tread3\t0\t+\t-\n", output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void run_Stats() throws Throwable {
+    String content = "#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread3\t0\t+\t-\n"
+        + "chr1\t100\t150\tchr2\t200\t250\tread4\t0\t+\t-\n";
+    command.maximumInsertSize = 100;
+    command.stats = temporaryFolder.getRoot().toPath().resolve("stats.txt");
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    StringWriter statsWriter = new StringWriter();
+    when(command.statsWriter()).thenReturn(new BufferedWriter(statsWriter));
+    service.run(command);
+    assertEquals("#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n", output.toString(CHARSET.name()));
+    assertEquals("pairs\t3\n" + "differentChromosomes\t1\n" + "p50\t90\n" + "p90\t200\n"
+        + "p99\t200\n" + "p99.9\t200\n", statsWriter.toString());
+  }
+
+  @Test
+  public void run_Threads() throws Throwable {
+    command.maximumInsertSize = 400;
+    when(command.inputStream())
+        .thenAnswer(i -> new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(expected);
+    service.run(command);
+    command.threads = 4;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals(expected.toString(CHARSET.name()), output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void run_StatsOnly() throws Throwable {
+    String content = "#comment\n" + "chr1\t100\t150\tchr1\t200\t250\tread1\t0\t+\t-\n"
+        + "chr1\t300\t350\tchr1\t160\t210\tread2\t0\t-\t+\n"
+        + "chr2\t100\t150\tchr2\t350\t400\tread3\t0\t+\t-\n";
+    command.statsOnly = true;
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    assertEquals("pairs\t3\n" + "differentChromosomes\t0\n" + "p50\t90\n" + "p90\t200\n"
+        + "p99\t200\n" + "p99.9\t200\n", output.toString(CHARSET.name()));
+  }
+
   @Test
   public void run_Comments() throws Throwable {
     String content = "#comment 1\n" + this.content.split("\n")[0] + "\n#comment 2\n" + Arrays
         .asList(this.content.split("\n")).stream().skip(1).collect(Collectors.joining("\n"));
     command.maximumInsertSize = 400;
-    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
-    StringWriter writer = new StringWriter();
-    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
     service.run(command);
-    String[] outputLines = Arrays.asList(writer.toString().split("\n")).stream()
+    String[] outputLines = Arrays.asList(output.toString(CHARSET.name()).split("\n")).stream()
         .filter(line -> !line.isEmpty()).toArray(count -> new String[count]);
     String[] lines = content.split("\n");
     BiFunction<Integer, Integer, Integer> computeInsertSize =
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.genome.FastaIndex;
+import ca.qc.ircm.bedtools.genome.TwoBitWriter;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class GetFastaTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String SEQUENCE1 = "ACGTACGTACGTacgtNNACGTA";
+  private static final String SEQUENCE2 = "TTTTGGGGCCCC";
+  @Inject
+  private GetFasta service;
+  @Mock
+  private GetFastaCommand command;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    command.fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(command.fasta, (">chr1 first chromosome\n" + SEQUENCE1.substring(0, 10) + "\n"
+        + SEQUENCE1.substring(10, 20) + "\n" + SEQUENCE1.substring(20) + "\n>chr2\n"
+        + SEQUENCE2.substring(0, 10) + "\n" + SEQUENCE2.substring(10) + "\n").getBytes(CHARSET));
+  }
+
+  private String run(String content) throws Throwable {
+    when(command.inputStream()).thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    return output.toString(CHARSET.name());
+  }
+
+  private String reverseComplement(String sequence) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = sequence.length() - 1; i >= 0; i--) {
+      char base = sequence.charAt(i);
+      String bases = "ACGTacgtN";
+      builder.append("TGCAtgcaN".charAt(bases.indexOf(base)));
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void run() throws Throwable {
+    String output = run("chr1\t8\t14\ta\t0\t+\nchr1\t0\t23\tb\t0\t-\nchr2\t5\t12\n");
+    assertEquals(">chr1:8-14\n" + SEQUENCE1.substring(8, 14) + "\n>chr1:0-23\n" + SEQUENCE1
+        + "\n>chr2:5-12\n" + SEQUENCE2.substring(5) + "\n", output);
+    assertTrue(Files.exists(FastaIndex.index(command.fasta)));
+  }
+
+  @Test
+  public void run_Strand() throws Throwable {
+    command.strand = true;
+    String output = run("chr1\t8\t19\ta\t0\t-\nchr1\t8\t19\tb\t0\t+\nchr2\t0\t3\n");
+    assertEquals(">chr1:8-19(-)\n" + reverseComplement(SEQUENCE1.substring(8, 19))
+        + "\n>chr1:8-19(+)\n" + SEQUENCE1.substring(8, 19) + "\n>chr2:0-3(+)\nTTT\n", output);
+  }
+
+  @Test
+  public void run_Name() throws Throwable {
+    command.name = true;
+    String output = run("chr1\t8\t14\ta\t0\t+\nchr2\t5\t12\n");
+    assertEquals(">a\n" + SEQUENCE1.substring(8, 14) + "\n>chr2:5-12\n" + SEQUENCE2.substring(5)
+        + "\n", output);
+  }
+
+  @Test
+  public void run_Tab() throws Throwable {
+    command.tab = true;
+    String output = run("chr1\t8\t14\ta\t0\t+\nchr2\t5\t12\n");
+    assertEquals("chr1:8-14\t" + SEQUENCE1.substring(8, 14) + "\nchr2:5-12\t"
+        + SEQUENCE2.substring(5) + "\n", output);
+  }
+
+  @Test
+  public void run_TwoBit() throws Throwable {
+    Path twoBit = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+    TwoBitWriter.write(command.fasta, twoBit);
+    command.fasta = twoBit;
+    command.strand = true;
+    String output = run("chr1\t8\t19\ta\t0\t-\nchr1\t0\t23\tb\t0\t+\nchr2\t5\t12\n");
+    assertEquals(">chr1:8-19(-)\n" + reverseComplement(SEQUENCE1.substring(8, 19))
+        + "\n>chr1:0-23(+)\n" + SEQUENCE1 + "\n>chr2:5-12(+)\n" + SEQUENCE2.substring(5) + "\n",
+        output);
+    assertFalse(Files.exists(FastaIndex.index(twoBit)));
+  }
+
+  @Test
+  public void run_Headers() throws Throwable {
+    String output = run("track name=test\n#comment\n\nchr1\t0\t4\n");
+    assertEquals(">chr1:0-4\nACGT\n", output);
+  }
+
+  @Test
+  public void run_Empty() throws Throwable {
+    String output = run("chr1\t5\t5\n");
+    assertEquals(">chr1:5-5\n\n", output);
+  }
+
+  @Test
+  public void run_OutsideOfSequences() throws Throwable {
+    String output = run("chr1\t20\t24\nchr3\t0\t4\nchr2\t-1\t4\nchr2\t5\t4\nchr2\t0\t4\n");
+    assertEquals(">chr2:0-4\nTTTT\n", output);
+  }
+
+  @Test
+  public void run_Threads() throws Throwable {
+    command.threads = 3;
+    command.strand = true;
+    Random random = new Random();
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      boolean first = random.nextBoolean();
+      String sequence = first ? SEQUENCE1 : SEQUENCE2;
+      int start = random.nextInt(sequence.length());
+      int end = start + random.nextInt(sequence.length() - start + 1);
+      boolean negative = random.nextBoolean();
+      String chromosome = first ? "chr1" : "chr2";
+      content.append(chromosome + "\t" + start + "\t" + end + "\tname" + i + "\t0\t"
+          + (negative ? "-" : "+") + "\n");
+      String bases = sequence.substring(start, end);
+      expected.append(">" + chromosome + ":" + start + "-" + end + (negative ? "(-)" : "(+)")
+          + "\n" + (negative ? reverseComplement(bases) : bases) + "\n");
+    }
+    assertEquals(expected.toString(), run(content.toString()));
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class IntersectTest {
+  @Inject
+  private Intersect service;
+  @Mock
+  private IntersectCommand command;
+  private String content;
+  private String featuresContent;
+  private StringWriter writer;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t0\t+", "chr1\t150\t250\ta2\t0\t-",
+        "chr1\t400\t500\ta3\t0\t+", "chr2\t100\t200\ta4\t0\t+", "chr3\t10\t20\ta5\t0\t+");
+    featuresContent = lines("chr0\t10\t20\tb0\t0\t+", "chr1\t50\t120\tb1\t0\t+",
+        "chr1\t180\t300\tb2\t0\t-", "chr1\t500\t600\tb3\t0\t+", "chr2\t150\t160\tb4\t0\t-",
+        "chr2\t190\t400\tb5\t0\t+");
+    writer = new StringWriter();
+  }
+
+  private String lines(String... lines) {
+    return Arrays.asList(lines).stream().collect(Collectors.joining("\n"));
+  }
+
+  private void run() throws Throwable {
+    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
+    when(command.featuresReader())
+        .thenReturn(new BufferedReader(new StringReader(featuresContent)));
+    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    service.run(command);
+  }
+
+  private String[] outputLines() {
+    return Arrays.asList(writer.toString().split("\n")).stream().filter(line -> !line.isEmpty())
+        .toArray(count -> new String[count]);
+  }
+
+  @Test
+  public void run_Overlaps() throws Throwable {
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr1\t100\t120\ta1\t0\t+", outputLines[0]);
+    assertEquals("chr1\t180\t200\ta1\t0\t+", outputLines[1]);
+    assertEquals("chr1\t180\t250\ta2\t0\t-", outputLines[2]);
+    assertEquals("chr2\t150\t160\ta4\t0\t+", outputLines[3]);
+    assertEquals("chr2\t190\t200\ta4\t0\t+", outputLines[4]);
+  }
+
+  @Test
+  public void run_WriteInputAndFeature() throws Throwable {
+    command.writeInput = true;
+    command.writeFeature = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr1\t100\t200\ta1\t0\t+\tchr1\t50\t120\tb1\t0\t+", outputLines[0]);
+    assertEquals("chr1\t100\t200\ta1\t0\t+\tchr1\t180\t300\tb2\t0\t-", outputLines[1]);
+    assertEquals("chr1\t150\t250\ta2\t0\t-\tchr1\t180\t300\tb2\t0\t-", outputLines[2]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+\tchr2\t150\t160\tb4\t0\t-", outputLines[3]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+\tchr2\t190\t400\tb5\t0\t+", outputLines[4]);
+  }
+
+  @Test
+  public void run_SameStrand() throws Throwable {
+    command.sameStrand = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(3, outputLines.length);
+    assertEquals("chr1\t100\t120\ta1\t0\t+", outputLines[0]);
+    assertEquals("chr1\t180\t250\ta2\t0\t-", outputLines[1]);
+    assertEquals("chr2\t190\t200\ta4\t0\t+", outputLines[2]);
+  }
+
+  @Test
+  public void run_Unique() throws Throwable {
+    command.unique = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(3, outputLines.length);
+    assertEquals("chr1\t100\t200\ta1\t0\t+", outputLines[0]);
+    assertEquals("chr1\t150\t250\ta2\t0\t-", outputLines[1]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+", outputLines[2]);
+  }
+
+  @Test
+  public void run_NoOverlap() throws Throwable {
+    command.noOverlap = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(2, outputLines.length);
+    assertEquals("chr1\t400\t500\ta3\t0\t+", outputLines[0]);
+    assertEquals("chr3\t10\t20\ta5\t0\t+", outputLines[1]);
+  }
+
+  @Test
+  public void run_Count() throws Throwable {
+    command.count = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr1\t100\t200\ta1\t0\t+\t2", outputLines[0]);
+    assertEquals("chr1\t150\t250\ta2\t0\t-\t1", outputLines[1]);
+    assertEquals("chr1\t400\t500\ta3\t0\t+\t0", outputLines[2]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+\t2", outputLines[3]);
+    assertEquals("chr3\t10\t20\ta5\t0\t+\t0", outputLines[4]);
+  }
+
+  @Test
+  public void run_CountSameStrand() throws Throwable {
+    command.count = true;
+    command.sameStrand = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("chr1\t100\t200\ta1\t0\t+\t1", outputLines[0]);
+    assertEquals("chr1\t150\t250\ta2\t0\t-\t1", outputLines[1]);
+    assertEquals("chr1\t400\t500\ta3\t0\t+\t0", outputLines[2]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+\t1", outputLines[3]);
+    assertEquals("chr3\t10\t20\ta5\t0\t+\t0", outputLines[4]);
+  }
+
+  @Test
+  public void run_Comments() throws Throwable {
+    content = "track name=test\n#comment\n" + content;
+    featuresContent = "#comment\n" + featuresContent;
+    command.unique = true;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(5, outputLines.length);
+    assertEquals("track name=test", outputLines[0]);
+    assertEquals("#comment", outputLines[1]);
+    assertEquals("chr1\t100\t200\ta1\t0\t+", outputLines[2]);
+    assertEquals("chr1\t150\t250\ta2\t0\t-", outputLines[3]);
+    assertEquals("chr2\t100\t200\ta4\t0\t+", outputLines[4]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_InputNotSorted() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t0\t+", "chr1\t50\t250\ta2\t0\t-");
+    run();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_FeaturesNotSorted() throws Throwable {
+    featuresContent = lines("chr2\t100\t200\tb1\t0\t+", "chr1\t50\t250\tb2\t0\t-");
+    run();
+  }
+}
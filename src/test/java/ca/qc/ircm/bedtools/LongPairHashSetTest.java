@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class LongPairHashSetTest {
+  @Test
+  public void add() {
+    LongPairHashSet set = new LongPairHashSet(10);
+    assertTrue(set.add(1, 2));
+    assertTrue(set.add(2, 1));
+    assertFalse(set.add(1, 2));
+    assertEquals(2, set.size());
+    assertTrue(set.contains(1, 2));
+    assertTrue(set.contains(2, 1));
+    assertFalse(set.contains(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void add_Empty() {
+    LongPairHashSet set = new LongPairHashSet(10);
+    set.add(LongPairHashSet.EMPTY, 2);
+  }
+
+  @Test
+  public void add_Grow() {
+    LongPairHashSet set = new LongPairHashSet(10, 6);
+    for (long i = 0; i < 10000; i++) {
+      assertTrue(set.add(i, i * 31));
+    }
+    assertEquals(10000, set.size());
+    assertTrue(set.capacity() >= 20000);
+    for (long i = 0; i < 10000; i++) {
+      assertTrue(set.contains(i, i * 31));
+      assertFalse(set.add(i, i * 31));
+      assertFalse(set.contains(i, i * 31 + 1));
+    }
+  }
+
+  @Test
+  public void clear() {
+    LongPairHashSet set = new LongPairHashSet(10);
+    set.add(1, 2);
+    set.add(3, 4);
+    long capacity = set.capacity();
+    set.clear();
+    assertEquals(0, set.size());
+    assertEquals(capacity, set.capacity());
+    assertFalse(set.contains(1, 2));
+    assertTrue(set.add(1, 2));
+  }
+
+  @Test
+  public void clear_AfterGrow() {
+    LongPairHashSet set = new LongPairHashSet(10, 6);
+    for (long i = 0; i < 10000; i++) {
+      set.add(i, i * 31);
+    }
+    long capacity = set.capacity();
+    set.clear();
+    assertEquals(0, set.size());
+    assertEquals(capacity, set.capacity());
+    for (long i = 0; i < 10000; i++) {
+      assertFalse(set.contains(i, i * 31));
+    }
+    for (long i = 0; i < 100; i++) {
+      assertTrue(set.add(i, i));
+    }
+    set.clear();
+    for (long i = 0; i < 100; i++) {
+      assertFalse(set.contains(i, i));
+    }
+    for (long i = 0; i < 10000; i++) {
+      assertTrue(set.add(i, i * 31));
+    }
+    assertEquals(capacity, set.capacity());
+    set.clear();
+    set.forEach((first, second) -> fail());
+  }
+}
@@ -18,20 +18,32 @@
 package ca.qc.ircm.bedtools;
 
 import static ca.qc.ircm.bedtools.BedpeToBedCommand.BEDPE_TO_BED;
+import static ca.qc.ircm.bedtools.ConvertCommand.CONVERT_COMMAND;
+import static ca.qc.ircm.bedtools.CoverageCommand.COVERAGE_COMMAND;
+import static ca.qc.ircm.bedtools.DedupCommand.DEDUP_COMMAND;
 import static ca.qc.ircm.bedtools.FastaToSizesCommand.FASTA_TO_SIZES_COMMAND;
+import static ca.qc.ircm.bedtools.FastaToTwoBitCommand.FASTA_TO_TWO_BIT_COMMAND;
 import static ca.qc.ircm.bedtools.FilterBedpeCommand.FILTER_BEDPE;
+import static ca.qc.ircm.bedtools.GetFastaCommand.GET_FASTA_COMMAND;
+import static ca.qc.ircm.bedtools.IntersectCommand.INTERSECT_COMMAND;
+import static ca.qc.ircm.bedtools.MergeCommand.MERGE_COMMAND;
 import static ca.qc.ircm.bedtools.MoveAnnotationsCommand.MOVE_ANNOTATIONS_COMMAND;
+import static ca.qc.ircm.bedtools.NucCommand.NUC_COMMAND;
+import static ca.qc.ircm.bedtools.SampleCommand.SAMPLE_COMMAND;
 import static ca.qc.ircm.bedtools.SetAnnotationsSizeCommand.SET_ANNOTATIONS_SIZE_COMMAND;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
 import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import javax.inject.Inject;
 import org.junit.Before;
 import org.junit.Rule;
@@ -56,6 +68,24 @@ public class MainServiceTest {
   private FilterBedpe filterBedpe;
   @MockBean
   private BedpeToBed bedpeToBed;
+  @MockBean
+  private Intersect intersect;
+  @MockBean
+  private Merge merge;
+  @MockBean
+  private Coverage coverage;
+  @MockBean
+  private BedConverter bedConverter;
+  @MockBean
+  private Dedup dedup;
+  @MockBean
+  private Sample sample;
+  @MockBean
+  private GetFasta getFasta;
+  @MockBean
+  private Nuc nuc;
+  @MockBean
+  private ExecutionEngine executionEngine;
   @Captor
   private ArgumentCaptor<SetAnnotationsSizeCommand> setAnnotationsSizeCommandCaptor;
   @Captor
@@ -63,9 +93,27 @@ public class MainServiceTest {
   @Captor
   private ArgumentCaptor<FastaToSizesCommand> fastaToSizesCommandCaptor;
   @Captor
+  private ArgumentCaptor<FastaToTwoBitCommand> fastaToTwoBitCommandCaptor;
+  @Captor
   private ArgumentCaptor<FilterBedpeCommand> filterBedpeCommandCaptor;
   @Captor
   private ArgumentCaptor<BedpeToBedCommand> bedpeToBedCommandCaptor;
+  @Captor
+  private ArgumentCaptor<IntersectCommand> intersectCommandCaptor;
+  @Captor
+  private ArgumentCaptor<MergeCommand> mergeCommandCaptor;
+  @Captor
+  private ArgumentCaptor<CoverageCommand> coverageCommandCaptor;
+  @Captor
+  private ArgumentCaptor<ConvertCommand> convertCommandCaptor;
+  @Captor
+  private ArgumentCaptor<DedupCommand> dedupCommandCaptor;
+  @Captor
+  private ArgumentCaptor<SampleCommand> sampleCommandCaptor;
+  @Captor
+  private ArgumentCaptor<GetFastaCommand> getFastaCommandCaptor;
+  @Captor
+  private ArgumentCaptor<NucCommand> nucCommandCaptor;
   @Rule
   public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
@@ -89,6 +137,44 @@ public class MainServiceTest {
     verifyZeroInteractions(fastaConverter);
   }
 
+  @Test
+  public void run_Threads() throws Throwable {
+    mainService.run(new String[] { "--threads", "3", SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(executionEngine).setThreads(3);
+    verify(bedTransform).setAnnotationsSize(any());
+  }
+
+  @Test
+  public void run_DefaultThreads() throws Throwable {
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(executionEngine).setThreads(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void run_InvalidThreads() throws Throwable {
+    mainService.run(new String[] { "--threads", "-1", SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(bedTransform, never()).setAnnotationsSize(any());
+  }
+
+  @Test
+  public void run_Memory() throws Throwable {
+    mainService.run(new String[] { "--memory", "512m", SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(executionEngine).setMemory(512L << 20);
+    verify(bedTransform).setAnnotationsSize(any());
+  }
+
+  @Test
+  public void run_DefaultMemory() throws Throwable {
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(executionEngine).setMemory(null);
+  }
+
+  @Test
+  public void run_InvalidMemory() throws Throwable {
+    mainService.run(new String[] { "--memory", "abc", SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
+    verify(bedTransform, never()).setAnnotationsSize(any());
+  }
+
   @Test
   public void run_SetAnnotationsSize() throws Throwable {
     mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1" });
@@ -237,6 +323,41 @@ public class MainServiceTest {
     assertEquals(false, setAnnotationsSizeCommandCaptor.getValue().reverseForNegativeStrand);
   }
 
+  @Test
+  public void run_SetAnnotationsSize_SplitBy() throws Throwable {
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1", "--splitBy",
+        "chromosome", "--maxOpenFiles", "10" });
+    verify(bedTransform).setAnnotationsSize(setAnnotationsSizeCommandCaptor.capture());
+    assertEquals(SplitBy.CHROMOSOME, setAnnotationsSizeCommandCaptor.getValue().splitBy);
+    assertEquals(10, setAnnotationsSizeCommandCaptor.getValue().maxOpenFiles);
+  }
+
+  @Test
+  public void run_SetAnnotationsSize_Threads() throws Throwable {
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1", "-t", "4" });
+    verify(bedTransform).setAnnotationsSize(setAnnotationsSizeCommandCaptor.capture());
+    assertEquals((Integer) 4, setAnnotationsSizeCommandCaptor.getValue().threads);
+  }
+
+  @Test
+  public void run_SetAnnotationsSize_Genome() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1", "-g",
+        genome.toString(), "--discardOutOfBounds" });
+    verify(bedTransform).setAnnotationsSize(setAnnotationsSizeCommandCaptor.capture());
+    assertEquals(genome, setAnnotationsSizeCommandCaptor.getValue().genome);
+    assertEquals(true, setAnnotationsSizeCommandCaptor.getValue().discardOutOfBounds);
+  }
+
+  @Test
+  public void run_SetAnnotationsSize_GenomeNotExists() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-s", "1", "--genome",
+        genome.toString() });
+    verify(bedTransform, never()).setAnnotationsSize(any());
+  }
+
   @Test
   public void run_SetAnnotationsSize_Help() throws Throwable {
     mainService.run(new String[] { SET_ANNOTATIONS_SIZE_COMMAND, "-h", "-s", "1" });
@@ -384,6 +505,33 @@ public class MainServiceTest {
     assertEquals(false, moveAnnotationCommandCaptor.getValue().discardNegative);
   }
 
+  @Test
+  public void run_MoveAnnotations_SplitBy() throws Throwable {
+    mainService
+        .run(new String[] { MOVE_ANNOTATIONS_COMMAND, "-d", "20", "--split-by", "strand" });
+    verify(bedTransform).moveAnnotations(moveAnnotationCommandCaptor.capture());
+    assertEquals(SplitBy.STRAND, moveAnnotationCommandCaptor.getValue().splitBy);
+    assertEquals(256, moveAnnotationCommandCaptor.getValue().maxOpenFiles);
+  }
+
+  @Test
+  public void run_MoveAnnotations_Threads() throws Throwable {
+    mainService.run(new String[] { MOVE_ANNOTATIONS_COMMAND, "-d", "20", "--threads", "2" });
+    verify(bedTransform).moveAnnotations(moveAnnotationCommandCaptor.capture());
+    assertEquals((Integer) 2, moveAnnotationCommandCaptor.getValue().threads);
+  }
+
+  @Test
+  public void run_MoveAnnotations_Genome() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { MOVE_ANNOTATIONS_COMMAND, "-d", "20", "--genome",
+        genome.toString(), "-db" });
+    verify(bedTransform).moveAnnotations(moveAnnotationCommandCaptor.capture());
+    assertEquals(genome, moveAnnotationCommandCaptor.getValue().genome);
+    assertEquals(true, moveAnnotationCommandCaptor.getValue().discardOutOfBounds);
+  }
+
   @Test
   public void run_MoveAnnotations_Help() throws Throwable {
     mainService.run(new String[] { MOVE_ANNOTATIONS_COMMAND, "-h", "-d", "1" });
@@ -453,6 +601,60 @@ public class MainServiceTest {
     verify(fastaConverter, never()).toSizes(any());
   }
 
+  @Test
+  public void run_fastaToTwoBit() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.fa");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.2bit");
+    mainService.run(
+        new String[] { FASTA_TO_TWO_BIT_COMMAND, "-i", input.toString(), "-o", output.toString() });
+    verify(fastaConverter).toTwoBit(fastaToTwoBitCommandCaptor.capture());
+    assertEquals(input, fastaToTwoBitCommandCaptor.getValue().input);
+    assertEquals(output, fastaToTwoBitCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_fastaToTwoBit_LongNames() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.fa");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.2bit");
+    mainService.run(new String[] { FASTA_TO_TWO_BIT_COMMAND, "--input", input.toString(),
+        "--output", output.toString() });
+    verify(fastaConverter).toTwoBit(fastaToTwoBitCommandCaptor.capture());
+    assertEquals(input, fastaToTwoBitCommandCaptor.getValue().input);
+    assertEquals(output, fastaToTwoBitCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_fastaToTwoBit_MissingInput() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.2bit");
+    mainService.run(new String[] { FASTA_TO_TWO_BIT_COMMAND, "-o", output.toString() });
+    verify(fastaConverter, never()).toTwoBit(any());
+  }
+
+  @Test
+  public void run_fastaToTwoBit_InputNotExists() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.fa");
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.2bit");
+    mainService.run(
+        new String[] { FASTA_TO_TWO_BIT_COMMAND, "-i", input.toString(), "-o", output.toString() });
+    verify(fastaConverter, never()).toTwoBit(any());
+  }
+
+  @Test
+  public void run_fastaToTwoBit_MissingOutput() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.fa");
+    Files.createFile(input);
+    mainService.run(new String[] { FASTA_TO_TWO_BIT_COMMAND, "-i", input.toString() });
+    verify(fastaConverter, never()).toTwoBit(any());
+  }
+
+  @Test
+  public void run_fastaToTwoBit_Help() throws Throwable {
+    mainService.run(new String[] { FASTA_TO_TWO_BIT_COMMAND, "-h" });
+    verify(fastaConverter, never()).toTwoBit(any());
+  }
+
   @Test
   public void run_filterBedpe() throws Throwable {
     mainService.run(new String[] { FILTER_BEDPE });
@@ -523,6 +725,71 @@ public class MainServiceTest {
     assertEquals(output, filterBedpeCommandCaptor.getValue().output);
   }
 
+  @Test
+  public void run_FilterBedpe_Names() throws Throwable {
+    Path names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    Files.createFile(names);
+    mainService.run(new String[] { FILTER_BEDPE, "--names", names.toString() });
+    verify(filterBedpe).run(filterBedpeCommandCaptor.capture());
+    FilterBedpeCommand command = filterBedpeCommandCaptor.getValue();
+    assertEquals(names, command.names);
+    assertEquals(false, command.excludeNames);
+    assertEquals(false, command.bloom);
+  }
+
+  @Test
+  public void run_FilterBedpe_NamesExcludeBloom() throws Throwable {
+    Path names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    Files.createFile(names);
+    mainService.run(
+        new String[] { FILTER_BEDPE, "--names", names.toString(), "--excludeNames", "--bloom" });
+    verify(filterBedpe).run(filterBedpeCommandCaptor.capture());
+    FilterBedpeCommand command = filterBedpeCommandCaptor.getValue();
+    assertEquals(names, command.names);
+    assertEquals(true, command.excludeNames);
+    assertEquals(true, command.bloom);
+  }
+
+  @Test
+  public void run_FilterBedpe_NamesNotExists() throws Throwable {
+    Path names = temporaryFolder.getRoot().toPath().resolve("names.txt");
+    mainService.run(new String[] { FILTER_BEDPE, "--names", names.toString() });
+    verify(filterBedpe, never()).run(any());
+  }
+
+  @Test
+  public void run_FilterBedpe_Exclude() throws Throwable {
+    Path exclude = temporaryFolder.getRoot().toPath().resolve("exclude.bed");
+    Files.createFile(exclude);
+    mainService.run(new String[] { FILTER_BEDPE, "--exclude", exclude.toString() });
+    verify(filterBedpe).run(filterBedpeCommandCaptor.capture());
+    assertEquals(exclude, filterBedpeCommandCaptor.getValue().exclude);
+  }
+
+  @Test
+  public void run_FilterBedpe_ExcludeNotExists() throws Throwable {
+    Path exclude = temporaryFolder.getRoot().toPath().resolve("exclude.bed");
+    mainService.run(new String[] { FILTER_BEDPE, "--exclude", exclude.toString() });
+    verify(filterBedpe, never()).run(any());
+  }
+
+  @Test
+  public void run_FilterBedpe_Stats() throws Throwable {
+    Path stats = temporaryFolder.getRoot().toPath().resolve("stats.txt");
+    mainService.run(new String[] { FILTER_BEDPE, "--stats", stats.toString() });
+    verify(filterBedpe).run(filterBedpeCommandCaptor.capture());
+    assertEquals(stats, filterBedpeCommandCaptor.getValue().stats);
+    assertEquals(false, filterBedpeCommandCaptor.getValue().statsOnly);
+  }
+
+  @Test
+  public void run_FilterBedpe_StatsOnly() throws Throwable {
+    mainService.run(new String[] { FILTER_BEDPE, "--statsOnly" });
+    verify(filterBedpe).run(filterBedpeCommandCaptor.capture());
+    assertEquals(null, filterBedpeCommandCaptor.getValue().stats);
+    assertEquals(true, filterBedpeCommandCaptor.getValue().statsOnly);
+  }
+
   @Test
   public void run_filterBedpe_Help() throws Throwable {
     mainService.run(new String[] { FILTER_BEDPE, "-h" });
@@ -586,12 +853,640 @@ public class MainServiceTest {
     assertEquals(output, bedpeToBedCommandCaptor.getValue().output);
   }
 
+  @Test
+  public void run_BedpeToBed_Fragment() throws Throwable {
+    mainService.run(new String[] { BEDPE_TO_BED, "-f" });
+    verify(bedpeToBed).run(bedpeToBedCommandCaptor.capture());
+    assertEquals(true, bedpeToBedCommandCaptor.getValue().fragment);
+  }
+
+  @Test
+  public void run_BedpeToBed_FragmentLongName() throws Throwable {
+    mainService.run(new String[] { BEDPE_TO_BED, "--fragment" });
+    verify(bedpeToBed).run(bedpeToBedCommandCaptor.capture());
+    assertEquals(true, bedpeToBedCommandCaptor.getValue().fragment);
+  }
+
+  @Test
+  public void run_BedpeToBed_Histogram() throws Throwable {
+    Path histogram = temporaryFolder.getRoot().toPath().resolve("histogram.txt");
+    mainService.run(new String[] { BEDPE_TO_BED, "--histogram", histogram.toString() });
+    verify(bedpeToBed).run(bedpeToBedCommandCaptor.capture());
+    assertEquals(false, bedpeToBedCommandCaptor.getValue().fragment);
+    assertEquals(histogram, bedpeToBedCommandCaptor.getValue().histogram);
+  }
+
+  @Test
+  public void run_BedpeToBed_SplitBy() throws Throwable {
+    mainService.run(new String[] { BEDPE_TO_BED, "--splitBy", "chromosome" });
+    verify(bedpeToBed).run(bedpeToBedCommandCaptor.capture());
+    assertEquals(SplitBy.CHROMOSOME, bedpeToBedCommandCaptor.getValue().splitBy);
+  }
+
+  @Test
+  public void run_BedpeToBed_Shards() throws Throwable {
+    mainService.run(new String[] { BEDPE_TO_BED, "--shards", "4" });
+    verify(bedpeToBed).run(bedpeToBedCommandCaptor.capture());
+    assertEquals((Integer) 4, bedpeToBedCommandCaptor.getValue().shards);
+    assertEquals(ShardKey.NAME, bedpeToBedCommandCaptor.getValue().shardKey);
+  }
+
+  @Test
+  public void run_BedpeToBed_InvalidMaxOpenFiles() throws Throwable {
+    mainService.run(
+        new String[] { BEDPE_TO_BED, "--splitBy", "chromosome", "--maxOpenFiles", "-1" });
+    verify(bedpeToBed, never()).run(any());
+  }
+
   @Test
   public void run_BedpeToBed_Help() throws Throwable {
     mainService.run(new String[] { BEDPE_TO_BED, "-h" });
     verify(bedpeToBed, never()).run(any());
   }
 
+  @Test
+  public void run_Intersect() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    mainService.run(new String[] { INTERSECT_COMMAND, "-b", features.toString() });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    IntersectCommand command = intersectCommandCaptor.getValue();
+    assertEquals(features, command.features);
+    assertEquals(false, command.writeInput);
+    assertEquals(false, command.writeFeature);
+    assertEquals(false, command.unique);
+    assertEquals(false, command.noOverlap);
+    assertEquals(false, command.count);
+    assertEquals(false, command.sameStrand);
+    assertNull(command.input);
+    assertNull(command.output);
+  }
+
+  @Test
+  public void run_Intersect_Options() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    mainService.run(new String[] { INTERSECT_COMMAND, "-b", features.toString(), "-wa", "-wb",
+        "-u", "-v", "-c", "-s" });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    IntersectCommand command = intersectCommandCaptor.getValue();
+    assertEquals(features, command.features);
+    assertEquals(true, command.writeInput);
+    assertEquals(true, command.writeFeature);
+    assertEquals(true, command.unique);
+    assertEquals(true, command.noOverlap);
+    assertEquals(true, command.count);
+    assertEquals(true, command.sameStrand);
+  }
+
+  @Test
+  public void run_Intersect_OptionsLongName() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    mainService.run(new String[] { INTERSECT_COMMAND, "--features", features.toString(),
+        "--writeInput", "--writeFeature", "--unique", "--noOverlap", "--count",
+        "--sameStrand" });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    IntersectCommand command = intersectCommandCaptor.getValue();
+    assertEquals(features, command.features);
+    assertEquals(true, command.writeInput);
+    assertEquals(true, command.writeFeature);
+    assertEquals(true, command.unique);
+    assertEquals(true, command.noOverlap);
+    assertEquals(true, command.count);
+    assertEquals(true, command.sameStrand);
+  }
+
+  @Test
+  public void run_Intersect_MissingFeatures() throws Throwable {
+    mainService.run(new String[] { INTERSECT_COMMAND });
+    verify(intersect, never()).run(any());
+  }
+
+  @Test
+  public void run_Intersect_FeaturesNotExists() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    mainService.run(new String[] { INTERSECT_COMMAND, "-b", features.toString() });
+    verify(intersect, never()).run(any());
+  }
+
+  @Test
+  public void run_Intersect_Input() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    mainService.run(
+        new String[] { INTERSECT_COMMAND, "-b", features.toString(), "-a", input.toString() });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    assertEquals(input, intersectCommandCaptor.getValue().input);
+  }
+
+  @Test
+  public void run_Intersect_InputLongName() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    mainService.run(new String[] { INTERSECT_COMMAND, "-b", features.toString(), "--input",
+        input.toString() });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    assertEquals(input, intersectCommandCaptor.getValue().input);
+  }
+
+  @Test
+  public void run_Intersect_InputNotExists() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    mainService.run(
+        new String[] { INTERSECT_COMMAND, "-b", features.toString(), "-i", input.toString() });
+    verify(intersect, never()).run(any());
+  }
+
+  @Test
+  public void run_Intersect_Output() throws Throwable {
+    Path features = temporaryFolder.getRoot().toPath().resolve("features.bed");
+    Files.createFile(features);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService.run(
+        new String[] { INTERSECT_COMMAND, "-b", features.toString(), "-o", output.toString() });
+    verify(intersect).run(intersectCommandCaptor.capture());
+    assertEquals(output, intersectCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Intersect_Help() throws Throwable {
+    mainService.run(new String[] { INTERSECT_COMMAND, "-h" });
+    verify(intersect, never()).run(any());
+  }
+
+  @Test
+  public void run_Merge() throws Throwable {
+    mainService.run(new String[] { MERGE_COMMAND });
+    verify(merge).run(mergeCommandCaptor.capture());
+    MergeCommand command = mergeCommandCaptor.getValue();
+    assertEquals(0, command.distance);
+    assertEquals(false, command.sameStrand);
+    assertTrue(command.columns.isEmpty());
+    assertTrue(command.operations.isEmpty());
+    assertNull(command.input);
+    assertNull(command.output);
+  }
+
+  @Test
+  public void run_Merge_Options() throws Throwable {
+    mainService.run(
+        new String[] { MERGE_COMMAND, "-d", "20", "-s", "-c", "4,5", "-op", "distinct,sum" });
+    verify(merge).run(mergeCommandCaptor.capture());
+    MergeCommand command = mergeCommandCaptor.getValue();
+    assertEquals(20, command.distance);
+    assertEquals(true, command.sameStrand);
+    assertEquals(Arrays.asList(4, 5), command.columns);
+    assertEquals(Arrays.asList(MergeOperation.DISTINCT, MergeOperation.SUM),
+        command.operations);
+  }
+
+  @Test
+  public void run_Merge_OptionsLongName() throws Throwable {
+    mainService.run(new String[] { MERGE_COMMAND, "--distance", "20", "--sameStrand",
+        "--columns", "4,5", "--operations", "COUNT,max" });
+    verify(merge).run(mergeCommandCaptor.capture());
+    MergeCommand command = mergeCommandCaptor.getValue();
+    assertEquals(20, command.distance);
+    assertEquals(true, command.sameStrand);
+    assertEquals(Arrays.asList(4, 5), command.columns);
+    assertEquals(Arrays.asList(MergeOperation.COUNT, MergeOperation.MAX), command.operations);
+  }
+
+  @Test
+  public void run_Merge_InvalidOperation() throws Throwable {
+    mainService.run(new String[] { MERGE_COMMAND, "-c", "4", "-op", "other" });
+    verify(merge, never()).run(any());
+  }
+
+  @Test
+  public void run_Merge_Input() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    mainService.run(new String[] { MERGE_COMMAND, "-i", input.toString() });
+    verify(merge).run(mergeCommandCaptor.capture());
+    assertEquals(input, mergeCommandCaptor.getValue().input);
+  }
+
+  @Test
+  public void run_Merge_InputNotExists() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    mainService.run(new String[] { MERGE_COMMAND, "-i", input.toString() });
+    verify(merge, never()).run(any());
+  }
+
+  @Test
+  public void run_Merge_Output() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService.run(new String[] { MERGE_COMMAND, "--output", output.toString() });
+    verify(merge).run(mergeCommandCaptor.capture());
+    assertEquals(output, mergeCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Merge_Help() throws Throwable {
+    mainService.run(new String[] { MERGE_COMMAND, "-h" });
+    verify(merge, never()).run(any());
+  }
+
+  @Test
+  public void run_Coverage() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString() });
+    verify(coverage).run(coverageCommandCaptor.capture());
+    CoverageCommand command = coverageCommandCaptor.getValue();
+    assertEquals(genome, command.genome);
+    assertEquals(false, command.bedpe);
+    assertEquals(false, command.midpoint);
+    assertEquals(1.0, command.scale, 0.000001);
+    assertEquals(false, command.rpm);
+    assertNull(command.threads);
+    assertNull(command.input);
+    assertNull(command.output);
+  }
+
+  @Test
+  public void run_Coverage_Options() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString(), "-p", "-m",
+        "--scale", "0.5", "--rpm", "-t", "3" });
+    verify(coverage).run(coverageCommandCaptor.capture());
+    CoverageCommand command = coverageCommandCaptor.getValue();
+    assertEquals(genome, command.genome);
+    assertEquals(true, command.bedpe);
+    assertEquals(true, command.midpoint);
+    assertEquals(0.5, command.scale, 0.000001);
+    assertEquals(true, command.rpm);
+    assertEquals((Integer) 3, command.threads);
+  }
+
+  @Test
+  public void run_Coverage_OptionsLongName() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { COVERAGE_COMMAND, "--genome", genome.toString(), "--bedpe",
+        "--midpoint", "--threads", "3" });
+    verify(coverage).run(coverageCommandCaptor.capture());
+    CoverageCommand command = coverageCommandCaptor.getValue();
+    assertEquals(genome, command.genome);
+    assertEquals(true, command.bedpe);
+    assertEquals(true, command.midpoint);
+    assertEquals((Integer) 3, command.threads);
+  }
+
+  @Test
+  public void run_Coverage_MissingGenome() throws Throwable {
+    mainService.run(new String[] { COVERAGE_COMMAND });
+    verify(coverage, never()).run(any());
+  }
+
+  @Test
+  public void run_Coverage_GenomeNotExists() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString() });
+    verify(coverage, never()).run(any());
+  }
+
+  @Test
+  public void run_Coverage_InvalidThreads() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString(), "-t", "-1" });
+    verify(coverage, never()).run(any());
+  }
+
+  @Test
+  public void run_Coverage_InputOutput() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString(), "-i",
+        input.toString(), "-o", output.toString() });
+    verify(coverage).run(coverageCommandCaptor.capture());
+    assertEquals(input, coverageCommandCaptor.getValue().input);
+    assertEquals(output, coverageCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Coverage_Exclude() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    Path exclude = temporaryFolder.getRoot().toPath().resolve("exclude.bed");
+    Files.createFile(exclude);
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString(), "--exclude",
+        exclude.toString() });
+    verify(coverage).run(coverageCommandCaptor.capture());
+    assertEquals(exclude, coverageCommandCaptor.getValue().exclude);
+  }
+
+  @Test
+  public void run_Coverage_ExcludeNotExists() throws Throwable {
+    Path genome = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    Files.createFile(genome);
+    Path exclude = temporaryFolder.getRoot().toPath().resolve("exclude.bed");
+    mainService.run(new String[] { COVERAGE_COMMAND, "-g", genome.toString(), "--exclude",
+        exclude.toString() });
+    verify(coverage, never()).run(any());
+  }
+
+  @Test
+  public void run_Coverage_Help() throws Throwable {
+    mainService.run(new String[] { COVERAGE_COMMAND, "-h" });
+    verify(coverage, never()).run(any());
+  }
+
+  @Test
+  public void run_Convert() throws Throwable {
+    mainService.run(new String[] { CONVERT_COMMAND });
+    verify(bedConverter).run(convertCommandCaptor.capture());
+    assertNull(convertCommandCaptor.getValue().format);
+    assertNull(convertCommandCaptor.getValue().input);
+    assertNull(convertCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Convert_Format() throws Throwable {
+    mainService.run(new String[] { CONVERT_COMMAND, "-f", "binary" });
+    verify(bedConverter).run(convertCommandCaptor.capture());
+    assertEquals(BedFormat.BINARY, convertCommandCaptor.getValue().format);
+  }
+
+  @Test
+  public void run_Convert_FormatLongName() throws Throwable {
+    mainService.run(new String[] { CONVERT_COMMAND, "--format", "TEXT" });
+    verify(bedConverter).run(convertCommandCaptor.capture());
+    assertEquals(BedFormat.TEXT, convertCommandCaptor.getValue().format);
+  }
+
+  @Test
+  public void run_Convert_InvalidFormat() throws Throwable {
+    mainService.run(new String[] { CONVERT_COMMAND, "-f", "other" });
+    verify(bedConverter, never()).run(any());
+  }
+
+  @Test
+  public void run_Convert_InputOutput() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService
+        .run(new String[] { CONVERT_COMMAND, "-i", input.toString(), "-o", output.toString() });
+    verify(bedConverter).run(convertCommandCaptor.capture());
+    assertEquals(input, convertCommandCaptor.getValue().input);
+    assertEquals(output, convertCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Convert_InputNotExists() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    mainService.run(new String[] { CONVERT_COMMAND, "-i", input.toString() });
+    verify(bedConverter, never()).run(any());
+  }
+
+  @Test
+  public void run_Convert_Help() throws Throwable {
+    mainService.run(new String[] { CONVERT_COMMAND, "-h" });
+    verify(bedConverter, never()).run(any());
+  }
+
+  @Test
+  public void run_Dedup() throws Throwable {
+    mainService.run(new String[] { DEDUP_COMMAND });
+    verify(dedup).run(dedupCommandCaptor.capture());
+    DedupCommand command = dedupCommandCaptor.getValue();
+    assertEquals(false, command.sorted);
+    assertEquals(null, command.input);
+    assertEquals(null, command.output);
+  }
+
+  @Test
+  public void run_Dedup_Shards() throws Throwable {
+    mainService
+        .run(new String[] { DEDUP_COMMAND, "--shards", "8", "--shard-key", "position" });
+    verify(dedup).run(dedupCommandCaptor.capture());
+    assertEquals((Integer) 8, dedupCommandCaptor.getValue().shards);
+    assertEquals(ShardKey.POSITION, dedupCommandCaptor.getValue().shardKey);
+  }
+
+  @Test
+  public void run_Dedup_Sorted() throws Throwable {
+    mainService.run(new String[] { DEDUP_COMMAND, "-s" });
+    verify(dedup).run(dedupCommandCaptor.capture());
+    assertEquals(true, dedupCommandCaptor.getValue().sorted);
+  }
+
+  @Test
+  public void run_Dedup_SortedLongName() throws Throwable {
+    mainService.run(new String[] { DEDUP_COMMAND, "--sorted" });
+    verify(dedup).run(dedupCommandCaptor.capture());
+    assertEquals(true, dedupCommandCaptor.getValue().sorted);
+  }
+
+  @Test
+  public void run_Dedup_InputOutput() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService
+        .run(new String[] { DEDUP_COMMAND, "-i", input.toString(), "-o", output.toString() });
+    verify(dedup).run(dedupCommandCaptor.capture());
+    assertEquals(input, dedupCommandCaptor.getValue().input);
+    assertEquals(output, dedupCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Dedup_InputNotExists() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    mainService.run(new String[] { DEDUP_COMMAND, "-i", input.toString() });
+    verify(dedup, never()).run(any());
+  }
+
+  @Test
+  public void run_Dedup_Help() throws Throwable {
+    mainService.run(new String[] { DEDUP_COMMAND, "-h" });
+    verify(dedup, never()).run(any());
+  }
+
+  @Test
+  public void run_Sample() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "-f", "0.1" });
+    verify(sample).run(sampleCommandCaptor.capture());
+    SampleCommand command = sampleCommandCaptor.getValue();
+    assertEquals(0.1, command.fraction, 0.0000001);
+    assertEquals(null, command.count);
+    assertEquals(0, command.seed);
+    assertEquals(false, command.bedpe);
+    assertEquals(null, command.threads);
+    assertEquals(null, command.input);
+    assertEquals(null, command.output);
+  }
+
+  @Test
+  public void run_Sample_Threads() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "-f", "0.1", "-t", "3" });
+    verify(sample).run(sampleCommandCaptor.capture());
+    assertEquals((Integer) 3, sampleCommandCaptor.getValue().threads);
+  }
+
+  @Test
+  public void run_Sample_Options() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "-n", "1000", "--seed", "3", "-p" });
+    verify(sample).run(sampleCommandCaptor.capture());
+    SampleCommand command = sampleCommandCaptor.getValue();
+    assertEquals(null, command.fraction);
+    assertEquals((Long) 1000L, command.count);
+    assertEquals(3, command.seed);
+    assertEquals(true, command.bedpe);
+  }
+
+  @Test
+  public void run_Sample_OptionsLongName() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "--fraction", "0.5", "--bedpe" });
+    verify(sample).run(sampleCommandCaptor.capture());
+    SampleCommand command = sampleCommandCaptor.getValue();
+    assertEquals(0.5, command.fraction, 0.0000001);
+    assertEquals(true, command.bedpe);
+  }
+
+  @Test
+  public void run_Sample_CountLongName() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "--count", "10" });
+    verify(sample).run(sampleCommandCaptor.capture());
+    assertEquals((Long) 10L, sampleCommandCaptor.getValue().count);
+  }
+
+  @Test
+  public void run_Sample_InputOutput() throws Throwable {
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.txt");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService.run(new String[] { SAMPLE_COMMAND, "-f", "0.1", "-i", input.toString(), "-o",
+        output.toString() });
+    verify(sample).run(sampleCommandCaptor.capture());
+    assertEquals(input, sampleCommandCaptor.getValue().input);
+    assertEquals(output, sampleCommandCaptor.getValue().output);
+  }
+
+  @Test
+  public void run_Sample_Help() throws Throwable {
+    mainService.run(new String[] { SAMPLE_COMMAND, "-h" });
+    verify(sample, never()).run(any());
+  }
+
+  @Test
+  public void run_GetFasta() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.createFile(fasta);
+    mainService.run(new String[] { GET_FASTA_COMMAND, "-fi", fasta.toString() });
+    verify(getFasta).run(getFastaCommandCaptor.capture());
+    GetFastaCommand command = getFastaCommandCaptor.getValue();
+    assertEquals(fasta, command.fasta);
+    assertEquals(false, command.strand);
+    assertEquals(false, command.name);
+    assertEquals(false, command.tab);
+    assertNull(command.threads);
+    assertNull(command.input);
+    assertNull(command.output);
+  }
+
+  @Test
+  public void run_GetFasta_Options() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.createFile(fasta);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.bed");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.fa");
+    mainService.run(new String[] { GET_FASTA_COMMAND, "--fasta", fasta.toString(), "-s", "-n",
+        "--tab", "-t", "2", "-i", input.toString(), "-o", output.toString() });
+    verify(getFasta).run(getFastaCommandCaptor.capture());
+    GetFastaCommand command = getFastaCommandCaptor.getValue();
+    assertEquals(fasta, command.fasta);
+    assertEquals(true, command.strand);
+    assertEquals(true, command.name);
+    assertEquals(true, command.tab);
+    assertEquals((Integer) 2, command.threads);
+    assertEquals(input, command.input);
+    assertEquals(output, command.output);
+  }
+
+  @Test
+  public void run_GetFasta_MissingFasta() throws Throwable {
+    mainService.run(new String[] { GET_FASTA_COMMAND });
+    verify(getFasta, never()).run(any());
+  }
+
+  @Test
+  public void run_GetFasta_FastaNotExists() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    mainService.run(new String[] { GET_FASTA_COMMAND, "-fi", fasta.toString() });
+    verify(getFasta, never()).run(any());
+  }
+
+  @Test
+  public void run_GetFasta_Help() throws Throwable {
+    mainService.run(new String[] { GET_FASTA_COMMAND, "-h" });
+    verify(getFasta, never()).run(any());
+  }
+
+  @Test
+  public void run_Nuc() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.createFile(fasta);
+    mainService.run(new String[] { NUC_COMMAND, "-fi", fasta.toString() });
+    verify(nuc).run(nucCommandCaptor.capture());
+    NucCommand command = nucCommandCaptor.getValue();
+    assertEquals(fasta, command.fasta);
+    assertNull(command.threads);
+    assertNull(command.input);
+    assertNull(command.output);
+  }
+
+  @Test
+  public void run_Nuc_Options() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.createFile(fasta);
+    Path input = temporaryFolder.getRoot().toPath().resolve("input.bed");
+    Files.createFile(input);
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.txt");
+    mainService.run(new String[] { NUC_COMMAND, "--fasta", fasta.toString(), "-t", "2", "-i",
+        input.toString(), "-o", output.toString() });
+    verify(nuc).run(nucCommandCaptor.capture());
+    NucCommand command = nucCommandCaptor.getValue();
+    assertEquals(fasta, command.fasta);
+    assertEquals((Integer) 2, command.threads);
+    assertEquals(input, command.input);
+    assertEquals(output, command.output);
+  }
+
+  @Test
+  public void run_Nuc_MissingFasta() throws Throwable {
+    mainService.run(new String[] { NUC_COMMAND });
+    verify(nuc, never()).run(any());
+  }
+
+  @Test
+  public void run_Nuc_FastaNotExists() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    mainService.run(new String[] { NUC_COMMAND, "-fi", fasta.toString() });
+    verify(nuc, never()).run(any());
+  }
+
+  @Test
+  public void run_Nuc_Help() throws Throwable {
+    mainService.run(new String[] { NUC_COMMAND, "-h" });
+    verify(nuc, never()).run(any());
+  }
+
   @Test
   public void run_Other() throws Throwable {
     mainService.run(new String[] { "other" });
@@ -599,5 +1494,13 @@ public class MainServiceTest {
     verifyZeroInteractions(fastaConverter);
     verifyZeroInteractions(filterBedpe);
     verifyZeroInteractions(bedpeToBed);
+    verifyZeroInteractions(intersect);
+    verifyZeroInteractions(merge);
+    verifyZeroInteractions(coverage);
+    verifyZeroInteractions(bedConverter);
+    verifyZeroInteractions(dedup);
+    verifyZeroInteractions(sample);
+    verifyZeroInteractions(getFasta);
+    verifyZeroInteractions(nuc);
   }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class MergeTest {
+  @Inject
+  private Merge service;
+  @Mock
+  private MergeCommand command;
+  private String content;
+  private StringWriter writer;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t5\t+", "chr1\t150\t250\ta2\t3\t-",
+        "chr1\t250\t300\ta3\t7\t+", "chr1\t320\t400\ta4\t1\t-", "chr1\t600\t700\ta5\t2\t+",
+        "chr2\t100\t200\ta6\t4\t+");
+    command.columns = new ArrayList<>();
+    command.operations = new ArrayList<>();
+    writer = new StringWriter();
+  }
+
+  private String lines(String... lines) {
+    return Arrays.asList(lines).stream().collect(Collectors.joining("\n"));
+  }
+
+  private void run() throws Throwable {
+    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
+    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    service.run(command);
+  }
+
+  private String[] outputLines() {
+    return Arrays.asList(writer.toString().split("\n")).stream().filter(line -> !line.isEmpty())
+        .toArray(count -> new String[count]);
+  }
+
+  @Test
+  public void run_Overlapping() throws Throwable {
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(4, outputLines.length);
+    assertEquals("chr1\t100\t300", outputLines[0]);
+    assertEquals("chr1\t320\t400", outputLines[1]);
+    assertEquals("chr1\t600\t700", outputLines[2]);
+    assertEquals("chr2\t100\t200", outputLines[3]);
+  }
+
+  @Test
+  public void run_Distance() throws Throwable {
+    command.distance = 20;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(3, outputLines.length);
+    assertEquals("chr1\t100\t400", outputLines[0]);
+    assertEquals("chr1\t600\t700", outputLines[1]);
+    assertEquals("chr2\t100\t200", outputLines[2]);
+  }
+
+  @Test
+  public void run_SameStrand() throws Throwable {
+    command.sameStrand = true;
+    command.columns = Arrays.asList(6);
+    command.operations = Arrays.asList(MergeOperation.DISTINCT);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(6, outputLines.length);
+    assertEquals("chr1\t100\t200\t.\t0\t+\t+", outputLines[0]);
+    assertEquals("chr1\t150\t250\t.\t0\t-\t-", outputLines[1]);
+    assertEquals("chr1\t250\t300\t.\t0\t+\t+", outputLines[2]);
+    assertEquals("chr1\t320\t400\t.\t0\t-\t-", outputLines[3]);
+    assertEquals("chr1\t600\t700\t.\t0\t+\t+", outputLines[4]);
+    assertEquals("chr2\t100\t200\t.\t0\t+\t+", outputLines[5]);
+  }
+
+  @Test
+  public void run_SameStrand_Interleaved() throws Throwable {
+    content = lines("chr1\t10\t20\ta1\t0\t+", "chr1\t18\t25\ta2\t0\t-",
+        "chr1\t19\t60\ta3\t0\t+", "chr1\t30\t40\ta4\t0\t-", "chr1\t50\t55\ta5\t0\t-",
+        "chr2\t5\t10\ta6\t0\t-", "chr2\t8\t12\ta7\t0\t+");
+    command.sameStrand = true;
+    command.columns = Arrays.asList(4);
+    command.operations = Arrays.asList(MergeOperation.DISTINCT);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(6, outputLines.length);
+    assertEquals("chr1\t10\t60\t.\t0\t+\ta1,a3", outputLines[0]);
+    assertEquals("chr1\t18\t25\t.\t0\t-\ta2", outputLines[1]);
+    assertEquals("chr1\t30\t40\t.\t0\t-\ta4", outputLines[2]);
+    assertEquals("chr1\t50\t55\t.\t0\t-\ta5", outputLines[3]);
+    assertEquals("chr2\t5\t10\t.\t0\t-\ta6", outputLines[4]);
+    assertEquals("chr2\t8\t12\t.\t0\t+\ta7", outputLines[5]);
+
+    content = writer.toString();
+    writer = new StringWriter();
+    command.columns = Arrays.asList(4, 7);
+    command.operations = Arrays.asList(MergeOperation.DISTINCT);
+    run();
+    outputLines = outputLines();
+    assertEquals(6, outputLines.length);
+    assertEquals("chr1\t10\t60\t.\t0\t+\t.\ta1,a3", outputLines[0]);
+    assertEquals("chr1\t18\t25\t.\t0\t-\t.\ta2", outputLines[1]);
+    assertEquals("chr1\t30\t40\t.\t0\t-\t.\ta4", outputLines[2]);
+    assertEquals("chr1\t50\t55\t.\t0\t-\t.\ta5", outputLines[3]);
+    assertEquals("chr2\t5\t10\t.\t0\t-\t.\ta6", outputLines[4]);
+    assertEquals("chr2\t8\t12\t.\t0\t+\t.\ta7", outputLines[5]);
+
+    content = writer.toString();
+    writer = new StringWriter();
+    command.sameStrand = false;
+    command.columns = new ArrayList<>();
+    command.operations = new ArrayList<>();
+    run();
+    outputLines = outputLines();
+    assertEquals(2, outputLines.length);
+    assertEquals("chr1\t10\t60", outputLines[0]);
+    assertEquals("chr2\t5\t12", outputLines[1]);
+  }
+
+  @Test
+  public void run_Operations() throws Throwable {
+    command.columns = Arrays.asList(4, 5, 5, 5, 5);
+    command.operations = Arrays.asList(MergeOperation.DISTINCT, MergeOperation.COUNT,
+        MergeOperation.SUM, MergeOperation.MIN, MergeOperation.MAX);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(4, outputLines.length);
+    assertEquals("chr1\t100\t300\ta1,a2,a3\t3\t15\t3\t7", outputLines[0]);
+    assertEquals("chr1\t320\t400\ta4\t1\t1\t1\t1", outputLines[1]);
+    assertEquals("chr1\t600\t700\ta5\t1\t2\t2\t2", outputLines[2]);
+    assertEquals("chr2\t100\t200\ta6\t1\t4\t4\t4", outputLines[3]);
+  }
+
+  @Test
+  public void run_SingleOperation() throws Throwable {
+    command.columns = Arrays.asList(2, 5);
+    command.operations = Arrays.asList(MergeOperation.MAX);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(4, outputLines.length);
+    assertEquals("chr1\t100\t300\t250\t7", outputLines[0]);
+    assertEquals("chr1\t320\t400\t320\t1", outputLines[1]);
+    assertEquals("chr1\t600\t700\t600\t2", outputLines[2]);
+    assertEquals("chr2\t100\t200\t100\t4", outputLines[3]);
+  }
+
+  @Test
+  public void run_DecimalSum() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t0.5", "chr1\t150\t250\ta2\t0.25");
+    command.columns = Arrays.asList(5);
+    command.operations = Arrays.asList(MergeOperation.SUM);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(1, outputLines.length);
+    assertEquals("chr1\t100\t250\t0.75", outputLines[0]);
+  }
+
+  @Test
+  public void run_LargeIntegerSum() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t9007199254740993", "chr1\t150\t250\ta2\t2");
+    command.columns = Arrays.asList(5, 5, 5);
+    command.operations =
+        Arrays.asList(MergeOperation.SUM, MergeOperation.MIN, MergeOperation.MAX);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(1, outputLines.length);
+    assertEquals("chr1\t100\t250\t9007199254740995\t2\t9007199254740993", outputLines[0]);
+  }
+
+  @Test
+  public void run_IntegerThenDecimalSum() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t3", "chr1\t150\t250\ta2\t0.5",
+        "chr1\t200\t300\ta3\t2");
+    command.columns = Arrays.asList(5, 5, 5);
+    command.operations =
+        Arrays.asList(MergeOperation.SUM, MergeOperation.MIN, MergeOperation.MAX);
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(1, outputLines.length);
+    assertEquals("chr1\t100\t300\t5.5\t0.5\t3", outputLines[0]);
+  }
+
+  @Test
+  public void run_Comments() throws Throwable {
+    content = "track name=test\n#comment\n" + content;
+    run();
+    String[] outputLines = outputLines();
+    assertEquals(6, outputLines.length);
+    assertEquals("track name=test", outputLines[0]);
+    assertEquals("#comment", outputLines[1]);
+    assertEquals("chr1\t100\t300", outputLines[2]);
+    assertEquals("chr1\t320\t400", outputLines[3]);
+    assertEquals("chr1\t600\t700", outputLines[4]);
+    assertEquals("chr2\t100\t200", outputLines[5]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_InvalidOperationCount() throws Throwable {
+    command.columns = Arrays.asList(4, 5, 6);
+    command.operations = Arrays.asList(MergeOperation.COUNT, MergeOperation.SUM);
+    run();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_MissingColumn() throws Throwable {
+    command.columns = Arrays.asList(7);
+    command.operations = Arrays.asList(MergeOperation.COUNT);
+    run();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_NotSorted() throws Throwable {
+    content = lines("chr1\t100\t200\ta1\t0\t+", "chr1\t50\t250\ta2\t0\t-");
+    run();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NameBloomFilterTest {
+  private static final int NAME_COUNT = 100000;
+
+  @Test
+  public void contains() {
+    NameBloomFilter names = new NameBloomFilter(NAME_COUNT);
+    for (int i = 0; i < NAME_COUNT; i++) {
+      names.add("read" + i);
+    }
+    for (int i = 0; i < NAME_COUNT; i++) {
+      String name = "read" + i;
+      assertTrue(names.contains(name, 0, name.length()));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < NAME_COUNT; i++) {
+      String name = "other" + i;
+      if (names.contains(name, 0, name.length())) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives + " false positives",
+        falsePositives < NAME_COUNT * NameBloomFilter.FALSE_POSITIVE_RATE * 2);
+  }
+
+  @Test
+  public void contains_Slice() {
+    NameBloomFilter names = new NameBloomFilter(10);
+    names.add("read1");
+    assertTrue(names.contains("chr1\tread1\t0", 5, 10));
+  }
+
+  @Test
+  public void contains_Bytes() {
+    NameBloomFilter names = new NameBloomFilter(10);
+    names.add("read1");
+    names.add("lecture1é");
+    assertTrue(names.contains("chr1\tread1\t0".getBytes(StandardCharsets.UTF_8), 5, 10));
+    byte[] name = "lecture1é".getBytes(StandardCharsets.UTF_8);
+    assertTrue(names.contains(name, 0, name.length));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NameHashTableTest {
+  @Test
+  public void contains() {
+    NameHashTable names = new NameHashTable(10);
+    names.add("K00271:501:H575WBBXY:6:1101:1347:17509");
+    names.add("read2");
+    assertEquals(2, names.size());
+    String line = "chr1\tK00271:501:H575WBBXY:6:1101:1347:17509\t0";
+    assertTrue(names.contains(line, 5, 43));
+    assertTrue(names.contains("read2", 0, 5));
+    assertFalse(names.contains("read", 0, 4));
+    assertFalse(names.contains("read22", 0, 6));
+    assertFalse(names.contains(line, 0, 4));
+  }
+
+  @Test
+  public void add_Duplicate() {
+    NameHashTable names = new NameHashTable(10);
+    names.add("read1");
+    names.add("read1");
+    assertEquals(1, names.size());
+  }
+
+  @Test
+  public void add_Grow() {
+    NameHashTable names = new NameHashTable(1, 0, 64);
+    for (int i = 0; i < 10000; i++) {
+      names.add("read" + i);
+    }
+    assertEquals(10000, names.size());
+    for (int i = 0; i < 10000; i++) {
+      String name = "read" + i;
+      assertTrue(names.contains(name, 0, name.length()));
+      String other = "other" + i;
+      assertFalse(names.contains(other, 0, other.length()));
+    }
+  }
+
+  @Test
+  public void add_SmallArena() {
+    NameHashTable names = new NameHashTable(1);
+    names.add("read1");
+    assertEquals(1 << 16, names.arenaMemory());
+  }
+
+  @Test
+  public void add_ArenaSizedFromNames() {
+    NameHashTable names = new NameHashTable(10000, 100000L);
+    assertEquals(0, names.arenaMemory());
+    for (int i = 0; i < 10000; i++) {
+      names.add("read" + i);
+    }
+    assertEquals(140000, names.arenaMemory());
+  }
+
+  @Test
+  public void add_ArenaGrow() {
+    NameHashTable names = new NameHashTable(1, 0, 1 << 20);
+    for (int i = 0; i < 50000; i++) {
+      names.add("read" + i);
+    }
+    assertEquals(1 << 20, names.arenaMemory());
+    for (int i = 0; i < 50000; i++) {
+      String name = "read" + i;
+      assertTrue(names.contains(name, 0, name.length()));
+    }
+  }
+
+  @Test
+  public void contains_Bytes() {
+    NameHashTable names = new NameHashTable(10);
+    names.add("read1");
+    names.add("lecture1é");
+    byte[] line = "chr1\tread1\tlecture1é\tread".getBytes(StandardCharsets.UTF_8);
+    assertTrue(names.contains(line, 5, 10));
+    assertTrue(names.contains(line, 11, 21));
+    assertFalse(names.contains(line, 22, 26));
+    assertFalse(names.contains(line, 5, 9));
+    assertFalse(names.contains(line, 0, 4));
+  }
+
+  @Test
+  public void contains_NonAscii() {
+    NameHashTable names = new NameHashTable(10);
+    names.add("lecture1é");
+    assertTrue(names.contains("lecture1é", 0, 9));
+    assertFalse(names.contains("lecture1e", 0, 9));
+  }
+}
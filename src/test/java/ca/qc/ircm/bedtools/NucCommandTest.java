@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.io.BinaryBed;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NucCommandTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private final InputStream systemIn = System.in;
+  private final PrintStream systemOut = System.out;
+  private NucCommand command = new NucCommand();
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @After
+  public void restoreSystemInputOutput() {
+    System.setIn(systemIn);
+    System.setOut(systemOut);
+  }
+
+  private List<String> lines(InputStream input) throws Throwable {
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, CHARSET))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  @Test
+  public void inputStream() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    Files.write(file, "test line 0\ntest line 1".getBytes(CHARSET));
+    command.input = file;
+
+    List<String> lines = lines(command.inputStream());
+
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void inputStream_System() throws Throwable {
+    System.setIn(new ByteArrayInputStream("test line 0\ntest line 1".getBytes(CHARSET)));
+
+    List<String> lines = lines(command.inputStream());
+
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void outputStream() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.txt");
+    command.output = file;
+
+    try (OutputStream output = command.outputStream()) {
+      output.write(">chr1:0-4\nACGT\n".getBytes(CHARSET));
+    }
+
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(2, lines.size());
+    assertEquals(">chr1:0-4", lines.get(0));
+    assertEquals("ACGT", lines.get(1));
+  }
+
+  @Test
+  public void outputStream_BinaryExtension() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file" + BinaryBed.EXTENSION);
+    command.output = file;
+
+    try (OutputStream output = command.outputStream()) {
+      output.write(">chr1:0-4\nACGT\n".getBytes(CHARSET));
+    }
+
+    assertEquals(">chr1:0-4\nACGT\n", new String(Files.readAllBytes(file), CHARSET));
+  }
+}
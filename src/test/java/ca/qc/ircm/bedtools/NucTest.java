@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.genome.CompositionIndex;
+import ca.qc.ircm.bedtools.genome.TwoBitWriter;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NucTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String SEQUENCE1 = "ACGTACGTACGTacgtNNACGTA";
+  private static final String SEQUENCE2 = "TTTTGGGGCCCC";
+  @Inject
+  private Nuc service;
+  @Mock
+  private NucCommand command;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    command.fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(command.fasta, (">chr1 first chromosome\n" + SEQUENCE1.substring(0, 10) + "\n"
+        + SEQUENCE1.substring(10, 20) + "\n" + SEQUENCE1.substring(20) + "\n>chr2\n"
+        + SEQUENCE2.substring(0, 10) + "\n" + SEQUENCE2.substring(10) + "\n").getBytes(CHARSET));
+  }
+
+  private String run(String content) throws Throwable {
+    when(command.inputStream()).thenReturn(new ByteArrayInputStream(content.getBytes(CHARSET)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    return output.toString(CHARSET.name());
+  }
+
+  private String composition(String sequence, int start, int end) {
+    int gc = 0;
+    int n = 0;
+    for (char base : sequence.substring(start, end).toCharArray()) {
+      if ("GCgc".indexOf(base) >= 0) {
+        gc++;
+      } else if ("Nn".indexOf(base) >= 0) {
+        n++;
+      }
+    }
+    double fraction = end > start ? (double) gc / (end - start) : 0;
+    return String.format(Locale.ENGLISH, "%.6f\t%d\t%d\t%d", fraction, gc, n, end - start);
+  }
+
+  @Test
+  public void run() throws Throwable {
+    String output = run("chr1\t8\t14\ta\t0\t+\nchr1\t0\t23\tb\t0\t-\nchr2\t5\t12\n");
+    assertEquals("chr1\t8\t14\ta\t0\t+\t0.500000\t3\t0\t6\n"
+        + "chr1\t0\t23\tb\t0\t-\t0.434783\t10\t2\t23\n" + "chr2\t5\t12\t1.000000\t7\t0\t7\n",
+        output);
+    assertTrue(Files.exists(CompositionIndex.cache(command.fasta)));
+  }
+
+  @Test
+  public void run_Rounding() throws Throwable {
+    String output = run("chr1\t1\t4\nchr1\t0\t3\nchr1\t14\t20\n");
+    assertEquals("chr1\t1\t4\t0.666667\t2\t0\t3\nchr1\t0\t3\t0.666667\t2\t0\t3\n"
+        + "chr1\t14\t20\t0.333333\t2\t2\t6\n", output);
+  }
+
+  @Test
+  public void run_TwoBit() throws Throwable {
+    Path twoBit = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+    TwoBitWriter.write(command.fasta, twoBit);
+    command.fasta = twoBit;
+    String output = run("chr1\t8\t14\ta\t0\t+\nchr1\t0\t23\tb\t0\t-\nchr2\t5\t12\n");
+    assertEquals("chr1\t8\t14\ta\t0\t+\t0.500000\t3\t0\t6\n"
+        + "chr1\t0\t23\tb\t0\t-\t0.434783\t10\t2\t23\n" + "chr2\t5\t12\t1.000000\t7\t0\t7\n",
+        output);
+    assertTrue(Files.exists(CompositionIndex.cache(twoBit)));
+  }
+
+  @Test
+  public void run_Headers() throws Throwable {
+    String output = run("track name=test\n#comment\nchr1\t0\t4\n");
+    assertEquals("track name=test\n#comment\nchr1\t0\t4\t0.500000\t2\t0\t4\n", output);
+  }
+
+  @Test
+  public void run_Empty() throws Throwable {
+    String output = run("chr1\t5\t5\n");
+    assertEquals("chr1\t5\t5\t0.000000\t0\t0\t0\n", output);
+  }
+
+  @Test
+  public void run_OutsideOfSequences() throws Throwable {
+    String output = run("chr1\t20\t24\nchr3\t0\t4\nchr2\t-1\t4\nchr2\t5\t4\nchr2\t0\t4\n");
+    assertEquals("chr2\t0\t4\t0.000000\t0\t0\t4\n", output);
+  }
+
+  @Test
+  public void run_Threads() throws Throwable {
+    command.threads = 3;
+    Random random = new Random();
+    StringBuilder content = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      boolean first = random.nextBoolean();
+      String sequence = first ? SEQUENCE1 : SEQUENCE2;
+      int start = random.nextInt(sequence.length());
+      int end = start + random.nextInt(sequence.length() - start + 1);
+      String line = (first ? "chr1" : "chr2") + "\t" + start + "\t" + end + "\tname" + i;
+      content.append(line + "\n");
+      expected.append(line + "\t" + composition(sequence, start, end) + "\n");
+    }
+    String output = run(content.toString());
+    assertEquals(expected.toString(), output);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class QuantileSketchTest {
+  private static final double MAXIMUM_ERROR = 1.0 / QuantileSketch.SUB_BUCKETS;
+
+  @Test
+  public void quantile_Exact() {
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 1; i <= 100; i++) {
+      sketch.add(i);
+    }
+    assertEquals(100, sketch.count());
+    assertEquals(50, sketch.quantile(0.5));
+    assertEquals(90, sketch.quantile(0.9));
+    assertEquals(99, sketch.quantile(0.99));
+    assertEquals(100, sketch.quantile(0.999));
+    assertEquals(1, sketch.quantile(0));
+    assertEquals(100, sketch.quantile(1));
+  }
+
+  @Test
+  public void quantile_Empty() {
+    QuantileSketch sketch = new QuantileSketch();
+    assertEquals(0, sketch.count());
+    assertEquals(0, sketch.quantile(0.5));
+  }
+
+  @Test
+  public void quantile_Negative() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.add(-20);
+    sketch.add(-10);
+    sketch.add(0);
+    sketch.add(10);
+    assertEquals(-20, sketch.quantile(0.25));
+    assertEquals(-10, sketch.quantile(0.5));
+    assertEquals(0, sketch.quantile(0.75));
+    assertEquals(10, sketch.quantile(1));
+  }
+
+  @Test
+  public void quantile_Large() {
+    Random random = new Random();
+    long[] values = new long[100000];
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (long) (Math.exp(random.nextDouble() * 30));
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+    for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+      long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+      long actual = sketch.quantile(quantile);
+      assertTrue(expected + " vs " + actual,
+          Math.abs(actual - expected) <= Math.max(1, expected * MAXIMUM_ERROR));
+    }
+  }
+
+  @Test
+  public void merge() {
+    QuantileSketch sketch1 = new QuantileSketch();
+    QuantileSketch sketch2 = new QuantileSketch();
+    QuantileSketch all = new QuantileSketch();
+    Random random = new Random();
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextInt(100000) - 1000;
+      (i % 2 == 0 ? sketch1 : sketch2).add(value);
+      all.add(value);
+    }
+    sketch1.merge(sketch2);
+    assertEquals(all.count(), sketch1.count());
+    for (double quantile : new double[] { 0.01, 0.5, 0.9, 0.99, 0.999 }) {
+      assertEquals(all.quantile(quantile), sketch1.quantile(quantile));
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class RegionIndexTest {
+  private RegionIndex load(String content) throws Throwable {
+    return RegionIndex.load(new BufferedReader(new StringReader(content)));
+  }
+
+  @Test
+  public void overlaps() throws Throwable {
+    RegionIndex regions =
+        load("track name=test\n#comment\nchr1\t100\t200\nchr1\t50\t60\n\nchr2\t1000\t2000\n");
+    assertTrue(regions.overlaps("chr1", 150, 160));
+    assertTrue(regions.overlaps("chr1", 0, 101));
+    assertTrue(regions.overlaps("chr1", 199, 300));
+    assertTrue(regions.overlaps("chr1", 55, 56));
+    assertFalse(regions.overlaps("chr1", 0, 50));
+    assertFalse(regions.overlaps("chr1", 60, 100));
+    assertFalse(regions.overlaps("chr1", 200, 300));
+    assertTrue(regions.overlaps("chr2", 1500, 1600));
+    assertFalse(regions.overlaps("chr2", 150, 160));
+    assertFalse(regions.overlaps("chr3", 150, 160));
+  }
+
+  @Test
+  public void overlaps_Bytes() throws Throwable {
+    RegionIndex regions = load("chr1\t100\t200\nchr2\t1000\t2000\n");
+    byte[] line = "chr1\t150\t160\tchr2\t150\t160".getBytes(StandardCharsets.UTF_8);
+    assertTrue(regions.overlaps(line, 0, 4, 150, 160));
+    assertFalse(regions.overlaps(line, 13, 17, 150, 160));
+    assertTrue(regions.overlaps(line, 13, 17, 1500, 1600));
+    assertFalse(regions.overlaps(line, 0, 3, 150, 160));
+  }
+
+  @Test
+  public void overlaps_Random() throws Throwable {
+    Random random = new Random();
+    for (int size : new int[] { 1, 2, 3, 7, 8, 9, 15, 16, 17, 100, 1000, 5000 }) {
+      long[] starts = new long[size];
+      long[] ends = new long[size];
+      StringBuilder content = new StringBuilder();
+      for (int i = 0; i < size; i++) {
+        starts[i] = random.nextInt(1000000);
+        ends[i] = starts[i] + 1 + random.nextInt(random.nextInt(10) == 0 ? 50000 : 500);
+        content.append("chr1\t" + starts[i] + "\t" + ends[i] + "\n");
+      }
+      RegionIndex regions = load(content.toString());
+      for (int i = 0; i < 2000; i++) {
+        long start = random.nextInt(1100000);
+        long end = start + 1 + random.nextInt(2000);
+        boolean expected = false;
+        for (int j = 0; j < size && !expected; j++) {
+          expected = starts[j] < end && start < ends[j];
+        }
+        assertEquals(size + " regions, " + start + "-" + end, expected,
+            regions.overlaps("chr1", start, end));
+      }
+    }
+  }
+}
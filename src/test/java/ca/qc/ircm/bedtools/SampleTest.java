@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class SampleTest {
+  private static final int LINE_COUNT = 20000;
+  @Inject
+  private Sample service;
+  @Mock
+  private SampleCommand command;
+  private String content;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() {
+    content = "#comment\n" + IntStream.range(0, LINE_COUNT)
+        .mapToObj(i -> "chr1\t" + i + "\t" + (i + 50) + "\tread" + i + "\t0\t+")
+        .collect(Collectors.joining("\n"));
+  }
+
+  private List<String> run(String content) throws Throwable {
+    when(command.reader()).thenReturn(new BufferedReader(new StringReader(content)));
+    when(command.inputStream())
+        .thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    StringWriter writer = new StringWriter();
+    when(command.writer()).thenReturn(new BufferedWriter(writer));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    when(command.outputStream()).thenReturn(output);
+    service.run(command);
+    String result = command.fraction != null ? output.toString(StandardCharsets.UTF_8.name())
+        : writer.toString();
+    return Arrays.asList(result.split("\n"));
+  }
+
+  private boolean inOrder(List<String> lines) {
+    for (int i = 2; i < lines.size(); i++) {
+      if (Long.parseLong(lines.get(i).split("\t")[1]) <= Long
+          .parseLong(lines.get(i - 1).split("\t")[1])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  public void run_Fraction() throws Throwable {
+    command.fraction = 0.1;
+    List<String> lines = run(content);
+    assertEquals("#comment", lines.get(0));
+    int sampled = lines.size() - 1;
+    assertTrue(sampled + " sampled", sampled > LINE_COUNT * 0.08 && sampled < LINE_COUNT * 0.12);
+    assertTrue(inOrder(lines));
+  }
+
+  @Test
+  public void run_Fraction_Threads() throws Throwable {
+    command.fraction = 0.1;
+    command.threads = 1;
+    List<String> lines = run(content);
+    command.threads = 4;
+    List<String> parallelLines = run(content);
+    assertEquals(lines, parallelLines);
+    assertTrue(inOrder(parallelLines));
+  }
+
+  @Test
+  public void run_Fraction_Deterministic() throws Throwable {
+    command.fraction = 0.1;
+    List<String> lines = run(content);
+    List<String> reversed = Arrays.asList(content.split("\n"));
+    StringBuilder reversedContent = new StringBuilder();
+    for (int i = reversed.size() - 1; i >= 0; i--) {
+      reversedContent.append(reversed.get(i)).append("\n");
+    }
+    List<String> reversedLines = run(reversedContent.toString());
+    assertEquals(lines.stream().sorted().collect(Collectors.toList()),
+        reversedLines.stream().sorted().collect(Collectors.toList()));
+  }
+
+  @Test
+  public void run_Fraction_Seed() throws Throwable {
+    command.fraction = 0.1;
+    List<String> lines = run(content);
+    command.seed = 1;
+    List<String> otherLines = run(content);
+    assertTrue(!lines.equals(otherLines));
+  }
+
+  @Test
+  public void run_Fraction_Bedpe() throws Throwable {
+    command.fraction = 0.5;
+    command.bedpe = true;
+    String content = IntStream.range(0, 1000)
+        .mapToObj(i -> "chr1\t" + i + "\t" + (i + 50) + "\tchr1\t" + (i + 200) + "\t" + (i + 250)
+            + "\tread" + (i / 2) + "\t0\t+\t-")
+        .collect(Collectors.joining("\n"));
+    List<String> lines = run(content);
+    Map<String, Integer> names = new HashMap<>();
+    for (String line : lines) {
+      names.merge(line.split("\t")[6], 1, Integer::sum);
+    }
+    assertTrue(names.size() > 0);
+    names.values().forEach(count -> assertEquals(2, count.intValue()));
+  }
+
+  @Test
+  public void run_Count() throws Throwable {
+    command.count = 1000L;
+    List<String> lines = run(content);
+    assertEquals("#comment", lines.get(0));
+    assertEquals(1001, lines.size());
+    assertTrue(inOrder(lines));
+  }
+
+  @Test
+  public void run_Count_Deterministic() throws Throwable {
+    command.count = 1000L;
+    List<String> lines = run(content);
+    List<String> otherLines = run(content);
+    assertEquals(lines, otherLines);
+  }
+
+  @Test
+  public void run_Count_MoreThanInput() throws Throwable {
+    command.count = (long) LINE_COUNT * 2;
+    List<String> lines = run(content);
+    assertEquals(Arrays.asList(content.split("\n")), lines);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_NoFractionOrCount() throws Throwable {
+    run(content);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_FractionAndCount() throws Throwable {
+    command.fraction = 0.1;
+    command.count = 1000L;
+    run(content);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void run_InvalidFraction() throws Throwable {
+    command.fraction = 1.1;
+    run(content);
+  }
+}
@@ -19,11 +19,13 @@ package ca.qc.ircm.bedtools;
 
 import static org.junit.Assert.assertEquals;
 
+import ca.qc.ircm.bedtools.io.SplitWriter;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -32,8 +34,6 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
@@ -54,14 +54,14 @@ public class SetAnnotationsSizeCommandTest {
   }
 
   @Test
-  public void reader() throws Throwable {
-    Path file = temporaryFolder.newFile("file.txt").toPath();
-    Files.write(file,
-        IntStream.range(0, 2).mapToObj(i -> "test line " + i).collect(Collectors.toList()));
-    command.input = file;
+  public void inputStream_System() throws Throwable {
+    ByteArrayInputStream input =
+        new ByteArrayInputStream("test line 0\ntest line 1".getBytes(CHARSET));
+    System.setIn(input);
 
     List<String> lines = new ArrayList<>();
-    try (BufferedReader reader = command.reader()) {
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(command.inputStream(), CHARSET))) {
       String line;
       while ((line = reader.readLine()) != null) {
         lines.add(line);
@@ -73,14 +73,41 @@ public class SetAnnotationsSizeCommandTest {
     assertEquals("test line 1", lines.get(1));
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void outputStream_SplitByAndShards() throws Throwable {
+    command.output = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    command.splitBy = SplitBy.CHROMOSOME;
+    command.shards = 4;
+
+    command.outputStream();
+  }
+
   @Test
-  public void reader_System() throws Throwable {
-    ByteArrayInputStream input =
-        new ByteArrayInputStream("test line 0\ntest line 1".getBytes(CHARSET));
-    System.setIn(input);
+  public void outputStream_System() throws Throwable {
+    ByteArrayOutputStream systemOutput = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(systemOutput));
+
+    try (OutputStream output = command.outputStream()) {
+      output.write("test line 0".getBytes(CHARSET));
+      output.write("\n".getBytes(CHARSET));
+      output.write("test line 1".getBytes(CHARSET));
+    }
+
+    List<String> lines = Arrays.asList(systemOutput.toString(CHARSET.name()).split("\n"));
+    assertEquals(2, lines.size());
+    assertEquals("test line 0", lines.get(0));
+    assertEquals("test line 1", lines.get(1));
+  }
+
+  @Test
+  public void inputStream() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    Files.write(file, "test line 0\ntest line 1".getBytes(CHARSET));
+    command.input = file;
 
     List<String> lines = new ArrayList<>();
-    try (BufferedReader reader = command.reader()) {
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(command.inputStream(), CHARSET))) {
       String line;
       while ((line = reader.readLine()) != null) {
         lines.add(line);
@@ -93,14 +120,12 @@ public class SetAnnotationsSizeCommandTest {
   }
 
   @Test
-  public void writer() throws Throwable {
-    Path file = temporaryFolder.newFile("file.txt").toPath();
+  public void outputStream() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
     command.output = file;
 
-    try (BufferedWriter writer = command.writer()) {
-      writer.write("test line 0");
-      writer.write("\n");
-      writer.write("test line 1");
+    try (OutputStream output = command.outputStream()) {
+      output.write("test line 0\ntest line 1".getBytes(CHARSET));
     }
 
     List<String> lines = Files.readAllLines(file);
@@ -110,19 +135,41 @@ public class SetAnnotationsSizeCommandTest {
   }
 
   @Test
-  public void writer_System() throws Throwable {
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    System.setOut(new PrintStream(output));
-
-    try (BufferedWriter writer = command.writer()) {
-      writer.write("test line 0");
-      writer.write("\n");
-      writer.write("test line 1");
+  public void outputStream_SplitBy() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    command.output = file;
+    command.splitBy = SplitBy.CHROMOSOME;
+
+    try (OutputStream output = command.outputStream()) {
+      output.write("chr1\t10\t20\nchr2\t10".getBytes(CHARSET));
+      output.write("\t20\nchr1\t30\t40".getBytes(CHARSET));
     }
 
-    List<String> lines = Arrays.asList(output.toString(CHARSET.name()).split("\n"));
+    List<String> lines = Files.readAllLines(SplitWriter.file(file, "chr1"));
     assertEquals(2, lines.size());
-    assertEquals("test line 0", lines.get(0));
-    assertEquals("test line 1", lines.get(1));
+    assertEquals("chr1\t10\t20", lines.get(0));
+    assertEquals("chr1\t30\t40", lines.get(1));
+    lines = Files.readAllLines(SplitWriter.file(file, "chr2"));
+    assertEquals(1, lines.size());
+    assertEquals("chr2\t10\t20", lines.get(0));
+  }
+
+  @Test
+  public void outputStream_Shards() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    command.output = file;
+    command.shards = 4;
+    String mate1 = "chr1\t10\t20\tread1/1";
+    String mate2 = "chr2\t30\t40\tread1/2";
+
+    try (OutputStream output = command.outputStream()) {
+      output.write((mate1 + "\n" + mate2).getBytes(CHARSET));
+    }
+
+    String key = ShardKey.NAME.router(4, 3).key(mate1);
+    List<String> lines = Files.readAllLines(SplitWriter.file(file, key));
+    assertEquals(2, lines.size());
+    assertEquals(mate1, lines.get(0));
+    assertEquals(mate2, lines.get(1));
   }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.io.LineRouter;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ShardKeyTest {
+  @Test
+  public void router_Name() {
+    LineRouter router = ShardKey.NAME.router(16, 3);
+    assertEquals(router.key("chr1\t10\t20\tread1"), router.key("chr2\t30\t40\tread1"));
+    assertEquals(router.key("chr1\t10\t20\tread1/1\t0\t+"), router.key("chr2\t30\t40\tread1/2"));
+    assertEquals(router.key("chr1\t10\t20\tread1"), router.key("chr2\t30\t40\tread1/1"));
+  }
+
+  @Test
+  public void router_NameBedpe() {
+    LineRouter router = ShardKey.NAME.router(16, 6);
+    assertEquals(router.key("chr1\t10\t20\tchr1\t100\t120\tread1\t0\t+\t-"),
+        router.key("chr2\t30\t40\tchr3\t300\t320\tread1\t0\t-\t+"));
+  }
+
+  @Test
+  public void router_NameMissing() {
+    LineRouter router = ShardKey.NAME.router(16, 3);
+    assertEquals(router.key("chr1\t10\t20"), router.key("chr2\t30\t40"));
+  }
+
+  @Test
+  public void router_Position() {
+    LineRouter router = ShardKey.POSITION.router(16, 3);
+    assertEquals(router.key("chr1\t10\t20\tread1"), router.key("chr1\t10\t30\tread2"));
+    assertEquals(router.key("chr1\t10"), router.key("chr1\t10\t30\tread2"));
+  }
+
+  @Test
+  public void router_Keys() {
+    LineRouter router = ShardKey.NAME.router(12, 3);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 12000; i++) {
+      counts.merge(router.key("chr1\t10\t20\tread" + i), 1, Integer::sum);
+    }
+    assertEquals(12, counts.size());
+    for (int i = 0; i < 12; i++) {
+      String key = String.format("shard%02d", i);
+      assertTrue(key, counts.containsKey(key));
+      assertTrue(key + " " + counts.get(key), counts.get(key) > 800);
+      assertTrue(key + " " + counts.get(key), counts.get(key) < 1200);
+    }
+  }
+
+  @Test
+  public void router_OneShard() {
+    LineRouter router = ShardKey.POSITION.router(1, 3);
+    assertEquals("shard0", router.key("chr1\t10\t20"));
+    assertEquals("shard0", router.key("chr2\t10\t20"));
+  }
+
+  @Test
+  public void shard() {
+    assertNotEquals(ShardKey.shard(0, 1 << 16), ShardKey.shard(1 << 16, 1 << 16));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void router_ZeroShards() {
+    ShardKey.NAME.router(0, 3);
+  }
+}
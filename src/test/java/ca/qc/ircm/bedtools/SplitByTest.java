@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class SplitByTest {
+  @Test
+  public void key_Chromosome() {
+    assertEquals("chr1", SplitBy.CHROMOSOME.key("chr1\t10\t20\tname\t0\t+"));
+    assertEquals("chr1", SplitBy.CHROMOSOME.key("chr1"));
+  }
+
+  @Test
+  public void key_Strand() {
+    assertEquals("plus", SplitBy.STRAND.key("chr1\t10\t20\tname\t0\t+"));
+    assertEquals("minus", SplitBy.STRAND.key("chr1\t10\t20\tname\t0\t-\t1"));
+    assertEquals("none", SplitBy.STRAND.key("chr1\t10\t20\tname\t0\t.\t1"));
+    assertEquals("none", SplitBy.STRAND.key("chr1\t10\t20\tname\t0\t++"));
+    assertEquals("none", SplitBy.STRAND.key("chr1\t10\t20\tname"));
+  }
+}
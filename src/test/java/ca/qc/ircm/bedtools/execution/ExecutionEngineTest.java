@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ExecutionEngineTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private ExecutionEngine executionEngine;
+
+  @Before
+  public void beforeTest() {
+    executionEngine = new ExecutionEngine();
+  }
+
+  @After
+  public void afterTest() {
+    executionEngine.shutdown();
+  }
+
+  @Test
+  public void getThreads_Default() {
+    assertEquals(Runtime.getRuntime().availableProcessors(), executionEngine.getThreads());
+  }
+
+  @Test
+  public void setThreads() {
+    executionEngine.setThreads(3);
+    assertEquals(3, executionEngine.getThreads());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setThreads_Zero() {
+    executionEngine.setThreads(0);
+  }
+
+  @Test
+  public void threads() {
+    executionEngine.setThreads(3);
+    assertEquals(3, executionEngine.threads(null));
+    assertEquals(5, executionEngine.threads(5));
+  }
+
+  @Test
+  public void getMemoryBudget_Default() {
+    assertEquals(MemoryBudget.UNLIMITED, executionEngine.getMemoryBudget().getLimit());
+  }
+
+  @Test
+  public void setMemory() {
+    executionEngine.setMemory(1024L);
+    assertEquals(1024, executionEngine.getMemoryBudget().getLimit());
+    try (Workers workers = executionEngine.workers(null)) {
+      assertSame(executionEngine.getMemoryBudget(), workers.memoryBudget());
+    }
+    executionEngine.setMemory(null);
+    assertEquals(MemoryBudget.UNLIMITED, executionEngine.getMemoryBudget().getLimit());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setMemory_Zero() {
+    executionEngine.setMemory(0L);
+  }
+
+  @Test
+  public void workers() {
+    executionEngine.setThreads(3);
+    try (Workers workers = executionEngine.workers(null);
+        Workers other = executionEngine.workers(3)) {
+      assertEquals(3, workers.threads());
+      assertSame(workers.executor, other.executor);
+    }
+    try (Workers workers = executionEngine.workers(null)) {
+      assertFalse(workers.executor.isShutdown());
+    }
+  }
+
+  @Test
+  public void workers_Override() {
+    executionEngine.setThreads(3);
+    Workers shared = executionEngine.workers(null);
+    Workers workers = executionEngine.workers(2);
+    assertEquals(2, workers.threads());
+    assertNotSame(shared.executor, workers.executor);
+    workers.close();
+    assertTrue(workers.executor.isShutdown());
+    shared.close();
+    assertFalse(shared.executor.isShutdown());
+  }
+
+  @Test
+  public void workers_SetThreads() {
+    executionEngine.setThreads(3);
+    Workers workers = executionEngine.workers(null);
+    executionEngine.setThreads(2);
+    assertTrue(workers.executor.isShutdown());
+    Workers other = executionEngine.workers(null);
+    assertEquals(2, other.threads());
+    assertFalse(other.executor.isShutdown());
+  }
+
+  @Test
+  public void workers_Run() throws Throwable {
+    executionEngine.setThreads(2);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (Workers workers = executionEngine.workers(null)) {
+      workers.run(new ByteArrayInputStream("a\nb\nc\n".getBytes(CHARSET)), output,
+          (line, start, end, writer) -> {
+            writer.write(line, start, end);
+            writer.write((byte) '1');
+            writer.newLine();
+          });
+    }
+    assertEquals("a1\nb1\nc1\n", output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void workers_RunMemory() throws Throwable {
+    executionEngine.setThreads(2);
+    executionEngine.setMemory(1L);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (Workers workers = executionEngine.workers(null)) {
+      workers.run(new ByteArrayInputStream("a\nb\nc\n".getBytes(CHARSET)), output,
+          (line, start, end, writer) -> {
+            writer.write(line, start, end);
+            writer.write((byte) '1');
+            writer.newLine();
+          });
+    }
+    assertEquals("a1\nb1\nc1\n", output.toString(CHARSET.name()));
+    assertEquals(0, executionEngine.getMemoryBudget().getUsed());
+  }
+}
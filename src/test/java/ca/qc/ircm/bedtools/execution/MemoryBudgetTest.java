@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class MemoryBudgetTest {
+  @Test
+  public void tryReserve() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertTrue(memoryBudget.tryReserve(60));
+    assertEquals(60, memoryBudget.getUsed());
+    assertEquals(40, memoryBudget.available());
+    assertTrue(memoryBudget.tryReserve(40));
+    assertEquals(0, memoryBudget.available());
+  }
+
+  @Test
+  public void tryReserve_Exceeded() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertTrue(memoryBudget.tryReserve(60));
+    assertFalse(memoryBudget.tryReserve(41));
+    assertEquals(60, memoryBudget.getUsed());
+  }
+
+  @Test
+  public void tryReserve_Unlimited() {
+    MemoryBudget memoryBudget = MemoryBudget.unlimited();
+    assertTrue(memoryBudget.tryReserve(Long.MAX_VALUE / 2));
+    assertTrue(memoryBudget.tryReserve(Long.MAX_VALUE / 2));
+    assertFalse(memoryBudget.tryReserve(Long.MAX_VALUE / 2));
+  }
+
+  @Test
+  public void reserve() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    memoryBudget.reserve(150);
+    assertEquals(150, memoryBudget.getUsed());
+    assertEquals(0, memoryBudget.available());
+    assertFalse(memoryBudget.tryReserve(1));
+  }
+
+  @Test
+  public void release() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    memoryBudget.reserve(150);
+    memoryBudget.release(100);
+    assertEquals(50, memoryBudget.getUsed());
+    assertTrue(memoryBudget.tryReserve(50));
+  }
+
+  @Test
+  public void getLimit() {
+    assertEquals(100, new MemoryBudget(100).getLimit());
+    assertEquals(MemoryBudget.UNLIMITED, MemoryBudget.unlimited().getLimit());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void new_Zero() {
+    new MemoryBudget(0);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class OrderedBatchExecutorTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final LineProcessor UPPER_CASE = (line, start, end, writer) -> {
+    for (int i = start; i < end; i++) {
+      byte value = line[i];
+      writer.write(value >= 'a' && value <= 'z' ? (byte) (value - 'a' + 'A') : value);
+    }
+    writer.newLine();
+  };
+
+  private String content(int lines, int maximumLength) {
+    Random random = new Random();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      content.append("line").append(i).append('\t');
+      int length = random.nextInt(maximumLength);
+      for (int j = 0; j < length; j++) {
+        content.append((char) ('a' + random.nextInt(26)));
+      }
+      content.append('\n');
+    }
+    return content.toString();
+  }
+
+  private String run(OrderedBatchExecutor executor, String content, LineProcessor processor)
+      throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    executor.run(new ByteArrayInputStream(content.getBytes(CHARSET)), output, processor);
+    return output.toString(CHARSET.name());
+  }
+
+  @Test
+  public void run_Sequential() throws Throwable {
+    String content = content(1000, 50);
+    assertEquals(content.toUpperCase(),
+        run(new OrderedBatchExecutor(1), content, UPPER_CASE));
+  }
+
+  @Test
+  public void run_Parallel() throws Throwable {
+    String content = content(10000, 50);
+    assertEquals(content.toUpperCase(),
+        run(new OrderedBatchExecutor(4, 256, 8), content, UPPER_CASE));
+  }
+
+  @Test
+  public void run_LinesLongerThanBatch() throws Throwable {
+    String content = content(100, 1000);
+    assertEquals(content.toUpperCase(),
+        run(new OrderedBatchExecutor(4, 16, 2), content, UPPER_CASE));
+  }
+
+  @Test
+  public void run_NoLastLineSeparator() throws Throwable {
+    String content = "chr1\t10\t20\nchr2\t30\t40";
+    assertEquals("CHR1\t10\t20\nCHR2\t30\t40\n",
+        run(new OrderedBatchExecutor(4, 8, 2), content, UPPER_CASE));
+    assertEquals("CHR1\t10\t20\nCHR2\t30\t40\n",
+        run(new OrderedBatchExecutor(1), content, UPPER_CASE));
+  }
+
+  @Test
+  public void run_CarriageReturn() throws Throwable {
+    String content = "chr1\t10\t20\r\nchr2\t30\t40\r\n";
+    assertEquals("CHR1\t10\t20\nCHR2\t30\t40\n",
+        run(new OrderedBatchExecutor(4, 8, 2), content, UPPER_CASE));
+  }
+
+  @Test
+  public void run_Empty() throws Throwable {
+    assertEquals("", run(new OrderedBatchExecutor(4), "", UPPER_CASE));
+  }
+
+  @Test
+  public void run_SlowBatch() throws Throwable {
+    String content = content(2000, 20);
+    AtomicBoolean slow = new AtomicBoolean();
+    LineProcessor processor = (line, start, end, writer) -> {
+      if (slow.compareAndSet(false, true)) {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      UPPER_CASE.process(line, start, end, writer);
+    };
+    assertEquals(content.toUpperCase(),
+        run(new OrderedBatchExecutor(4, 128, 4), content, processor));
+  }
+
+  @Test
+  public void run_Exception() throws Throwable {
+    String content = content(1000, 20);
+    LineProcessor processor = (line, start, end, writer) -> {
+      if (new String(line, start, end - start, CHARSET).startsWith("line500\t")) {
+        throw new IllegalArgumentException("test");
+      }
+      UPPER_CASE.process(line, start, end, writer);
+    };
+    try {
+      run(new OrderedBatchExecutor(4, 128, 4), content, processor);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("test", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BatchProcessorTest {
+  /**
+   * Publisher that sends one batch per request.
+   */
+  private static class ListPublisher implements Publisher<List<Integer>>, Subscription {
+    private final List<List<Integer>> batches;
+    private Subscriber<? super List<Integer>> subscriber;
+    private int index;
+    private long requested;
+    private boolean cancelled;
+
+    private ListPublisher(List<List<Integer>> batches) {
+      this.batches = batches;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<Integer>> subscriber) {
+      this.subscriber = subscriber;
+      subscriber.onSubscribe(this);
+    }
+
+    @Override
+    public void request(long n) {
+      requested += n;
+      for (long i = 0; i < n && index < batches.size() && !cancelled; i++) {
+        subscriber.onNext(batches.get(index++));
+      }
+      if (index == batches.size() && !cancelled) {
+        index++;
+        subscriber.onComplete();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private BatchProcessor<Integer, Integer> doubles() {
+    return new BatchProcessor<>(
+        batch -> batch.stream().map(value -> value * 2).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void onNext() {
+    ListPublisher publisher =
+        new ListPublisher(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    BatchProcessor<Integer, Integer> processor = doubles();
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList(Arrays.asList(2, 4)), subscriber.items);
+    assertEquals(1, publisher.requested);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList(Arrays.asList(2, 4), Arrays.asList(6)), subscriber.items);
+    assertEquals(1, subscriber.completed);
+  }
+
+  @Test
+  public void onNext_SubscribeDownstreamFirst() {
+    ListPublisher publisher = new ListPublisher(Arrays.asList(Arrays.asList(1, 2)));
+    BatchProcessor<Integer, Integer> processor = doubles();
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    processor.subscribe(subscriber);
+    assertNull(subscriber.subscription);
+    publisher.subscribe(processor);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList(Arrays.asList(2, 4)), subscriber.items);
+    assertEquals(1, subscriber.completed);
+  }
+
+  @Test
+  public void onNext_EmptyBatch() {
+    ListPublisher publisher = new ListPublisher(
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3), Arrays.asList(4, 5)));
+    BatchProcessor<Integer, Integer> processor = new BatchProcessor<>(
+        batch -> batch.stream().filter(value -> value != 3).collect(Collectors.toList()));
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(4, 5)), subscriber.items);
+    assertEquals(3, publisher.requested);
+  }
+
+  @Test
+  public void onNext_Error() {
+    ListPublisher publisher =
+        new ListPublisher(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    BatchProcessor<Integer, Integer> processor = new BatchProcessor<>(batch -> {
+      throw new IllegalStateException("test");
+    });
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(2);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertEquals(Collections.emptyList(), subscriber.items);
+    assertTrue(publisher.cancelled);
+    assertEquals(0, subscriber.completed);
+  }
+
+  @Test
+  public void onComplete_BeforeDownstream() {
+    BatchProcessor<Integer, Integer> processor = doubles();
+    processor.onSubscribe(EmptySubscription.INSTANCE);
+    processor.onComplete();
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    processor.subscribe(subscriber);
+    assertEquals(1, subscriber.completed);
+  }
+
+  @Test
+  public void subscribe_Twice() {
+    BatchProcessor<Integer, Integer> processor = doubles();
+    processor.subscribe(new TestSubscriber<>());
+    TestSubscriber<List<Integer>> subscriber = new TestSubscriber<>();
+    processor.subscribe(subscriber);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.BedRecord;
+import ca.qc.ircm.bedtools.BedRecords;
+import ca.qc.ircm.bedtools.BedpeRecord;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedFlowsTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private <T> List<String> lines(TestSubscriber<List<T>> subscriber) {
+    return subscriber.items.stream().flatMap(List::stream).map(Object::toString)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void bed() throws Throwable {
+    Path file = temporaryFolder.newFile("input.bed").toPath();
+    Files.write(file, Arrays.asList("track name=test", "chr1\t100\t200\tread1\t0\t-",
+        "chr2\t10\t20\tread2\t0\t+", "chr3\t10\t20\tread3\t0\t+"));
+    Publisher<List<BedRecord>> publisher = BedFlows.bed(file, 2);
+    Processor<List<BedRecord>, List<BedRecord>> move =
+        BedFlows.map(BedRecords.moveAnnotations(-50, true));
+    Processor<List<BedRecord>, List<BedRecord>> nonNegative =
+        BedFlows.filter(BedRecords.nonNegative());
+    TestSubscriber<List<BedRecord>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(move);
+    move.subscribe(nonNegative);
+    nonNegative.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList("chr1\t150\t250\tread1\t0\t-"), lines(subscriber));
+    assertEquals(1, subscriber.completed);
+  }
+
+  @Test
+  public void bedpe() throws Throwable {
+    Path file = Paths.get(getClass().getResource("/test-comment.bedpe").toURI());
+    Publisher<List<BedpeRecord>> publisher = BedFlows.bedpe(file, 3);
+    Processor<List<BedpeRecord>, List<BedRecord>> toBed =
+        BedFlows.map(BedRecords.bedpeToBed(false));
+    TestSubscriber<List<BedRecord>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(toBed);
+    toBed.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    List<String> expected = Files.readAllLines(file).stream()
+        .filter(line -> !line.startsWith("#")).map(line -> BedpeRecord.parse(line).toBed())
+        .map(Object::toString).collect(Collectors.toList());
+    assertEquals(expected, lines(subscriber));
+    assertEquals(1, subscriber.completed);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class RecordPublisherTest {
+  private final AtomicInteger parsed = new AtomicInteger();
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private String content(int lines) {
+    return IntStream.range(0, lines).mapToObj(i -> "line" + i)
+        .collect(Collectors.joining("\n", "#header\n", "\n"));
+  }
+
+  private RecordPublisher<String> publisher(String content, int batchSize) {
+    return new RecordPublisher<>(() -> new BufferedReader(new StringReader(content)) {
+      @Override
+      public void close() throws IOException {
+        closed.set(true);
+        super.close();
+      }
+    }, line -> line.startsWith("#"), line -> {
+      parsed.incrementAndGet();
+      return line;
+    }, batchSize, Runnable::run);
+  }
+
+  @Test
+  public void subscribe() {
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher(content(5), 2).subscribe(subscriber);
+    assertNotNull(subscriber.subscription);
+    assertEquals(0, parsed.get());
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList(Arrays.asList("line0", "line1"), Arrays.asList("line2", "line3"),
+        Arrays.asList("line4")), subscriber.items);
+    assertEquals(1, subscriber.completed);
+    assertNull(subscriber.error);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void subscribe_Backpressure() {
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher(content(100), 10).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals(1, subscriber.items.size());
+    assertEquals(10, parsed.get());
+    subscriber.subscription.request(2);
+    assertEquals(3, subscriber.items.size());
+    assertEquals(30, parsed.get());
+    assertEquals(0, subscriber.completed);
+  }
+
+  @Test
+  public void subscribe_ExactBatches() {
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher(content(4), 2).subscribe(subscriber);
+    subscriber.subscription.request(2);
+    assertEquals(2, subscriber.items.size());
+    assertEquals(0, subscriber.completed);
+    subscriber.subscription.request(1);
+    assertEquals(2, subscriber.items.size());
+    assertEquals(1, subscriber.completed);
+  }
+
+  @Test
+  public void subscribe_RequestInOnNext() {
+    AtomicInteger depth = new AtomicInteger();
+    AtomicInteger maximumDepth = new AtomicInteger();
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<List<String>>() {
+      @Override
+      public void onNext(List<String> item) {
+        maximumDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+        super.onNext(item);
+        subscription.request(1);
+        depth.decrementAndGet();
+      }
+    };
+    publisher(content(1000), 1).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals(1000, subscriber.items.size());
+    assertEquals(1, subscriber.completed);
+    assertEquals(1, maximumDepth.get());
+  }
+
+  @Test
+  public void subscribe_Cancel() {
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher(content(100), 10).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+    assertEquals(1, subscriber.items.size());
+    assertEquals(0, subscriber.completed);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void subscribe_InvalidRequest() {
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher(content(100), 10).subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertEquals(0, subscriber.items.size());
+  }
+
+  @Test
+  public void subscribe_ParseError() {
+    TestSubscriber<List<Long>> subscriber = new TestSubscriber<>();
+    new RecordPublisher<>(() -> new BufferedReader(new StringReader("1\n2\na\n")), line -> false,
+        Long::valueOf, 2, Runnable::run).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList(Arrays.asList(1L, 2L)), subscriber.items);
+    assertTrue(subscriber.error instanceof NumberFormatException);
+    assertEquals(0, subscriber.completed);
+  }
+
+  @Test
+  public void subscribe_Twice() {
+    RecordPublisher<String> publisher = publisher(content(5), 2);
+    publisher.subscribe(new TestSubscriber<>());
+    TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+    assertNotNull(subscriber.subscription);
+    assertTrue(subscriber.error instanceof IllegalStateException);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void batchSize_Zero() {
+    publisher(content(5), 0);
+  }
+
+  @Test
+  public void executor() throws Throwable {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      RecordPublisher<String> publisher = new RecordPublisher<>(
+          () -> new BufferedReader(new StringReader(content(100))), line -> line.startsWith("#"),
+          line -> line, 7, executor);
+      TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+      publisher.subscribe(subscriber);
+      for (int i = 0; i < 20; i++) {
+        subscriber.subscription.request(1);
+      }
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(15, subscriber.items.size());
+      assertEquals(100, subscriber.items.stream().mapToInt(List::size).sum());
+      assertEquals(1, subscriber.completed);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
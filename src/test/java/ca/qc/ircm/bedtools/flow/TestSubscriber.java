@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subscriber that records signals, requests are made by tests.
+ */
+class TestSubscriber<T> implements Subscriber<T> {
+  final List<T> items = new ArrayList<>();
+  Subscription subscription;
+  Throwable error;
+  int completed;
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    this.subscription = subscription;
+  }
+
+  @Override
+  public void onNext(T item) {
+    items.add(item);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    error = throwable;
+  }
+
+  @Override
+  public void onComplete() {
+    completed++;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ChromosomeDictionaryTest {
+  @Test
+  public void id() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    assertEquals(0, dictionary.id("chr1"));
+    assertEquals(1, dictionary.id("chr2"));
+    assertEquals(0, dictionary.id("chr1"));
+    assertEquals(2, dictionary.count());
+    assertEquals("chr1", dictionary.name(0));
+    assertEquals("chr2", dictionary.name(1));
+  }
+
+  @Test
+  public void id_Slice() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    String line = "chr2\t100\t200";
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    assertEquals(0, dictionary.id(line, 0, 4));
+    assertEquals(0, dictionary.id(bytes, 0, 4));
+    assertEquals(0, dictionary.id("xchr2", 1, 5));
+    assertArrayEquals("chr2".getBytes(StandardCharsets.UTF_8), dictionary.bytes(0));
+  }
+
+  @Test
+  public void id_NonAscii() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    byte[] bytes = "chré".getBytes(StandardCharsets.UTF_8);
+    assertEquals(0, dictionary.id("chré"));
+    assertEquals(0, dictionary.id(bytes, 0, bytes.length));
+    assertEquals("chré", dictionary.name(0));
+  }
+
+  @Test
+  public void id_Many() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, dictionary.id("chr" + i));
+    }
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, dictionary.find("chr" + i));
+      assertEquals("chr" + i, dictionary.name(i));
+    }
+  }
+
+  @Test
+  public void find() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    dictionary.id("chr1");
+    assertEquals(0, dictionary.find("chr1"));
+    assertEquals(ChromosomeDictionary.MISSING, dictionary.find("chr2"));
+    byte[] bytes = "chr2".getBytes(StandardCharsets.UTF_8);
+    assertEquals(ChromosomeDictionary.MISSING, dictionary.find(bytes, 0, bytes.length));
+    assertEquals(1, dictionary.count());
+  }
+
+  @Test
+  public void fromSizes() throws Throwable {
+    ChromosomeDictionary dictionary = ChromosomeDictionary
+        .fromSizes(new BufferedReader(new StringReader("chr2\t1000\n\nchr1\t500\n")));
+    assertEquals(2, dictionary.seeded());
+    assertEquals(0, dictionary.find("chr2"));
+    assertEquals(1, dictionary.find("chr1"));
+    assertEquals(1000, dictionary.size(0));
+    assertEquals(500, dictionary.size(1));
+    int other = dictionary.id("chr3");
+    assertEquals(ChromosomeDictionary.UNKNOWN_SIZE, dictionary.size(other));
+    assertEquals(2, dictionary.seeded());
+  }
+
+  @Test
+  public void copy() throws Throwable {
+    ChromosomeDictionary dictionary = ChromosomeDictionary
+        .fromSizes(new BufferedReader(new StringReader("chr2\t1000\n\nchr1\t500\n")));
+    ChromosomeDictionary copy = dictionary.copy();
+    assertEquals(2, copy.seeded());
+    assertEquals(1, copy.find("chr1"));
+    assertEquals(1000, copy.size(0));
+    assertEquals(2, copy.id("chr3"));
+    assertEquals(3, copy.count());
+    assertEquals(2, dictionary.count());
+    assertEquals(ChromosomeDictionary.MISSING, dictionary.find("chr3"));
+  }
+
+  @Test
+  public void compare() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    int chr2 = dictionary.id("chr2");
+    int chr1 = dictionary.id("chr1");
+    assertTrue(dictionary.compare(chr1, chr2) < 0);
+    assertTrue(dictionary.compare(chr2, chr1) > 0);
+    assertEquals(0, dictionary.compare(chr1, chr1));
+  }
+
+  @Test
+  public void compare_Seeded() {
+    ChromosomeDictionary dictionary = new ChromosomeDictionary();
+    int chr2 = dictionary.add("chr2", 1000);
+    int chr1 = dictionary.add("chr1", 500);
+    int chrB = dictionary.id("chrB");
+    int chrA = dictionary.id("chrA");
+    assertTrue(dictionary.compare(chr2, chr1) < 0);
+    assertTrue(dictionary.compare(chr1, chrA) < 0);
+    assertTrue(dictionary.compare(chrA, chrB) < 0);
+    assertTrue(dictionary.compare(chrB, chr2) > 0);
+  }
+}
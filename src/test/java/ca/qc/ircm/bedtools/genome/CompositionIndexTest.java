@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.execution.ExecutionEngine;
+import ca.qc.ircm.bedtools.execution.Workers;
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import javax.inject.Inject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class CompositionIndexTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String SEQUENCE1 = "ACGTACGTACGTacgtNNACGTA";
+  private static final String SEQUENCE2 = "TTTTGGGGCCCC";
+  private static final String SEQUENCE3 = "GCN";
+  @Inject
+  private ExecutionEngine executionEngine;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Path fasta;
+  private Workers workers;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, (">chr1\n" + SEQUENCE1.substring(0, 10) + "\n"
+        + SEQUENCE1.substring(10, 20) + "\n" + SEQUENCE1.substring(20) + "\n>chr2\n"
+        + SEQUENCE2.substring(0, 10) + "\n" + SEQUENCE2.substring(10) + "\n>chr3\n" + SEQUENCE3
+        + "\n>chr4\n").getBytes(CHARSET));
+    workers = executionEngine.workers(3);
+  }
+
+  @After
+  public void afterTest() {
+    workers.close();
+  }
+
+  private void assertComposition(String sequence, int start, int end, Composition composition) {
+    long gc = 0;
+    long n = 0;
+    for (char base : sequence.substring(start, end).toCharArray()) {
+      if ("GCgc".indexOf(base) >= 0) {
+        gc++;
+      } else if ("Nn".indexOf(base) >= 0) {
+        n++;
+      }
+    }
+    assertEquals(gc, composition.getGc());
+    assertEquals(n, composition.getN());
+    assertEquals(end - start, composition.getLength());
+  }
+
+  private void assertAllIntervals(CompositionIndex index) {
+    String[] sequences = new String[] { SEQUENCE1, SEQUENCE2, SEQUENCE3, "" };
+    Composition composition = new Composition(3);
+    for (int id = 0; id < sequences.length; id++) {
+      String sequence = sequences[id];
+      for (int start = 0; start <= sequence.length(); start++) {
+        for (int end = start; end <= sequence.length(); end++) {
+          index.count(id, start, end, composition);
+          assertComposition(sequence, start, end, composition);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void count() throws Throwable {
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers);
+    Composition composition = new Composition();
+    index.count(0, 0, 23, composition);
+    assertEquals(10, composition.getGc());
+    assertEquals(2, composition.getN());
+    assertEquals(23, composition.getLength());
+    index.count(1, 2, 10, composition);
+    assertEquals(6, composition.getGc());
+    assertEquals(0, composition.getN());
+    assertEquals(8, composition.getLength());
+  }
+
+  @Test
+  public void count_AllIntervals() throws Throwable {
+    for (int interval = 1; interval <= 7; interval++) {
+      Files.deleteIfExists(CompositionIndex.cache(fasta));
+      CompositionIndex index =
+          CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, interval);
+      assertAllIntervals(index);
+    }
+  }
+
+  @Test
+  public void count_LongSequence() throws Throwable {
+    Random random = new Random();
+    StringBuilder sequence = new StringBuilder();
+    StringBuilder content = new StringBuilder(">chr1\n");
+    for (int i = 0; i < 100000; i++) {
+      sequence.append("ACGTNacgtn".charAt(random.nextInt(10)));
+      if (i % 60 == 59) {
+        content.append(sequence, i - 59, i + 1);
+        content.append("\n");
+      }
+    }
+    content.append(sequence, sequence.length() - sequence.length() % 60, sequence.length());
+    content.append("\n");
+    Files.write(fasta, content.toString().getBytes(CHARSET));
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers);
+    Composition composition = new Composition();
+    for (int i = 0; i < 2000; i++) {
+      int start = random.nextInt(sequence.length());
+      int end = start + random.nextInt(sequence.length() - start + 1);
+      index.count(0, start, end, composition);
+      assertComposition(sequence.toString(), start, end, composition);
+    }
+  }
+
+  @Test
+  public void load_Cache() throws Throwable {
+    CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    Path cache = CompositionIndex.cache(fasta);
+    assertTrue(Files.exists(cache));
+    FileTime lastModified = FileTime.fromMillis(1000);
+    Files.setLastModifiedTime(cache, lastModified);
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    assertEquals(lastModified, Files.getLastModifiedTime(cache));
+    assertAllIntervals(index);
+  }
+
+  @Test
+  public void load_StaleCache() throws Throwable {
+    CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    Path cache = CompositionIndex.cache(fasta);
+    FileTime lastModified = FileTime.fromMillis(1000);
+    Files.setLastModifiedTime(cache, lastModified);
+    Files.setLastModifiedTime(fasta, FileTime.fromMillis(2000));
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    assertNotEquals(lastModified, Files.getLastModifiedTime(cache));
+    assertAllIntervals(index);
+  }
+
+  @Test
+  public void load_OtherInterval() throws Throwable {
+    CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    Path cache = CompositionIndex.cache(fasta);
+    FileTime lastModified = FileTime.fromMillis(1000);
+    Files.setLastModifiedTime(cache, lastModified);
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 5);
+    assertNotEquals(lastModified, Files.getLastModifiedTime(cache));
+    assertAllIntervals(index);
+  }
+
+  @Test
+  public void load_InvalidCache() throws Throwable {
+    Path cache = CompositionIndex.cache(fasta);
+    Files.write(cache, "invalid".getBytes(CHARSET));
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers, 4);
+    assertAllIntervals(index);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void count_OutOfSequence() throws Throwable {
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers);
+    index.count(0, 20, 24, new Composition());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void count_NegativeStart() throws Throwable {
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers);
+    index.count(0, -1, 4, new Composition());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void count_StartAfterEnd() throws Throwable {
+    CompositionIndex index = CompositionIndex.load(fasta, new IndexedFasta(fasta), workers);
+    index.count(0, 5, 4, new Composition());
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class FastaIndexTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String FASTA = ">chr1 first chromosome\nACGTACGTAC\nGTACGTACGT\nACG\n"
+      + ">chr2\nTTTTGGGG\nCC\n>chr3\n>chr4\nAAAA\n";
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private FastaIndex build(String fasta) throws Throwable {
+    return FastaIndex.build(new ByteArrayInputStream(fasta.getBytes(CHARSET)));
+  }
+
+  private String write(FastaIndex index) throws Throwable {
+    StringWriter output = new StringWriter();
+    try (BufferedWriter writer = new BufferedWriter(output)) {
+      index.write(writer);
+    }
+    return output.toString();
+  }
+
+  @Test
+  public void build() throws Throwable {
+    FastaIndex index = build(FASTA);
+    assertEquals(4, index.count());
+    assertEquals("chr1", index.name(0));
+    assertEquals(23, index.length(0));
+    assertEquals(10, index.lineBases(0));
+    assertEquals(23, index.offset(0, 0));
+    assertEquals(32, index.offset(0, 9));
+    assertEquals(34, index.offset(0, 10));
+    assertEquals(47, index.offset(0, 22));
+    assertEquals(1, index.find("chr2"));
+    assertEquals(10, index.length(1));
+    assertEquals(8, index.lineBases(1));
+    assertEquals(0, index.length(2));
+    assertEquals(4, index.length(3));
+    assertEquals(ChromosomeDictionary.MISSING, index.find("chr1 first chromosome"));
+  }
+
+  @Test
+  public void build_Write() throws Throwable {
+    FastaIndex index = build(FASTA);
+    assertEquals("chr1\t23\t23\t10\t11\nchr2\t10\t55\t8\t9\nchr3\t0\t73\t0\t0\n"
+        + "chr4\t4\t79\t4\t5\n", write(index));
+  }
+
+  @Test
+  public void build_CarriageReturn() throws Throwable {
+    FastaIndex index = build(">chr1\r\nACGT\r\nAC\r\n>chr2\r\nTT\r\n");
+    assertEquals("chr1\t6\t7\t4\t6\nchr2\t2\t24\t2\t4\n", write(index));
+    assertEquals(13, index.offset(0, 4));
+  }
+
+  @Test
+  public void build_BlankLines() throws Throwable {
+    FastaIndex index = build("\n>chr1\n\nACGT\nAC\n\n>chr2\nTT\n");
+    assertEquals("chr1\t6\t8\t4\t5\nchr2\t2\t23\t2\t3\n", write(index));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_DifferentLineLengths() throws Throwable {
+    build(">chr1\nACGT\nAC\nACGT\n");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_LongerLine() throws Throwable {
+    build(">chr1\nACGT\nACGTA\n");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_Duplicate() throws Throwable {
+    build(">chr1\nACGT\n>chr1\nACGT\n");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void build_SequenceBeforeHeader() throws Throwable {
+    build("ACGT\n>chr1\nACGT\n");
+  }
+
+  @Test
+  public void read() throws Throwable {
+    FastaIndex index = FastaIndex
+        .read(new BufferedReader(new StringReader("chr1\t23\t23\t10\t11\n\nchr2\t10\t67\t8\t9\n")));
+    assertEquals(2, index.count());
+    assertEquals(23, index.length(0));
+    assertEquals(34, index.offset(0, 10));
+    assertEquals(1, index.find("chr2"));
+    assertEquals(76, index.offset(1, 8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_MissingColumns() throws Throwable {
+    FastaIndex.read(new BufferedReader(new StringReader("chr1\t23\t23\t10\n")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_InvalidNumber() throws Throwable {
+    FastaIndex.read(new BufferedReader(new StringReader("chr1\t23\tabc\t10\t11\n")));
+  }
+
+  @Test
+  public void load() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, FASTA.getBytes(CHARSET));
+    FastaIndex index = FastaIndex.load(fasta);
+    assertEquals(4, index.count());
+    Path indexFile = FastaIndex.index(fasta);
+    assertTrue(Files.exists(indexFile));
+    assertEquals(write(index), new String(Files.readAllBytes(indexFile), CHARSET));
+  }
+
+  @Test
+  public void load_ExistingIndex() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, FASTA.getBytes(CHARSET));
+    Path indexFile = FastaIndex.index(fasta);
+    Files.write(indexFile, "chrX\t10\t6\t10\t11\n".getBytes(CHARSET));
+    Files.setLastModifiedTime(fasta, FileTime.fromMillis(1000));
+    FastaIndex index = FastaIndex.load(fasta);
+    assertEquals(1, index.count());
+    assertEquals("chrX", index.name(0));
+  }
+
+  @Test
+  public void load_StaleIndex() throws Throwable {
+    Path fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta, FASTA.getBytes(CHARSET));
+    Path indexFile = FastaIndex.index(fasta);
+    Files.write(indexFile, "chrX\t10\t6\t10\t11\n".getBytes(CHARSET));
+    Files.setLastModifiedTime(indexFile, FileTime.fromMillis(1000));
+    FastaIndex index = FastaIndex.load(fasta);
+    assertEquals(4, index.count());
+    assertEquals("chr1", index.name(0));
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class GenomeRegistryTest {
+  private GenomeRegistry genomeRegistry;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Path sizes;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    genomeRegistry = new GenomeRegistry();
+    sizes = temporaryFolder.getRoot().toPath().resolve("genome.txt");
+    write("chr2\t1000\n#comment\n\nchr1\t500\nchrM\t16569\n");
+  }
+
+  private void write(String content) throws Throwable {
+    Files.write(sizes, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void assertDictionary(ChromosomeDictionary dictionary) {
+    assertEquals(3, dictionary.seeded());
+    assertEquals(3, dictionary.count());
+    assertEquals("chr2", dictionary.name(0));
+    assertEquals(1000, dictionary.size(0));
+    assertEquals("chr1", dictionary.name(1));
+    assertEquals(500, dictionary.size(1));
+    assertEquals("chrM", dictionary.name(2));
+    assertEquals(16569, dictionary.size(2));
+    assertEquals(1, dictionary.find("chr1"));
+  }
+
+  @Test
+  public void dictionary() throws Throwable {
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(sizes);
+    assertDictionary(dictionary);
+    assertTrue(Files.exists(GenomeRegistry.cache(sizes)));
+  }
+
+  @Test
+  public void dictionary_Cache() throws Throwable {
+    genomeRegistry.dictionary(sizes);
+    Path cache = GenomeRegistry.cache(sizes);
+    FileTime lastModified = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(cache, lastModified);
+    ChromosomeDictionary dictionary = new GenomeRegistry().dictionary(sizes);
+    assertDictionary(dictionary);
+    assertEquals(lastModified, Files.getLastModifiedTime(cache));
+  }
+
+  @Test
+  public void dictionary_Copy() throws Throwable {
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(sizes);
+    assertEquals(3, dictionary.id("chrX"));
+    ChromosomeDictionary other = genomeRegistry.dictionary(sizes);
+    assertNotSame(dictionary, other);
+    assertEquals(ChromosomeDictionary.MISSING, other.find("chrX"));
+    assertDictionary(other);
+  }
+
+  @Test
+  public void dictionary_SourceChanged() throws Throwable {
+    genomeRegistry.dictionary(sizes);
+    write("chr3\t200\n");
+    Files.setLastModifiedTime(sizes, FileTime.fromMillis(1000));
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(sizes);
+    assertEquals(1, dictionary.seeded());
+    assertEquals("chr3", dictionary.name(0));
+    assertEquals(200, dictionary.size(0));
+    dictionary = new GenomeRegistry().dictionary(sizes);
+    assertEquals(1, dictionary.seeded());
+    assertEquals("chr3", dictionary.name(0));
+  }
+
+  @Test
+  public void dictionary_StaleCache() throws Throwable {
+    genomeRegistry.dictionary(sizes);
+    write("chr2\t1000\n#comment\n\nchr1\t600\nchrM\t16569\n");
+    ChromosomeDictionary dictionary = new GenomeRegistry().dictionary(sizes);
+    assertEquals(600, dictionary.size(1));
+  }
+
+  @Test
+  public void dictionary_InvalidCache() throws Throwable {
+    Path cache = GenomeRegistry.cache(sizes);
+    Files.write(cache, "not a genome cache, but long enough to have a header"
+        .getBytes(StandardCharsets.UTF_8));
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(sizes);
+    assertDictionary(dictionary);
+    assertDictionary(new GenomeRegistry().dictionary(sizes));
+  }
+
+  @Test
+  public void dictionary_TruncatedCache() throws Throwable {
+    genomeRegistry.dictionary(sizes);
+    Path cache = GenomeRegistry.cache(sizes);
+    byte[] content = Files.readAllBytes(cache);
+    Files.write(cache, Arrays.copyOf(content, content.length - 3));
+    assertDictionary(new GenomeRegistry().dictionary(sizes));
+  }
+
+  @Test
+  public void dictionary_Empty() throws Throwable {
+    write("");
+    ChromosomeDictionary dictionary = genomeRegistry.dictionary(sizes);
+    assertEquals(0, dictionary.seeded());
+    assertEquals(0, new GenomeRegistry().dictionary(sizes).seeded());
+  }
+
+  @Test
+  public void dictionary_ReadOnlyDirectory() throws Throwable {
+    Path directory = temporaryFolder.newFolder("readonly").toPath();
+    Path readOnlySizes = directory.resolve("genome.txt");
+    Files.copy(sizes, readOnlySizes);
+    assertTrue(directory.toFile().setWritable(false));
+    try {
+      assertDictionary(genomeRegistry.dictionary(readOnlySizes));
+      if (!Files.isWritable(directory)) {
+        assertFalse(Files.exists(GenomeRegistry.cache(readOnlySizes)));
+      }
+    } finally {
+      directory.toFile().setWritable(true);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class IndexedFastaTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String SEQUENCE1 = "ACGTACGTACGTacgtNNACGTA";
+  private static final String SEQUENCE2 = "TTTTGGGGCC";
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Path fasta;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    Files.write(fasta,
+        (">chr1\n" + SEQUENCE1.substring(0, 10) + "\n" + SEQUENCE1.substring(10, 20) + "\n"
+            + SEQUENCE1.substring(20) + "\n>chr2\n" + SEQUENCE2.substring(0, 8) + "\n"
+            + SEQUENCE2.substring(8) + "\n").getBytes(CHARSET));
+  }
+
+  private String read(IndexedFasta indexedFasta, String name, long start, long end) {
+    byte[] bases = new byte[(int) (end - start) + 2];
+    indexedFasta.read(indexedFasta.index().find(name), start, end, bases, 1);
+    return new String(bases, 1, (int) (end - start), CHARSET);
+  }
+
+  private void assertAllSequences(IndexedFasta indexedFasta) {
+    for (int start = 0; start <= SEQUENCE1.length(); start++) {
+      for (int end = start; end <= SEQUENCE1.length(); end++) {
+        assertEquals(SEQUENCE1.substring(start, end), read(indexedFasta, "chr1", start, end));
+      }
+    }
+    for (int start = 0; start <= SEQUENCE2.length(); start++) {
+      for (int end = start; end <= SEQUENCE2.length(); end++) {
+        assertEquals(SEQUENCE2.substring(start, end), read(indexedFasta, "chr2", start, end));
+      }
+    }
+  }
+
+  @Test
+  public void read() throws Throwable {
+    IndexedFasta indexedFasta = new IndexedFasta(fasta);
+    assertEquals(SEQUENCE1, read(indexedFasta, "chr1", 0, 23));
+    assertEquals("GTacgtNN", read(indexedFasta, "chr1", 10, 18));
+    assertEquals("GCC", read(indexedFasta, "chr2", 7, 10));
+    assertAllSequences(indexedFasta);
+  }
+
+  @Test
+  public void read_Regions() throws Throwable {
+    IndexedFasta indexedFasta = new IndexedFasta(fasta, FastaIndex.load(fasta), 7);
+    assertAllSequences(indexedFasta);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_AfterEnd() throws Throwable {
+    IndexedFasta indexedFasta = new IndexedFasta(fasta);
+    read(indexedFasta, "chr2", 5, 11);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_Negative() throws Throwable {
+    IndexedFasta indexedFasta = new IndexedFasta(fasta);
+    read(indexedFasta, "chr2", -1, 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_StartAfterEnd() throws Throwable {
+    IndexedFasta indexedFasta = new IndexedFasta(fasta);
+    indexedFasta.read(0, 5, 4, new byte[10], 0);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NucleotidesTest {
+  private String reverseComplement(String sequence, int start, int end) {
+    byte[] bases = sequence.getBytes(StandardCharsets.UTF_8);
+    Nucleotides.reverseComplement(bases, start, end);
+    return new String(bases, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void reverseComplement() {
+    assertEquals("ACGTT", reverseComplement("AACGT", 0, 5));
+    assertEquals("NacgT", reverseComplement("AcgtN", 0, 5));
+    assertEquals("TGCA", reverseComplement("TGCA", 0, 4));
+  }
+
+  @Test
+  public void reverseComplement_Range() {
+    assertEquals("AATTC", reverseComplement("AAATC", 1, 4));
+  }
+
+  @Test
+  public void reverseComplement_Ambiguous() {
+    assertEquals("NBDHVWSKMRY", reverseComplement("RYKMSWBDHVN", 0, 11));
+    assertEquals("ry-", reverseComplement("-ry", 0, 3));
+  }
+
+  @Test
+  public void reverseComplement_Empty() {
+    assertEquals("", reverseComplement("", 0, 0));
+  }
+}
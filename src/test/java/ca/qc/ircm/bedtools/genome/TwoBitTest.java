@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class TwoBitTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String SEQUENCE1 = "nnACGTACGTNNNacgtacgTNnaCGTAcNN";
+  private static final String SEQUENCE2 = "TTTTGGGGCC";
+  private static final String SEQUENCE3 = "A";
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Path fasta;
+  private Path twoBit;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    twoBit = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+    Files.write(fasta, (">chr1\n" + SEQUENCE1.substring(0, 10) + "\n" + SEQUENCE1.substring(10, 20)
+        + "\n" + SEQUENCE1.substring(20) + "\n>chr2\n" + SEQUENCE2 + "\n>chr3\n" + SEQUENCE3
+        + "\n>chr4\n").getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+  }
+
+  private String read(TwoBit reader, String name, long start, long end) {
+    byte[] bases = new byte[(int) (end - start) + 2];
+    reader.read(reader.find(name), start, end, bases, 1);
+    return new String(bases, 1, (int) (end - start), CHARSET);
+  }
+
+  private void assertAllSequences(TwoBit reader) {
+    String[] sequences = new String[] { SEQUENCE1, SEQUENCE2, SEQUENCE3, "" };
+    assertEquals(sequences.length, reader.count());
+    for (int id = 0; id < sequences.length; id++) {
+      String name = "chr" + (id + 1);
+      String sequence = sequences[id];
+      assertEquals(id, reader.find(name));
+      assertEquals(name, reader.name(id));
+      assertEquals(sequence.length(), reader.length(id));
+      for (int start = 0; start <= sequence.length(); start++) {
+        for (int end = start; end <= sequence.length(); end++) {
+          assertEquals(sequence.substring(start, end), read(reader, name, start, end));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes chr1 with sequence ACGTNNacgtA, N block [4,6) and masked block [6,10).
+   */
+  private void writeTwoBit(ByteOrder order, int version) throws Throwable {
+    int offsetSize = version == 0 ? Integer.BYTES : Long.BYTES;
+    ByteBuffer buffer = ByteBuffer.allocate(16 + 5 + offsetSize + 35).order(order);
+    buffer.putInt(0x1A412743).putInt(version).putInt(1).putInt(0);
+    buffer.put((byte) 4).put("chr1".getBytes(CHARSET));
+    if (version == 0) {
+      buffer.putInt(21 + offsetSize);
+    } else {
+      buffer.putLong(21 + offsetSize);
+    }
+    buffer.putInt(11).putInt(1).putInt(4).putInt(2).putInt(1).putInt(6).putInt(4).putInt(0);
+    buffer.put((byte) 0x9C).put((byte) 0x09).put((byte) 0xC8);
+    Files.write(twoBit, buffer.array());
+  }
+
+  @Test
+  public void read() throws Throwable {
+    TwoBit reader = new TwoBit(twoBit);
+    assertEquals(SEQUENCE1, read(reader, "chr1", 0, SEQUENCE1.length()));
+    assertEquals("NNNacgtacg", read(reader, "chr1", 10, 20));
+    assertEquals("GCC", read(reader, "chr2", 7, 10));
+    assertEquals("", read(reader, "chr4", 0, 0));
+  }
+
+  @Test
+  public void read_AllSequences() throws Throwable {
+    assertAllSequences(new TwoBit(twoBit));
+  }
+
+  @Test
+  public void read_SmallRegions() throws Throwable {
+    for (long regionSize = 1; regionSize <= 9; regionSize++) {
+      assertAllSequences(new TwoBit(twoBit, regionSize));
+    }
+  }
+
+  @Test
+  public void read_LittleEndian() throws Throwable {
+    writeTwoBit(ByteOrder.LITTLE_ENDIAN, 0);
+    TwoBit reader = new TwoBit(twoBit);
+    assertEquals(1, reader.count());
+    assertEquals("ACGTNNacgtA", read(reader, "chr1", 0, 11));
+  }
+
+  @Test
+  public void read_BigEndian() throws Throwable {
+    writeTwoBit(ByteOrder.BIG_ENDIAN, 0);
+    TwoBit reader = new TwoBit(twoBit);
+    assertEquals(1, reader.count());
+    assertEquals("ACGTNNacgtA", read(reader, "chr1", 0, 11));
+  }
+
+  @Test
+  public void read_Version1() throws Throwable {
+    writeTwoBit(ByteOrder.LITTLE_ENDIAN, 1);
+    TwoBit reader = new TwoBit(twoBit);
+    assertEquals(1, reader.count());
+    assertEquals("ACGTNNacgtA", read(reader, "chr1", 0, 11));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_OutOfSequence() throws Throwable {
+    TwoBit reader = new TwoBit(twoBit);
+    read(reader, "chr2", 5, 11);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_NegativeStart() throws Throwable {
+    TwoBit reader = new TwoBit(twoBit);
+    read(reader, "chr2", -1, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_StartAfterEnd() throws Throwable {
+    TwoBit reader = new TwoBit(twoBit);
+    reader.read(reader.find("chr2"), 5, 4, new byte[10], 0);
+  }
+
+  @Test
+  public void find_Missing() throws Throwable {
+    TwoBit reader = new TwoBit(twoBit);
+    assertEquals(ChromosomeDictionary.MISSING, reader.find("chr5"));
+  }
+
+  @Test
+  public void isTwoBit() throws Throwable {
+    assertTrue(TwoBit.isTwoBit(twoBit));
+    assertFalse(TwoBit.isTwoBit(fasta));
+    writeTwoBit(ByteOrder.BIG_ENDIAN, 0);
+    assertTrue(TwoBit.isTwoBit(twoBit));
+    Files.write(twoBit, new byte[2]);
+    assertFalse(TwoBit.isTwoBit(twoBit));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void open_NotTwoBit() throws Throwable {
+    new TwoBit(fasta);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void open_UnsupportedVersion() throws Throwable {
+    writeTwoBit(ByteOrder.LITTLE_ENDIAN, 2);
+    new TwoBit(twoBit);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void open_Truncated() throws Throwable {
+    byte[] content = Files.readAllBytes(twoBit);
+    Files.write(twoBit, Arrays.copyOf(content, content.length - 1));
+    new TwoBit(twoBit);
+  }
+
+  @Test
+  public void open_SequenceSources() throws Throwable {
+    Files.write(fasta, ">chr1\nACGT\n".getBytes(CHARSET));
+    assertTrue(SequenceSources.open(twoBit) instanceof TwoBit);
+    assertTrue(SequenceSources.open(fasta) instanceof IndexedFasta);
+  }
+}
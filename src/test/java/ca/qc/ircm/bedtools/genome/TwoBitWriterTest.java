@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.genome;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class TwoBitWriterTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Path fasta;
+  private Path twoBit;
+
+  /**
+   * Before test.
+   */
+  @Before
+  public void beforeTest() throws Throwable {
+    fasta = temporaryFolder.getRoot().toPath().resolve("genome.fa");
+    twoBit = temporaryFolder.getRoot().toPath().resolve("genome.2bit");
+  }
+
+  private byte[] expected() {
+    ByteBuffer buffer = ByteBuffer.allocate(84).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0x1A412743).putInt(0).putInt(2).putInt(0);
+    buffer.put((byte) 4).put("chr1".getBytes(CHARSET)).putInt(32);
+    buffer.put((byte) 2).put("c2".getBytes(CHARSET)).putInt(67);
+    buffer.putInt(11).putInt(1).putInt(4).putInt(2).putInt(1).putInt(6).putInt(4).putInt(0);
+    buffer.put((byte) 0x9C).put((byte) 0x09).put((byte) 0xC8);
+    buffer.putInt(4).putInt(0).putInt(0).putInt(0);
+    buffer.put((byte) 0);
+    return buffer.array();
+  }
+
+  @Test
+  public void write() throws Throwable {
+    Files.write(fasta, ">chr1 first chromosome\nACGTNN\nacgtA\n>c2\nTTTT\n".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+    assertArrayEquals(expected(), Files.readAllBytes(twoBit));
+  }
+
+  @Test
+  public void write_WindowsLineSeparator() throws Throwable {
+    Files.write(fasta,
+        ">chr1 first chromosome\r\nACGTNN\r\nacgtA\r\n>c2\r\nTTTT".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+    assertArrayEquals(expected(), Files.readAllBytes(twoBit));
+  }
+
+  @Test
+  public void write_OtherBases() throws Throwable {
+    Files.write(fasta, ">chr1\nACGTRY\nacgtA\n>c2\nTTTT\n".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+    assertArrayEquals(expected(), Files.readAllBytes(twoBit));
+  }
+
+  @Test
+  public void write_ReplaceExisting() throws Throwable {
+    Files.write(twoBit, new byte[1000]);
+    Files.write(fasta, ">chr1\nACGTNN\nacgtA\n>c2\nTTTT\n".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+    assertArrayEquals(expected(), Files.readAllBytes(twoBit));
+  }
+
+  @Test
+  public void write_Empty() throws Throwable {
+    Files.write(fasta, new byte[0]);
+    TwoBitWriter.write(fasta, twoBit);
+    ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0x1A412743).putInt(0).putInt(0).putInt(0);
+    assertArrayEquals(buffer.array(), Files.readAllBytes(twoBit));
+  }
+
+  @Test
+  public void write_LongSequence() throws Throwable {
+    StringBuilder sequence = new StringBuilder();
+    for (int i = 0; i < 300000; i++) {
+      sequence.append("ACGTNacgtn".charAt((i * 7 + i / 13) % 10));
+    }
+    Files.write(fasta, (">chr1\n" + sequence + "\n").getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+    TwoBit reader = new TwoBit(twoBit);
+    byte[] bases = new byte[sequence.length()];
+    reader.read(0, 0, sequence.length(), bases, 0);
+    assertEquals(sequence.toString(), new String(bases, CHARSET));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void write_SequenceBeforeHeader() throws Throwable {
+    Files.write(fasta, "ACGT\n>chr1\nACGT\n".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void write_Duplicate() throws Throwable {
+    Files.write(fasta, ">chr1\nACGT\n>chr1 again\nACGT\n".getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void write_LongName() throws Throwable {
+    char[] name = new char[256];
+    Arrays.fill(name, 'a');
+    Files.write(fasta, (">" + new String(name) + "\nACGT\n").getBytes(CHARSET));
+    TwoBitWriter.write(fasta, twoBit);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class AsyncOutputStreamTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private byte[] bytes(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i % 251);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void write() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] bytes = bytes(1000);
+    try (AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16)) {
+      stream.write(bytes, 0, 10);
+      stream.write(bytes, 10, 990);
+    }
+    assertArrayEquals(bytes, output.toByteArray());
+  }
+
+  @Test
+  public void write_Byte() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] bytes = bytes(100);
+    try (AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16)) {
+      for (byte value : bytes) {
+        stream.write(value);
+      }
+    }
+    assertArrayEquals(bytes, output.toByteArray());
+  }
+
+  @Test
+  public void write_File() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    Files.write(file, bytes(5000));
+    byte[] bytes = bytes(300);
+    try (OutputStream stream = BedStreams.outputStream(file, false)) {
+      stream.write(bytes);
+    }
+    assertArrayEquals(bytes, Files.readAllBytes(file));
+  }
+
+  @Test
+  public void flush() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] bytes = bytes(20);
+    try (AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16)) {
+      stream.write(bytes);
+      stream.flush();
+      assertArrayEquals(bytes, output.toByteArray());
+    }
+    assertArrayEquals(bytes, output.toByteArray());
+  }
+
+  @Test
+  public void close() throws Throwable {
+    AtomicBoolean closed = new AtomicBoolean();
+    OutputStream output = new ByteArrayOutputStream() {
+      @Override
+      public void close() throws IOException {
+        closed.set(true);
+      }
+    };
+    AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16);
+    stream.close();
+    stream.close();
+    assertTrue(closed.get());
+  }
+
+  @Test(expected = IOException.class)
+  public void write_Closed() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16);
+    stream.close();
+    stream.write(1);
+  }
+
+  @Test
+  public void write_Error() throws Throwable {
+    OutputStream output = new OutputStream() {
+      @Override
+      public void write(int value) throws IOException {
+        throw new IOException("test");
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        throw new IOException("test");
+      }
+    };
+    AsyncOutputStream stream = new AsyncOutputStream(Channels.newChannel(output), 16);
+    try {
+      stream.write(bytes(20));
+      stream.close();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("test", e.getMessage());
+    }
+  }
+}
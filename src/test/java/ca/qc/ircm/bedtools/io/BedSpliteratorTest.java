@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedSpliteratorTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file(String content) throws Throwable {
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, content.getBytes(CHARSET));
+    return file;
+  }
+
+  private List<String> lines(BedSpliterator spliterator) {
+    List<String> lines = new ArrayList<>();
+    spliterator.forEachRemaining(lines::add);
+    return lines;
+  }
+
+  private String content(int lines) {
+    Random random = new Random();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      content.append("chr").append(random.nextInt(20)).append('\t').append(i * 10).append('\t')
+          .append(i * 10 + random.nextInt(1000)).append("\tread").append(i).append('\n');
+    }
+    return content.toString();
+  }
+
+  @Test
+  public void tryAdvance() throws Throwable {
+    Path file = file("#comment\nchr1\t100\t200\nchr2\t10\t20\n");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<String> lines = lines(new BedSpliterator(channel));
+      assertEquals(Arrays.asList("#comment", "chr1\t100\t200", "chr2\t10\t20"), lines);
+    }
+  }
+
+  @Test
+  public void tryAdvance_NoLastLineSeparator() throws Throwable {
+    Path file = file("chr1\t100\t200\r\nchr2\t10\t20");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<String> lines = lines(new BedSpliterator(channel));
+      assertEquals(Arrays.asList("chr1\t100\t200", "chr2\t10\t20"), lines);
+    }
+  }
+
+  @Test
+  public void tryAdvance_Empty() throws Throwable {
+    Path file = file("");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      assertEquals(0, lines(new BedSpliterator(channel)).size());
+    }
+  }
+
+  @Test
+  public void trySplit_EveryPosition() throws Throwable {
+    String content = "chr1\t100\t200\r\nchr2\t10\t20\n\nchr3\t1\t2\n";
+    List<String> expected = Arrays.asList(content.split("\r?\n", -1)).subList(0, 4);
+    Path file = file(content);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      for (int split = 0; split <= content.length(); split++) {
+        BedSpliterator prefix = new BedSpliterator(channel, 0, split, 1);
+        BedSpliterator suffix = new BedSpliterator(channel, split, content.length(), 1);
+        List<String> lines = lines(prefix);
+        lines.addAll(lines(suffix));
+        assertEquals("split at " + split, expected, lines);
+      }
+    }
+  }
+
+  @Test
+  public void trySplit() throws Throwable {
+    String content = content(1000);
+    Path file = file(content);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      BedSpliterator spliterator = new BedSpliterator(channel, 0, channel.size(), 1024);
+      Spliterator<String> prefix = spliterator.trySplit();
+      assertNotNull(prefix);
+      List<String> lines = new ArrayList<>();
+      prefix.forEachRemaining(lines::add);
+      spliterator.forEachRemaining(lines::add);
+      assertEquals(Arrays.asList(content.split("\n")), lines);
+    }
+  }
+
+  @Test
+  public void trySplit_Small() throws Throwable {
+    Path file = file("chr1\t100\t200\n");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      assertNull(new BedSpliterator(channel).trySplit());
+    }
+  }
+
+  @Test
+  public void trySplit_Parallel() throws Throwable {
+    String content = content(100000);
+    Path file = file(content);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<String> lines = StreamSupport
+          .stream(new BedSpliterator(channel, 0, channel.size(), 4096), true)
+          .collect(Collectors.toList());
+      assertEquals(Arrays.asList(content.split("\n")), lines);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BedStreamsTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final String CONTENT = "#comment\nchr1\t100\t200\tname\nchr2\t10\t20\n";
+  private final InputStream systemIn = System.in;
+  private final PrintStream systemOut = System.out;
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @After
+  public void restoreSystemInputOutput() {
+    System.setIn(systemIn);
+    System.setOut(systemOut);
+  }
+
+  private byte[] binary(String content) throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream binaryOutput = new BinaryBedOutputStream(output)) {
+      binaryOutput.write(content.getBytes(CHARSET));
+    }
+    return output.toByteArray();
+  }
+
+  private List<String> readLines(BufferedReader reader) throws Throwable {
+    List<String> lines = new ArrayList<>();
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    } finally {
+      reader.close();
+    }
+    return lines;
+  }
+
+  private void assertContent(List<String> lines) {
+    assertEquals(3, lines.size());
+    assertEquals("#comment", lines.get(0));
+    assertEquals("chr1\t100\t200\tname", lines.get(1));
+    assertEquals("chr2\t10\t20", lines.get(2));
+  }
+
+  @Test
+  public void reader_Text() throws Throwable {
+    Path file = temporaryFolder.newFile("file.bed").toPath();
+    Files.write(file, CONTENT.getBytes(CHARSET));
+    assertContent(readLines(BedStreams.reader(file)));
+  }
+
+  @Test
+  public void reader_Binary() throws Throwable {
+    Path file = temporaryFolder.newFile("file.bed").toPath();
+    Files.write(file, binary(CONTENT));
+    assertContent(readLines(BedStreams.reader(file)));
+  }
+
+  @Test
+  public void reader_SystemBinary() throws Throwable {
+    System.setIn(new ByteArrayInputStream(binary(CONTENT)));
+    assertContent(readLines(BedStreams.reader(null)));
+  }
+
+  @Test
+  public void rawInputStream_Binary() throws Throwable {
+    Path file = temporaryFolder.newFile("file.bed").toPath();
+    byte[] binary = binary(CONTENT);
+    Files.write(file, binary);
+    try (BufferedInputStream input = BedStreams.rawInputStream(file)) {
+      assertTrue(BinaryBed.isBinary(input));
+      byte[] bytes = new byte[binary.length];
+      assertEquals(binary.length, input.read(bytes));
+    }
+  }
+
+  @Test
+  public void lines() throws Throwable {
+    Path file = temporaryFolder.newFile("file.bed").toPath();
+    Files.write(file, CONTENT.getBytes(CHARSET));
+    try (Stream<String> lines = BedStreams.lines(file)) {
+      assertContent(lines.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void lines_Parallel() throws Throwable {
+    Path file = temporaryFolder.newFile("file.bed").toPath();
+    Files.write(file, CONTENT.getBytes(CHARSET));
+    try (Stream<String> lines = BedStreams.lines(file)) {
+      assertContent(lines.parallel().collect(Collectors.toList()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void lines_Binary() throws Throwable {
+    Path file = temporaryFolder.newFile("file" + BinaryBed.EXTENSION).toPath();
+    Files.write(file, binary(CONTENT));
+    BedStreams.lines(file);
+  }
+
+  @Test
+  public void writer_Text() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    try (BufferedWriter writer = BedStreams.writer(file)) {
+      writer.write(CONTENT);
+    }
+    assertEquals(CONTENT, new String(Files.readAllBytes(file), CHARSET));
+  }
+
+  @Test
+  public void writer_Binary() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file" + BinaryBed.EXTENSION);
+    try (BufferedWriter writer = BedStreams.writer(file)) {
+      writer.write(CONTENT);
+    }
+    try (BufferedInputStream input = BedStreams.rawInputStream(file)) {
+      assertTrue(BinaryBed.isBinary(input));
+    }
+    assertContent(readLines(BedStreams.reader(file)));
+  }
+
+  @Test
+  public void outputStream_SystemBinary() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output));
+    try (OutputStream stream = BedStreams.outputStream(null, true)) {
+      stream.write(CONTENT.getBytes(CHARSET));
+    }
+    System.setIn(new ByteArrayInputStream(output.toByteArray()));
+    assertContent(readLines(BedStreams.reader(null)));
+  }
+
+  @Test
+  public void outputStream_SystemText() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(output));
+    try (OutputStream stream = BedStreams.outputStream(null, false)) {
+      stream.write(CONTENT.getBytes(CHARSET));
+    }
+    assertFalse(BinaryBed
+        .isBinary(new BufferedInputStream(new ByteArrayInputStream(output.toByteArray()))));
+    assertEquals(CONTENT, new String(output.toByteArray(), CHARSET));
+  }
+
+  @Test
+  public void outputStream_SplitBy() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    LineRouter splitBy = line -> line.substring(0, line.indexOf('\t'));
+    try (OutputStream stream = BedStreams.outputStream(file, splitBy, 1, null, count -> {
+      throw new AssertionError("Shards should not be used");
+    })) {
+      stream.write("chr1\t10\t20\nchr2\t10\t20\nchr1\t30\t40\n".getBytes(CHARSET));
+    }
+    assertEquals("chr1\t10\t20\nchr1\t30\t40\n",
+        new String(Files.readAllBytes(SplitWriter.file(file, "chr1")), CHARSET));
+    assertEquals("chr2\t10\t20\n",
+        new String(Files.readAllBytes(SplitWriter.file(file, "chr2")), CHARSET));
+  }
+
+  @Test
+  public void outputStream_Shards() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    try (OutputStream stream = BedStreams.outputStream(file, null, 0, 2,
+        count -> line -> "shard" + (count - 1))) {
+      stream.write("chr1\t10\t20\nchr2\t10\t20\n".getBytes(CHARSET));
+    }
+    assertEquals("chr1\t10\t20\nchr2\t10\t20\n",
+        new String(Files.readAllBytes(SplitWriter.file(file, "shard1")), CHARSET));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void outputStream_SplitByAndShards() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    BedStreams.outputStream(file, line -> "key", 1, 2, count -> line -> "shard");
+  }
+
+  @Test
+  public void outputStream_NoSplit() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    try (OutputStream stream = BedStreams.outputStream(file, null, 0, null, count -> {
+      throw new AssertionError("Shards should not be used");
+    })) {
+      stream.write(CONTENT.getBytes(CHARSET));
+    }
+    assertEquals(CONTENT, new String(Files.readAllBytes(file), CHARSET));
+  }
+
+  @Test
+  public void writer_Shards() throws Throwable {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file.bed");
+    try (BufferedWriter writer = BedStreams.writer(file, null, 0, 2,
+        count -> line -> "shard" + (count - 1))) {
+      writer.write("chr1\t10\t20\nchr2\t10\t20\n");
+    }
+    assertEquals("chr1\t10\t20\nchr2\t10\t20\n",
+        new String(Files.readAllBytes(SplitWriter.file(file, "shard1")), CHARSET));
+  }
+}
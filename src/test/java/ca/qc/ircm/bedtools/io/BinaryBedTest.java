@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class BinaryBedTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+  private static final int LINE_COUNT = 40000;
+  private static final int MAX_CHROMOSOME = 23;
+  private static final int MAX_ANNOTATION_LENGTH = 10000;
+  private static final int MAX_ANNOTATION_START = Integer.MAX_VALUE - MAX_ANNOTATION_LENGTH;
+
+  private byte[] encode(byte[] content) throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream binaryOutput = new BinaryBedOutputStream(output)) {
+      binaryOutput.write(content);
+    }
+    return output.toByteArray();
+  }
+
+  private byte[] decode(byte[] content) throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (InputStream input = new BinaryBedInputStream(new ByteArrayInputStream(content))) {
+      byte[] buffer = new byte[1000];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  private void assertRoundTrip(String content) throws Throwable {
+    byte[] bytes = content.getBytes(CHARSET);
+    byte[] encoded = encode(bytes);
+    assertTrue(BinaryBed.isBinary(new BufferedInputStream(new ByteArrayInputStream(encoded))));
+    assertEquals(content, new String(decode(encoded), CHARSET));
+  }
+
+  @Test
+  public void roundTrip_Bed() throws Throwable {
+    Random random = new Random();
+    String content = IntStream.range(0, LINE_COUNT).mapToObj(lineNumber -> {
+      int chromosome = random.nextInt(MAX_CHROMOSOME);
+      int start = random.nextInt(MAX_ANNOTATION_START);
+      int end = start + random.nextInt(MAX_ANNOTATION_LENGTH);
+      String name = RandomStringUtils.randomAlphanumeric(10);
+      int score = random.nextInt(1000);
+      String strand = random.nextBoolean() ? "-" : "+";
+      return "chr" + chromosome + "\t" + start + "\t" + end + "\t" + name + "\t" + score + "\t"
+          + strand + "\n";
+    }).collect(Collectors.joining());
+    assertRoundTrip(content);
+  }
+
+  @Test
+  public void roundTrip_Bedpe() throws Throwable {
+    Path bedpe = Paths.get(getClass().getResource("/test.bedpe").toURI());
+    String content = new String(Files.readAllBytes(bedpe), CHARSET);
+    assertRoundTrip(content);
+  }
+
+  @Test
+  public void roundTrip_Headers() throws Throwable {
+    assertRoundTrip("track name=test\nbrowser position chr1:1-100\n# comment\n"
+        + "chr1\t100\t200\n\nchr1\t120\t130\tname\n");
+  }
+
+  @Test
+  public void roundTrip_SpecialNumbers() throws Throwable {
+    assertRoundTrip("chr1\t-100\t0\t0\t-0\t007\t-\n" + "chr1\t0100\t200\n"
+        + "chr1\t100\t200\t9223372036854775807\t-9223372036854775808\t1e5\n"
+        + "chr1\t100\t200\tchr1\tchr1\n" + "chr1\t100\t2e3\n" + "chr1\t100\n");
+  }
+
+  @Test
+  public void roundTrip_Utf8() throws Throwable {
+    assertRoundTrip("chré\t100\t200\tnamé\n");
+  }
+
+  @Test
+  public void roundTrip_Empty() throws Throwable {
+    assertRoundTrip("");
+  }
+
+  @Test
+  public void roundTrip_Flush() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream binaryOutput = new BinaryBedOutputStream(output)) {
+      binaryOutput.write("chr1\t100\t200\n".getBytes(CHARSET));
+      binaryOutput.flush();
+      binaryOutput.write("chr1\t150\t250\nchr2\t10\t20\n".getBytes(CHARSET));
+    }
+    assertEquals("chr1\t100\t200\nchr1\t150\t250\nchr2\t10\t20\n",
+        new String(decode(output.toByteArray()), CHARSET));
+  }
+
+  @Test
+  public void encode_MissingLastLineSeparator() throws Throwable {
+    byte[] encoded = encode("chr1\t100\t200\nchr1\t150\t250".getBytes(CHARSET));
+    assertEquals("chr1\t100\t200\nchr1\t150\t250\n", new String(decode(encoded), CHARSET));
+  }
+
+  @Test
+  public void encode_Smaller() throws Throwable {
+    Random random = new Random();
+    byte[] content = IntStream.range(0, LINE_COUNT).mapToObj(lineNumber -> {
+      int start = 100000000 + lineNumber * 100 + random.nextInt(100);
+      int end = start + random.nextInt(200);
+      String strand = random.nextBoolean() ? "-" : "+";
+      return "chr1\t" + start + "\t" + end + "\t.\t0\t" + strand + "\n";
+    }).collect(Collectors.joining()).getBytes(CHARSET);
+    assertTrue(encode(content).length < content.length / 2);
+  }
+
+  @Test
+  public void isBinary_Stream() throws Throwable {
+    BufferedInputStream input =
+        new BufferedInputStream(new ByteArrayInputStream("chr1\t1\t2\n".getBytes(CHARSET)));
+    assertFalse(BinaryBed.isBinary(input));
+    byte[] start = new byte[4];
+    assertEquals(4, input.read(start));
+    assertArrayEquals("chr1".getBytes(CHARSET), start);
+  }
+
+  @Test
+  public void isBinary_ShortStream() throws Throwable {
+    assertFalse(BinaryBed.isBinary(new BufferedInputStream(new ByteArrayInputStream(new byte[0]))));
+    assertFalse(BinaryBed
+        .isBinary(new BufferedInputStream(new ByteArrayInputStream("BB".getBytes(CHARSET)))));
+  }
+
+  @Test
+  public void isBinary_Path() throws Throwable {
+    assertTrue(BinaryBed.isBinary(Paths.get("test.bbed")));
+    assertFalse(BinaryBed.isBinary(Paths.get("test.bed")));
+    assertFalse(BinaryBed.isBinary(Paths.get("test.bbed.txt")));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ByteLineReaderTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+  private List<String> lines(String content, int bufferSize) throws Throwable {
+    List<String> lines = new ArrayList<>();
+    try (ByteLineReader reader =
+        new ByteLineReader(new ByteArrayInputStream(content.getBytes(CHARSET)), bufferSize)) {
+      while (reader.next()) {
+        lines.add(
+            new String(reader.buffer(), reader.start(), reader.end() - reader.start(), CHARSET));
+      }
+    }
+    return lines;
+  }
+
+  @Test
+  public void next() throws Throwable {
+    List<String> lines = lines("chr1\t10\t20\nchr2\t30\t40\n", 1024);
+    assertEquals(2, lines.size());
+    assertEquals("chr1\t10\t20", lines.get(0));
+    assertEquals("chr2\t30\t40", lines.get(1));
+  }
+
+  @Test
+  public void next_NoLastLineSeparator() throws Throwable {
+    List<String> lines = lines("chr1\t10\t20\nchr2\t30\t40", 1024);
+    assertEquals(2, lines.size());
+    assertEquals("chr1\t10\t20", lines.get(0));
+    assertEquals("chr2\t30\t40", lines.get(1));
+  }
+
+  @Test
+  public void next_CarriageReturn() throws Throwable {
+    List<String> lines = lines("chr1\t10\t20\r\nchr2\t30\t40\r\n", 1024);
+    assertEquals(2, lines.size());
+    assertEquals("chr1\t10\t20", lines.get(0));
+    assertEquals("chr2\t30\t40", lines.get(1));
+  }
+
+  @Test
+  public void next_EmptyLines() throws Throwable {
+    List<String> lines = lines("\nchr1\t10\t20\n\n", 1024);
+    assertEquals(3, lines.size());
+    assertEquals("", lines.get(0));
+    assertEquals("chr1\t10\t20", lines.get(1));
+    assertEquals("", lines.get(2));
+  }
+
+  @Test
+  public void next_Empty() throws Throwable {
+    assertTrue(lines("", 1024).isEmpty());
+  }
+
+  @Test
+  public void next_SmallBuffer() throws Throwable {
+    StringBuilder content = new StringBuilder();
+    List<String> expected = new ArrayList<>();
+    Random random = new Random();
+    for (int i = 0; i < 200; i++) {
+      String line = "chr" + i + "\t" + random.nextInt(1000000) + "\tname" + i + "_é";
+      expected.add(line);
+      content.append(line).append("\n");
+    }
+    assertEquals(expected, lines(content.toString(), 4));
+  }
+
+  @Test
+  public void indexOf() {
+    byte[] bytes = "chr1\t10\t20".getBytes(CHARSET);
+    assertEquals(4, ByteLineReader.indexOf(bytes, (byte) '\t', 0, bytes.length));
+    assertEquals(7, ByteLineReader.indexOf(bytes, (byte) '\t', 5, bytes.length));
+    assertEquals(-1, ByteLineReader.indexOf(bytes, (byte) '\t', 8, bytes.length));
+    assertEquals(-1, ByteLineReader.indexOf(bytes, (byte) '\t', 0, 4));
+  }
+
+  private long parseLong(String value) {
+    byte[] bytes = ("x" + value + "y").getBytes(CHARSET);
+    return ByteLineReader.parseLong(bytes, 1, bytes.length - 1);
+  }
+
+  @Test
+  public void parseLong() {
+    assertEquals(0, parseLong("0"));
+    assertEquals(123, parseLong("123"));
+    assertEquals(123, parseLong("+123"));
+    assertEquals(-123, parseLong("-123"));
+    assertEquals(Long.MAX_VALUE, parseLong(String.valueOf(Long.MAX_VALUE)));
+    assertEquals(Long.MIN_VALUE, parseLong(String.valueOf(Long.MIN_VALUE)));
+    Random random = new Random();
+    for (int i = 0; i < 1000; i++) {
+      long value = random.nextLong();
+      assertEquals(value, parseLong(String.valueOf(value)));
+    }
+  }
+
+  @Test
+  public void parseLong_Invalid() {
+    String[] values = { "", "-", "+", "1a", "a1", " 1", "9223372036854775808",
+        "-9223372036854775809", "99999999999999999999" };
+    for (String value : values) {
+      try {
+        parseLong(value);
+        fail("Expected NumberFormatException for " + value);
+      } catch (NumberFormatException e) {
+        assertFalse(e.getMessage().isEmpty());
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class ByteLineWriterTest {
+  private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+  @Test
+  public void write() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] line = "xchr1\t10\t20y".getBytes(CHARSET);
+    try (ByteLineWriter writer = new ByteLineWriter(output, 32)) {
+      writer.write(line, 1, line.length - 1);
+      writer.write((byte) '\t');
+      writer.writeLong(30);
+      writer.newLine();
+    }
+    assertEquals("chr1\t10\t20\t30\n", output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void write_LargerThanBuffer() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StringBuilder expected = new StringBuilder();
+    try (ByteLineWriter writer = new ByteLineWriter(output, 32)) {
+      for (int i = 0; i < 100; i++) {
+        String line = "chr" + i + "\t" + i * 1000 + "\tname_of_annotation_" + i;
+        byte[] bytes = line.getBytes(CHARSET);
+        writer.write(bytes, 0, bytes.length);
+        writer.write((byte) '\t');
+        writer.writeLong(i * 1000 + 500);
+        writer.newLine();
+        expected.append(line).append("\t").append(i * 1000 + 500).append("\n");
+      }
+    }
+    assertEquals(expected.toString(), output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void writeLong() throws Throwable {
+    long[] values = { 0, 1, -1, 9, 10, -10, 99, 100, 123456789, -123456789, Long.MAX_VALUE,
+        Long.MIN_VALUE, Long.MAX_VALUE / 10, Long.MIN_VALUE / 10 };
+    for (long value : values) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (ByteLineWriter writer = new ByteLineWriter(output)) {
+        writer.writeLong(value);
+      }
+      assertEquals(String.valueOf(value), output.toString(CHARSET.name()));
+    }
+  }
+
+  @Test
+  public void writeLong_Random() throws Throwable {
+    Random random = new Random();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StringBuilder expected = new StringBuilder();
+    try (ByteLineWriter writer = new ByteLineWriter(output, 32)) {
+      for (int i = 0; i < 1000; i++) {
+        long value = i % 2 == 0 ? random.nextLong() : random.nextInt(1000000);
+        writer.writeLong(value);
+        writer.newLine();
+        expected.append(value).append("\n");
+      }
+    }
+    assertEquals(expected.toString(), output.toString(CHARSET.name()));
+  }
+
+  @Test
+  public void flush() throws Throwable {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteLineWriter writer = new ByteLineWriter(output);
+    writer.writeLong(42);
+    assertEquals(0, output.size());
+    writer.flush();
+    assertEquals("42", output.toString(CHARSET.name()));
+    writer.close();
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class SplitWriterTest {
+  private static final LineRouter CHROMOSOME = line -> line.substring(0, line.indexOf('\t'));
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void file() {
+    assertEquals(Paths.get("dir", "output.chr1.bed"),
+        SplitWriter.file(Paths.get("dir", "output.bed"), "chr1"));
+    assertEquals(Paths.get("output.chr1"), SplitWriter.file(Paths.get("output"), "chr1"));
+    assertEquals(Paths.get("output.chr%2F1.bed"),
+        SplitWriter.file(Paths.get("output.bed"), "chr/1"));
+    assertEquals(Paths.get("output.chr1_random.bed"),
+        SplitWriter.file(Paths.get("output.bed"), "chr1_random"));
+    assertEquals(Paths.get("output.chr%C3%A9.bed"),
+        SplitWriter.file(Paths.get("output.bed"), "chr\u00e9"));
+  }
+
+  @Test
+  public void file_DifferentKeys() {
+    Path output = Paths.get("output.bed");
+    assertNotEquals(SplitWriter.file(output, "chr1|a"), SplitWriter.file(output, "chr1:a"));
+    assertNotEquals(SplitWriter.file(output, "chr1%7Ca"), SplitWriter.file(output, "chr1|a"));
+  }
+
+  @Test
+  public void write() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    try (BufferedWriter writer =
+        new BufferedWriter(new SplitWriter(output, CHROMOSOME, 10, 2))) {
+      writer.write("track name=test\n");
+      writer.write("chr1\t10\t20\n");
+      writer.write("chr2\t10\t20\n");
+      writer.write("chr1\t30");
+      writer.write("\t40\nchr2\t30\t40");
+    }
+    assertFalse(Files.exists(output));
+    List<String> lines = Files.readAllLines(SplitWriter.file(output, "chr1"));
+    assertEquals(3, lines.size());
+    assertEquals("track name=test", lines.get(0));
+    assertEquals("chr1\t10\t20", lines.get(1));
+    assertEquals("chr1\t30\t40", lines.get(2));
+    lines = Files.readAllLines(SplitWriter.file(output, "chr2"));
+    assertEquals(3, lines.size());
+    assertEquals("track name=test", lines.get(0));
+    assertEquals("chr2\t10\t20", lines.get(1));
+    assertEquals("chr2\t30\t40", lines.get(2));
+  }
+
+  @Test
+  public void write_ReopenFiles() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    int chromosomes = 20;
+    int lines = 20000;
+    try (BufferedWriter writer =
+        new BufferedWriter(new SplitWriter(output, CHROMOSOME, 2, 2))) {
+      for (int i = 0; i < lines; i++) {
+        writer.write("chr" + (i % chromosomes) + "\t" + i + "\t" + (i + 1000) + "\n");
+      }
+    }
+    for (int chromosome = 0; chromosome < chromosomes; chromosome++) {
+      List<String> chromosomeLines =
+          Files.readAllLines(SplitWriter.file(output, "chr" + chromosome));
+      assertEquals(lines / chromosomes, chromosomeLines.size());
+      for (int i = 0; i < chromosomeLines.size(); i++) {
+        int position = i * chromosomes + chromosome;
+        assertEquals("chr" + chromosome + "\t" + position + "\t" + (position + 1000),
+            chromosomeLines.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void write_MaximumBuffered() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    int chromosomes = 100;
+    int lines = 10000;
+    try (SplitWriter splitWriter = new SplitWriter(output, CHROMOSOME, 10, 2, 1000)) {
+      BufferedWriter writer = new BufferedWriter(splitWriter);
+      writer.write("track name=test\n");
+      for (int i = 0; i < lines; i++) {
+        writer.write("chr" + (i % chromosomes) + "\t" + i + "\t" + (i + 1000) + "\n");
+        writer.flush();
+        assertTrue(splitWriter.buffered() <= 1000);
+      }
+    }
+    for (int chromosome = 0; chromosome < chromosomes; chromosome++) {
+      List<String> chromosomeLines =
+          Files.readAllLines(SplitWriter.file(output, "chr" + chromosome));
+      assertEquals(lines / chromosomes + 1, chromosomeLines.size());
+      assertEquals("track name=test", chromosomeLines.get(0));
+      for (int i = 1; i < chromosomeLines.size(); i++) {
+        int position = (i - 1) * chromosomes + chromosome;
+        assertEquals("chr" + chromosome + "\t" + position + "\t" + (position + 1000),
+            chromosomeLines.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void write_ExistingFile() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    Files.write(SplitWriter.file(output, "chr1"), "old content\n".getBytes());
+    try (BufferedWriter writer =
+        new BufferedWriter(new SplitWriter(output, CHROMOSOME, 10, 2))) {
+      writer.write("chr1\t10\t20\n");
+    }
+    List<String> lines = Files.readAllLines(SplitWriter.file(output, "chr1"));
+    assertEquals(1, lines.size());
+    assertEquals("chr1\t10\t20", lines.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void write_NoOutput() throws Throwable {
+    new SplitWriter(null, CHROMOSOME, 10, 2).close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void write_Binary() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output" + BinaryBed.EXTENSION);
+    new SplitWriter(output, CHROMOSOME, 10, 2).close();
+  }
+
+  @Test
+  public void writer_BedStreams() throws Throwable {
+    Path output = temporaryFolder.getRoot().toPath().resolve("output.bed");
+    try (BufferedWriter writer = BedStreams.writer(output, CHROMOSOME, 10)) {
+      writer.write("chr1\t10\t20\n");
+    }
+    assertTrue(Files.exists(SplitWriter.file(output, "chr1")));
+  }
+}
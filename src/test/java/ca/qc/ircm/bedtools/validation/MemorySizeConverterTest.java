@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import com.beust.jcommander.ParameterException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class MemorySizeConverterTest {
+  private MemorySizeConverter memorySizeConverter = new MemorySizeConverter();
+
+  @Test
+  public void convert_Bytes() {
+    assertEquals((Long) 1000L, memorySizeConverter.convert("1000"));
+  }
+
+  @Test
+  public void convert_Units() {
+    assertEquals((Long) (2L << 10), memorySizeConverter.convert("2k"));
+    assertEquals((Long) (512L << 20), memorySizeConverter.convert("512m"));
+    assertEquals((Long) (4L << 30), memorySizeConverter.convert("4g"));
+    assertEquals((Long) (1L << 40), memorySizeConverter.convert("1t"));
+  }
+
+  @Test
+  public void convert_UpperCaseWithB() {
+    assertEquals((Long) (512L << 20), memorySizeConverter.convert("512MB"));
+    assertEquals((Long) 100L, memorySizeConverter.convert("100b"));
+  }
+
+  @Test(expected = ParameterException.class)
+  public void convert_Invalid() {
+    memorySizeConverter.convert("abc");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void convert_UnitOnly() {
+    memorySizeConverter.convert("m");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void convert_Zero() {
+    memorySizeConverter.convert("0m");
+  }
+
+  @Test(expected = ParameterException.class)
+  public void convert_Overflow() {
+    memorySizeConverter.convert("100000000t");
+  }
+}
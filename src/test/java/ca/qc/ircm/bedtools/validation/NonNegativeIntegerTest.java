@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Institut de recherches cliniques de Montreal (IRCM)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ca.qc.ircm.bedtools.validation;
+
+import static org.junit.Assert.fail;
+
+import ca.qc.ircm.bedtools.test.config.NonTransactionalTestAnnotations;
+import com.beust.jcommander.ParameterException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@NonTransactionalTestAnnotations
+public class NonNegativeIntegerTest {
+  private NonNegativeInteger nonNegativeInteger = new NonNegativeInteger();
+
+  @Test
+  public void validate_Positive() throws Throwable {
+    try {
+      nonNegativeInteger.validate("my-name", "5");
+      nonNegativeInteger.validate("my-name", "0");
+      // Success
+    } catch (ParameterException e) {
+      fail("Expected no ParameterException");
+    }
+  }
+
+  @Test
+  public void validate_Negative() {
+    try {
+      nonNegativeInteger.validate("my-name", "-5");
+      fail("Expected ParameterException");
+    } catch (ParameterException e) {
+      // Success
+    }
+  }
+
+  @Test
+  public void validate_NotInteger() {
+    try {
+      nonNegativeInteger.validate("my-name", "a");
+      fail("Expected ParameterException");
+    } catch (ParameterException e) {
+      // Success
+    }
+  }
+}